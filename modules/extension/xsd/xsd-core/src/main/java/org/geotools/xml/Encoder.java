@@ -67,7 +67,6 @@ import org.geotools.xml.impl.ElementEncoder;
 import org.geotools.xml.impl.GetPropertyExecutor;
 import org.geotools.xml.impl.MismatchedBindingFinder;
 import org.geotools.xml.impl.NamespaceSupportWrapper;
-import org.geotools.xml.impl.SchemaIndexImpl;
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.defaults.DefaultPicoContainer;
 import org.w3c.dom.Attr;
@@ -204,7 +203,7 @@ public class Encoder {
     public Encoder(Configuration configuration, XSDSchema schema) {
         this.schema = schema;
 
-        index = new SchemaIndexImpl(new XSDSchema[] { schema });
+        index = SchemaCache.getInstance().getSchemaIndex(new XSDSchema[] { schema });
 
         bindingLoader = new BindingLoader(configuration.setupBindings());
         bindingWalker = new BindingWalker(bindingLoader);
@@ -1020,8 +1019,7 @@ O:
         
         }
         finally {
-            //cleanup
-            index.destroy();
+            //cleanup, the index is shared through the schema cache so it is not destroyed
             
             //close any iterators still present in the stack, this will only occur in an exception
             // case
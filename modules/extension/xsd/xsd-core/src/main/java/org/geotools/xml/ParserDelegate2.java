@@ -0,0 +1,53 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import javax.xml.namespace.QName;
+
+import org.xml.sax.Attributes;
+
+/**
+ * A {@link ParserDelegate} that can take over elements declared in the schemas as well.
+ * <p>
+ * Plain delegates are asked only about the elements the parser finds no declaration for, while
+ * these are asked first about every element that is not already handled by a delegate, so that
+ * they can replace the generic, binding based, parsing of the elements they know how to handle
+ * in a faster way. Elements they refuse go through the generic path as usual.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public interface ParserDelegate2 extends ParserDelegate {
+
+    /**
+     * Determines if this delegate takes over parsing of the specified element.
+     * <p>
+     * This method is called for a good deal of the elements of the document, implementations
+     * should be fast.
+     * </p>
+     *
+     * @param elementName
+     *            The name of the element to potentially handle.
+     * @param attributes
+     *            The attributes of the element.
+     *
+     * @return True if this delegate should take over parsing.
+     */
+    boolean canHandle(QName elementName, Attributes attributes);
+}
@@ -0,0 +1,198 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.eclipse.xsd.XSDSchema;
+import org.geotools.util.SoftValueHashMap;
+import org.geotools.util.Utilities;
+import org.geotools.xml.impl.SchemaIndexImpl;
+
+/**
+ * Process wide cache of the schemas parsed from instance document schema locations, and of the
+ * schema indexes built over them.
+ * <p>
+ * The schemas of the {@link XSD} subclasses are already built once per jvm, but every parser
+ * used to re-parse the schema locations found in the instance documents it reads (for example
+ * the application schema of a WFS GetFeature response), and every parser and encoder rebuilt
+ * the {@link SchemaIndex} and its lookup tables. Both are now shared, schemas being keyed by
+ * the configuration instance, namespace and location they have been parsed for, indexes by the
+ * schemas they cover. Keying on the configuration instance, rather than on its class, makes sure
+ * schemas parsed with the locators and resolvers of a configuration are not handed to another
+ * one, set up with different ones; configurations have to be reused to benefit from the cache.
+ * </p>
+ * <p>
+ * Cached schemas are shared among the parsers running concurrently. The EMF model behind them
+ * resolves and caches some of its content lazily, without any synchronization, so the shared
+ * schemas have to be treated as read only, and walked through the {@link SchemaIndex}, whose
+ * lazy lookups are synchronized, rather than directly. Code that needs to modify the schemas,
+ * or walk them concurrently on its own, should turn the cache off.
+ * </p>
+ * <p>
+ * Entries are softly referenced, so they are released under memory pressure. Caching of
+ * parsed schemas can be turned off by setting the <code>org.geotools.xml.schemaCache</code>
+ * system property to <code>false</code>, or by calling {@link #setEnabled(boolean)}, for
+ * example when the remote schemas are known to change during the life of the application.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class SchemaCache {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging.getLogger("org.geotools.xml");
+
+    static final SchemaCache INSTANCE = new SchemaCache();
+
+    /**
+     * Returns the process wide cache.
+     */
+    public static SchemaCache getInstance() {
+        return INSTANCE;
+    }
+
+    boolean enabled = !"false".equalsIgnoreCase(System.getProperty("org.geotools.xml.schemaCache"));
+
+    SoftValueHashMap schemas = new SoftValueHashMap(20);
+
+    SoftValueHashMap indexes = new SoftValueHashMap(20);
+
+    /**
+     * Returns the schema at the specified location, parsing it with the provided locators and
+     * resolvers if not already cached.
+     *
+     * @param configuration The configuration the locators and resolvers come from.
+     * @param namespace The namespace of the schema.
+     * @param location The location of the schema, after overrides have been applied.
+     */
+    public XSDSchema getSchema(Configuration configuration, String namespace, String location,
+            List locators, List resolvers) throws IOException {
+        if (!enabled) {
+            return Schemas.parse(location, locators, resolvers);
+        }
+
+        SchemaKey key = new SchemaKey(configuration, namespace, location);
+        synchronized (schemas) {
+            XSDSchema schema = (XSDSchema) schemas.get(key);
+            if (schema != null) {
+                return schema;
+            }
+        }
+
+        // parse outside of the lock, if two threads race for the same schema the first one
+        // wins and both get the same instance
+        XSDSchema schema = Schemas.parse(location, locators, resolvers);
+        if (schema == null) {
+            return null;
+        }
+        synchronized (schemas) {
+            XSDSchema cached = (XSDSchema) schemas.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            LOGGER.fine("Caching schema " + namespace + " at " + location);
+            schemas.put(key, schema);
+        }
+        return schema;
+    }
+
+    /**
+     * Returns the index covering the specified schemas, creating it if not already cached.
+     * <p>
+     * Shared indexes must not be destroyed by their users.
+     * </p>
+     */
+    public SchemaIndex getSchemaIndex(XSDSchema[] schemas) {
+        List key = Arrays.asList((Object[]) schemas.clone());
+        synchronized (indexes) {
+            SchemaIndex index = (SchemaIndex) indexes.get(key);
+            if (index == null) {
+                index = new SchemaIndexImpl(schemas);
+                indexes.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the caching of parsed schemas. Schema indexes are always shared.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            synchronized (schemas) {
+                schemas.clear();
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached schemas and indexes.
+     */
+    public void clear() {
+        synchronized (schemas) {
+            schemas.clear();
+        }
+        synchronized (indexes) {
+            indexes.clear();
+        }
+    }
+
+    /**
+     * Key of a parsed schema, the configuration is compared by identity since its
+     * {@link Configuration#equals(Object)} only looks at the namespace
+     */
+    static class SchemaKey {
+        final Configuration configuration;
+
+        final String namespace;
+
+        final String location;
+
+        SchemaKey(Configuration configuration, String namespace, String location) {
+            this.configuration = configuration;
+            this.namespace = namespace;
+            this.location = location;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof SchemaKey)) {
+                return false;
+            }
+            SchemaKey other = (SchemaKey) obj;
+            return configuration == other.configuration
+                    && Utilities.equals(namespace, other.namespace)
+                    && Utilities.equals(location, other.location);
+        }
+
+        @Override
+        public int hashCode() {
+            return Utilities.hash(namespace, Utilities.hash(location,
+                    System.identityHashCode(configuration)));
+        }
+    }
+}
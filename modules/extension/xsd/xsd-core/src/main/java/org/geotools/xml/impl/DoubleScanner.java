@@ -0,0 +1,215 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml.impl;
+
+/**
+ * Parses doubles straight out of a character sequence, without creating intermediate strings.
+ * <p>
+ * Numbers made of at most 15 significant digits, with a decimal exponent between -22 and 22,
+ * which covers the vast majority of the coordinates found in GML documents, are computed
+ * exactly with a single floating point multiplication or division, and are thus the same as
+ * the ones returned by {@link Double#parseDouble(String)}. Anything else, including the special
+ * values, falls back on {@link Double#parseDouble(String)}.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public final class DoubleScanner {
+
+    /**
+     * Powers of ten exactly representable as doubles
+     */
+    static final double[] POWERS = new double[23];
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    static final int MAX_DIGITS = 15;
+
+    private DoubleScanner() {
+    }
+
+    /**
+     * Returns true if the character is xml white space
+     */
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Parses the double in the specified range of the text.
+     *
+     * @param decimal The decimal separator
+     * @throws NumberFormatException If the text is not a valid number
+     */
+    public static double parseDouble(CharSequence text, int start, int end, char decimal) {
+        int i = start;
+        boolean negative = false;
+        if (i < end) {
+            char c = text.charAt(i);
+            if (c == '-') {
+                negative = true;
+                i++;
+            } else if (c == '+') {
+                i++;
+            }
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        boolean exact = true;
+
+        // integer part
+        for (; i < end; i++) {
+            int d = text.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            any = true;
+            if (mantissa != 0 || d != 0) {
+                if (++digits > MAX_DIGITS) {
+                    exact = false;
+                }
+                mantissa = mantissa * 10 + d;
+            }
+        }
+
+        // fraction
+        if (i < end && text.charAt(i) == decimal) {
+            for (i++; i < end; i++) {
+                int d = text.charAt(i) - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                any = true;
+                if (mantissa != 0 || d != 0) {
+                    if (++digits > MAX_DIGITS) {
+                        exact = false;
+                    }
+                    mantissa = mantissa * 10 + d;
+                }
+                exponent--;
+            }
+        }
+
+        // exponent
+        if (any && i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            int e = 0;
+            boolean exponentDigits = false;
+            for (; i < end; i++) {
+                int d = text.charAt(i) - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                exponentDigits = true;
+                if (e < 10000) {
+                    e = e * 10 + d;
+                }
+            }
+            if (!exponentDigits) {
+                any = false;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+
+        if (!any || i != end || !exact) {
+            return fallback(text, start, end, decimal);
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (exponent == 0) {
+            value = mantissa;
+        } else if (exponent > 0 && exponent < POWERS.length) {
+            value = mantissa * POWERS[exponent];
+        } else if (exponent < 0 && -exponent < POWERS.length) {
+            value = mantissa / POWERS[-exponent];
+        } else {
+            return fallback(text, start, end, decimal);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the double in the specified range of the text, using '.' as the decimal separator.
+     */
+    public static double parseDouble(CharSequence text, int start, int end) {
+        return parseDouble(text, start, end, '.');
+    }
+
+    static double fallback(CharSequence text, int start, int end, char decimal) {
+        String value = text.subSequence(start, end).toString();
+        if (decimal != '.') {
+            value = value.replace(decimal, '.');
+        }
+        if ("INF".equals(value)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * Parses a white space separated list of doubles.
+     *
+     * @return The parsed values, in an array of the exact size
+     */
+    public static double[] parseList(CharSequence text) {
+        double[] values = new double[16];
+        int count = 0;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == n) {
+                break;
+            }
+            int start = i;
+            while (i < n && !isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (count == values.length) {
+                double[] grown = new double[values.length * 2];
+                System.arraycopy(values, 0, grown, 0, count);
+                values = grown;
+            }
+            values[count++] = parseDouble(text, start, i);
+        }
+
+        if (count == values.length) {
+            return values;
+        }
+        double[] result = new double[count];
+        System.arraycopy(values, 0, result, 0, count);
+        return result;
+    }
+}
@@ -18,6 +18,7 @@ package org.geotools.xml.impl;
 
 import javax.xml.namespace.QName;
 import org.geotools.xml.Configuration;
+import org.geotools.xml.InstanceComponent;
 
 
 public class ElementNameStreamingParserHandler extends StreamingParserHandler {
@@ -33,7 +34,9 @@ public class ElementNameStreamingParserHandler extends StreamingParserHandler {
     }
 
     protected boolean stream(ElementHandler handler) {
-        return name.getNamespaceURI().equals(handler.getComponent().getNamespace())
-        && name.getLocalPart().equals(handler.getComponent().getName());
+        //use the parse node, delegating handlers have no component
+        InstanceComponent component = handler.getParseNode().getComponent();
+        return name.getNamespaceURI().equals(component.getNamespace())
+        && name.getLocalPart().equals(component.getName());
     }
 }
@@ -30,6 +30,7 @@ import org.eclipse.xsd.XSDTypeDefinition;
 import org.eclipse.xsd.XSDVariety;
 import org.eclipse.xsd.XSDWhiteSpace;
 import org.eclipse.xsd.XSDWhiteSpaceFacet;
+import org.picocontainer.ComponentAdapter;
 import org.picocontainer.MutablePicoContainer;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -48,6 +49,8 @@ import org.geotools.xml.Node;
 import org.geotools.xml.Schemas;
 import org.geotools.xml.SimpleBinding;
 import org.geotools.xml.impl.BindingWalker.Visitor;
+import org.geotools.xs.XS;
+import org.geotools.xs.bindings.XSDoubleBinding;
 import org.geotools.xs.facets.Whitespace;
 
 
@@ -163,6 +166,20 @@ public class ParseExecutor implements Visitor {
         return value;
     }
 
+    /**
+     * Returns true if the type is xs:double and its binding is the default one, in which case
+     * list items can be parsed without walking the bindings for each of them. The items are
+     * still tokenized and returned as {@link Double} objects, as list bindings expect.
+     */
+    boolean isPlainDouble(XSDSimpleTypeDefinition type) {
+        if (!XS.DOUBLE.getLocalPart().equals(type.getName())
+                || !XS.NAMESPACE.equals(type.getTargetNamespace())) {
+            return false;
+        }
+        ComponentAdapter adapter = parser.getBindingLoader().getBinding(XS.DOUBLE);
+        return adapter != null && adapter.getComponentImplementation() == XSDoubleBinding.class;
+    }
+
     /**
      * Pre-parses the instance compontent checking the following:
      * <p>
@@ -247,6 +264,20 @@ public class ParseExecutor implements Visitor {
 
                 //now we must parse the items up
                 final XSDSimpleTypeDefinition itemType = type.getItemTypeDefinition();
+
+                //lists of doubles, such as gml coordinates, skip the binding walk for each
+                //item, they are still split in strings and boxed though
+                if (isPlainDouble(itemType)) {
+                    List parsed = new ArrayList(list.length);
+                    for (int i = 0; i < list.length; i++) {
+                        if (list[i].length() > 0) {
+                            parsed.add(new Double(DoubleScanner.parseDouble(list[i], 0,
+                                    list[i].length())));
+                        }
+                    }
+                    return parsed;
+                }
+
                 List parsed = new ArrayList();
 
                 //create a pseudo declaration
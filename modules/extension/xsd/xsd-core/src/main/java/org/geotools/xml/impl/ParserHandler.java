@@ -17,6 +17,8 @@
 package org.geotools.xml.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +40,8 @@ import org.geotools.xml.BindingFactory;
 import org.geotools.xml.Configuration;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.ParserDelegate;
+import org.geotools.xml.ParserDelegate2;
+import org.geotools.xml.SchemaCache;
 import org.geotools.xml.SchemaIndex;
 import org.geotools.xml.Schemas;
 import org.geotools.xs.XS;
@@ -98,6 +102,9 @@ public class ParserHandler extends DefaultHandler {
     /** context, container **/
     MutablePicoContainer context;
 
+    /** delegates consulted before the schemas, looked up once per document */
+    List<ParserDelegate2> priorityDelegates;
+
     /** logger **/
     Logger logger;
 
@@ -335,7 +342,9 @@ public class ParserHandler extends DefaultHandler {
                         
                         //parse the document
                         try {
-                            schemas[i / 2] = Schemas.parse(location, locators, resolvers);
+                            schemas[i / 2] = SchemaCache.getInstance().getSchema(config,
+                                    namespace, location, Arrays.asList(locators),
+                                    Arrays.asList(resolvers));
                         } catch (Exception e) {
                             String msg = "Error parsing: " + location;
                             logger.warning(msg);
@@ -444,7 +453,7 @@ O:          for (int i = 0; i < schemas.length; i++) {
                 }
             }
 
-            index = new SchemaIndexImpl(schemas);
+            index = SchemaCache.getInstance().getSchemaIndex(schemas);
             context.registerComponentInstance(index);
             
             //if no default prefix is set in this namespace context, then 
@@ -466,9 +475,31 @@ O:          for (int i = 0; i < schemas.length; i++) {
 
         //get the handler at top of the stack and lookup child
 
-        //First ask teh parent handler for a child
         Handler parent = (Handler) handlers.peek();
-        ElementHandler handler = (ElementHandler) parent.createChildHandler(qualifiedName);
+        ElementHandler handler = null;
+
+        //delegates taking over declared elements come first, unless a delegate is
+        // already in charge
+        if (!(parent instanceof DelegatingHandler)) {
+            if (priorityDelegates == null) {
+                priorityDelegates = new ArrayList<ParserDelegate2>();
+                for (Object d : Schemas.getComponentInstancesOfType(context, ParserDelegate2.class)) {
+                    priorityDelegates.add((ParserDelegate2) d);
+                }
+            }
+            for (int i = 0; (handler == null) && (i < priorityDelegates.size()); i++) {
+                ParserDelegate2 delegate = priorityDelegates.get(i);
+                if (delegate.canHandle(qualifiedName, attributes)) {
+                    handler = new DelegatingHandler(delegate, qualifiedName, parent);
+                    ((DelegatingHandler) handler).startDocument();
+                }
+            }
+        }
+
+        //First ask teh parent handler for a child
+        if (handler == null) {
+            handler = (ElementHandler) parent.createChildHandler(qualifiedName);
+        }
 
         if (handler == null) {
             //look for a global element
@@ -625,17 +656,17 @@ O:          for (int i = 0; i < schemas.length; i++) {
 
         handler.endElement(qualifiedName);
 
-        endElementInternal(handler);
-
         //if the upper most delegating handler, then end the document
         if ( handler instanceof DelegatingHandler && 
                 !handlers.isEmpty() && !(handlers.peek() instanceof DelegatingHandler) ) {
             DelegatingHandler dh = (DelegatingHandler) handler;
             dh.endDocument();
             
-            //grabbed the parsed value
+            //grabbed the parsed value, before the subclasses get to see it
             dh.getParseNode().setValue(dh.delegate.getParsedObject());
         }
+
+        endElementInternal(handler);
         
         //pop namespace context
         namespaces.popContext();
@@ -652,12 +683,10 @@ O:          for (int i = 0; i < schemas.length; i++) {
         documentHandler = (DocumentHandler) handlers.pop();
         documentHandler.endDocument();
         
-        //cleanup
-        if ( index != null ) {
-            index.destroy();
-        }
+        //cleanup, the index is shared through the schema cache so it is not destroyed
         index = null;
         schemas = null;
+        priorityDelegates = null;
 
         synchronized (this) {
             notifyAll();
@@ -35,6 +35,7 @@ import org.eclipse.xsd.XSDSimpleTypeDefinition;
 import org.eclipse.xsd.XSDTypeDefinition;
 import org.eclipse.xsd.util.XSDSchemaBuildingTools;
 import org.eclipse.xsd.util.XSDUtil;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -58,11 +59,11 @@ public class SchemaIndexImpl implements SchemaIndex {
     /**
      * Indexes
      */
-    HashMap elementIndex;
-    HashMap attributeIndex;
-    HashMap attributeGroupIndex;
-    HashMap complexTypeIndex;
-    HashMap simpleTypeIndex;
+    volatile HashMap elementIndex;
+    volatile HashMap attributeIndex;
+    volatile HashMap attributeGroupIndex;
+    volatile HashMap complexTypeIndex;
+    volatile HashMap simpleTypeIndex;
 
     /**
      * Cache of elements to children
@@ -81,12 +82,20 @@ public class SchemaIndexImpl implements SchemaIndex {
     
     public SchemaIndexImpl(XSDSchema[] schemas) {
         this.schemas = new XSDSchema[schemas.length + 1];
-        adapter = new SchemaAdapter();
+        adapter = new SchemaAdapter(this);
         
         //set the schemas passed in
         for (int i = 0; i < schemas.length; i++) {
             this.schemas[i] = schemas[i];
             synchronized(this.schemas[i].eAdapters()) {
+                //drop the adapters of indexes that have been garbage collected
+                for (Iterator a = this.schemas[i].eAdapters().iterator(); a.hasNext();) {
+                    Object other = a.next();
+                    if (other instanceof SchemaAdapter
+                            && ((SchemaAdapter) other).index.get() == null) {
+                        a.remove();
+                    }
+                }
                 this.schemas[i].eAdapters().add(adapter);
             }
         }
@@ -190,10 +199,14 @@ public class SchemaIndexImpl implements SchemaIndex {
     }
 
     protected OrderedMap children(XSDElementDeclaration parent) {
-        OrderedMap children = (OrderedMap) element2children.get(parent);
+        OrderedMap children;
+        synchronized (this) {
+            children = (OrderedMap) element2children.get(parent);
+        }
 
         if (children == null) {
             synchronized (this) {
+                children = (OrderedMap) element2children.get(parent);
                 if (children == null) {
                     children = new ListOrderedMap();
 
@@ -278,11 +291,16 @@ public class SchemaIndexImpl implements SchemaIndex {
     }
 
     public List getAttributes(XSDElementDeclaration element) {
-        List attributes = (List) element2attributes.get(element);
+        List attributes;
+        synchronized (element2attributes) {
+            attributes = (List) element2attributes.get(element);
+        }
 
         if (attributes == null) {
             attributes = Schemas.getAttributeDeclarations(element);
-            element2attributes.put(element, attributes);
+            synchronized (element2attributes) {
+                element2attributes.put(element, attributes);
+            }
         }
 
         return Collections.unmodifiableList(attributes);
@@ -369,7 +387,7 @@ public class SchemaIndexImpl implements SchemaIndex {
     }
 
     protected void buildElementIndex() {
-        elementIndex = new HashMap();
+        HashMap index = new HashMap();
 
         for (int i = 0; i < schemas.length; i++) {
             XSDSchema schema = schemas[i];
@@ -378,13 +396,15 @@ public class SchemaIndexImpl implements SchemaIndex {
                 XSDElementDeclaration element = (XSDElementDeclaration) e.next();
 
                 QName qName = new QName(element.getTargetNamespace(), element.getName());
-                elementIndex.put(qName, element);
+                index.put(qName, element);
             }
         }
+
+        elementIndex = index;
     }
 
     protected void buildAttriubuteIndex() {
-        attributeIndex = new HashMap();
+        HashMap index = new HashMap();
 
         for (int i = 0; i < schemas.length; i++) {
             XSDSchema schema = schemas[i];
@@ -393,13 +413,15 @@ public class SchemaIndexImpl implements SchemaIndex {
                 XSDAttributeDeclaration attribute = (XSDAttributeDeclaration) a.next();
 
                 QName qName = new QName(attribute.getTargetNamespace(), attribute.getName());
-                attributeIndex.put(qName, attribute);
+                index.put(qName, attribute);
             }
         }
+
+        attributeIndex = index;
     }
 
     protected void buildAttributeGroupIndex() {
-        attributeGroupIndex = new HashMap();
+        HashMap index = new HashMap();
 
         for (int i = 0; i < schemas.length; i++) {
             XSDSchema schema = schemas[i];
@@ -408,13 +430,15 @@ public class SchemaIndexImpl implements SchemaIndex {
                 XSDAttributeGroupDefinition group = (XSDAttributeGroupDefinition) g.next();
 
                 QName qName = new QName(group.getTargetNamespace(), group.getName());
-                attributeGroupIndex.put(qName, group);
+                index.put(qName, group);
             }
         }
+
+        attributeGroupIndex = index;
     }
 
     protected void buildComplexTypeIndex() {
-        complexTypeIndex = new HashMap();
+        HashMap index = new HashMap();
 
         for (int i = 0; i < schemas.length; i++) {
             XSDSchema schema = schemas[i];
@@ -424,14 +448,16 @@ public class SchemaIndexImpl implements SchemaIndex {
 
                 if (type instanceof XSDComplexTypeDefinition) {
                     QName qName = new QName(type.getTargetNamespace(), type.getName());
-                    complexTypeIndex.put(qName, type);
+                    index.put(qName, type);
                 }
             }
         }
+
+        complexTypeIndex = index;
     }
 
     protected void buildSimpleTypeIndex() {
-        simpleTypeIndex = new HashMap();
+        HashMap index = new HashMap();
 
         for (int i = 0; i < schemas.length; i++) {
             XSDSchema schema = schemas[i];
@@ -441,15 +467,27 @@ public class SchemaIndexImpl implements SchemaIndex {
 
                 if (type instanceof XSDSimpleTypeDefinition) {
                     QName qName = new QName(type.getTargetNamespace(), type.getName());
-                    simpleTypeIndex.put(qName, type);
+                    index.put(qName, type);
                 }
             }
         }
+
+        simpleTypeIndex = index;
     }
 
-    class SchemaAdapter implements Adapter {
+    /**
+     * Clears the indexes as the schemas change. The index is weakly referenced, so that
+     * indexes that are not destroyed explicitly, such as the shared ones, do not stay
+     * reachable through the adapters of the schemas they cover.
+     */
+    static class SchemaAdapter implements Adapter {
         Notifier target;
         Notification last;
+        WeakReference<SchemaIndexImpl> index;
+
+        SchemaAdapter(SchemaIndexImpl index) {
+            this.index = new WeakReference<SchemaIndexImpl>(index);
+        }
 
         public Notifier getTarget() {
             return target;
@@ -464,37 +502,42 @@ public class SchemaIndexImpl implements SchemaIndex {
         }
 
         public void notifyChanged(Notification notification) {
+            SchemaIndexImpl index = this.index.get();
+            if (index == null) {
+                return;
+            }
+
             if (notification.getEventType() == Notification.ADD) {
                 switch (notification.getFeatureID(XSDSchema.class)) {
                 case XSDPackage.XSD_SCHEMA__ATTRIBUTE_DECLARATIONS:
 
-                    synchronized (SchemaIndexImpl.this) {
-                        attributeIndex = null;
+                    synchronized (index) {
+                        index.attributeIndex = null;
                     }
 
                     break;
 
                 case XSDPackage.XSD_SCHEMA__ELEMENT_DECLARATIONS:
 
-                    synchronized (SchemaIndexImpl.this) {
-                        elementIndex = null;
+                    synchronized (index) {
+                        index.elementIndex = null;
                     }
 
                     break;
 
                 case XSDPackage.XSD_SCHEMA__TYPE_DEFINITIONS:
 
-                    synchronized (SchemaIndexImpl.this) {
-                        complexTypeIndex = null;
-                        simpleTypeIndex = null;
+                    synchronized (index) {
+                        index.complexTypeIndex = null;
+                        index.simpleTypeIndex = null;
                     }
 
                     break;
 
                 case XSDPackage.XSD_SCHEMA__ATTRIBUTE_GROUP_DEFINITIONS:
 
-                    synchronized (SchemaIndexImpl.this) {
-                        attributeGroupIndex = null;
+                    synchronized (index) {
+                        index.attributeGroupIndex = null;
                     }
 
                     break;
@@ -102,6 +102,41 @@ public class ParserTest extends TestCase {
         assertTrue( delegate.bar );
     }
     
+    public void testParserDelegate2() throws Exception {
+        MLConfiguration config = new MLConfiguration();
+        
+        MyParserDelegate2 delegate = new MyParserDelegate2();
+        config.getContext().registerComponentInstance( delegate );
+       
+        Parser parser = new Parser(config);
+        List mails = (List) parser.parse( ParserTest.class.getResourceAsStream( "parserDelegate.xml") );
+    
+        //the body element is declared in the schema, but the delegate took over
+        assertTrue( delegate.body );
+        assertEquals( "delegated", ((Mail) mails.get( 0 )).getBody() );
+    }
+    
+    static class MyParserDelegate2 extends MyParserDelegate implements ParserDelegate2 {
+
+        boolean body = false;
+        
+        public boolean canHandle(QName elementName, Attributes attributes) {
+            return "body".equals( elementName.getLocalPart() );
+        }
+        
+        public Object getParsedObject() {
+            return "delegated";
+        }
+        
+        public void startElement(String uri, String localName, String name,
+                Attributes atts) throws SAXException {
+            super.startElement( uri, localName, name, atts );
+            if ( "body".equals( localName ) ) {
+                body = true;
+            }
+        }
+    }
+    
     static class MyParserDelegate implements ParserDelegate {
 
         boolean foo = false;
@@ -0,0 +1,90 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.eclipse.xsd.XSDSchema;
+import org.geotools.xs.XS;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class SchemaCacheTest extends TestCase {
+
+    File xsd;
+
+    protected void setUp() throws Exception {
+        xsd = File.createTempFile("cache", ".xsd");
+        xsd.deleteOnExit();
+
+        FileWriter w = new FileWriter(xsd);
+        w.write("<xsd:schema xmlns='http://geotools.org/test' "
+                + "xmlns:xsd='http://www.w3.org/2001/XMLSchema' "
+                + "targetNamespace='http://geotools.org/test'> "
+                + "<xsd:element name='foo' type='xsd:string'/>" + "</xsd:schema>");
+        w.close();
+    }
+
+    protected void tearDown() throws Exception {
+        SchemaCache.getInstance().setEnabled(true);
+        SchemaCache.getInstance().clear();
+    }
+
+    public void testSchemaShared() throws Exception {
+        SchemaCache cache = SchemaCache.getInstance();
+        Configuration configuration = new XMLConfiguration();
+        String location = xsd.toURI().toString();
+
+        XSDSchema schema = cache.getSchema(configuration, "http://geotools.org/test", location,
+                Collections.EMPTY_LIST, Collections.EMPTY_LIST);
+        assertNotNull(schema);
+        assertEquals("http://geotools.org/test", schema.getTargetNamespace());
+        assertSame(schema, cache.getSchema(configuration, "http://geotools.org/test", location,
+                Collections.EMPTY_LIST, Collections.EMPTY_LIST));
+
+        cache.setEnabled(false);
+        assertNotSame(schema, cache.getSchema(configuration, "http://geotools.org/test",
+                location, Collections.EMPTY_LIST, Collections.EMPTY_LIST));
+    }
+
+    public void testSchemaPerConfiguration() throws Exception {
+        SchemaCache cache = SchemaCache.getInstance();
+        String location = xsd.toURI().toString();
+
+        // same class, but could have been set up with different resolvers
+        XSDSchema schema = cache.getSchema(new XMLConfiguration(), "http://geotools.org/test",
+                location, Collections.EMPTY_LIST, Collections.EMPTY_LIST);
+        assertNotSame(schema, cache.getSchema(new XMLConfiguration(), "http://geotools.org/test",
+                location, Collections.EMPTY_LIST, Collections.EMPTY_LIST));
+    }
+
+    public void testSchemaIndexShared() throws Exception {
+        XSDSchema[] schemas = new XSDSchema[] { XS.getInstance().getSchema() };
+
+        SchemaIndex index = SchemaCache.getInstance().getSchemaIndex(schemas);
+        assertSame(index, SchemaCache.getInstance().getSchemaIndex(
+                new XSDSchema[] { XS.getInstance().getSchema() }));
+        assertNotNull(index.getTypeDefinition(XS.STRING));
+    }
+}
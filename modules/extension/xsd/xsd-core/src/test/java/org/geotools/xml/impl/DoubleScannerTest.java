@@ -0,0 +1,79 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.xml.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * 
+ *
+ * @source $URL$
+ */
+public class DoubleScannerTest extends TestCase {
+
+    public void testParse() {
+        assertParsed("0");
+        assertParsed("-0.0");
+        assertParsed("12.34");
+        assertParsed("+12.34");
+        assertParsed(".5");
+        assertParsed("5.");
+        assertParsed("1e3");
+        assertParsed("-1.5E-7");
+        assertParsed("123456789012345678901234567890");
+        assertParsed("4.9E-324");
+        assertParsed("NaN");
+        assertParsed("-Infinity");
+        assertEquals(Double.POSITIVE_INFINITY, DoubleScanner.parseDouble("INF", 0, 3), 0d);
+        assertEquals(12.5, DoubleScanner.parseDouble("12,5", 0, 4, ','), 0d);
+    }
+
+    public void testInvalid() {
+        try {
+            DoubleScanner.parseDouble("1.2.3", 0, 5);
+            fail("should have failed");
+        } catch (NumberFormatException e) {
+            // fine
+        }
+    }
+
+    public void testRandom() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 15);
+            assertParsed(String.valueOf(value));
+            assertParsed(String.valueOf((float) value));
+        }
+    }
+
+    public void testList() {
+        double[] values = DoubleScanner.parseList("\n 1 2.5\t-3e2  ");
+        assertEquals(3, values.length);
+        assertEquals(1, values[0], 0d);
+        assertEquals(2.5, values[1], 0d);
+        assertEquals(-300, values[2], 0d);
+        assertEquals(0, DoubleScanner.parseList("   ").length);
+    }
+
+    void assertParsed(String text) {
+        double expected = Double.parseDouble(text);
+        double actual = DoubleScanner.parseDouble(text, 0, text.length());
+        assertEquals(text, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+}
@@ -51,6 +51,7 @@ import org.geotools.gml2.bindings.GMLPointTypeBinding;
 import org.geotools.gml2.bindings.GMLPolygonMemberTypeBinding;
 import org.geotools.gml2.bindings.GMLPolygonPropertyTypeBinding;
 import org.geotools.gml2.bindings.GMLPolygonTypeBinding;
+import org.geotools.gml2.simple.OrdinateFormatter;
 import org.geotools.xlink.XLINKConfiguration;
 import org.geotools.xml.Configuration;
 import org.geotools.xml.Parser;
@@ -81,6 +82,18 @@ public class GMLConfiguration extends Configuration {
      */
     public static final QName ENCODE_FEATURE_MEMBER = new QName( "org.geotools.gml", "encodeFeatureMember" );
 
+    /**
+     * Property which controls whether simple feature collections are encoded directly as
+     * SAX events, without building an intermediate DOM, see 
+     * {@link org.geotools.gml2.simple.FeatureCollectionEncoderDelegate}
+     */
+    public static final QName OPTIMIZED_ENCODING = new QName( "org.geotools.gml", "optimizedEncoding" );
+
+    /**
+     * number of decimals used when encoding ordinates
+     */
+    int numDecimals = OrdinateFormatter.FULL_PRECISION;
+
     /**
      * Creates the new gml configuration, with a depenendency
      * on {@link XLINKConfiguration}
@@ -97,6 +110,18 @@ public class GMLConfiguration extends Configuration {
         getProperties().add(Parser.Properties.PARSE_UNKNOWN_ATTRIBUTES);
     }
 
+    /**
+     * Sets the number of decimals ordinates are rounded to when encoded, 
+     * {@link OrdinateFormatter#FULL_PRECISION} (the default) to encode them unchanged.
+     */
+    public void setNumDecimals(int numDecimals) {
+        this.numDecimals = numDecimals;
+    }
+
+    public int getNumDecimals() {
+        return numDecimals;
+    }
+
     public void registerBindings(MutablePicoContainer container) {
         //geometry 
         container.registerComponentImplementation(GML.AbstractGeometryCollectionBaseType,
@@ -168,6 +193,7 @@ public class GMLConfiguration extends Configuration {
      * <li>{@link GeometryFactory}
      * <li>{@link FeatureTypeCache}
      * <li>{@link DefaultFeatureCollections}
+     * <li>{@link OrdinateFormatter}
      * </ul>
      * </p>
      */
@@ -180,5 +206,6 @@ public class GMLConfiguration extends Configuration {
             CoordinateArraySequenceFactory.instance());
         container.registerComponentImplementation(GeometryFactory.class);
         container.registerComponentImplementation(DefaultFeatureCollections.class);
+        container.registerComponentInstance(new OrdinateFormatter(numDecimals));
     }
 }
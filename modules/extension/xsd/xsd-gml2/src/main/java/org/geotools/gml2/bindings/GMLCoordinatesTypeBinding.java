@@ -21,13 +21,14 @@ import java.util.StringTokenizer;
 import javax.xml.namespace.QName;
 
 import org.geotools.gml2.GML;
+import org.geotools.gml2.simple.CoordinateScanner;
+import org.geotools.gml2.simple.OrdinateFormatter;
 import org.geotools.xml.AbstractComplexBinding;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.Node;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
 
@@ -67,9 +68,16 @@ import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
  */
 public class GMLCoordinatesTypeBinding extends AbstractComplexBinding {
     CoordinateSequenceFactory csFactory;
+    OrdinateFormatter formatter;
 
     public GMLCoordinatesTypeBinding(CoordinateSequenceFactory csFactory) {
+        this(csFactory, OrdinateFormatter.DEFAULT);
+    }
+
+    public GMLCoordinatesTypeBinding(CoordinateSequenceFactory csFactory,
+        OrdinateFormatter formatter) {
         this.csFactory = csFactory;
+        this.formatter = formatter;
     }
 
     /**
@@ -116,9 +124,15 @@ public class GMLCoordinatesTypeBinding extends AbstractComplexBinding {
             ts = (String) node.getAttribute("ts").getValue();
         }
 
-        //do the parsing
         String text = instance.getText();
 
+        if ((decimal.length() == 1) && (cs.length() == 1) && (ts.length() == 1)) {
+            //scan the text directly
+            return CoordinateScanner.coordinates(text, decimal.charAt(0), cs.charAt(0),
+                ts.charAt(0), csFactory);
+        }
+
+        //multi character separators, do the parsing the slow way
         //eliminate newlines, repeated spaces, etc
         final String anyBlankSeq = "\\s+";
         final String singleSpace = " ";
@@ -182,20 +196,25 @@ public class GMLCoordinatesTypeBinding extends AbstractComplexBinding {
         CoordinateSequence coordinates = (CoordinateSequence) object;
         StringBuffer buf = new StringBuffer();
 
+        int dimension = coordinates.getDimension();
+
         for (int i = 0; i < coordinates.size(); i++) {
-            Coordinate c = coordinates.getCoordinate(i);
-            buf.append(c.x);
+            formatter.format(coordinates.getOrdinate(i, CoordinateSequence.X), buf);
 
-            boolean y = (coordinates.getDimension() > 1) && !new Double(c.y).isNaN();
+            double y = (dimension > 1) ? coordinates.getOrdinate(i, CoordinateSequence.Y)
+                                       : Double.NaN;
 
-            if (y) {
-                buf.append("," + c.y);
-            }
+            if (!Double.isNaN(y)) {
+                buf.append(',');
+                formatter.format(y, buf);
 
-            boolean z = y && (coordinates.getDimension() > 2) && !new Double(c.z).isNaN();
+                double z = (dimension > 2) ? coordinates.getOrdinate(i, CoordinateSequence.Z)
+                                           : Double.NaN;
 
-            if (z) {
-                buf.append("," + c.z);
+                if (!Double.isNaN(z)) {
+                    buf.append(',');
+                    formatter.format(z, buf);
+                }
             }
 
             if (i < (coordinates.size() - 1)) {
@@ -0,0 +1,197 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import org.geotools.xml.impl.DoubleScanner;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * Parses GML coordinate lists straight from the element text into a coordinate sequence,
+ * without splitting the text into strings.
+ * <p>
+ * The ordinates are collected in a single array of doubles, which is used as is when the
+ * factory builds packed sequences of doubles, and copied in the sequence otherwise.
+ * </p>
+ * <p>
+ * It is used by the GML 2 <code>gml:coordinates</code> binding and by
+ * {@link SimpleFeatureParserDelegate}, for both GML 2 and GML 3 geometries. The GML 3 bindings
+ * do not use it, <code>gml:posList</code> and <code>gml:pos</code> are parsed there as lists of
+ * doubles and turned into direct positions, which is what other bindings expect from them.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public final class CoordinateScanner {
+
+    private CoordinateScanner() {
+    }
+
+    /**
+     * Parses a GML 3 position list, that is, white space separated ordinates.
+     *
+     * @param dimension The number of ordinates of each position
+     * @throws IllegalArgumentException If the number of ordinates is not a multiple of the
+     *         dimension
+     */
+    public static CoordinateSequence posList(CharSequence text, int dimension,
+            CoordinateSequenceFactory factory) {
+        double[] ordinates = DoubleScanner.parseList(text);
+        if (dimension < 1 || ordinates.length % dimension != 0) {
+            throw new IllegalArgumentException(ordinates.length
+                    + " ordinates cannot be split in positions of dimension " + dimension);
+        }
+        return create(ordinates, ordinates.length / dimension, dimension, factory);
+    }
+
+    /**
+     * Parses GML 2 coordinates.
+     * <p>
+     * The dimension of the sequence is the one of the first tuple, missing ordinates in the
+     * following tuples are set to NaN, extra ones are ignored. When the tuple separator is
+     * white space any white space separates tuples, otherwise white space around the
+     * separators is ignored.
+     * </p>
+     *
+     * @param decimal The decimal separator
+     * @param cs The ordinate separator
+     * @param ts The tuple separator
+     */
+    public static CoordinateSequence coordinates(CharSequence text, char decimal, char cs,
+            char ts, CoordinateSequenceFactory factory) {
+        boolean whitespaceTuples = DoubleScanner.isWhitespace(ts);
+        double[] values = new double[32];
+        int count = 0;
+        int dimension = -1;
+        int ordinate = 0;
+        int size = 0;
+
+        int n = text.length();
+        int i = 0;
+        while (true) {
+            while (i < n && DoubleScanner.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == n) {
+                break;
+            }
+
+            int start = i;
+            for (; i < n; i++) {
+                char c = text.charAt(i);
+                if (c == cs || c == ts || DoubleScanner.isWhitespace(c)) {
+                    break;
+                }
+            }
+            if (start == i) {
+                // separator with no value in front of it
+                i++;
+                continue;
+            }
+
+            double value = DoubleScanner.parseDouble(text, start, i, decimal);
+            if (dimension < 0 || ordinate < dimension) {
+                if (count == values.length) {
+                    values = grow(values);
+                }
+                values[count++] = value;
+            }
+            ordinate++;
+
+            // figure out what follows the value
+            boolean endOfTuple;
+            if (i < n && text.charAt(i) == cs) {
+                endOfTuple = false;
+                i++;
+            } else if (i < n && text.charAt(i) == ts) {
+                endOfTuple = true;
+                i++;
+            } else {
+                int j = i;
+                while (j < n && DoubleScanner.isWhitespace(text.charAt(j))) {
+                    j++;
+                }
+                if (j == n) {
+                    endOfTuple = true;
+                    i = j;
+                } else if (text.charAt(j) == cs) {
+                    endOfTuple = false;
+                    i = j + 1;
+                } else if (text.charAt(j) == ts) {
+                    endOfTuple = true;
+                    i = j + 1;
+                } else {
+                    endOfTuple = whitespaceTuples;
+                    i = j;
+                }
+            }
+
+            if (endOfTuple) {
+                if (dimension < 0) {
+                    dimension = ordinate;
+                } else {
+                    for (; ordinate < dimension; ordinate++) {
+                        if (count == values.length) {
+                            values = grow(values);
+                        }
+                        values[count++] = Double.NaN;
+                    }
+                }
+                ordinate = 0;
+                size++;
+            }
+        }
+
+        if (size == 0) {
+            return factory.create(0, 2);
+        }
+        if (count != values.length) {
+            double[] exact = new double[count];
+            System.arraycopy(values, 0, exact, 0, count);
+            values = exact;
+        }
+        return create(values, size, dimension, factory);
+    }
+
+    static double[] grow(double[] values) {
+        double[] grown = new double[values.length * 2];
+        System.arraycopy(values, 0, grown, 0, values.length);
+        return grown;
+    }
+
+    static CoordinateSequence create(double[] ordinates, int size, int dimension,
+            CoordinateSequenceFactory factory) {
+        if (factory instanceof PackedCoordinateSequenceFactory
+                && ((PackedCoordinateSequenceFactory) factory).getType() == PackedCoordinateSequenceFactory.DOUBLE) {
+            return new PackedCoordinateSequence.Double(ordinates, dimension);
+        }
+
+        CoordinateSequence seq = factory.create(size, dimension);
+        int dim = Math.min(dimension, seq.getDimension());
+        for (int i = 0, o = 0; i < size; i++, o += dimension) {
+            for (int d = 0; d < dim; d++) {
+                seq.setOrdinate(i, d, ordinates[o + d]);
+            }
+        }
+        return seq;
+    }
+}
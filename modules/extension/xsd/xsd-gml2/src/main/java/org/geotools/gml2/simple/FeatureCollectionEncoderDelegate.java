@@ -0,0 +1,250 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.gml2.GMLConfiguration;
+import org.geotools.util.Converters;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.EncoderDelegate;
+import org.geotools.xml.impl.DatatypeConverterImpl;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Encodes the members of simple feature collections directly as SAX events, without going
+ * through the DOM building and binding walk the {@link org.geotools.xml.Encoder} performs for
+ * each element.
+ * <p>
+ * Bindings return an instance of this class in place of the feature collection, when the
+ * configuration has the {@link GMLConfiguration#OPTIMIZED_ENCODING} property, and the encoder
+ * hands the content handler over to it. The output follows the one of the feature and
+ * geometry bindings, features are encoded with their attributes in the feature type order,
+ * skipping the null ones.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public abstract class FeatureCollectionEncoderDelegate implements EncoderDelegate {
+
+    protected final List<SimpleFeatureCollection> collections;
+
+    protected final QName member;
+
+    protected final boolean memberPerFeature;
+
+    protected final NamespaceSupport namespaces;
+
+    protected final boolean encodeBounds;
+
+    protected OrdinateFormatter formatter = OrdinateFormatter.DEFAULT;
+
+    /**
+     * @param collections The collections to encode
+     * @param member The name of the member element
+     * @param memberPerFeature True if each feature is wrapped in its own member element,
+     *        (<code>featureMember</code>), false if a single element wraps all of them
+     *        (<code>featureMembers</code>)
+     * @param namespaces The encoder namespace mappings
+     * @param configuration The encoder configuration
+     */
+    protected FeatureCollectionEncoderDelegate(List<SimpleFeatureCollection> collections,
+            QName member, boolean memberPerFeature, NamespaceSupport namespaces,
+            Configuration configuration) {
+        this.collections = collections;
+        this.member = member;
+        this.memberPerFeature = memberPerFeature;
+        this.namespaces = namespaces;
+        this.encodeBounds = !configuration.hasProperty(GMLConfiguration.NO_FEATURE_BOUNDS);
+    }
+
+    public OrdinateFormatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * Sets the formatter used to write the ordinates, defaults to
+     * {@link OrdinateFormatter#DEFAULT}
+     */
+    public void setFormatter(OrdinateFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    /**
+     * Returns the feature collections as simple feature collections, or null if any of them
+     * holds complex features, and thus cannot be encoded by the delegate
+     */
+    public static List<SimpleFeatureCollection> simple(List collections) {
+        List<SimpleFeatureCollection> result = new ArrayList<SimpleFeatureCollection>();
+        for (Object collection : collections) {
+            if (!(collection instanceof FeatureCollection)
+                    || !(((FeatureCollection) collection).getSchema() instanceof SimpleFeatureType)) {
+                return null;
+            }
+            result.add(DataUtilities.simple((FeatureCollection) collection));
+        }
+        return result;
+    }
+
+    public void encode(ContentHandler output) throws Exception {
+        GMLWriter writer = new GMLWriter(output, formatter);
+        QualifiedName memberName = QualifiedName.build(member.getNamespaceURI(), member
+                .getLocalPart(), namespaces);
+        GeometryEncoder geometryEncoder = createGeometryEncoder(memberName.derive("gml"));
+
+        if (!memberPerFeature) {
+            writer.startElement(memberName, null);
+        }
+        for (SimpleFeatureCollection features : collections) {
+            encode(features, memberName, geometryEncoder, writer);
+        }
+        if (!memberPerFeature) {
+            writer.endElement(memberName);
+        }
+    }
+
+    void encode(SimpleFeatureCollection features, QualifiedName memberName,
+            GeometryEncoder geometryEncoder, GMLWriter writer) throws Exception {
+        SimpleFeatureType featureType = features.getSchema();
+        QualifiedName typeName = QualifiedName.build(featureType.getName().getNamespaceURI(),
+                featureType.getTypeName(), namespaces);
+        QualifiedName boundedBy = memberName.derive("boundedBy");
+
+        List<AttributeDescriptor> descriptors = featureType.getAttributeDescriptors();
+        QualifiedName[] names = new QualifiedName[descriptors.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = typeName.derive(descriptors.get(i).getLocalName());
+        }
+
+        // as in the bindings all geometries are encoded in the feature type crs
+        CoordinateReferenceSystem crs = featureType.getCoordinateReferenceSystem();
+        String srsName = crs != null ? getSrsName(crs) : null;
+        int srsDimension = crs != null ? getSrsDimension(crs) : -1;
+
+        AttributesImpl atts = new AttributesImpl();
+        SimpleFeatureIterator it = features.features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                if (memberPerFeature) {
+                    writer.startElement(memberName, null);
+                }
+
+                atts.clear();
+                addFeatureId(feature.getID(), atts);
+                writer.startElement(typeName, atts);
+
+                if (encodeBounds) {
+                    BoundingBox bounds = feature.getBounds();
+                    if (bounds != null && !bounds.isEmpty()) {
+                        writer.startElement(boundedBy, null);
+                        geometryEncoder.encode(bounds, srsName, srsDimension, writer);
+                        writer.endElement(boundedBy);
+                    }
+                }
+
+                for (int i = 0; i < names.length; i++) {
+                    Object value = feature.getAttribute(i);
+                    if (value == null) {
+                        continue;
+                    }
+                    writer.startElement(names[i], null);
+                    if (value instanceof Geometry) {
+                        geometryEncoder.encode((Geometry) value, srsName, srsDimension, writer);
+                    } else {
+                        writer.characters(encodeValue(value));
+                    }
+                    writer.endElement(names[i]);
+                }
+
+                writer.endElement(typeName);
+                if (memberPerFeature) {
+                    writer.endElement(memberName);
+                }
+            }
+        } finally {
+            it.close();
+        }
+    }
+
+    /**
+     * Encodes a non geometric attribute value the way the xml schema simple type bindings do
+     */
+    protected String encodeValue(Object value) {
+        DatatypeConverterImpl converter = DatatypeConverterImpl.getInstance();
+        if (value instanceof Date) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime((Date) value);
+            if (value instanceof java.sql.Date) {
+                return converter.printDate(calendar);
+            } else if (value instanceof java.sql.Time) {
+                return converter.printTime(calendar);
+            } else {
+                return converter.printDateTime(calendar);
+            }
+        } else if (value instanceof Calendar) {
+            return converter.printDateTime((Calendar) value);
+        }
+
+        String text = Converters.convert(value, String.class);
+        return text != null ? text : value.toString();
+    }
+
+    /**
+     * Creates the encoder for geometries and feature bounds
+     *
+     * @param gml A name in the gml namespace, with the gml prefix
+     */
+    protected abstract GeometryEncoder createGeometryEncoder(QualifiedName gml);
+
+    /**
+     * Adds the attribute holding the feature identifier
+     */
+    protected abstract void addFeatureId(String id, AttributesImpl atts);
+
+    /**
+     * Returns the srsName attribute value for the crs
+     */
+    protected abstract String getSrsName(CoordinateReferenceSystem crs);
+
+    /**
+     * Returns the srsDimension attribute value for the crs, or -1 if it should not be encoded
+     */
+    protected int getSrsDimension(CoordinateReferenceSystem crs) {
+        return -1;
+    }
+}
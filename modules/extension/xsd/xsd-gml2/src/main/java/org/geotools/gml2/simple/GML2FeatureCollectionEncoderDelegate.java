@@ -0,0 +1,58 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.util.List;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.gml2.GML;
+import org.geotools.gml2.bindings.GML2EncodingUtils;
+import org.geotools.xml.Configuration;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Encodes simple feature collections as a sequence of GML 2 <code>gml:featureMember</code>
+ * elements.
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class GML2FeatureCollectionEncoderDelegate extends FeatureCollectionEncoderDelegate {
+
+    public GML2FeatureCollectionEncoderDelegate(List<SimpleFeatureCollection> collections,
+            NamespaceSupport namespaces, Configuration configuration) {
+        super(collections, GML.featureMember, true, namespaces, configuration);
+    }
+
+    @Override
+    protected GeometryEncoder createGeometryEncoder(QualifiedName gml) {
+        return new GML2GeometryEncoder(gml);
+    }
+
+    @Override
+    protected void addFeatureId(String id, AttributesImpl atts) {
+        atts.addAttribute("", "fid", "fid", "ID", id);
+    }
+
+    @Override
+    protected String getSrsName(CoordinateReferenceSystem crs) {
+        return GML2EncodingUtils.toURI(crs);
+    }
+}
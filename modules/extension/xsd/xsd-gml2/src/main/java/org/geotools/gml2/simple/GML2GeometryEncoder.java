@@ -0,0 +1,158 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import org.opengis.geometry.BoundingBox;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Writes geometries as GML 2, in the same form as the GML 2 geometry bindings.
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class GML2GeometryEncoder extends GeometryEncoder {
+
+    final QualifiedName point, lineString, linearRing, polygon, multiPoint, multiLineString,
+            multiPolygon, geometryCollection, coordinates, outerBoundaryIs, innerBoundaryIs,
+            pointMember, lineStringMember, polygonMember, geometryMember, box, coord, x, y, z;
+
+    public GML2GeometryEncoder(QualifiedName gml) {
+        super(gml);
+        point = gml.derive("Point");
+        lineString = gml.derive("LineString");
+        linearRing = gml.derive("LinearRing");
+        polygon = gml.derive("Polygon");
+        multiPoint = gml.derive("MultiPoint");
+        multiLineString = gml.derive("MultiLineString");
+        multiPolygon = gml.derive("MultiPolygon");
+        geometryCollection = gml.derive("MultiGeometry");
+        coordinates = gml.derive("coordinates");
+        outerBoundaryIs = gml.derive("outerBoundaryIs");
+        innerBoundaryIs = gml.derive("innerBoundaryIs");
+        pointMember = gml.derive("pointMember");
+        lineStringMember = gml.derive("lineStringMember");
+        polygonMember = gml.derive("polygonMember");
+        geometryMember = gml.derive("geometryMember");
+        box = gml.derive("Box");
+        coord = gml.derive("coord");
+        x = gml.derive("X");
+        y = gml.derive("Y");
+        z = gml.derive("Z");
+    }
+
+    @Override
+    public void encode(Geometry geometry, String srsName, int srsDimension, GMLWriter writer)
+            throws SAXException {
+        encode(geometry, srsAttributes(srsName, -1), writer);
+    }
+
+    void encode(Geometry geometry, Attributes atts, GMLWriter writer) throws SAXException {
+        if (geometry instanceof Point) {
+            // the point binding writes a single gml:coord, not gml:coordinates
+            writer.startElement(point, atts);
+            Coordinate c = ((Point) geometry).getCoordinate();
+            writeCoord(c.x, c.y, c.z, writer);
+            writer.endElement(point);
+        } else if (geometry instanceof LinearRing) {
+            writeCoordinates(linearRing, ((LineString) geometry).getCoordinateSequence(), atts,
+                    writer);
+        } else if (geometry instanceof LineString) {
+            writeCoordinates(lineString, ((LineString) geometry).getCoordinateSequence(), atts,
+                    writer);
+        } else if (geometry instanceof Polygon) {
+            Polygon p = (Polygon) geometry;
+            writer.startElement(polygon, atts);
+            writer.startElement(outerBoundaryIs, null);
+            encode(p.getExteriorRing(), null, writer);
+            writer.endElement(outerBoundaryIs);
+            for (int i = 0; i < p.getNumInteriorRing(); i++) {
+                writer.startElement(innerBoundaryIs, null);
+                encode(p.getInteriorRingN(i), null, writer);
+                writer.endElement(innerBoundaryIs);
+            }
+            writer.endElement(polygon);
+        } else if (geometry instanceof MultiPoint) {
+            writeMembers(multiPoint, pointMember, (GeometryCollection) geometry, atts, writer);
+        } else if (geometry instanceof MultiLineString) {
+            writeMembers(multiLineString, lineStringMember, (GeometryCollection) geometry, atts,
+                    writer);
+        } else if (geometry instanceof MultiPolygon) {
+            writeMembers(multiPolygon, polygonMember, (GeometryCollection) geometry, atts,
+                    writer);
+        } else if (geometry instanceof GeometryCollection) {
+            writeMembers(geometryCollection, geometryMember, (GeometryCollection) geometry,
+                    atts, writer);
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type: "
+                    + geometry.getClass().getName());
+        }
+    }
+
+    void writeCoordinates(QualifiedName element, CoordinateSequence cs, Attributes atts,
+            GMLWriter writer) throws SAXException {
+        writer.startElement(element, atts);
+        writer.startElement(coordinates, null);
+        writer.coordinates(cs);
+        writer.endElement(coordinates);
+        writer.endElement(element);
+    }
+
+    void writeMembers(QualifiedName element, QualifiedName member, GeometryCollection collection,
+            Attributes atts, GMLWriter writer) throws SAXException {
+        writer.startElement(element, atts);
+        for (int i = 0; i < collection.getNumGeometries(); i++) {
+            writer.startElement(member, null);
+            encode(collection.getGeometryN(i), null, writer);
+            writer.endElement(member);
+        }
+        writer.endElement(element);
+    }
+
+    @Override
+    public void encode(BoundingBox bounds, String srsName, int srsDimension, GMLWriter writer)
+            throws SAXException {
+        writer.startElement(box, srsAttributes(srsName, -1));
+        writeCoord(bounds.getMinX(), bounds.getMinY(), Double.NaN, writer);
+        writeCoord(bounds.getMaxX(), bounds.getMaxY(), Double.NaN, writer);
+        writer.endElement(box);
+    }
+
+    void writeCoord(double cx, double cy, double cz, GMLWriter writer) throws SAXException {
+        writer.startElement(coord, null);
+        writer.element(x, String.valueOf(cx));
+        writer.element(y, String.valueOf(cy));
+        if (!Double.isNaN(cz)) {
+            writer.element(z, String.valueOf(cz));
+        }
+        writer.endElement(coord);
+    }
+}
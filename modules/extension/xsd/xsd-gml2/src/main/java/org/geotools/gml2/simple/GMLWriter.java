@@ -0,0 +1,166 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+
+/**
+ * Writes GML straight to a {@link ContentHandler}, without building any intermediate DOM.
+ * <p>
+ * Text is accumulated in a reusable character buffer and handed over to the content handler
+ * in blocks, coordinates are read directly from the {@link CoordinateSequence} and written
+ * in the GML 2 <code>coordinates</code> or in the GML 3 <code>pos</code> and
+ * <code>posList</code> formats, using the same {@link OrdinateFormatter} as the bindings.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class GMLWriter {
+
+    static final Attributes EMPTY = new AttributesImpl();
+
+    final ContentHandler handler;
+
+    final char[] buffer = new char[4096];
+
+    int length;
+
+    final OrdinateFormatter formatter;
+
+    public GMLWriter(ContentHandler handler) {
+        this(handler, OrdinateFormatter.DEFAULT);
+    }
+
+    public GMLWriter(ContentHandler handler, OrdinateFormatter formatter) {
+        this.handler = handler;
+        this.formatter = formatter;
+    }
+
+    public void startElement(QualifiedName name, Attributes atts) throws SAXException {
+        flush();
+        handler.startElement(name.namespaceURI, name.localPart, name.qualifiedName,
+                atts != null ? atts : EMPTY);
+    }
+
+    public void endElement(QualifiedName name) throws SAXException {
+        flush();
+        handler.endElement(name.namespaceURI, name.localPart, name.qualifiedName);
+    }
+
+    /**
+     * Writes an element with text content
+     */
+    public void element(QualifiedName name, String text) throws SAXException {
+        startElement(name, null);
+        characters(text);
+        endElement(name);
+    }
+
+    public void characters(String text) throws SAXException {
+        int offset = 0;
+        int n = text.length();
+        while (offset < n) {
+            if (length == buffer.length) {
+                flush();
+            }
+            int count = Math.min(n - offset, buffer.length - length);
+            text.getChars(offset, offset + count, buffer, length);
+            length += count;
+            offset += count;
+        }
+    }
+
+    /**
+     * Writes the coordinates in the GML 2 format, that is, comma separated ordinates and
+     * space separated tuples, skipping the missing (NaN) ordinates
+     */
+    public void coordinates(CoordinateSequence coordinates) throws SAXException {
+        int dimension = coordinates.getDimension();
+        int size = coordinates.size();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                append(' ');
+            }
+            number(coordinates.getOrdinate(i, 0));
+            if (dimension > 1) {
+                double y = coordinates.getOrdinate(i, 1);
+                if (!Double.isNaN(y)) {
+                    append(',');
+                    number(y);
+                    if (dimension > 2) {
+                        double z = coordinates.getOrdinate(i, 2);
+                        if (!Double.isNaN(z)) {
+                            append(',');
+                            number(z);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a two dimensional position in the GML 3 format, that is, space separated
+     * ordinates
+     */
+    public void position(double x, double y) throws SAXException {
+        number(x);
+        append(' ');
+        number(y);
+    }
+
+    /**
+     * Writes the coordinates as a GML 3 two dimensional position list
+     */
+    public void positions(CoordinateSequence coordinates) throws SAXException {
+        int size = coordinates.size();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                append(' ');
+            }
+            position(coordinates.getOrdinate(i, 0), coordinates.getOrdinate(i, 1));
+        }
+    }
+
+    void number(double value) throws SAXException {
+        if (buffer.length - length < OrdinateFormatter.MAX_LENGTH) {
+            flush();
+        }
+        length = formatter.format(value, buffer, length);
+    }
+
+    void append(char c) throws SAXException {
+        if (length == buffer.length) {
+            flush();
+        }
+        buffer[length++] = c;
+    }
+
+    void flush() throws SAXException {
+        if (length > 0) {
+            handler.characters(buffer, 0, length);
+            length = 0;
+        }
+    }
+}
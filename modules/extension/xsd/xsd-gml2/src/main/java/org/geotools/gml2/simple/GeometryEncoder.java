@@ -0,0 +1,80 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import org.opengis.geometry.BoundingBox;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Writes geometries and bounding boxes as GML elements on a {@link GMLWriter}, bypassing the
+ * geometry bindings.
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public abstract class GeometryEncoder {
+
+    /**
+     * The name of a gml element, used to derive all the others
+     */
+    protected final QualifiedName gml;
+
+    protected final AttributesImpl atts = new AttributesImpl();
+
+    protected GeometryEncoder(QualifiedName gml) {
+        this.gml = gml;
+    }
+
+    /**
+     * Writes the geometry element
+     *
+     * @param geometry The geometry, not null
+     * @param srsName The srsName attribute of the geometry element, or null
+     * @param srsDimension The srsDimension attribute of the geometry element, or -1
+     */
+    public abstract void encode(Geometry geometry, String srsName, int srsDimension,
+            GMLWriter writer) throws SAXException;
+
+    /**
+     * Writes the bounding box element
+     *
+     * @param bounds The bounding box, not empty
+     * @param srsName The srsName attribute of the bounding box element, or null
+     * @param srsDimension The srsDimension attribute of the bounding box element, or -1
+     */
+    public abstract void encode(BoundingBox bounds, String srsName, int srsDimension,
+            GMLWriter writer) throws SAXException;
+
+    /**
+     * Returns the reused attributes with the srs ones set
+     */
+    protected AttributesImpl srsAttributes(String srsName, int srsDimension) {
+        atts.clear();
+        if (srsName != null) {
+            atts.addAttribute("", "srsName", "srsName", "CDATA", srsName);
+        }
+        if (srsDimension > 0) {
+            atts.addAttribute("", "srsDimension", "srsDimension", "CDATA", String
+                    .valueOf(srsDimension));
+        }
+        return atts;
+    }
+}
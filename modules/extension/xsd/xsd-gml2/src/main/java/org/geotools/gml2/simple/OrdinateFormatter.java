@@ -0,0 +1,208 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+/**
+ * Formats ordinates for the GML coordinate encoders, writing the digits straight into a
+ * character buffer.
+ * <p>
+ * At full precision (the default) values are written with the fewest fraction digits that
+ * parse back to the very same double, in the plain notation used by {@link Double#toString()}
+ * for values between 10<sup>-3</sup> and 10<sup>7</sup>. Values out of that range, along with
+ * the special values, are written by {@link Double#toString()}, so the output is the same
+ * as the one of the bindings did before.
+ * </p>
+ * <p>
+ * When a number of decimals is set values are rounded to it, and trailing zeros are omitted,
+ * as done by the <code>numDecimals</code> option of
+ * {@link org.geotools.gml.producer.CoordinateWriter}.
+ * </p>
+ * <p>
+ * Instances are immutable and can be shared among threads.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public final class OrdinateFormatter {
+
+    /**
+     * Number of decimals meaning "as many as needed to preserve the value"
+     */
+    public static final int FULL_PRECISION = -1;
+
+    /**
+     * The full precision formatter
+     */
+    public static final OrdinateFormatter DEFAULT = new OrdinateFormatter(FULL_PRECISION);
+
+    /**
+     * The maximum number of characters written by {@link #format(double, char[], int)}
+     */
+    public static final int MAX_LENGTH = 32;
+
+    /**
+     * Largest integer such that all the integers below it are exactly representable as doubles
+     */
+    static final double EXACT = 9007199254740992d;
+
+    static final double[] POWERS = new double[23];
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    static final int MAX_DECIMALS = 17;
+
+    final int numDecimals;
+
+    /**
+     * @param numDecimals The number of decimals, or {@link #FULL_PRECISION}
+     */
+    public OrdinateFormatter(int numDecimals) {
+        if (numDecimals < FULL_PRECISION) {
+            throw new IllegalArgumentException("Invalid number of decimals: " + numDecimals);
+        }
+        this.numDecimals = numDecimals > MAX_DECIMALS ? FULL_PRECISION : numDecimals;
+    }
+
+    /**
+     * Returns the number of decimals, or {@link #FULL_PRECISION}
+     */
+    public int getNumDecimals() {
+        return numDecimals;
+    }
+
+    public String format(double value) {
+        char[] buffer = new char[MAX_LENGTH];
+        return new String(buffer, 0, format(value, buffer, 0));
+    }
+
+    public void format(double value, StringBuffer sb) {
+        char[] buffer = new char[MAX_LENGTH];
+        sb.append(buffer, 0, format(value, buffer, 0));
+    }
+
+    /**
+     * Writes the value in the buffer, that must have at least {@link #MAX_LENGTH} characters
+     * available after the offset.
+     *
+     * @return The offset following the last written character
+     */
+    public int format(double value, char[] buffer, int offset) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return fallback(value, buffer, offset);
+        }
+
+        double abs = Math.abs(value);
+        if (numDecimals >= 0) {
+            return formatDecimals(value, abs, buffer, offset);
+        }
+
+        if (abs == 0) {
+            return fallback(value, buffer, offset);
+        }
+        if (abs >= 1e-3 && abs < 1e7) {
+            if (abs == Math.floor(abs)) {
+                if (value < 0) {
+                    buffer[offset++] = '-';
+                }
+                offset = writeLong((long) abs, buffer, offset);
+                buffer[offset++] = '.';
+                buffer[offset++] = '0';
+                return offset;
+            }
+
+            // look for the shortest number of fraction digits that reads back as the same
+            // value: m / 10^k is computed exactly rounded, just like the parser would do
+            for (int k = 1; k <= MAX_DECIMALS; k++) {
+                double scaled = abs * POWERS[k];
+                if (scaled >= EXACT) {
+                    break;
+                }
+                long m = Math.round(scaled);
+                if (m / POWERS[k] == abs) {
+                    return writeFixed(value < 0, m, k, buffer, offset);
+                }
+            }
+        }
+        return fallback(value, buffer, offset);
+    }
+
+    int formatDecimals(double value, double abs, char[] buffer, int offset) {
+        double scaled = abs * POWERS[numDecimals];
+        if (scaled >= EXACT) {
+            // too big for the requested decimals to matter
+            return fallback(value, buffer, offset);
+        }
+
+        long m = Math.round(scaled);
+        int k = numDecimals;
+        while (k > 0 && m % 10 == 0) {
+            m /= 10;
+            k--;
+        }
+        return writeFixed(value < 0 && m != 0, m, k, buffer, offset);
+    }
+
+    /**
+     * Writes m / 10^k in plain notation
+     */
+    static int writeFixed(boolean negative, long m, int k, char[] buffer, int offset) {
+        if (negative) {
+            buffer[offset++] = '-';
+        }
+        if (k == 0) {
+            return writeLong(m, buffer, offset);
+        }
+
+        long scale = (long) POWERS[k];
+        offset = writeLong(m / scale, buffer, offset);
+        buffer[offset++] = '.';
+        long fraction = m % scale;
+        for (int i = offset + k - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + (fraction % 10));
+            fraction /= 10;
+        }
+        return offset + k;
+    }
+
+    static int writeLong(long value, char[] buffer, int offset) {
+        if (value == 0) {
+            buffer[offset++] = '0';
+            return offset;
+        }
+        int digits = 0;
+        for (long v = value; v != 0; v /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+    static int fallback(double value, char[] buffer, int offset) {
+        String s = Double.toString(value);
+        s.getChars(0, s.length(), buffer, offset);
+        return offset + s.length();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * An element name with its prefix already resolved, so that the qualified name is built only
+ * once instead of once per encoded element.
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class QualifiedName {
+
+    final String namespaceURI;
+
+    final String localPart;
+
+    final String prefix;
+
+    final String qualifiedName;
+
+    public QualifiedName(String namespaceURI, String localPart, String prefix) {
+        this.namespaceURI = namespaceURI == null ? "" : namespaceURI;
+        this.localPart = localPart;
+        this.prefix = prefix == null ? "" : prefix;
+        this.qualifiedName = "".equals(this.prefix) ? localPart : this.prefix + ":" + localPart;
+    }
+
+    /**
+     * Builds a name looking up the prefix of the namespace in the namespace support, a null
+     * namespace being the default one.
+     */
+    public static QualifiedName build(String namespaceURI, String localPart,
+            NamespaceSupport namespaces) {
+        if (namespaceURI == null) {
+            namespaceURI = namespaces.getURI("");
+        }
+        String prefix = namespaceURI != null ? namespaces.getPrefix(namespaceURI) : null;
+        return new QualifiedName(namespaceURI, localPart, prefix);
+    }
+
+    /**
+     * Returns a name in the same namespace, and with the same prefix, as this one
+     */
+    public QualifiedName derive(String localPart) {
+        return new QualifiedName(namespaceURI, localPart, prefix);
+    }
+
+    public String getNamespaceURI() {
+        return namespaceURI;
+    }
+
+    public String getLocalPart() {
+        return localPart;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getQualifiedName() {
+        return qualifiedName;
+    }
+
+    @Override
+    public String toString() {
+        return qualifiedName;
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.Parser;
+import org.geotools.xml.ParserDelegate2;
+import org.geotools.xml.impl.DatatypeConverterImpl;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Parses the GML encoding of simple features straight into a {@link SimpleFeatureBuilder},
+ * bypassing the binding based parsing machinery.
+ * <p>
+ * Once registered in the context of a parser configuration, the delegate takes over the
+ * elements of the specified feature type, maps each property element to its slot in the
+ * feature type, converts the property text to the attribute binding and builds geometries
+ * directly out of the SAX events, which is considerably faster than the generic path. Any
+ * other element, included the ones of other feature types, is parsed as usual:
+ *
+ * <pre>
+ * SimpleFeatureType type = ...; // as obtained from the DescribeFeatureType response
+ * Configuration configuration = ...;
+ * if (SimpleFeatureParserDelegate.isSimple(type)) {
+ *     SimpleFeatureParserDelegate.register(configuration, type, elementName);
+ * }
+ * </pre>
+ *
+ * </p>
+ * <p>
+ * Only simple feature types qualify, that is, types whose attributes are all single valued,
+ * and either of a scalar type (strings, numbers, booleans and dates) or one of the simple
+ * geometry types (see {@link #isSimple(SimpleFeatureType)}). Property elements that are not
+ * in the feature type are skipped. The geometries can be encoded in GML 2 or GML 3. The ones
+ * the fast path does not handle, such as curves and surfaces made of anything other than
+ * straight segments and linear rings, are parsed with the bindings of the
+ * {@link #setFallbackConfiguration(Configuration) fallback configuration}, which is the one the
+ * delegate is {@link #register(Configuration, SimpleFeatureType, QName) registered} in. To that
+ * end the elements of each geometry property are kept aside while being parsed, and replayed to
+ * a regular parser if needed, the rest of the feature still goes through the fast path.
+ * </p>
+ * <p>
+ * Instances keep parsing state, and thus must not be shared among parsers running
+ * concurrently.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class SimpleFeatureParserDelegate implements ParserDelegate2 {
+
+    /**
+     * Prefix of the GML namespaces, shared by GML 2, GML 3.1 and GML 3.2
+     */
+    static final String GML_NAMESPACE = "http://www.opengis.net/gml";
+
+    static final Set<Class<?>> GEOMETRY_BINDINGS = new HashSet<Class<?>>(Arrays.asList(
+            Geometry.class, Point.class, LineString.class, LinearRing.class, Polygon.class,
+            MultiPoint.class, MultiLineString.class, MultiPolygon.class));
+
+    final SimpleFeatureType featureType;
+
+    final QName elementName;
+
+    final SimpleFeatureBuilder builder;
+
+    /**
+     * The attribute indexes, by local name
+     */
+    final Map<String, Integer> slots = new HashMap<String, Integer>();
+
+    /**
+     * Whether each attribute is in the GML namespace
+     */
+    final boolean[] gmlAttributes;
+
+    final Class<?>[] bindings;
+
+    final SimpleGeometryHandler geometryHandler;
+
+    final StringBuilder text = new StringBuilder();
+
+    /**
+     * The configuration used to parse the geometries the fast path cannot handle, or null
+     */
+    Configuration fallbackConfiguration;
+
+    /**
+     * The xml of the geometry being parsed, recorded only if there is a fallback configuration
+     */
+    final StringBuilder geometryXml = new StringBuilder();
+
+    /**
+     * Whether the geometry being parsed is left to the fallback configuration
+     */
+    boolean fallback;
+
+    int depth;
+
+    String fid;
+
+    int slot;
+
+    boolean nil;
+
+    SimpleFeature feature;
+
+    /**
+     * Registers a new delegate for the feature type in the context of the configuration
+     *
+     * @return The registered delegate
+     */
+    public static SimpleFeatureParserDelegate register(Configuration configuration,
+            SimpleFeatureType featureType, QName elementName) {
+        SimpleFeatureParserDelegate delegate = new SimpleFeatureParserDelegate(featureType,
+                elementName);
+        delegate.setFallbackConfiguration(configuration);
+        configuration.getContext().registerComponentInstance(delegate);
+        return delegate;
+    }
+
+    /**
+     * Returns true if the feature type attributes are all single valued, and either scalars or
+     * simple geometries
+     */
+    public static boolean isSimple(SimpleFeatureType featureType) {
+        for (AttributeDescriptor descriptor : featureType.getAttributeDescriptors()) {
+            if (descriptor.getMaxOccurs() > 1) {
+                return false;
+            }
+            Class<?> binding = descriptor.getType().getBinding();
+            if (Geometry.class.isAssignableFrom(binding)) {
+                if (!GEOMETRY_BINDINGS.contains(binding)) {
+                    return false;
+                }
+            } else if (!(binding == String.class || Number.class.isAssignableFrom(binding)
+                    || binding == Boolean.class || Date.class.isAssignableFrom(binding))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public SimpleFeatureParserDelegate(SimpleFeatureType featureType, QName elementName) {
+        this(featureType, elementName, new GeometryFactory());
+    }
+
+    /**
+     * @param featureType
+     *            The feature type, must be {@link #isSimple(SimpleFeatureType) simple}
+     * @param elementName
+     *            The name of the feature elements
+     * @param geometryFactory
+     *            The factory used to build the geometries
+     */
+    public SimpleFeatureParserDelegate(SimpleFeatureType featureType, QName elementName,
+            GeometryFactory geometryFactory) {
+        if (!isSimple(featureType)) {
+            throw new IllegalArgumentException(featureType.getTypeName()
+                    + " is not a simple feature type");
+        }
+        this.featureType = featureType;
+        this.elementName = elementName;
+        this.builder = new SimpleFeatureBuilder(featureType);
+        this.geometryHandler = new SimpleGeometryHandler(geometryFactory);
+
+        List<AttributeDescriptor> descriptors = featureType.getAttributeDescriptors();
+        this.bindings = new Class<?>[descriptors.size()];
+        this.gmlAttributes = new boolean[descriptors.size()];
+        for (int i = 0; i < bindings.length; i++) {
+            AttributeDescriptor descriptor = descriptors.get(i);
+            slots.put(descriptor.getLocalName(), i);
+            bindings[i] = descriptor.getType().getBinding();
+            gmlAttributes[i] = SimpleGeometryHandler.isGML(descriptor.getName().getNamespaceURI());
+        }
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    /**
+     * Returns the configuration used to parse the geometries the fast path cannot handle, or
+     * null if they make the parsing fail
+     */
+    public Configuration getFallbackConfiguration() {
+        return fallbackConfiguration;
+    }
+
+    /**
+     * Sets the configuration used to parse the geometries the fast path cannot handle, it must
+     * include the bindings of the GML version of the documents
+     */
+    public void setFallbackConfiguration(Configuration fallbackConfiguration) {
+        this.fallbackConfiguration = fallbackConfiguration;
+    }
+
+    public boolean canHandle(QName elementName) {
+        return this.elementName.equals(elementName);
+    }
+
+    public boolean canHandle(QName elementName, Attributes attributes) {
+        return this.elementName.equals(elementName);
+    }
+
+    /**
+     * Returns the last parsed feature
+     */
+    public Object getParsedObject() {
+        return feature;
+    }
+
+    public void startDocument() throws SAXException {
+        depth = 0;
+        fid = null;
+        slot = -1;
+        feature = null;
+        builder.reset();
+    }
+
+    public void endDocument() throws SAXException {
+    }
+
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
+        depth++;
+        if (depth == 1) {
+            fid = fid(attributes);
+        } else if (depth == 2) {
+            startProperty(uri, localName, attributes);
+        } else if (slot >= 0) {
+            if (!(Geometry.class.isAssignableFrom(bindings[slot]))) {
+                throw new SAXException("Unexpected element " + localName + " in property "
+                        + featureType.getDescriptor(slot).getLocalName());
+            }
+            if (fallbackConfiguration != null) {
+                recordStart(uri, localName, attributes);
+                if (!fallback && !geometryHandler.accepts(uri, localName)) {
+                    fallback = true;
+                }
+            }
+            if (!fallback) {
+                geometryHandler.startElement(uri, localName, attributes);
+            }
+        }
+    }
+
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (slot >= 0) {
+            if (depth == 2) {
+                text.append(ch, start, length);
+            } else {
+                if (fallbackConfiguration != null) {
+                    escape(ch, start, length, false);
+                }
+                if (!fallback) {
+                    geometryHandler.characters(ch, start, length);
+                }
+            }
+        }
+    }
+
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (depth == 1) {
+            feature = builder.buildFeature(fid);
+        } else if (depth == 2) {
+            if (slot >= 0) {
+                endProperty();
+            }
+            slot = -1;
+        } else if (slot >= 0) {
+            if (fallbackConfiguration != null) {
+                recordEnd(uri, localName);
+            }
+            if (!fallback) {
+                geometryHandler.endElement(uri, localName);
+            }
+        }
+        depth--;
+    }
+
+    void startProperty(String uri, String localName, Attributes attributes) {
+        Integer index = slots.get(localName);
+        slot = index == null || gmlAttributes[index] != SimpleGeometryHandler.isGML(uri) ? -1
+                : index;
+        if (slot >= 0) {
+            text.setLength(0);
+            nil = "true".equals(attributes.getValue("http://www.w3.org/2001/XMLSchema-instance",
+                    "nil"));
+            if (Geometry.class.isAssignableFrom(bindings[slot])) {
+                geometryHandler.reset();
+                geometryXml.setLength(0);
+                fallback = false;
+            }
+        }
+    }
+
+    void endProperty() throws SAXException {
+        Object value;
+        if (nil) {
+            value = null;
+        } else if (fallback) {
+            value = parseFallback();
+        } else if (Geometry.class.isAssignableFrom(bindings[slot])) {
+            value = geometryHandler.getGeometry();
+        } else {
+            value = convert(text.toString(), bindings[slot]);
+        }
+
+        try {
+            builder.set(slot, value);
+        } catch (IllegalArgumentException e) {
+            throw new SAXException("Could not set property "
+                    + featureType.getDescriptor(slot).getLocalName(), e);
+        }
+    }
+
+    /**
+     * Parses the recorded geometry with the fallback configuration
+     */
+    Geometry parseFallback() throws SAXException {
+        String property = featureType.getDescriptor(slot).getLocalName();
+        Object parsed;
+        try {
+            Parser parser = new Parser(fallbackConfiguration);
+            parsed = parser.parse(new StringReader(geometryXml.toString()));
+        } catch (Exception e) {
+            throw new SAXException("Could not parse the geometry of property " + property, e);
+        }
+        if (parsed != null && !(parsed instanceof Geometry)) {
+            throw new SAXException("Property " + property + " holds no geometry but " + parsed);
+        }
+        return (Geometry) parsed;
+    }
+
+    /**
+     * Records the start of an element of the geometry. Each element declares the namespaces it
+     * uses, so that the recorded xml stands on its own.
+     */
+    void recordStart(String uri, String localName, Attributes attributes) {
+        geometryXml.append('<');
+        if (uri != null && uri.length() > 0) {
+            geometryXml.append("e:").append(localName).append(" xmlns:e=\"");
+            escape(uri);
+            geometryXml.append('"');
+        } else {
+            geometryXml.append(localName);
+        }
+        for (int i = 0; i < attributes.getLength(); i++) {
+            String attributeUri = attributes.getURI(i);
+            geometryXml.append(' ');
+            if (attributeUri != null && attributeUri.length() > 0) {
+                geometryXml.append("xmlns:a").append(i).append("=\"");
+                escape(attributeUri);
+                geometryXml.append("\" a").append(i).append(':');
+            }
+            geometryXml.append(attributes.getLocalName(i)).append("=\"");
+            escape(attributes.getValue(i));
+            geometryXml.append('"');
+        }
+        geometryXml.append('>');
+    }
+
+    void recordEnd(String uri, String localName) {
+        geometryXml.append("</");
+        if (uri != null && uri.length() > 0) {
+            geometryXml.append("e:");
+        }
+        geometryXml.append(localName).append('>');
+    }
+
+    void escape(String value) {
+        escape(value.toCharArray(), 0, value.length(), true);
+    }
+
+    void escape(char[] ch, int start, int length, boolean attribute) {
+        for (int i = start; i < start + length; i++) {
+            char c = ch[i];
+            if (c == '<') {
+                geometryXml.append("&lt;");
+            } else if (c == '>') {
+                geometryXml.append("&gt;");
+            } else if (c == '&') {
+                geometryXml.append("&amp;");
+            } else if (c == '"' && attribute) {
+                geometryXml.append("&quot;");
+            } else {
+                geometryXml.append(c);
+            }
+        }
+    }
+
+    /**
+     * Converts the property text, the builder takes care of the conversions left
+     */
+    static Object convert(String text, Class<?> binding) throws SAXException {
+        if (binding == String.class) {
+            return text;
+        }
+        text = text.trim();
+        if (text.length() == 0) {
+            return null;
+        }
+        try {
+            if (Date.class.isAssignableFrom(binding)) {
+                DatatypeConverterImpl converter = DatatypeConverterImpl.getInstance();
+                if (binding == java.sql.Date.class) {
+                    return converter.parseDate(text).getTime();
+                } else if (binding == java.sql.Time.class) {
+                    return converter.parseTime(text).getTime();
+                }
+                return converter.parseDateTime(text).getTime();
+            }
+        } catch (IllegalArgumentException e) {
+            throw new SAXException("Invalid date " + text, e);
+        }
+        return text;
+    }
+
+    static String fid(Attributes attributes) {
+        for (int i = 0; i < attributes.getLength(); i++) {
+            String name = attributes.getLocalName(i);
+            if ("fid".equals(name)
+                    || ("id".equals(name) && SimpleGeometryHandler.isGML(attributes.getURI(i)))) {
+                return attributes.getValue(i);
+            }
+        }
+        return null;
+    }
+
+    public void setDocumentLocator(Locator locator) {
+    }
+
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+    }
+
+    public void endPrefixMapping(String prefix) throws SAXException {
+    }
+
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+    }
+
+    public void processingInstruction(String target, String data) throws SAXException {
+    }
+
+    public void skippedEntity(String name) throws SAXException {
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.referencing.CRS;
+import org.geotools.util.logging.Logging;
+import org.geotools.xml.impl.DoubleScanner;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Builds the JTS geometry out of the SAX events of a GML 2 or GML 3 simple geometry: points,
+ * line strings, polygons and their multi versions, with their coordinates expressed by any of
+ * <code>coord</code>, <code>coordinates</code>, <code>pos</code> and <code>posList</code>.
+ * <p>
+ * Curves, surfaces and any other element that does not map to a simple geometry make
+ * {@link #startElement(String, String, Attributes)} fail, {@link #accepts(String, String)} tells
+ * them apart beforehand.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+class SimpleGeometryHandler {
+
+    static final Logger LOGGER = Logging.getLogger("org.geotools.gml");
+
+    static final Set<String> GEOMETRIES = new HashSet<String>(Arrays.asList("Point",
+            "LineString", "LinearRing", "Polygon", "MultiPoint", "MultiLineString", "MultiCurve",
+            "MultiPolygon", "MultiSurface"));
+
+    /**
+     * Elements wrapping the parts of a geometry
+     */
+    static final Set<String> MEMBERS = new HashSet<String>(Arrays.asList("exterior", "interior",
+            "outerBoundaryIs", "innerBoundaryIs", "pointMember", "pointMembers",
+            "lineStringMember", "curveMember", "curveMembers", "polygonMember", "surfaceMember",
+            "surfaceMembers"));
+
+    /**
+     * Descriptive elements that are ignored
+     */
+    static final Set<String> IGNORED = new HashSet<String>(Arrays.asList("metaDataProperty",
+            "description", "descriptionReference", "name", "identifier"));
+
+    final GeometryFactory geometryFactory;
+
+    final CoordinateSequenceFactory csFactory;
+
+    final Map<String, CoordinateReferenceSystem> crsCache = new HashMap<String, CoordinateReferenceSystem>();
+
+    final List<Frame> stack = new ArrayList<Frame>();
+
+    final StringBuilder text = new StringBuilder();
+
+    boolean collecting;
+
+    int skipped;
+
+    char decimal;
+
+    char cs;
+
+    char ts;
+
+    int listDimension;
+
+    Geometry geometry;
+
+    CoordinateReferenceSystem crs;
+
+    SimpleGeometryHandler(GeometryFactory geometryFactory) {
+        this.geometryFactory = geometryFactory;
+        this.csFactory = geometryFactory.getCoordinateSequenceFactory();
+    }
+
+    /**
+     * Gets ready for a new geometry
+     */
+    void reset() {
+        stack.clear();
+        text.setLength(0);
+        collecting = false;
+        skipped = 0;
+        geometry = null;
+        crs = null;
+    }
+
+    /**
+     * Returns the parsed geometry, or <code>null</code> if the property held none
+     */
+    Geometry getGeometry() {
+        return geometry;
+    }
+
+    static boolean isGML(String uri) {
+        return uri != null && uri.startsWith(SimpleFeatureParserDelegate.GML_NAMESPACE);
+    }
+
+    /**
+     * Returns true if the element, found at the current position of the geometry, is one this
+     * handler knows how to deal with
+     */
+    boolean accepts(String uri, String localName) {
+        if (skipped > 0) {
+            return true;
+        }
+        return isGML(uri)
+                && (GEOMETRIES.contains(localName) || MEMBERS.contains(localName)
+                        || IGNORED.contains(localName) || "pos".equals(localName)
+                        || "posList".equals(localName) || "coordinates".equals(localName)
+                        || "coord".equals(localName) || "X".equals(localName)
+                        || "Y".equals(localName) || "Z".equals(localName));
+    }
+
+    void startElement(String uri, String localName, Attributes attributes) throws SAXException {
+        if (skipped > 0) {
+            skipped++;
+            return;
+        }
+        if (!isGML(uri)) {
+            throw new SAXException("Unexpected element " + localName + " in a GML geometry");
+        }
+
+        if (GEOMETRIES.contains(localName)) {
+            if (stack.isEmpty() && geometry != null) {
+                throw new SAXException("More than one geometry in the same property");
+            }
+            Frame frame = new Frame(localName);
+            frame.dimension = dimension(attributes.getValue("srsDimension"));
+            if (frame.dimension == 0 && !stack.isEmpty()) {
+                frame.dimension = top().dimension;
+            }
+            String srsName = attributes.getValue("srsName");
+            if (crs == null && srsName != null) {
+                crs = crs(srsName);
+            }
+            stack.add(frame);
+        } else if (MEMBERS.contains(localName)) {
+            checkInGeometry(localName);
+        } else if ("pos".equals(localName) || "X".equals(localName) || "Y".equals(localName)
+                || "Z".equals(localName)) {
+            checkInGeometry(localName);
+            startText();
+        } else if ("posList".equals(localName)) {
+            checkInGeometry(localName);
+            listDimension = dimension(attributes.getValue("srsDimension"));
+            if (listDimension == 0) {
+                listDimension = dimension(attributes.getValue("dimension"));
+            }
+            startText();
+        } else if ("coordinates".equals(localName)) {
+            checkInGeometry(localName);
+            decimal = separator(attributes.getValue("decimal"), '.');
+            cs = separator(attributes.getValue("cs"), ',');
+            ts = separator(attributes.getValue("ts"), ' ');
+            startText();
+        } else if ("coord".equals(localName)) {
+            checkInGeometry(localName);
+            Frame frame = top();
+            frame.coord = new double[] { Double.NaN, Double.NaN, Double.NaN };
+        } else if (IGNORED.contains(localName)) {
+            skipped = 1;
+        } else {
+            throw new SAXException("Unsupported GML geometry element " + localName);
+        }
+    }
+
+    void characters(char[] ch, int start, int length) {
+        if (collecting) {
+            text.append(ch, start, length);
+        }
+    }
+
+    void endElement(String uri, String localName) throws SAXException {
+        if (skipped > 0) {
+            skipped--;
+            return;
+        }
+
+        if (GEOMETRIES.contains(localName)) {
+            Frame frame = stack.remove(stack.size() - 1);
+            Geometry g = build(frame);
+            if (stack.isEmpty()) {
+                if (crs != null) {
+                    g.setUserData(crs);
+                }
+                geometry = g;
+            } else {
+                top().geometries.add(g);
+            }
+        } else if ("pos".equals(localName)) {
+            double[] ordinates;
+            try {
+                ordinates = DoubleScanner.parseList(endText());
+            } catch (NumberFormatException e) {
+                throw new SAXException(e);
+            }
+            if (ordinates.length == 0) {
+                throw new SAXException("Empty position");
+            }
+            top().sequences.add(CoordinateScanner.create(ordinates, 1, ordinates.length,
+                    csFactory));
+        } else if ("posList".equals(localName)) {
+            int dimension = listDimension > 0 ? listDimension : top().dimension;
+            try {
+                top().sequences.add(CoordinateScanner.posList(endText(),
+                        dimension > 0 ? dimension : 2, csFactory));
+            } catch (IllegalArgumentException e) {
+                throw new SAXException(e);
+            }
+        } else if ("coordinates".equals(localName)) {
+            top().sequences.add(CoordinateScanner.coordinates(endText(), decimal, cs, ts,
+                    csFactory));
+        } else if ("X".equals(localName) || "Y".equals(localName) || "Z".equals(localName)) {
+            double[] coord = top().coord;
+            if (coord == null) {
+                throw new SAXException(localName + " outside of a coord element");
+            }
+            double[] value;
+            try {
+                value = DoubleScanner.parseList(endText());
+            } catch (NumberFormatException e) {
+                throw new SAXException(e);
+            }
+            if (value.length != 1) {
+                throw new SAXException("Invalid " + localName + " ordinate: " + text);
+            }
+            coord[localName.charAt(0) - 'X'] = value[0];
+        } else if ("coord".equals(localName)) {
+            Frame frame = top();
+            double[] coord = frame.coord;
+            frame.coord = null;
+            int dimension = Double.isNaN(coord[2]) ? 2 : 3;
+            if (dimension == 2) {
+                coord = new double[] { coord[0], coord[1] };
+            }
+            frame.sequences.add(CoordinateScanner.create(coord, 1, dimension, csFactory));
+        }
+    }
+
+    void checkInGeometry(String localName) throws SAXException {
+        if (stack.isEmpty()) {
+            throw new SAXException("Unexpected element " + localName + " outside of a geometry");
+        }
+    }
+
+    Frame top() {
+        return stack.get(stack.size() - 1);
+    }
+
+    void startText() {
+        text.setLength(0);
+        collecting = true;
+    }
+
+    CharSequence endText() {
+        collecting = false;
+        return text;
+    }
+
+    Geometry build(Frame frame) throws SAXException {
+        final String name = frame.name;
+        if ("Point".equals(name)) {
+            CoordinateSequence seq = merge(frame.sequences);
+            if (seq.size() != 1) {
+                throw new SAXException("A point must have exactly one position, found "
+                        + seq.size());
+            }
+            return geometryFactory.createPoint(seq);
+        } else if ("LineString".equals(name)) {
+            return geometryFactory.createLineString(merge(frame.sequences));
+        } else if ("LinearRing".equals(name)) {
+            return geometryFactory.createLinearRing(merge(frame.sequences));
+        } else if ("Polygon".equals(name)) {
+            LinearRing[] rings = members(frame, LinearRing.class, new LinearRing[0]);
+            if (rings.length == 0) {
+                throw new SAXException("A polygon needs an exterior ring");
+            }
+            LinearRing[] holes = new LinearRing[rings.length - 1];
+            System.arraycopy(rings, 1, holes, 0, holes.length);
+            return geometryFactory.createPolygon(rings[0], holes);
+        } else if ("MultiPoint".equals(name)) {
+            return geometryFactory.createMultiPoint(members(frame, Point.class, new Point[0]));
+        } else if ("MultiLineString".equals(name) || "MultiCurve".equals(name)) {
+            return geometryFactory.createMultiLineString(members(frame, LineString.class,
+                    new LineString[0]));
+        } else {
+            return geometryFactory.createMultiPolygon(members(frame, Polygon.class,
+                    new Polygon[0]));
+        }
+    }
+
+    <T extends Geometry> T[] members(Frame frame, Class<T> type, T[] array) throws SAXException {
+        for (Geometry g : frame.geometries) {
+            if (!type.isInstance(g)) {
+                throw new SAXException("Unexpected " + g.getGeometryType() + " in "
+                        + frame.name);
+            }
+        }
+        return frame.geometries.toArray(array);
+    }
+
+    CoordinateSequence merge(List<CoordinateSequence> sequences) {
+        if (sequences.size() == 1) {
+            return sequences.get(0);
+        }
+        // a list of pos elements, or coord ones
+        List<Coordinate> coordinates = new ArrayList<Coordinate>();
+        for (CoordinateSequence seq : sequences) {
+            for (int i = 0; i < seq.size(); i++) {
+                coordinates.add(seq.getCoordinate(i));
+            }
+        }
+        return csFactory.create(coordinates.toArray(new Coordinate[coordinates.size()]));
+    }
+
+    CoordinateReferenceSystem crs(String srsName) {
+        if (crsCache.containsKey(srsName)) {
+            return crsCache.get(srsName);
+        }
+        CoordinateReferenceSystem result = null;
+        String code = srsName;
+        int hash = srsName.indexOf("/gml/srs/epsg.xml#");
+        if (hash >= 0) {
+            code = "EPSG:" + srsName.substring(hash + "/gml/srs/epsg.xml#".length());
+        }
+        try {
+            result = CRS.decode(code);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Could not decode " + srsName, e);
+        }
+        crsCache.put(srsName, result);
+        return result;
+    }
+
+    static int dimension(String value) throws SAXException {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SAXException("Invalid dimension " + value);
+        }
+    }
+
+    static char separator(String value, char defaultValue) {
+        return value == null || value.length() == 0 ? defaultValue : value.charAt(0);
+    }
+
+    /**
+     * A geometry being parsed, collects the coordinates or the members
+     */
+    static class Frame {
+        final String name;
+
+        int dimension;
+
+        final List<CoordinateSequence> sequences = new ArrayList<CoordinateSequence>(1);
+
+        final List<Geometry> geometries = new ArrayList<Geometry>(1);
+
+        double[] coord;
+
+        Frame(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -16,17 +16,24 @@
  */
 package org.geotools.gml2.bindings;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+
 import org.geotools.gml2.GML;
+import org.geotools.gml2.simple.OrdinateFormatter;
 import org.geotools.xml.AttributeInstance;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.Node;
 import org.geotools.xs.XS;
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.defaults.DefaultPicoContainer;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.impl.CoordinateArraySequenceFactory;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
 
 
 public class GMLCoordinatesTypeBindingTest extends AbstractGMLBindingTest {
@@ -100,4 +107,50 @@ public class GMLCoordinatesTypeBindingTest extends AbstractGMLBindingTest {
         assertEquals(c.getCoordinate(1), new Coordinate(9.10, 11.12));
         assertEquals(c.getCoordinate(2), new Coordinate(13.14, 15.16));
     }
+
+    public void testParseMissingOrdinates() throws Exception {
+        coordinates.setText("1,2,3 4,5 6,7,8,9");
+
+        Node node = createNode(coordinates, null, null, null, null);
+        GMLCoordinatesTypeBinding strategy = (GMLCoordinatesTypeBinding) container
+            .getComponentInstanceOfType(GMLCoordinatesTypeBinding.class);
+
+        CoordinateSequence c = (CoordinateSequence) strategy.parse(coordinates, node, null);
+        assertEquals(3, c.size());
+        assertEquals(new Coordinate(1, 2, 3), c.getCoordinate(0));
+        assertEquals(3.0, c.getCoordinate(0).z, 0d);
+        assertTrue(Double.isNaN(c.getCoordinate(1).z));
+        assertEquals(8.0, c.getCoordinate(2).z, 0d);
+    }
+
+    public void testParsePacked() throws Exception {
+        coordinates.setText("12,34:56,78;9,10:11,12");
+
+        Node node = createNode(coordinates, null, null,
+                new AttributeInstance[] { decimal, cs, ts }, new String[] { ",", ":", ";" });
+
+        GMLCoordinatesTypeBinding strategy = new GMLCoordinatesTypeBinding(
+                new PackedCoordinateSequenceFactory());
+
+        CoordinateSequence c = (CoordinateSequence) strategy.parse(coordinates, node, null);
+        assertTrue(c instanceof PackedCoordinateSequence.Double);
+        assertEquals(2, c.size());
+        assertEquals(new Coordinate(12.34, 56.78), c.getCoordinate(0));
+        assertEquals(new Coordinate(9.10, 11.12), c.getCoordinate(1));
+    }
+
+    public void testEncodeNumDecimals() throws Exception {
+        CoordinateSequence seq = CoordinateArraySequenceFactory.instance().create(
+                new Coordinate[] { new Coordinate(1.23456, 2), new Coordinate(-0.0001, 1e-8) });
+
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        GMLCoordinatesTypeBinding strategy = new GMLCoordinatesTypeBinding(
+                CoordinateArraySequenceFactory.instance(), new OrdinateFormatter(3));
+        Element e = strategy.encode(seq, doc, doc.createElement("coordinates"));
+        assertEquals("1.235,2 0,0", e.getFirstChild().getNodeValue());
+
+        strategy = new GMLCoordinatesTypeBinding(CoordinateArraySequenceFactory.instance());
+        e = strategy.encode(seq, doc, doc.createElement("coordinates"));
+        assertEquals("1.23456,2.0 -1.0E-4,1.0E-8", e.getFirstChild().getNodeValue());
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.impl.CoordinateArraySequenceFactory;
+
+/**
+ * 
+ *
+ * @source $URL$
+ */
+public class OrdinateFormatterTest extends TestCase {
+
+    public void testFullPrecision() {
+        OrdinateFormatter f = OrdinateFormatter.DEFAULT;
+        assertEquals("0.0", f.format(0));
+        assertEquals("-0.0", f.format(-0d));
+        assertEquals("12.0", f.format(12));
+        assertEquals("-12.5", f.format(-12.5));
+        assertEquals("0.1", f.format(0.1));
+        assertEquals("123456.789", f.format(123456.789));
+        assertEquals("0.001", f.format(0.001));
+        assertEquals("1.0E-4", f.format(0.0001));
+        assertEquals("1.0E7", f.format(1e7));
+        assertEquals("NaN", f.format(Double.NaN));
+        assertEquals("Infinity", f.format(Double.POSITIVE_INFINITY));
+    }
+
+    public void testRoundTrip() {
+        Random random = new Random(1);
+        char[] buffer = new char[OrdinateFormatter.MAX_LENGTH];
+        for (int i = 0; i < 100000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 8);
+            int length = OrdinateFormatter.DEFAULT.format(value, buffer, 0);
+            assertEquals(value, Double.parseDouble(new String(buffer, 0, length)), 0d);
+        }
+    }
+
+    public void testDecimals() {
+        OrdinateFormatter f = new OrdinateFormatter(2);
+        assertEquals(2, f.getNumDecimals());
+        assertEquals("3", f.format(3));
+        assertEquals("3.14", f.format(Math.PI));
+        assertEquals("-2.5", f.format(-2.499));
+        assertEquals("0", f.format(-0.001));
+        assertEquals("0.01", f.format(0.005));
+        assertEquals("1.0E20", f.format(1e20));
+        assertEquals("0", new OrdinateFormatter(0).format(0.4));
+    }
+
+    public void testScanner() {
+        CoordinateSequence seq = CoordinateScanner.posList("1 2\n 3.5   4e2 ", 2,
+                CoordinateArraySequenceFactory.instance());
+        assertEquals(2, seq.size());
+        assertEquals(3.5, seq.getOrdinate(1, 0), 0d);
+        assertEquals(400, seq.getOrdinate(1, 1), 0d);
+
+        try {
+            CoordinateScanner.posList("1 2 3", 2, CoordinateArraySequenceFactory.instance());
+            fail("odd number of ordinates should have been rejected");
+        } catch (IllegalArgumentException e) {
+            // fine
+        }
+
+        seq = CoordinateScanner.coordinates("1 , 2;3 , 4", '.', ',', ';',
+                CoordinateArraySequenceFactory.instance());
+        assertEquals(2, seq.size());
+        assertEquals(4, seq.getOrdinate(1, 1), 0d);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml2.simple;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.gml2.GMLConfiguration;
+import org.geotools.gml2.TEST;
+import org.geotools.xml.Configuration;
+import org.geotools.xml.StreamingParser;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class SimpleFeatureParserDelegateTest extends TestCase {
+
+    static final QName TEST_FEATURE = new QName(TEST.NAMESPACE, "TestFeature");
+
+    public void testIsSimple() throws Exception {
+        assertTrue(SimpleFeatureParserDelegate.isSimple(DataUtilities.createType("test",
+                "geom:Point,name:String,count:Integer,when:Date")));
+        assertFalse(SimpleFeatureParserDelegate.isSimple(DataUtilities.createType("test",
+                "geom:Point,values:java.util.List")));
+        assertFalse(SimpleFeatureParserDelegate.isSimple(DataUtilities.createType("test",
+                "geom:GeometryCollection")));
+    }
+
+    public void testStreamingParser() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType(TEST.NAMESPACE, "TestFeature",
+                "geom:Point,count:Integer");
+        GMLConfiguration configuration = new GMLConfiguration();
+        SimpleFeatureParserDelegate.register(configuration, type, TEST_FEATURE);
+
+        StreamingParser parser = new StreamingParser(configuration, features(), TEST_FEATURE);
+        for (int i = 0; i < 3; i++) {
+            SimpleFeature f = (SimpleFeature) parser.parse();
+            assertNotNull(f);
+            // built by the delegate, the generic path creates its own type
+            assertSame(type, f.getFeatureType());
+
+            assertEquals(i + "", f.getID());
+            assertEquals(i, ((Point) f.getDefaultGeometry()).getX(), 0d);
+            assertEquals(i, ((Point) f.getDefaultGeometry()).getY(), 0d);
+            assertEquals(i, ((Integer) f.getAttribute("count")).intValue());
+        }
+        assertNull(parser.parse());
+    }
+
+    public void testGML3Geometries() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType(TEST.NAMESPACE, "TestFeature",
+                "polygon:Polygon,lines:MultiLineString,name:String,value:Double");
+        String xml = "<test:TestFeature gml:id='f.1' xmlns:test='" + TEST.NAMESPACE + "'"
+                + " xmlns:gml='http://www.opengis.net/gml'>"
+                + "<gml:name>ignored</gml:name>"
+                + "<test:polygon><gml:Polygon srsName='EPSG:4326'>"
+                + "<gml:exterior><gml:LinearRing><gml:posList>0 0 10 0 10 10 0 10 0 0"
+                + "</gml:posList></gml:LinearRing></gml:exterior>"
+                + "<gml:interior><gml:LinearRing><gml:pos>1 1</gml:pos><gml:pos>2 1</gml:pos>"
+                + "<gml:pos>2 2</gml:pos><gml:pos>1 1</gml:pos></gml:LinearRing></gml:interior>"
+                + "</gml:Polygon></test:polygon>"
+                + "<test:lines><gml:MultiCurve><gml:curveMember><gml:LineString srsDimension='3'>"
+                + "<gml:posList>0 0 0 1 1 1</gml:posList></gml:LineString></gml:curveMember>"
+                + "<gml:curveMember><gml:LineString><gml:coordinates>2,2 3,3</gml:coordinates>"
+                + "</gml:LineString></gml:curveMember></gml:MultiCurve></test:lines>"
+                + "<test:name> a name </test:name>"
+                + "<test:unknown>skipped</test:unknown>"
+                + "<test:value>\n  1.5 </test:value>"
+                + "</test:TestFeature>";
+
+        SimpleFeature f = parse(type, xml);
+        assertEquals("f.1", f.getID());
+        assertEquals(" a name ", f.getAttribute("name"));
+        assertEquals(1.5, f.getAttribute("value"));
+
+        Polygon polygon = (Polygon) f.getAttribute("polygon");
+        assertEquals(99.5, polygon.getArea(), 1e-9);
+        assertEquals(1, polygon.getNumInteriorRing());
+        assertTrue(polygon.getUserData() instanceof CoordinateReferenceSystem);
+
+        MultiLineString lines = (MultiLineString) f.getAttribute("lines");
+        assertEquals(2, lines.getNumGeometries());
+        assertEquals(1, lines.getGeometryN(0).getCoordinates()[1].z, 0d);
+        assertEquals(3, lines.getGeometryN(1).getCoordinates()[1].x, 0d);
+    }
+
+    public void testUnsupportedGeometry() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType(TEST.NAMESPACE, "TestFeature",
+                "geom:LineString");
+        String xml = "<test:TestFeature xmlns:test='" + TEST.NAMESPACE + "'"
+                + " xmlns:gml='http://www.opengis.net/gml'><test:geom>"
+                + "<gml:Curve><gml:segments><gml:Arc><gml:posList>0 0 1 1 2 0</gml:posList>"
+                + "</gml:Arc></gml:segments></gml:Curve></test:geom></test:TestFeature>";
+        try {
+            parse(type, xml, null);
+            fail("Curves are not supported without a fallback configuration");
+        } catch (SAXException e) {
+            // fine
+        }
+    }
+
+    public void testFallbackGeometry() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType(TEST.NAMESPACE, "TestFeature",
+                "name:String,geom:Geometry,location:Point");
+        String xml = "<test:TestFeature xmlns:test='" + TEST.NAMESPACE + "'"
+                + " xmlns:gml='http://www.opengis.net/gml'><test:name>one</test:name>"
+                + "<test:geom><gml:MultiGeometry>"
+                + "<gml:geometryMember><gml:Point><gml:coordinates>1,2</gml:coordinates>"
+                + "</gml:Point></gml:geometryMember><gml:geometryMember><gml:LineString>"
+                + "<gml:coordinates>0,0 1,1</gml:coordinates></gml:LineString>"
+                + "</gml:geometryMember></gml:MultiGeometry></test:geom><test:location>"
+                + "<gml:Point><gml:coordinates>3,4</gml:coordinates></gml:Point>"
+                + "</test:location></test:TestFeature>";
+
+        SimpleFeature feature = parse(type, xml, new GMLConfiguration());
+        assertEquals("one", feature.getAttribute("name"));
+        GeometryCollection geom = (GeometryCollection) feature.getAttribute("geom");
+        assertEquals(2, geom.getNumGeometries());
+        assertTrue(geom.getGeometryN(0) instanceof Point);
+        assertTrue(geom.getGeometryN(1) instanceof LineString);
+        Point location = (Point) feature.getAttribute("location");
+        assertEquals(3d, location.getX());
+        assertEquals(4d, location.getY());
+    }
+
+    SimpleFeature parse(SimpleFeatureType type, String xml) throws Exception {
+        return parse(type, xml, null);
+    }
+
+    SimpleFeature parse(SimpleFeatureType type, String xml, Configuration fallback)
+            throws Exception {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        XMLReader reader = factory.newSAXParser().getXMLReader();
+        SimpleFeatureParserDelegate delegate = new SimpleFeatureParserDelegate(type, TEST_FEATURE);
+        delegate.setFallbackConfiguration(fallback);
+        reader.setContentHandler(delegate);
+        reader.parse(new InputSource(new ByteArrayInputStream(xml.getBytes("UTF-8"))));
+        return (SimpleFeature) delegate.getParsedObject();
+    }
+
+    /**
+     * The test features, pointing to the test schema
+     */
+    InputStream features() throws Exception {
+        InputStream in = TEST.class.getResourceAsStream("feature.xml");
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document;
+        try {
+            document = factory.newDocumentBuilder().parse(in);
+        } finally {
+            in.close();
+        }
+
+        String schemaLocation = TEST.class.getResource("test.xsd").toString();
+        document.getDocumentElement().setAttribute("xsi:schemaLocation",
+                TEST.NAMESPACE + " " + schemaLocation);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document),
+                new StreamResult(out));
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
@@ -21,6 +21,7 @@ import javax.xml.namespace.QName;
 import org.geotools.gml2.FeatureTypeCache;
 import org.geotools.gml2.bindings.GMLCoordTypeBinding;
 import org.geotools.gml2.bindings.GMLCoordinatesTypeBinding;
+import org.geotools.gml2.simple.OrdinateFormatter;
 import org.geotools.gml3.bindings.AbstractFeatureCollectionTypeBinding;
 import org.geotools.gml3.bindings.AbstractFeatureTypeBinding;
 import org.geotools.gml3.bindings.AbstractGeometryTypeBinding;
@@ -108,10 +109,21 @@ public class GMLConfiguration extends Configuration {
      */
     public static final QName ENCODE_FEATURE_MEMBER = org.geotools.gml2.GMLConfiguration.ENCODE_FEATURE_MEMBER;
 
+    /**
+     * Property which controls whether simple feature collections are encoded directly as
+     * SAX events, without building an intermediate DOM
+     */
+    public static final QName OPTIMIZED_ENCODING = org.geotools.gml2.GMLConfiguration.OPTIMIZED_ENCODING;
+
     /**
      * extended support for arcs and surface flag
      */
     boolean extArcSurfaceSupport = false;
+
+    /**
+     * number of decimals used when encoding ordinates
+     */
+    int numDecimals = OrdinateFormatter.FULL_PRECISION;
     
     public GMLConfiguration() {
         this(false);
@@ -144,6 +156,18 @@ public class GMLConfiguration extends Configuration {
     public boolean isExtendedArcSurfaceSupport() {
         return extArcSurfaceSupport;
     }
+
+    /**
+     * Sets the number of decimals ordinates are rounded to when encoded, 
+     * {@link OrdinateFormatter#FULL_PRECISION} (the default) to encode them unchanged.
+     */
+    public void setNumDecimals(int numDecimals) {
+        this.numDecimals = numDecimals;
+    }
+
+    public int getNumDecimals() {
+        return numDecimals;
+    }
     
     protected void registerBindings(MutablePicoContainer container) {
         //Types
@@ -275,6 +299,7 @@ public class GMLConfiguration extends Configuration {
      * <ul>
      * <li>{@link CoordinateArraySequenceFactory} under {@link CoordinateSequenceFactory}
      * <li>{@link GeometryFactory}
+     * <li>{@link OrdinateFormatter}
      * </ul>
      * </p>
      */
@@ -288,6 +313,7 @@ public class GMLConfiguration extends Configuration {
         container.registerComponentInstance(CoordinateSequenceFactory.class,
             CoordinateArraySequenceFactory.instance());
         container.registerComponentImplementation(GeometryFactory.class);
+        container.registerComponentInstance(new OrdinateFormatter(numDecimals));
         
         container.registerComponentInstance(new GML3EncodingUtils());
         
@@ -16,16 +16,23 @@
  */
 package org.geotools.gml3.bindings;
 
+import java.util.Collections;
+
 import javax.xml.namespace.QName;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.feature.DefaultFeatureCollections;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.gml2.simple.OrdinateFormatter;
 import org.geotools.gml3.GML;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.gml3.simple.GML3FeatureCollectionEncoderDelegate;
 import org.geotools.xml.AbstractComplexBinding;
+import org.geotools.xml.Configuration;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.Node;
 import org.opengis.feature.simple.SimpleFeature;
+import org.xml.sax.helpers.NamespaceSupport;
 
 
 /**
@@ -57,6 +64,25 @@ import org.opengis.feature.simple.SimpleFeature;
  * @source $URL$
  */
 public class AbstractFeatureCollectionTypeBinding extends AbstractComplexBinding {
+    
+    Configuration configuration;
+
+    NamespaceSupport namespaces;
+
+    OrdinateFormatter formatter;
+
+    public AbstractFeatureCollectionTypeBinding(Configuration configuration,
+            NamespaceSupport namespaces) {
+        this(configuration, namespaces, OrdinateFormatter.DEFAULT);
+    }
+
+    public AbstractFeatureCollectionTypeBinding(Configuration configuration,
+            NamespaceSupport namespaces, OrdinateFormatter formatter) {
+        this.configuration = configuration;
+        this.namespaces = namespaces;
+        this.formatter = formatter;
+    }
+
     /**
      * @generated
      */
@@ -108,6 +134,15 @@ public class AbstractFeatureCollectionTypeBinding extends AbstractComplexBinding
         if (GML.featureMembers.equals(name)) {
             SimpleFeatureCollection fc = (SimpleFeatureCollection) object;
 
+            if (configuration.hasProperty(GMLConfiguration.OPTIMIZED_ENCODING)) {
+                //write the members straight to the output, without building the dom
+                GML3FeatureCollectionEncoderDelegate delegate =
+                    new GML3FeatureCollectionEncoderDelegate(Collections.singletonList(fc),
+                        GML.featureMembers, namespaces, configuration);
+                delegate.setFormatter(formatter);
+                return delegate;
+            }
+
             return fc;
 
             //return fc.toArray(new Feature[fc.size()]);
@@ -22,6 +22,7 @@ import javax.xml.namespace.QName;
 
 import org.geotools.geometry.DirectPosition1D;
 import org.geotools.geometry.DirectPosition2D;
+import org.geotools.gml2.simple.OrdinateFormatter;
 import org.geotools.gml3.GML;
 import org.geotools.xml.AbstractComplexBinding;
 import org.geotools.xml.ElementInstance;
@@ -34,6 +35,11 @@ import org.w3c.dom.Element;
 /**
  * Binding object for the type
  * http://www.opengis.net/gml:DirectPositionListType.
+ * <p>
+ * The ordinates reach this binding already parsed as a list of doubles, which is turned into an
+ * array of direct positions. Packed coordinate sequences are only built straight from the
+ * position lists by {@link org.geotools.gml2.simple.SimpleFeatureParserDelegate}.
+ * </p>
  * 
  * <p>
  * 
@@ -67,6 +73,16 @@ import org.w3c.dom.Element;
  */
 public class DirectPositionListTypeBinding extends AbstractComplexBinding {
 
+    OrdinateFormatter formatter;
+
+    public DirectPositionListTypeBinding() {
+        this(OrdinateFormatter.DEFAULT);
+    }
+
+    public DirectPositionListTypeBinding(OrdinateFormatter formatter) {
+        this.formatter = formatter;
+    }
+
     /**
      * @generated
      */
@@ -148,7 +164,9 @@ public class DirectPositionListTypeBinding extends AbstractComplexBinding {
         StringBuffer sb = new StringBuffer();
 
         for (int i = 0; i < dps.length; i++) {
-            sb.append(dps[i].getOrdinate(0) + " " + dps[i].getOrdinate(1));
+            formatter.format(dps[i].getOrdinate(0), sb);
+            sb.append(' ');
+            formatter.format(dps[i].getOrdinate(1), sb);
 
             if (i < (dps.length - 1)) {
                 sb.append(" ");
@@ -20,6 +20,7 @@ import javax.xml.namespace.QName;
 
 import org.geotools.geometry.DirectPosition1D;
 import org.geotools.geometry.DirectPosition2D;
+import org.geotools.gml2.simple.OrdinateFormatter;
 import org.geotools.gml3.GML;
 import org.geotools.xml.AbstractComplexBinding;
 import org.geotools.xml.ElementInstance;
@@ -62,9 +63,15 @@ import com.vividsolutions.jts.geom.GeometryFactory;
  */
 public class DirectPositionTypeBinding extends AbstractComplexBinding {
     GeometryFactory factory;
+    OrdinateFormatter formatter;
 
     public DirectPositionTypeBinding(GeometryFactory factory) {
+        this(factory, OrdinateFormatter.DEFAULT);
+    }
+
+    public DirectPositionTypeBinding(GeometryFactory factory, OrdinateFormatter formatter) {
         this.factory = factory;
+        this.formatter = formatter;
     }
 
     /**
@@ -123,7 +130,7 @@ public class DirectPositionTypeBinding extends AbstractComplexBinding {
         StringBuffer sb = new StringBuffer();
 
         for (int i = 0; i < coordinates.length; i++) {
-            sb.append(String.valueOf(coordinates[i]));
+            formatter.format(coordinates[i], sb);
 
             if (i != (coordinates.length - 1)) {
                 sb.append(" ");
@@ -0,0 +1,74 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.gml2.bindings.GML2EncodingUtils;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.GeometryEncoder;
+import org.geotools.gml2.simple.QualifiedName;
+import org.geotools.gml3.GML;
+import org.geotools.xml.Configuration;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Encodes simple feature collections as GML 3.1 <code>gml:featureMember</code> or
+ * <code>gml:featureMembers</code> elements.
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class GML3FeatureCollectionEncoderDelegate extends FeatureCollectionEncoderDelegate {
+
+    /**
+     * @param member Either {@link GML#featureMember} or {@link GML#featureMembers}
+     */
+    public GML3FeatureCollectionEncoderDelegate(List<SimpleFeatureCollection> collections,
+            QName member, NamespaceSupport namespaces, Configuration configuration) {
+        super(collections, member, !GML.featureMembers.equals(member), namespaces,
+                configuration);
+    }
+
+    @Override
+    protected GeometryEncoder createGeometryEncoder(QualifiedName gml) {
+        return new GML3GeometryEncoder(gml);
+    }
+
+    @Override
+    protected void addFeatureId(String id, AttributesImpl atts) {
+        QualifiedName name = QualifiedName.build(GML.NAMESPACE, "id", namespaces);
+        atts.addAttribute(name.getNamespaceURI(), name.getLocalPart(), name.getQualifiedName(),
+                "ID", id);
+    }
+
+    @Override
+    protected String getSrsName(CoordinateReferenceSystem crs) {
+        return GML2EncodingUtils.toURI(crs);
+    }
+
+    @Override
+    protected int getSrsDimension(CoordinateReferenceSystem crs) {
+        return crs.getCoordinateSystem().getDimension();
+    }
+}
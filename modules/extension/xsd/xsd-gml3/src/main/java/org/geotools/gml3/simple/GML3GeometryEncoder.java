@@ -0,0 +1,157 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gml3.simple;
+
+import org.geotools.gml2.simple.GMLWriter;
+import org.geotools.gml2.simple.GeometryEncoder;
+import org.geotools.gml2.simple.QualifiedName;
+import org.opengis.geometry.BoundingBox;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Writes geometries as GML 3.1, in the same form as the GML 3 geometry bindings, with points
+ * as <code>gml:pos</code> and lines and rings as <code>gml:posList</code> written straight
+ * from the coordinate sequences. As in the GML 3 type mapping profile, multi polygons are
+ * written as <code>gml:MultiSurface</code> and multi line strings as
+ * <code>gml:MultiLineString</code>.
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class GML3GeometryEncoder extends GeometryEncoder {
+
+    final QualifiedName point, lineString, linearRing, polygon, multiPoint, multiLineString,
+            multiSurface, multiGeometry, pos, posList, exterior, interior, pointMember,
+            lineStringMember, surfaceMember, geometryMember, envelope, lowerCorner, upperCorner;
+
+    public GML3GeometryEncoder(QualifiedName gml) {
+        super(gml);
+        point = gml.derive("Point");
+        lineString = gml.derive("LineString");
+        linearRing = gml.derive("LinearRing");
+        polygon = gml.derive("Polygon");
+        multiPoint = gml.derive("MultiPoint");
+        multiLineString = gml.derive("MultiLineString");
+        multiSurface = gml.derive("MultiSurface");
+        multiGeometry = gml.derive("MultiGeometry");
+        pos = gml.derive("pos");
+        posList = gml.derive("posList");
+        exterior = gml.derive("exterior");
+        interior = gml.derive("interior");
+        pointMember = gml.derive("pointMember");
+        lineStringMember = gml.derive("lineStringMember");
+        surfaceMember = gml.derive("surfaceMember");
+        geometryMember = gml.derive("geometryMember");
+        envelope = gml.derive("Envelope");
+        lowerCorner = gml.derive("lowerCorner");
+        upperCorner = gml.derive("upperCorner");
+    }
+
+    @Override
+    public void encode(Geometry geometry, String srsName, int srsDimension, GMLWriter writer)
+            throws SAXException {
+        encode(geometry, srsAttributes(srsName, srsDimension), writer);
+    }
+
+    void encode(Geometry geometry, Attributes atts, GMLWriter writer) throws SAXException {
+        if (geometry instanceof Point) {
+            writer.startElement(point, atts);
+            if (!geometry.isEmpty()) {
+                Point p = (Point) geometry;
+                writer.startElement(pos, null);
+                writer.position(p.getX(), p.getY());
+                writer.endElement(pos);
+            }
+            writer.endElement(point);
+        } else if (geometry instanceof LinearRing) {
+            writePositions(linearRing, (LineString) geometry, atts, writer);
+        } else if (geometry instanceof LineString) {
+            writePositions(lineString, (LineString) geometry, atts, writer);
+        } else if (geometry instanceof Polygon) {
+            Polygon p = (Polygon) geometry;
+            writer.startElement(polygon, atts);
+            writer.startElement(exterior, null);
+            writePositions(linearRing, p.getExteriorRing(), null, writer);
+            writer.endElement(exterior);
+            for (int i = 0; i < p.getNumInteriorRing(); i++) {
+                writer.startElement(interior, null);
+                writePositions(linearRing, p.getInteriorRingN(i), null, writer);
+                writer.endElement(interior);
+            }
+            writer.endElement(polygon);
+        } else if (geometry instanceof MultiPoint) {
+            writeMembers(multiPoint, pointMember, (GeometryCollection) geometry, atts, writer);
+        } else if (geometry instanceof MultiLineString) {
+            writeMembers(multiLineString, lineStringMember, (GeometryCollection) geometry, atts,
+                    writer);
+        } else if (geometry instanceof MultiPolygon) {
+            writeMembers(multiSurface, surfaceMember, (GeometryCollection) geometry, atts,
+                    writer);
+        } else if (geometry instanceof GeometryCollection) {
+            writeMembers(multiGeometry, geometryMember, (GeometryCollection) geometry, atts,
+                    writer);
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type: "
+                    + geometry.getClass().getName());
+        }
+    }
+
+    void writePositions(QualifiedName element, LineString line, Attributes atts,
+            GMLWriter writer) throws SAXException {
+        writer.startElement(element, atts);
+        writer.startElement(posList, null);
+        writer.positions(line.getCoordinateSequence());
+        writer.endElement(posList);
+        writer.endElement(element);
+    }
+
+    void writeMembers(QualifiedName element, QualifiedName member, GeometryCollection collection,
+            Attributes atts, GMLWriter writer) throws SAXException {
+        writer.startElement(element, atts);
+        for (int i = 0; i < collection.getNumGeometries(); i++) {
+            writer.startElement(member, null);
+            encode(collection.getGeometryN(i), null, writer);
+            writer.endElement(member);
+        }
+        writer.endElement(element);
+    }
+
+    @Override
+    public void encode(BoundingBox bounds, String srsName, int srsDimension, GMLWriter writer)
+            throws SAXException {
+        writer.startElement(envelope, srsAttributes(srsName, srsDimension));
+        writer.startElement(lowerCorner, null);
+        writer.position(bounds.getMinX(), bounds.getMinY());
+        writer.endElement(lowerCorner);
+        writer.startElement(upperCorner, null);
+        writer.position(bounds.getMaxX(), bounds.getMaxY());
+        writer.endElement(upperCorner);
+        writer.endElement(envelope);
+    }
+}
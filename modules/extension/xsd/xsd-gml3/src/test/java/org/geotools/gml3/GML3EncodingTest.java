@@ -28,6 +28,7 @@ import junit.framework.TestCase;
 import org.apache.xerces.parsers.SAXParser;
 import org.eclipse.xsd.XSDSchema;
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.DefaultFeatureCollections;
 import org.geotools.gml3.bindings.GML3MockData;
 import org.geotools.gml3.bindings.TEST;
 import org.geotools.gml3.bindings.TestConfiguration;
@@ -35,6 +36,7 @@ import org.geotools.xml.Encoder;
 import org.geotools.xml.Parser;
 import org.opengis.feature.simple.SimpleFeature;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
@@ -188,4 +190,26 @@ public class GML3EncodingTest extends TestCase {
         
         assertEquals( 0, dom.getElementsByTagName("gml:boundedBy").getLength());
     }
+    
+    public void testEncodeFeatureCollectionOptimized() throws Exception {
+        SimpleFeatureCollection features = DefaultFeatureCollections.newCollection();
+        features.add(GML3MockData.feature());
+        
+        Document expected = new Encoder(new TestConfiguration()).encodeAsDOM(features,
+                TEST.TestFeatureCollection);
+        
+        TestConfiguration configuration = new TestConfiguration();
+        configuration.getProperties().add(GMLConfiguration.OPTIMIZED_ENCODING);
+        Document dom = new Encoder(configuration).encodeAsDOM(features, 
+                TEST.TestFeatureCollection);
+        
+        assertEquals(1, dom.getElementsByTagName("gml:featureMembers").getLength());
+        assertEquals(1, dom.getElementsByTagName("test:TestFeature").getLength());
+        assertEquals("fid.1", ((Element) dom.getElementsByTagName("test:TestFeature").item(0))
+                .getAttribute("gml:id"));
+        assertEquals(expected.getElementsByTagName("gml:pos").item(0).getTextContent(), dom
+                .getElementsByTagName("gml:pos").item(0).getTextContent());
+        assertEquals(expected.getElementsByTagName("test:count").item(0).getTextContent(), dom
+                .getElementsByTagName("test:count").item(0).getTextContent());
+    }
 }
@@ -28,13 +28,20 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.feature.DefaultFeatureCollection;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.gml2.simple.FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.GML2FeatureCollectionEncoderDelegate;
+import org.geotools.gml2.simple.OrdinateFormatter;
 import org.geotools.gml3.GML;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.gml3.simple.GML3FeatureCollectionEncoderDelegate;
 import org.geotools.wfs.CompositeFeatureCollection;
 import org.geotools.wfs.WFS;
 import org.geotools.xml.AbstractComplexEMFBinding;
+import org.geotools.xml.Configuration;
 import org.geotools.xml.ElementInstance;
 import org.geotools.xml.Node;
 import org.opengis.feature.simple.SimpleFeature;
+import org.xml.sax.helpers.NamespaceSupport;
 
 
 /**
@@ -99,8 +106,23 @@ import org.opengis.feature.simple.SimpleFeature;
  * @source $URL$
  */
 public class FeatureCollectionTypeBinding extends AbstractComplexEMFBinding {
-    public FeatureCollectionTypeBinding(WfsFactory factory) {
+    Configuration configuration;
+
+    NamespaceSupport namespaces;
+
+    OrdinateFormatter formatter;
+
+    public FeatureCollectionTypeBinding(WfsFactory factory, Configuration configuration,
+            NamespaceSupport namespaces) {
+        this(factory, configuration, namespaces, OrdinateFormatter.DEFAULT);
+    }
+
+    public FeatureCollectionTypeBinding(WfsFactory factory, Configuration configuration,
+            NamespaceSupport namespaces, OrdinateFormatter formatter) {
         super(factory);
+        this.configuration = configuration;
+        this.namespaces = namespaces;
+        this.formatter = formatter;
     }
 
     /**
@@ -133,6 +155,24 @@ public class FeatureCollectionTypeBinding extends AbstractComplexEMFBinding {
             }
             
             if ( GML.featureMember.equals( name ) ) {
+                if (configuration.hasProperty(GMLConfiguration.OPTIMIZED_ENCODING)) {
+                    //write the members straight to the output, without building the dom
+                    List<SimpleFeatureCollection> features = 
+                        FeatureCollectionEncoderDelegate.simple(fc.getFeature());
+                    if (features != null) {
+                        FeatureCollectionEncoderDelegate delegate;
+                        if (isGML3()) {
+                            delegate = new GML3FeatureCollectionEncoderDelegate(features,
+                                    GML.featureMember, namespaces, configuration);
+                        } else {
+                            delegate = new GML2FeatureCollectionEncoderDelegate(features,
+                                    namespaces, configuration);
+                        }
+                        delegate.setFormatter(formatter);
+                        return delegate;
+                    }
+                }
+                
                 if (fc.getFeature().size() > 1) {
                     //wrap in a single
                     return new CompositeFeatureCollection(fc.getFeature());
@@ -146,6 +186,18 @@ public class FeatureCollectionTypeBinding extends AbstractComplexEMFBinding {
         return super.getProperty(object, name);
     }
     
+    /**
+     * Returns true if the features are encoded as GML 3, false if as GML 2
+     */
+    boolean isGML3() {
+        for (Object dependency : configuration.allDependencies()) {
+            if (dependency instanceof GMLConfiguration) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     public Object parse(ElementInstance instance, Node node, Object value)
         throws Exception {
         FeatureCollectionType fct = (FeatureCollectionType) super.parse(instance, node, value);
@@ -16,6 +16,9 @@
  */
 package org.geotools.wfs;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 import net.opengis.wfs.FeatureCollectionType;
 import net.opengis.wfs.WfsFactory;
@@ -24,13 +27,22 @@ import org.geotools.feature.DefaultFeatureCollection;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.gml3.GMLConfiguration;
+import org.geotools.xml.Configuration;
 import org.geotools.xml.Encoder;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.WKTReader;
 
 public class WFSFeatureCollectionEncodingTest extends TestCase {
 
@@ -118,4 +130,127 @@ public class WFSFeatureCollectionEncodingTest extends TestCase {
         assertEquals( 2, d.getElementsByTagName( "geotools:feature").getLength());
         assertEquals( 2, d.getElementsByTagName( "geotools2:feature2").getLength());
     }
+    
+    public void testEncodeFeatureCollectionOptimized10() throws Exception {
+        org.geotools.wfs.v1_0.WFSConfiguration optimized = 
+            new org.geotools.wfs.v1_0.WFSConfiguration();
+        optimized.getProperties().add( GMLConfiguration.OPTIMIZED_ENCODING );
+        
+        assertOptimizedEncoding( new org.geotools.wfs.v1_0.WFSConfiguration(), optimized, fc );
+    }
+    
+    public void testEncodeFeatureCollectionOptimized11() throws Exception {
+        org.geotools.wfs.v1_1.WFSConfiguration optimized = 
+            new org.geotools.wfs.v1_1.WFSConfiguration();
+        optimized.getProperties().add( GMLConfiguration.OPTIMIZED_ENCODING );
+        
+        assertOptimizedEncoding( new org.geotools.wfs.v1_1.WFSConfiguration(), optimized, fc );
+    }
+    
+    public void testEncodeGeometriesOptimized10() throws Exception {
+        org.geotools.wfs.v1_0.WFSConfiguration optimized = 
+            new org.geotools.wfs.v1_0.WFSConfiguration();
+        optimized.getProperties().add( GMLConfiguration.OPTIMIZED_ENCODING );
+        
+        Document d = assertOptimizedEncoding( new org.geotools.wfs.v1_0.WFSConfiguration(), 
+                optimized, geometries() );
+        assertEquals( 1, d.getElementsByTagName( "gml:innerBoundaryIs" ).getLength() );
+        assertEquals( 1, d.getElementsByTagName( "gml:MultiPoint" ).getLength() );
+        assertEquals( 1, d.getElementsByTagName( "gml:MultiLineString" ).getLength() );
+        assertEquals( 1, d.getElementsByTagName( "gml:MultiPolygon" ).getLength() );
+    }
+    
+    public void testEncodeGeometriesOptimized11() throws Exception {
+        org.geotools.wfs.v1_1.WFSConfiguration optimized = 
+            new org.geotools.wfs.v1_1.WFSConfiguration();
+        optimized.getProperties().add( GMLConfiguration.OPTIMIZED_ENCODING );
+        
+        Document d = assertOptimizedEncoding( new org.geotools.wfs.v1_1.WFSConfiguration(), 
+                optimized, geometries() );
+        assertEquals( 1, d.getElementsByTagName( "gml:interior" ).getLength() );
+        assertEquals( 1, d.getElementsByTagName( "gml:MultiPoint" ).getLength() );
+        assertEquals( 1, d.getElementsByTagName( "gml:MultiLineString" ).getLength() );
+        assertEquals( 1, d.getElementsByTagName( "gml:MultiSurface" ).getLength() );
+    }
+    
+    /**
+     * Builds a collection with a feature holding a polygon with a hole and the multi geometries
+     */
+    FeatureCollectionType geometries() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName( "shapes" );
+        tb.setNamespaceURI( "http://geotools.org");
+        tb.add( "polygon", Polygon.class );
+        tb.add( "multiPoint", MultiPoint.class );
+        tb.add( "multiLineString", MultiLineString.class );
+        tb.add( "multiPolygon", MultiPolygon.class );
+        tb.add( "name", String.class );
+        
+        WKTReader reader = new WKTReader();
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder( tb.buildFeatureType() );
+        b.add( reader.read( "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2))") );
+        b.add( reader.read( "MULTIPOINT((0.5 1.25), (-3 7))") );
+        b.add( reader.read( "MULTILINESTRING((0 0, 1 1), (2 2, 3.125 -4))") );
+        b.add( reader.read( "MULTIPOLYGON(((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))") );
+        b.add( "shapes" );
+        
+        FeatureCollection features = new DefaultFeatureCollection(null,null);
+        features.add( b.buildFeature( "shapes.1" ) );
+        
+        FeatureCollectionType collection = WfsFactory.eINSTANCE.createFeatureCollectionType();
+        collection.getFeature().add( features );
+        return collection;
+    }
+    
+    /**
+     * Encodes the collection through the bindings and through the optimized encoding, and checks
+     * the two documents are the same, returns the optimized one
+     */
+    Document assertOptimizedEncoding( Configuration configuration, Configuration optimized, 
+            FeatureCollectionType features ) throws Exception {
+        Encoder e = new Encoder( configuration );
+        e.getNamespaces().declarePrefix( "geotools", "http://geotools.org");
+        Document expected = e.encodeAsDOM( features, WFS.FeatureCollection );
+        
+        e = new Encoder( optimized );
+        e.getNamespaces().declarePrefix( "geotools", "http://geotools.org");
+        Document actual = e.encodeAsDOM( features, WFS.FeatureCollection );
+        
+        assertEqualElements( expected.getDocumentElement(), actual.getDocumentElement() );
+        return actual;
+    }
+    
+    void assertEqualElements( Element expected, Element actual ) {
+        String name = expected.getNodeName();
+        assertEquals( name, actual.getNodeName() );
+        
+        NamedNodeMap attributes = expected.getAttributes();
+        for ( int i = 0; i < attributes.getLength(); i++ ) {
+            Node attribute = attributes.item( i );
+            if ( !attribute.getNodeName().startsWith( "xmlns" ) ) {
+                assertEquals( name + "@" + attribute.getNodeName(), attribute.getNodeValue(), 
+                        actual.getAttribute( attribute.getNodeName() ) );
+            }
+        }
+        
+        List<Element> expectedChildren = children( expected );
+        List<Element> actualChildren = children( actual );
+        assertEquals( name, expectedChildren.size(), actualChildren.size() );
+        if ( expectedChildren.isEmpty() ) {
+            assertEquals( name, expected.getTextContent().trim(), actual.getTextContent().trim() );
+        }
+        for ( int i = 0; i < expectedChildren.size(); i++ ) {
+            assertEqualElements( expectedChildren.get( i ), actualChildren.get( i ) );
+        }
+    }
+    
+    List<Element> children( Element element ) {
+        List<Element> children = new ArrayList<Element>();
+        for ( Node n = element.getFirstChild(); n != null; n = n.getNextSibling() ) {
+            if ( n instanceof Element ) {
+                children.add( (Element) n );
+            }
+        }
+        return children;
+    }
 }
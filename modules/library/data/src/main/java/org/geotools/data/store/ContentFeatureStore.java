@@ -212,10 +212,11 @@ public abstract class ContentFeatureStore extends ContentFeatureSource implement
     /**
      * Adds a collection of features to the store.
      * <p>
-     * This method calls through to {@link #addFeatures(Collection)}.
+     * This method operates like {@link #addFeatures(Collection)}. Subclasses may override it
+     * to insert large collections in a more efficient way.
      * </p>
      */
-    public final List<FeatureId> addFeatures(FeatureCollection<SimpleFeatureType,SimpleFeature> collection)
+    public List<FeatureId> addFeatures(FeatureCollection<SimpleFeatureType,SimpleFeature> collection)
         throws IOException {
         // gather up id's
         List<FeatureId> ids = new LinkedList<FeatureId>();
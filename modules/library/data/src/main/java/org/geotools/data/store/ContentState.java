@@ -107,6 +107,18 @@ public class ContentState {
      */
     protected ReferencedEnvelope bounds;
 
+    /**
+     * cached estimated number of features, and the time it was computed
+     */
+    protected int estimatedCount = -1;
+    protected long estimatedCountTime;
+
+    /**
+     * cached estimated bounds of features, and the time they were computed
+     */
+    protected ReferencedEnvelope estimatedBounds;
+    protected long estimatedBoundsTime;
+
     /**
      * entry maintaining the state
      */
@@ -165,6 +177,11 @@ public class ContentState {
         count = state.count;
         bounds = state.bounds == null ? 
                 null : new ReferencedEnvelope( state.bounds );
+        estimatedCount = state.estimatedCount;
+        estimatedCountTime = state.estimatedCountTime;
+        estimatedBounds = state.estimatedBounds == null ? 
+                null : new ReferencedEnvelope( state.estimatedBounds );
+        estimatedBoundsTime = state.estimatedBoundsTime;
         batchFeatureEvent = null;
    }
 
@@ -235,6 +252,44 @@ public class ContentState {
     	this.bounds = bounds;
     }
     
+    /**
+     * The cached estimated number of features, or -1 if not available or computed more 
+     * than <tt>timeToLive</tt> milliseconds ago.
+     */
+    public final synchronized int getEstimatedCount(long timeToLive){
+        if (estimatedCount < 0 || System.currentTimeMillis() - estimatedCountTime > timeToLive) {
+            return -1;
+        }
+        return estimatedCount;
+    }
+    
+    /**
+     * Sets the cached estimated number of features, computed now.
+     */
+    public final synchronized void setEstimatedCount(int estimatedCount){
+        this.estimatedCount = estimatedCount;
+        this.estimatedCountTime = System.currentTimeMillis();
+    }
+    
+    /**
+     * The cached estimated spatial extent, or null if not available or computed more than 
+     * <tt>timeToLive</tt> milliseconds ago.
+     */
+    public final synchronized ReferencedEnvelope getEstimatedBounds(long timeToLive){
+        if (estimatedBounds == null || System.currentTimeMillis() - estimatedBoundsTime > timeToLive) {
+            return null;
+        }
+        return new ReferencedEnvelope(estimatedBounds);
+    }
+    
+    /**
+     * Sets the cached estimated spatial extent, computed now.
+     */
+    public final synchronized void setEstimatedBounds(ReferencedEnvelope estimatedBounds){
+        this.estimatedBounds = estimatedBounds == null ? null : new ReferencedEnvelope(estimatedBounds);
+        this.estimatedBoundsTime = System.currentTimeMillis();
+    }
+    
     /**
      * Adds a listener for collection events.
      *
@@ -395,6 +450,10 @@ public class ContentState {
         featureType = null;
         count = -1;
         bounds = null;
+        synchronized (this) {
+            estimatedCount = -1;
+            estimatedBounds = null;
+        }
     }
         
     /**
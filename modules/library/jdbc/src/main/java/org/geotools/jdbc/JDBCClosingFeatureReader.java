@@ -17,7 +17,6 @@
 package org.geotools.jdbc;
 
 import java.io.IOException;
-import java.sql.Connection;
 import java.util.NoSuchElementException;
 
 import org.geotools.data.DelegatingFeatureReader;
@@ -63,14 +62,16 @@ public class JDBCClosingFeatureReader implements DelegatingFeatureReader<SimpleF
         
         if ( r instanceof JDBCFeatureReader ) {
             JDBCFeatureReader jdbcReader = (JDBCFeatureReader) r;
-            JDBCFeatureSource fs = jdbcReader.featureSource;
-            Connection cx = jdbcReader.cx;
 
             try {
                 reader.close();
             }
             finally {
-                fs.getDataStore().releaseConnection( cx, fs.getState() );
+                //the jdbc reader releases the connection itself, close it directly only
+                // if one of the wrappers failed before getting to it
+                if ( jdbcReader.dataStore != null ) {
+                    jdbcReader.close();
+                }
             }
         }
     }
@@ -16,6 +16,7 @@
  */
 package org.geotools.jdbc;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
@@ -35,13 +36,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import javax.sql.DataSource;
@@ -70,6 +77,8 @@ import org.geotools.factory.Hints;
 import org.geotools.feature.NameImpl;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.GroupByVisitor;
+import org.geotools.feature.visitor.QuantileBreaksVisitor;
 import org.geotools.filter.FilterCapabilities;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
@@ -205,6 +214,11 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected SQLDialect dialect;
 
+    /**
+     * the hints supported by the dialect, computed lazily
+     */
+    volatile Set<Hints.Key> supportedHints;
+
     /**
      * The database schema.
      */
@@ -253,6 +267,69 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected boolean exposePrimaryKeyColumns = false;
     
+    /**
+     * flag controlling whether features are read and decoded in a background thread while
+     * they are being consumed
+     */
+    protected boolean prefetch = false;
+    
+    /**
+     * The executor running the background readers, lazily created
+     */
+    protected ExecutorService prefetchExecutor;
+    
+    /**
+     * The minimum number of features added in a single call for the store to switch to bulk
+     * inserts, defaulting to 1000. Set to a value less or equal to 0 to disable bulk inserts.
+     */
+    protected int bulkInsertThreshold = 1000;
+    
+    /**
+     * The number of partitions read in parallel when scanning a table, defaulting to 1,
+     * that is, no partitioning.
+     */
+    protected int scanPartitions = 1;
+    
+    /**
+     * The time, in milliseconds, the estimated bounds and counts read from the database 
+     * statistics are cached for, defaulting to 5 minutes.
+     */
+    protected long estimatedStatisticsTimeToLive = 5 * 60 * 1000;
+    
+    /**
+     * The size, in bytes, of the well known binary representation above which prepared 
+     * statement dialects stream geometries to the database instead of binding them as 
+     * a byte array, see {@link WKBEncoder}
+     */
+    protected int geometryStreamingThreshold = 256 * 1024;
+    
+    /**
+     * Flag controlling if the table metadata is loaded in bulk and cached, see 
+     * {@link JDBCMetadataCache}
+     */
+    protected boolean metadataCacheEnabled = false;
+    
+    /**
+     * The directory the table metadata cache is persisted into, or null
+     */
+    protected File metadataCacheDirectory;
+    
+    /**
+     * Milliseconds between two checks of the schema version backing the table metadata cache,
+     * a negative value checks it only once, when the cache is first used by the store
+     */
+    protected long metadataCacheCheckInterval = JDBCMetadataCache.DEFAULT_CHECK_INTERVAL;
+    
+    /**
+     * The table metadata cache, looked up on first use
+     */
+    protected JDBCMetadataCache metadataCache;
+    
+    /**
+     * The cache of prepared statements, or null if statements are not cached
+     */
+    protected PreparedStatementCache statementCache;
+    
     /**
      * Finds the primary key definitions
      */
@@ -358,6 +435,229 @@ public final class JDBCDataStore extends ContentDataStore
     public void setExposePrimaryKeyColumns(boolean exposePrimaryKeyColumns) {
         this.exposePrimaryKeyColumns = exposePrimaryKeyColumns;
     }
+
+    /**
+     * Determines if features are read from the database and decoded in a background thread
+     * while the caller consumes them. Can be overridden on a query basis with the
+     * {@link Hints#FEATURE_PREFETCH} hint.
+     */
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * Sets the flag controlling if features are read from the database and decoded in a
+     * background thread while the caller consumes them.
+     */
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * The minimum number of features added in a single call for the feature store to switch
+     * to bulk inserts, a value less or equal to 0 means bulk inserts are disabled.
+     */
+    public int getBulkInsertThreshold() {
+        return bulkInsertThreshold;
+    }
+
+    /**
+     * Sets the minimum number of features added in a single call for the feature store to
+     * switch to bulk inserts, use a value less or equal to 0 to disable them.
+     */
+    public void setBulkInsertThreshold(int bulkInsertThreshold) {
+        this.bulkInsertThreshold = bulkInsertThreshold;
+    }
+
+    /**
+     * The number of partitions, each one read on its own connection, a table scan is split
+     * into. Can be overridden on a query basis with the {@link Hints#FEATURE_PARTITIONS} hint.
+     */
+    public int getScanPartitions() {
+        return scanPartitions;
+    }
+
+    /**
+     * Sets the number of partitions, each one read on its own connection, a table scan is
+     * split into. Values less or equal to 1 disable partitioned scans.
+     */
+    public void setScanPartitions(int scanPartitions) {
+        this.scanPartitions = scanPartitions;
+    }
+
+    /**
+     * The time, in milliseconds, the estimated bounds and counts read from the database
+     * statistics are cached for.
+     */
+    public long getEstimatedStatisticsTimeToLive() {
+        return estimatedStatisticsTimeToLive;
+    }
+
+    /**
+     * Sets the time, in milliseconds, the estimated bounds and counts read from the database
+     * statistics are cached for, use 0 to disable caching.
+     */
+    public void setEstimatedStatisticsTimeToLive(long estimatedStatisticsTimeToLive) {
+        this.estimatedStatisticsTimeToLive = estimatedStatisticsTimeToLive;
+    }
+
+    /**
+     * The size, in bytes, of the well known binary representation above which geometries
+     * are streamed to the database.
+     */
+    public int getGeometryStreamingThreshold() {
+        return geometryStreamingThreshold;
+    }
+
+    /**
+     * Sets the size, in bytes, of the well known binary representation above which 
+     * geometries are streamed to the database, use 0 or a negative value to never stream.
+     */
+    public void setGeometryStreamingThreshold(int geometryStreamingThreshold) {
+        this.geometryStreamingThreshold = geometryStreamingThreshold;
+    }
+
+    /**
+     * Determines if the table metadata is loaded in bulk and cached, sharing it with the 
+     * other stores connecting to the same database schema.
+     */
+    public boolean isMetadataCacheEnabled() {
+        return metadataCacheEnabled;
+    }
+
+    /**
+     * Sets the flag controlling if the table metadata is loaded in bulk and cached.
+     */
+    public void setMetadataCacheEnabled(boolean metadataCacheEnabled) {
+        this.metadataCacheEnabled = metadataCacheEnabled;
+    }
+
+    /**
+     * The directory the table metadata cache is persisted into, or null if it is only kept
+     * in memory.
+     */
+    public File getMetadataCacheDirectory() {
+        return metadataCacheDirectory;
+    }
+
+    /**
+     * Sets the directory the table metadata cache is persisted into. The cache is persisted
+     * only if the dialect can compute the schema version, see 
+     * {@link SQLDialect#getSchemaVersion(String, Connection)}.
+     */
+    public void setMetadataCacheDirectory(File metadataCacheDirectory) {
+        this.metadataCacheDirectory = metadataCacheDirectory;
+    }
+
+    /**
+     * The number of milliseconds between two checks of the schema version backing the table
+     * metadata cache, a negative value if it is checked only when the store starts using it.
+     */
+    public long getMetadataCacheCheckInterval() {
+        return metadataCacheCheckInterval;
+    }
+
+    /**
+     * Sets the number of milliseconds between two checks of the schema version backing the
+     * table metadata cache, see {@link SQLDialect#getSchemaVersion(String, Connection)}.
+     * Use a negative value to check it only when the store starts using the cache.
+     */
+    public void setMetadataCacheCheckInterval(long metadataCacheCheckInterval) {
+        this.metadataCacheCheckInterval = metadataCacheCheckInterval;
+    }
+
+    /**
+     * Returns the table metadata cache, or null if the cache is not enabled. The cache is
+     * validated against the current schema version when the store first uses it, and then
+     * once every {@link #getMetadataCacheCheckInterval() check interval}.
+     */
+    protected JDBCMetadataCache getMetadataCache(Connection cx) throws SQLException {
+        if (!metadataCacheEnabled) {
+            return null;
+        }
+        JDBCMetadataCache cache;
+        boolean first = false;
+        synchronized (this) {
+            if (metadataCache == null) {
+                metadataCache = JDBCMetadataCache.getCache(cx, databaseSchema,
+                        metadataCacheDirectory);
+                first = true;
+            }
+            cache = metadataCache;
+        }
+        cache.validate(this, cx, metadataCacheCheckInterval, first);
+        return cache;
+    }
+
+    /**
+     * The number of prepared statements kept open for each connection, 0 if statements
+     * are not cached.
+     */
+    public int getStatementCacheSize() {
+        PreparedStatementCache cache = statementCache;
+        return cache == null ? 0 : cache.getMaxStatements();
+    }
+
+    /**
+     * Sets the number of prepared statements kept open for each connection and reused by
+     * the queries generating the same sql, use a value less or equal to 0 to disable the
+     * cache. Only used with a {@link PreparedStatementSQLDialect}.
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        PreparedStatementCache old = statementCache;
+        statementCache = statementCacheSize > 0 ? new PreparedStatementCache(statementCacheSize)
+                : null;
+        if (old != null) {
+            old.clear();
+        }
+    }
+
+    /**
+     * Returns the prepared statement cache, providing its usage statistics, or
+     * <code>null</code> if statements are not cached.
+     */
+    public PreparedStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Prepares a forward only, read only statement, reusing a cached one if the statement
+     * cache is enabled.
+     */
+    protected PreparedStatement prepareStatement(Connection cx, String sql) throws SQLException {
+        return prepareStatement(cx, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * Prepares a statement, reusing a cached one if the statement cache is enabled. Closing
+     * a cached statement gives it back to the cache.
+     */
+    protected PreparedStatement prepareStatement(Connection cx, String sql, int resultSetType,
+            int resultSetConcurrency) throws SQLException {
+        PreparedStatementCache cache = statementCache;
+        if (cache == null) {
+            return cx.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        }
+        return cache.prepareStatement(cx, sql, resultSetType, resultSetConcurrency);
+    }
+
+    /**
+     * Returns the executor used to run the background readers, creating it if needed.
+     */
+    protected synchronized ExecutorService getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            prefetchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JDBCPrefetch-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return prefetchExecutor;
+    }
     
     /**
      * The dialect the datastore uses to generate sql statements in order to
@@ -381,6 +681,7 @@ public final class JDBCDataStore extends ContentDataStore
         }
 
         this.dialect = dialect;
+        this.supportedHints = null;
     }
 
     /**
@@ -654,6 +955,10 @@ public final class JDBCDataStore extends ContentDataStore
             }
 
             dialect.postCreateTable(databaseSchema, featureType, cx);
+            
+            if (metadataCache != null) {
+                metadataCache.invalidate(featureType.getTypeName());
+            }
         } catch (Exception e) {
             String msg = "Error occurred creating table";
             throw (IOException) new IOException(msg).initCause(e);
@@ -897,13 +1202,20 @@ public final class JDBCDataStore extends ContentDataStore
                                 pkey = new PrimaryKey(tableName, kcols);
                             }
                         } else {
-                            pkey = primaryKeyFinder.getPrimaryKey(this, databaseSchema, tableName, cx);
-                            
+                            JDBCMetadataCache cache = getMetadataCache(cx);
+                            pkey = cache != null ? cache.getPrimaryKey(primaryKeyFinder, tableName) : null;
                             if ( pkey == null ) {
-                                String msg = "No primary key or unique index found for " + tableName + ".";
-                                LOGGER.warning(msg);
-    
-                                pkey = new NullPrimaryKey( tableName );
+                                pkey = primaryKeyFinder.getPrimaryKey(this, databaseSchema, tableName, cx);
+                                
+                                if ( pkey == null ) {
+                                    String msg = "No primary key or unique index found for " + tableName + ".";
+                                    LOGGER.warning(msg);
+        
+                                    pkey = new NullPrimaryKey( tableName );
+                                }
+                                if ( cache != null ) {
+                                    cache.putPrimaryKey(primaryKeyFinder, tableName, pkey);
+                                }
                             }
                         }
                         
@@ -1149,7 +1461,7 @@ public final class JDBCDataStore extends ContentDataStore
      * @param schema
      * @return
      */
-    private boolean isFullBoundsQuery(Query query, SimpleFeatureType schema) {
+    boolean isFullBoundsQuery(Query query, SimpleFeatureType schema) {
         
         if(query == null) {
             return true;
@@ -1225,6 +1537,14 @@ public final class JDBCDataStore extends ContentDataStore
     protected Object getAggregateValue(FeatureVisitor visitor, SimpleFeatureType featureType, Query query, Connection cx ) 
         throws IOException {
         
+        //visitors with a dedicated translation
+        if ( visitor instanceof GroupByVisitor ) {
+            return getGroupByValue( (GroupByVisitor) visitor, featureType, query, cx );
+        }
+        if ( visitor instanceof QuantileBreaksVisitor ) {
+            return getQuantileBreaks( (QuantileBreaksVisitor) visitor, featureType, query, cx );
+        }
+        
         //get the name of the function
         String function = getAggregateFunctions().get( visitor.getClass() );
         if ( function == null ) {
@@ -1289,6 +1609,271 @@ public final class JDBCDataStore extends ContentDataStore
         }
     }
 
+    /**
+     * Computes the groups of a {@link GroupByVisitor} with a <code>GROUP BY</code> query.
+     * 
+     * @return The groups, or <code>null</code> if the visitor cannot be translated to SQL
+     */
+    Object getGroupByValue(GroupByVisitor visitor, SimpleFeatureType featureType, Query query,
+            Connection cx) throws IOException {
+        if ( !isAggregateEncodable( featureType, query.getFilter(), query ) ) {
+            return null;
+        }
+        
+        AttributeDescriptor att = null;
+        if ( visitor.getExpression() != null ) {
+            att = getAggregateAttribute( visitor.getExpression(), featureType );
+            if ( att == null ) {
+                return null;
+            }
+        }
+        List<AttributeDescriptor> groupBy = new ArrayList<AttributeDescriptor>();
+        StringBuffer columns = new StringBuffer();
+        for ( Expression e : visitor.getGroupBy() ) {
+            AttributeDescriptor g = getAggregateAttribute( e, featureType );
+            if ( g == null ) {
+                return null;
+            }
+            groupBy.add( g );
+            if ( columns.length() > 0 ) {
+                columns.append( ", " );
+            }
+            dialect.encodeColumnName( g.getLocalName(), columns );
+        }
+        
+        String function;
+        switch ( visitor.getAggregate() ) {
+        case COUNT:
+            function = "count";
+            break;
+        case SUM:
+            function = "sum";
+            break;
+        case MIN:
+            function = "min";
+            break;
+        case MAX:
+            function = "max";
+            break;
+        default:
+            function = "avg";
+        }
+        
+        StringBuffer sql = new StringBuffer( "SELECT " ).append( columns ).append( ", " );
+        encodeFunction( function, att, query, sql );
+        String suffix = " GROUP BY " + columns;
+        
+        try {
+            Map<List<Object>, Object> groups = new LinkedHashMap<List<Object>, Object>();
+            Statement st = executeAggregateQuery( sql, suffix, featureType, query.getFilter(), query, cx );
+            ResultSet rs = null;
+            try {
+                rs = st.getResultSet();
+                while ( rs.next() ) {
+                    List<Object> key = new ArrayList<Object>( groupBy.size() );
+                    for ( int i = 0; i < groupBy.size(); i++ ) {
+                        key.add( convertAggregate( rs.getObject( i + 1 ), groupBy.get( i ).getType().getBinding() ) );
+                    }
+                    groups.put( key, convertAggregate( visitor.getAggregate(), att, rs.getObject( groupBy.size() + 1 ) ) );
+                }
+            } finally {
+                closeSafe( rs );
+                closeSafe( st );
+            }
+            
+            visitor.setGroups( groups );
+            return groups;
+        } 
+        catch( SQLException e ) {
+            throw (IOException) new IOException().initCause(e);
+        }
+    }
+    
+    /**
+     * Computes the class ranges of a {@link QuantileBreaksVisitor} using the <code>ntile</code>
+     * window function, which splits the values in classes the same way the visitor does.
+     * 
+     * @return The ranges, or <code>null</code> if the visitor cannot be translated to SQL
+     */
+    Object getQuantileBreaks(QuantileBreaksVisitor visitor, SimpleFeatureType featureType,
+            Query query, Connection cx) throws IOException {
+        AttributeDescriptor att = getAggregateAttribute( visitor.getExpression(), featureType );
+        if ( att == null || visitor.getBins() <= 0 ) {
+            return null;
+        }
+        
+        // null values are not classified
+        Filter notNull = filterFactory.not( filterFactory.isNull( filterFactory.property( att.getLocalName() ) ) );
+        Filter filter = query.getFilter();
+        if ( filter != null && !Filter.INCLUDE.equals( filter ) ) {
+            filter = filterFactory.and( filter, notNull );
+        } else {
+            filter = notNull;
+        }
+        
+        try {
+            if ( !isAggregateEncodable( featureType, filter, query ) 
+                    || !dialect.isWindowFunctionSupported( cx ) ) {
+                return null;
+            }
+            
+            StringBuffer column = new StringBuffer();
+            dialect.encodeColumnName( att.getLocalName(), column );
+            StringBuffer sql = new StringBuffer( "SELECT min(" ).append( column ).append( "), max(" )
+                .append( column ).append( ") FROM (SELECT " ).append( column ).append( ", ntile(" )
+                .append( visitor.getBins() ).append( ") OVER (ORDER BY " ).append( column )
+                .append( ") AS gt_bin" );
+            String suffix = ") gt_ntile GROUP BY gt_bin ORDER BY gt_bin";
+            
+            Class binding = att.getType().getBinding();
+            List<Comparable[]> ranges = new ArrayList<Comparable[]>();
+            Statement st = executeAggregateQuery( sql, suffix, featureType, filter, query, cx );
+            ResultSet rs = null;
+            try {
+                rs = st.getResultSet();
+                while ( rs.next() ) {
+                    ranges.add( new Comparable[] { 
+                        (Comparable) convertAggregate( rs.getObject( 1 ), binding ),
+                        (Comparable) convertAggregate( rs.getObject( 2 ), binding ) } );
+                }
+            } finally {
+                closeSafe( rs );
+                closeSafe( st );
+            }
+            
+            visitor.setRanges( ranges );
+            return ranges;
+        }
+        catch( SQLException e ) {
+            throw (IOException) new IOException().initCause(e);
+        }
+    }
+    
+    /**
+     * Returns true if an aggregate on the query can be run fully in the database, that is, if
+     * there is no limit or offset to honour and the filter can be fully encoded.
+     */
+    boolean isAggregateEncodable(SimpleFeatureType featureType, Filter filter, Query query) {
+        if ( query.getMaxFeatures() != Integer.MAX_VALUE 
+                || ( query.getStartIndex() != null && query.getStartIndex() > 0 ) ) {
+            return false;
+        }
+        return filter == null || Filter.INCLUDE.equals( filter ) 
+            || getFilterCapabilities().fullySupports( filter );
+    }
+    
+    /**
+     * Returns the attribute referred by an expression if it's a plain reference to a non
+     * geometric attribute, null otherwise.
+     */
+    AttributeDescriptor getAggregateAttribute(Expression expression, SimpleFeatureType featureType) {
+        if ( !( expression instanceof PropertyName ) ) {
+            return null;
+        }
+        Object att = expression.evaluate( featureType );
+        if ( !( att instanceof AttributeDescriptor ) || att instanceof GeometryDescriptor ) {
+            return null;
+        }
+        return (AttributeDescriptor) att;
+    }
+    
+    /**
+     * Runs <code>&lt;select&gt; FROM &lt;table&gt; [WHERE &lt;filter&gt;] &lt;suffix&gt;</code>
+     * and returns the statement, the results are available from 
+     * {@link Statement#getResultSet()}. 
+     * The caller is in charge of closing both the result set and the returned statement, 
+     * not the one the result set refers to, which might be the physical statement behind a 
+     * cached one.
+     */
+    Statement executeAggregateQuery(StringBuffer sql, String suffix,
+            SimpleFeatureType featureType, Filter filter, Query query, Connection cx) 
+        throws SQLException {
+        sql.append( " FROM " );
+        encodeTableName( featureType.getTypeName(), sql, query.getHints() );
+        
+        boolean filtered = filter != null && !Filter.INCLUDE.equals( filter );
+        try {
+            if ( dialect instanceof PreparedStatementSQLDialect ) {
+                PreparedFilterToSQL toSQL = null;
+                if ( filtered ) {
+                    toSQL = createPreparedFilterToSQL( featureType );
+                    sql.append( " " ).append( toSQL.encodeToString( filter ) );
+                }
+                sql.append( suffix );
+                LOGGER.fine( sql.toString() );
+                
+                PreparedStatement ps = prepareStatement(cx, sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                try {
+                    ps.setFetchSize(fetchSize);
+                    if ( toSQL != null ) {
+                        setPreparedFilterValues( ps, toSQL, 0, cx );
+                    }
+                    ps.execute();
+                } catch( SQLException e ) {
+                    closeSafe( ps );
+                    throw e;
+                }
+                return ps;
+            }
+            else {
+                if ( filtered ) {
+                    FilterToSQL toSQL = createFilterToSQL( featureType );
+                    sql.append( " " ).append( toSQL.encodeToString( filter ) );
+                }
+                sql.append( suffix );
+                LOGGER.fine( sql.toString() );
+                
+                Statement st = cx.createStatement();
+                try {
+                    st.setFetchSize(fetchSize);
+                    st.execute( sql.toString() );
+                } catch( SQLException e ) {
+                    closeSafe( st );
+                    throw e;
+                }
+                return st;
+            }
+        }
+        catch( FilterToSQLException e ) {
+            throw (SQLException) new SQLException().initCause(e);
+        }
+    }
+    
+    /**
+     * Converts a value returned by the database to the attribute binding, if possible
+     */
+    Object convertAggregate(Object value, Class binding) {
+        if ( value == null || binding.isInstance( value ) ) {
+            return value;
+        }
+        Object converted = Converters.convert( value, binding );
+        return converted != null ? converted : value;
+    }
+    
+    /**
+     * Converts the aggregate of a group to the type the {@link GroupByVisitor} would return
+     */
+    Object convertAggregate(GroupByVisitor.Aggregate aggregate, AttributeDescriptor att, Object value) {
+        if ( value == null ) {
+            return aggregate == GroupByVisitor.Aggregate.COUNT ? new Long( 0 ) : null;
+        }
+        switch ( aggregate ) {
+        case COUNT:
+            return ( (Number) value ).longValue();
+        case AVERAGE:
+            return ( (Number) value ).doubleValue();
+        case SUM:
+            Class binding = att.getType().getBinding();
+            if ( binding == Long.class || binding == Integer.class || binding == Short.class 
+                    || binding == Byte.class ) {
+                return ( (Number) value ).longValue();
+            }
+            return ( (Number) value ).doubleValue();
+        default:
+            return convertAggregate( value, att.getType().getBinding() );
+        }
+    }
+
     /**
      * Helper method for getting the expression from a visitor
      * TODO: Remove this method when there is an interface for aggregate visitors.
@@ -1432,6 +2017,120 @@ public final class JDBCDataStore extends ContentDataStore
         }
     }
 
+    /**
+     * Inserts a batch of new features into the database for a particular feature type / table.
+     * <p>
+     * The features are handed to the dialect bulk loader first, see
+     * {@link SQLDialect#bulkInsert(SimpleFeatureType, PrimaryKey, List, List, Connection)}.
+     * If the dialect cannot bulk load them, and the key values can be computed before the
+     * inserts, they are written with batched insert statements, otherwise this method falls
+     * back on {@link #insert(Collection, SimpleFeatureType, Connection)}.
+     * </p>
+     */
+    protected void bulkInsert(List<SimpleFeature> features, SimpleFeatureType featureType,
+            Connection cx) throws IOException {
+        PrimaryKey key = getPrimaryKey(featureType);
+
+        synchronized (this) {
+            try {
+                List<List<Object>> keyValues = new ArrayList<List<Object>>(features.size());
+                for (SimpleFeature feature : features) {
+                    boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
+                    keyValues.add(useExisting ? decodeFID(key, feature.getID(), true) : null);
+                }
+
+                if (!dialect.bulkInsert(featureType, key, features, keyValues, cx)) {
+                    if (!isBatchInsertable(key)) {
+                        insert(features, featureType, cx);
+                        return;
+                    }
+                    for (int i = 0; i < keyValues.size(); i++) {
+                        if (keyValues.get(i) == null) {
+                            keyValues.set(i, getNextValues(key, cx));
+                        }
+                    }
+                    batchInsert(featureType, features, keyValues, cx);
+                }
+
+                //report the feature id as user data since we cant set the fid
+                for (int i = 0; i < features.size(); i++) {
+                    String fid = featureType.getTypeName() + "." + encodeFID(keyValues.get(i));
+                    features.get(i).getUserData().put("fid", fid);
+                }
+            } catch (SQLException e) {
+                String msg = "Error inserting features";
+                throw (IOException) new IOException(msg).initCause(e);
+            }
+        }
+    }
+
+    /**
+     * Determines if the values of a primary key can all be computed before running a batch
+     * of inserts, that is, if they are not generated by the database during the insert and
+     * they do not depend on the rows already in the table.
+     */
+    boolean isBatchInsertable(PrimaryKey key) {
+        if (key.getColumns().isEmpty()) {
+            return false;
+        }
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            if (col instanceof AutoGeneratedPrimaryKeyColumn) {
+                return false;
+            }
+            if (col instanceof NonIncrementingPrimaryKeyColumn
+                    && !CharSequence.class.isAssignableFrom(col.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the features with batched statements, reusing the same prepared statement
+     * as long as the generated sql does not change.
+     */
+    void batchInsert(SimpleFeatureType featureType, List<SimpleFeature> features,
+            List<List<Object>> keyValues, Connection cx) throws IOException, SQLException {
+        if (dialect instanceof PreparedStatementSQLDialect) {
+            String lastSql = null;
+            PreparedStatement ps = null;
+            try {
+                for (int i = 0; i < features.size(); i++) {
+                    SimpleFeature feature = features.get(i);
+                    String sql = insertSQLPSString(featureType, feature);
+                    if (!sql.equals(lastSql)) {
+                        if (ps != null) {
+                            ps.executeBatch();
+                            closeSafe(ps);
+                        }
+                        LOGGER.log(Level.FINE, "Inserting new features with ps: {0}", sql);
+                        ps = prepareStatement(cx, sql);
+                        lastSql = sql;
+                    }
+                    setInsertValues(featureType, feature, keyValues.get(i), ps, cx);
+                    ps.addBatch();
+                }
+                if (ps != null) {
+                    ps.executeBatch();
+                }
+            } finally {
+                closeSafe(ps);
+            }
+        } else {
+            Statement st = cx.createStatement();
+            try {
+                for (int i = 0; i < features.size(); i++) {
+                    String sql = insertSQL(featureType, features.get(i), keyValues.get(i), cx);
+                    LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
+                    st.addBatch(sql);
+                }
+                st.executeBatch();
+            } finally {
+                closeSafe(st);
+            }
+        }
+    }
+
     /**
      * Updates an existing feature(s) in the database for a particular feature type / table.
      */
@@ -2182,7 +2881,7 @@ public final class JDBCDataStore extends ContentDataStore
         }
 
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        PreparedStatement ps = prepareStatement(cx, sql.toString());
         if ( table != null ) {
             ps.setString( 1, table );
         }
@@ -2261,7 +2960,7 @@ public final class JDBCDataStore extends ContentDataStore
         }
         
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        PreparedStatement ps = prepareStatement(cx, sql.toString());
         if ( fid != null ) {
             ps.setString( 1, fid );
         }
@@ -2341,7 +3040,7 @@ public final class JDBCDataStore extends ContentDataStore
         }
 
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        PreparedStatement ps = prepareStatement(cx, sql.toString());
         if ( gid != null ) {
             ps.setString( 1, gid );
         }
@@ -2413,7 +3112,7 @@ public final class JDBCDataStore extends ContentDataStore
         }
 
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        PreparedStatement ps = prepareStatement(cx, sql.toString());
         if (gid != null) {
             ps.setString( 1, gid );
         }
@@ -2549,7 +3248,7 @@ public final class JDBCDataStore extends ContentDataStore
         }
 
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        PreparedStatement ps = prepareStatement(cx, sql.toString());
         if ( fid != null ) {
             ps.setString( 1, fid );
         }
@@ -2982,7 +3681,7 @@ public final class JDBCDataStore extends ContentDataStore
         applyLimitOffset(sql, query);
 
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        PreparedStatement ps = prepareStatement(cx, sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
         ps.setFetchSize(fetchSize);
         
         if ( toSQL != null ) {
@@ -3140,7 +3839,7 @@ public final class JDBCDataStore extends ContentDataStore
         
 
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        PreparedStatement ps = prepareStatement(cx, sql.toString());
         
         if ( toSQL != null ) {
             setPreparedFilterValues(ps, toSQL, 0, cx);
@@ -3272,7 +3971,7 @@ public final class JDBCDataStore extends ContentDataStore
         }
         
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        PreparedStatement ps = prepareStatement(cx, sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
         ps.setFetchSize(fetchSize);
         
         if ( toSQL != null ) {
@@ -3343,7 +4042,7 @@ public final class JDBCDataStore extends ContentDataStore
         }
 
         LOGGER.fine( sql.toString() );
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        PreparedStatement ps = prepareStatement(cx, sql.toString());
         
         if ( toSQL != null ) {
             setPreparedFilterValues(ps, toSQL, 0, cx);
@@ -3477,6 +4176,20 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected PreparedStatement insertSQLPS(SimpleFeatureType featureType, SimpleFeature feature, List keyValues, Connection cx) 
         throws IOException, SQLException {
+        String sql = insertSQLPSString(featureType, feature);
+        LOGGER.log(Level.FINE, "Inserting new feature with ps: {0}", sql);
+        
+        //create the prepared statement
+        PreparedStatement ps = prepareStatement(cx, sql);
+        
+        setInsertValues(featureType, feature, keyValues, ps, cx);
+        return ps;
+    }
+    
+    /**
+     * Generates the sql of a 'INSERT INTO' prepared statement.
+     */
+    String insertSQLPSString(SimpleFeatureType featureType, SimpleFeature feature) {
         PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
         
         // grab the primary key and collect the pk column names 
@@ -3545,10 +4258,19 @@ public final class JDBCDataStore extends ContentDataStore
         
         sql.setLength(sql.length()-1);
         sql.append(")");
-        LOGGER.log(Level.FINE, "Inserting new feature with ps: {0}", sql);
-        
-        //create the prepared statement
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        return sql.toString();
+    }
+    
+    /**
+     * Sets the attribute and key values of a feature into a prepared statement created from
+     * {@link #insertSQLPSString(SimpleFeatureType, SimpleFeature)}.
+     */
+    void setInsertValues(SimpleFeatureType featureType, SimpleFeature feature, List keyValues,
+            PreparedStatement ps, Connection cx) throws IOException, SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
+        PrimaryKey key = getPrimaryKey(featureType);
+        Set<String> pkColumnNames = getColumnNames(key);
+        boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
         
         //set the attribute values
         int i = 1;
@@ -3598,8 +4320,6 @@ public final class JDBCDataStore extends ContentDataStore
                 }
             }
         }
-        
-        return ps;
     }
     
     /**
@@ -3774,7 +4494,7 @@ public final class JDBCDataStore extends ContentDataStore
             }
         }
         
-        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        PreparedStatement ps = prepareStatement(cx, sql.toString());
         LOGGER.log(Level.FINE, "Updating features with prepared statement: {0}", sql);
         
         int i = 0;
@@ -4093,6 +4813,13 @@ public final class JDBCDataStore extends ContentDataStore
     }
     
     public void dispose() {
+        if(statementCache != null) {
+            statementCache.clear();
+        }
+        if(metadataCache != null) {
+            // keep the primary keys found so far
+            metadataCache.save();
+        }
         if(dataSource != null && dataSource instanceof ManageableDataSource) {
             try {
                 ManageableDataSource mds = (ManageableDataSource) dataSource; 
@@ -4103,6 +4830,12 @@ public final class JDBCDataStore extends ContentDataStore
             }
         }
         dataSource = null;
+        synchronized (this) {
+            if (prefetchExecutor != null) {
+                prefetchExecutor.shutdown();
+                prefetchExecutor = null;
+            }
+        }
     }
     /**
      * Checks if geometry generalization required and makes sense
@@ -4125,6 +4858,35 @@ public final class JDBCDataStore extends ContentDataStore
     protected boolean isSimplificationRequired(Hints hints, GeometryDescriptor gatt) {
     	return isGeometryReduceRequired(hints, gatt, Hints.GEOMETRY_SIMPLIFICATION);    	
     }
+    /**
+     * Checks if the geometry should be quantized for display, that is, if the
+     * {@link Hints#GEOMETRY_DISTANCE} hint is provided and supported by the dialect
+     * 
+     * @param hints     hints passed in
+     * @param gatt      Geometry attribute descriptor
+     * @return          true to indicate quantization 
+     */
+    protected boolean isQuantizationRequired(Hints hints, GeometryDescriptor gatt) {
+        if (!isGeometryReduceRequired(hints, gatt, Hints.GEOMETRY_DISTANCE)) 
+            return false;
+        return getSupportedHints().contains(Hints.GEOMETRY_DISTANCE);
+    }
+
+    /**
+     * Returns the hints supported by the dialect, as reported by 
+     * {@link SQLDialect#addSupportedHints(Set)}, computed once and cached
+     */
+    Set<Hints.Key> getSupportedHints() {
+        Set<Hints.Key> supported = supportedHints;
+        if (supported == null) {
+            supported = new HashSet<Hints.Key>();
+            dialect.addSupportedHints(supported);
+            supported = Collections.unmodifiableSet(supported);
+            supportedHints = supported;
+        }
+        return supported;
+    }
+    
     /**
      * Checks if reduction required and makes sense
      *       
@@ -4163,6 +4925,12 @@ public final class JDBCDataStore extends ContentDataStore
     		dialect.encodeGeometryColumnSimplified(gatt,srid, sql,distance);
     		return;    		
     	}
+    	
+    	if (isQuantizationRequired(hints, gatt)) {
+    	    Double distance = ((Number) hints.get(Hints.GEOMETRY_DISTANCE)).doubleValue();
+    	    dialect.encodeGeometryColumnQuantized(gatt, srid, sql, distance);
+    	    return;
+    	}
     	   	    	
     	dialect.encodeGeometryColumn(gatt,srid, sql);        
     }
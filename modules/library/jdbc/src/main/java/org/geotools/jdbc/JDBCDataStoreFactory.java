@@ -16,6 +16,7 @@
  */
 package org.geotools.jdbc;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
@@ -108,10 +109,50 @@ public abstract class JDBCDataStoreFactory extends AbstractDataStoreFactory {
             "Maximum number of prepared statements kept open and cached for each connection in the pool. " +
             "Set to 0 to have unbounded caching, to -1 to disable caching", false, 50);
     
+    /** Number of prepared statements kept open by the store for each connection (this param is exposed only by factories supporting prepared statements **/
+    public static final Param STATEMENT_CACHE_SIZE = new Param("Statement cache size", Integer.class,
+            "Number of prepared statements kept open by the data store for each connection and " +
+            "reused by queries generating the same sql. Replaces the pool statement caching " +
+            "when enabled, set to 0 to disable it", false, 0);
+    
+    /** time the estimated bounds and counts are cached for **/
+    public static final Param ESTIMATED_STATISTICS_TTL = new Param("Estimated statistics time to live", Integer.class,
+            "number of seconds the bounds and counts estimated from the database statistics " +
+            "are cached for", false, 300);
+    
+    /** bulk loading and caching of the table metadata **/
+    public static final Param METADATA_CACHE = new Param("Metadata cache", Boolean.class,
+            "Load the columns of all the tables in bulk and cache them, along with the primary " +
+            "keys, sharing them among the stores connecting to the same database schema", false, false);
+    
+    /** directory the table metadata cache is persisted into **/
+    public static final Param METADATA_CACHE_DIRECTORY = new Param("Metadata cache directory", File.class,
+            "directory the table metadata cache is persisted into, used only if the database " +
+            "can report changes in the schema structure", false);
+    
+    /** interval between two checks of the schema version backing the table metadata cache **/
+    public static final Param METADATA_CACHE_CHECK_INTERVAL = new Param("Metadata cache check interval", Integer.class,
+            "number of seconds between two checks of the schema structure the table metadata " +
+            "cache refers to, use a negative value to check it only when the store starts", false, 60);
+    
     /** expose primary key columns as attributes */
     public static final Param EXPOSE_PK = new Param("Expose primary keys", Boolean.class, "Expose primary key columns as " +
     		"attributes of the feature type", false, false);
     
+    /** read and decode features in background while they are being consumed */
+    public static final Param PREFETCH = new Param("Prefetch features", Boolean.class, "Read and " +
+            "decode features in a background thread while they are being consumed", false, false);
+    
+    /** number of features added at once above which bulk inserts are used **/
+    public static final Param BULK_INSERT_THRESHOLD = new Param("Bulk insert threshold", Integer.class,
+            "minimum number of features added at once for bulk inserts to be used, " +
+            "0 to disable them", false, 1000);
+    
+    /** number of partitions read in parallel during table scans **/
+    public static final Param SCAN_PARTITIONS = new Param("Scan partitions", Integer.class,
+            "number of partitions, each one read on its own connection, table scans are " +
+            "split into", false, 1);
+    
     @Override
     public String getDisplayName() {
         return getDescription();
@@ -206,6 +247,48 @@ public abstract class JDBCDataStoreFactory extends AbstractDataStoreFactory {
             dataStore.setExposePrimaryKeyColumns(exposePk);
         }
         
+        // background reads
+        Boolean prefetch = (Boolean) PREFETCH.lookUp(params);
+        if(prefetch != null) {
+            dataStore.setPrefetch(prefetch);
+        }
+        
+        Integer bulkInsertThreshold = (Integer) BULK_INSERT_THRESHOLD.lookUp(params);
+        if(bulkInsertThreshold != null) {
+            dataStore.setBulkInsertThreshold(bulkInsertThreshold);
+        }
+        
+        Integer scanPartitions = (Integer) SCAN_PARTITIONS.lookUp(params);
+        if(scanPartitions != null) {
+            dataStore.setScanPartitions(scanPartitions);
+        }
+        
+        Integer statisticsTTL = (Integer) ESTIMATED_STATISTICS_TTL.lookUp(params);
+        if(statisticsTTL != null) {
+            dataStore.setEstimatedStatisticsTimeToLive(statisticsTTL * 1000L);
+        }
+        
+        Boolean metadataCache = (Boolean) METADATA_CACHE.lookUp(params);
+        if(metadataCache != null) {
+            dataStore.setMetadataCacheEnabled(metadataCache);
+        }
+        
+        File metadataCacheDirectory = (File) METADATA_CACHE_DIRECTORY.lookUp(params);
+        if(metadataCacheDirectory != null) {
+            dataStore.setMetadataCacheDirectory(metadataCacheDirectory);
+        }
+        
+        Integer metadataCacheCheckInterval = (Integer) METADATA_CACHE_CHECK_INTERVAL.lookUp(params);
+        if(metadataCacheCheckInterval != null) {
+            dataStore.setMetadataCacheCheckInterval(metadataCacheCheckInterval < 0 ? -1
+                    : metadataCacheCheckInterval * 1000L);
+        }
+        
+        Integer statementCacheSize = (Integer) STATEMENT_CACHE_SIZE.lookUp(params);
+        if(statementCacheSize != null) {
+            dataStore.setStatementCacheSize(statementCacheSize);
+        }
+        
         // factories
         dataStore.setFilterFactory(CommonFactoryFinder.getFilterFactory(null));
         dataStore.setGeometryFactory(new GeometryFactory());
@@ -284,6 +367,13 @@ public abstract class JDBCDataStoreFactory extends AbstractDataStoreFactory {
         parameters.put(PASSWD.key, PASSWD);
         parameters.put(NAMESPACE.key, NAMESPACE);
         parameters.put(EXPOSE_PK.key, EXPOSE_PK);
+        parameters.put(PREFETCH.key, PREFETCH);
+        parameters.put(BULK_INSERT_THRESHOLD.key, BULK_INSERT_THRESHOLD);
+        parameters.put(SCAN_PARTITIONS.key, SCAN_PARTITIONS);
+        parameters.put(ESTIMATED_STATISTICS_TTL.key, ESTIMATED_STATISTICS_TTL);
+        parameters.put(METADATA_CACHE.key, METADATA_CACHE);
+        parameters.put(METADATA_CACHE_DIRECTORY.key, METADATA_CACHE_DIRECTORY);
+        parameters.put(METADATA_CACHE_CHECK_INTERVAL.key, METADATA_CACHE_CHECK_INTERVAL);
         parameters.put(MAXCONN.key, MAXCONN);
         parameters.put(MINCONN.key, MINCONN);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
@@ -380,6 +470,13 @@ public abstract class JDBCDataStoreFactory extends AbstractDataStoreFactory {
                 if(maxPreparedStatements != null && maxPreparedStatements < 0)
                     dataSource.setPoolPreparedStatements(false);
             }
+            
+            // the store caches statements on its own, no need to do it twice
+            if(testMap.containsKey(STATEMENT_CACHE_SIZE.key)) {
+                Integer statementCacheSize = (Integer) STATEMENT_CACHE_SIZE.lookUp(params);
+                if(statementCacheSize != null && statementCacheSize > 0)
+                    dataSource.setPoolPreparedStatements(false);
+            }
         }
 
         return new DBCPDataSource(dataSource);
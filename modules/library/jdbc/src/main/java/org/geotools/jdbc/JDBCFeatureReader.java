@@ -110,6 +110,10 @@ public class JDBCFeatureReader implements  FeatureReader<SimpleFeatureType, Simp
      * hints
      */
     protected Hints hints;
+    /**
+     * flags the geometry attributes quantized for display by the database
+     */
+    protected boolean[] quantized;
     /**
      * current transaction
      */
@@ -196,6 +200,14 @@ public class JDBCFeatureReader implements  FeatureReader<SimpleFeatureType, Simp
             ff = featureSource.getDataStore().getFeatureFactory();
         builder = new SimpleFeatureBuilder(featureType, ff);
         
+        // geometries reduced for display come in the compact quantized format
+        quantized = new boolean[featureType.getAttributeCount()];
+        for (int i = 0; i < quantized.length; i++) {
+            AttributeDescriptor ad = featureType.getDescriptor(i);
+            quantized[i] = ad instanceof GeometryDescriptor
+                    && dataStore.isQuantizationRequired(hints, (GeometryDescriptor) ad);
+        }
+        
         // find the primary key
         try {
             pkey = dataStore.getPrimaryKey(featureType);
@@ -212,6 +224,7 @@ public class JDBCFeatureReader implements  FeatureReader<SimpleFeatureType, Simp
         this.tx = other.tx;
         this.hints = other.hints;
         this.geometryFactory = other.geometryFactory;
+        this.quantized = other.quantized;
         this.builder = other.builder;
         this.st = other.st;
         this.rs = other.rs;
@@ -313,9 +326,14 @@ public class JDBCFeatureReader implements  FeatureReader<SimpleFeatureType, Simp
                         
                         //read the geometry
                         try {
-                            value = dataStore.getSQLDialect()
+                            if (quantized[i]) {
+                                value = dataStore.getSQLDialect().decodeQuantizedGeometryValue(
+                                        gatt, rs, attributeRsIndex[i], geometryFactory, cx);
+                            } else {
+                                value = dataStore.getSQLDialect()
                                              .decodeGeometryValue(gatt, rs, attributeRsIndex[i],
                                     geometryFactory, cx);
+                            }
                         } catch (IOException e) {
                             throw new RuntimeException(e);
                         }
@@ -57,6 +57,8 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.vividsolutions.jts.geom.Geometry;
@@ -92,6 +94,8 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         // mark the features as detached, that is, the user can directly alter them
         // without altering the state of the datastore
         hints.add(Hints.FEATURE_DETACHED);
+        hints.add(Hints.FEATURE_PREFETCH);
+        hints.add(Hints.FEATURE_PARTITIONS);
         getDataStore().getSQLDialect().addSupportedHints(hints);
     }
 
@@ -186,7 +190,14 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             if (virtualTable != null) {
                 columns = getColumnMetadata(cx, virtualTable, dialect, getDataStore());
             } else {
-                columns = getColumnMetadata(cx, databaseSchema, tableName, dialect);
+                JDBCMetadataCache cache = getDataStore().getMetadataCache(cx);
+                columns = cache != null ? cache.getColumns(tableName) : null;
+                if (columns == null) {
+                    columns = getColumnMetadata(cx, databaseSchema, tableName, dialect);
+                    if (cache != null) {
+                        cache.putColumns(tableName, columns);
+                    }
+                }
             }
 
             for (ColumnMetadata column : columns) {
@@ -287,6 +298,9 @@ public class JDBCFeatureSource extends ContentFeatureSource {
                     try {
                         if(virtualTable != null) {
                             srid = virtualTable.getNativeSrid(name);
+                        } else if(column.srid != null) {
+                            // already looked up in bulk
+                            srid = column.srid;
                         } else {
                             srid = dialect.getGeometrySRID(databaseSchema, tableName, name, cx);
                         }
@@ -361,6 +375,14 @@ public class JDBCFeatureSource extends ContentFeatureSource {
 
     protected int getCountInternal(Query query) throws IOException {
         JDBCDataStore dataStore = getDataStore();
+        
+        // use the database statistics if the caller is fine with an estimate
+        if (isEstimateAllowed(query)) {
+            int count = getEstimatedCount();
+            if (count >= 0) {
+                return count;
+            }
+        }
 
         //split the filter
         Filter[] split = splitFilter( query.getFilter() );
@@ -421,6 +443,15 @@ public class JDBCFeatureSource extends ContentFeatureSource {
     protected ReferencedEnvelope getBoundsInternal(Query query)
             throws IOException {
         JDBCDataStore dataStore = getDataStore();
+        
+        // use the database statistics if the caller is fine with an estimate
+        if (isEstimateAllowed(query) && getSchema().getGeometryDescriptor() != null
+                && dataStore.isFullBoundsQuery(query, getSchema())) {
+            ReferencedEnvelope bounds = getEstimatedBounds();
+            if (bounds != null) {
+                return bounds;
+            }
+        }
 
         //split the filter
         Filter[] split = splitFilter( query.getFilter() );
@@ -477,6 +508,86 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         }
     }
     
+    /**
+     * Returns true if the query asks for estimates and covers the whole table, as stored, 
+     * which is what the database statistics describe
+     */
+    boolean isEstimateAllowed(Query query) {
+        Hints hints = query.getHints();
+        return hints != null && Boolean.TRUE.equals(hints.get(Hints.ESTIMATED_STATISTICS))
+                && (query.getFilter() == null || Filter.INCLUDE.equals(query.getFilter()))
+                && query.getMaxFeatures() == Integer.MAX_VALUE
+                && (query.getStartIndex() == null || query.getStartIndex() == 0)
+                && getState().getTransaction() == Transaction.AUTO_COMMIT
+                && !getDataStore().getVirtualTables().containsKey(getSchema().getTypeName());
+    }
+    
+    /**
+     * Returns the estimated number of rows in the table, from the cache or the database
+     * statistics, or -1 if not available or the statistics could not be read
+     */
+    int getEstimatedCount() throws IOException {
+        JDBCDataStore dataStore = getDataStore();
+        int count = getState().getEstimatedCount(dataStore.getEstimatedStatisticsTimeToLive());
+        if (count >= 0) {
+            return count;
+        }
+        
+        Connection cx = dataStore.getConnection(getState());
+        try {
+            count = dataStore.getSQLDialect().getEstimatedCount(dataStore.getDatabaseSchema(), 
+                    getSchema(), cx);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not read the estimated count of " 
+                    + getSchema().getTypeName() + ", computing the exact one instead", e);
+            return -1;
+        } finally {
+            dataStore.releaseConnection(cx, getState());
+        }
+        
+        if (count >= 0) {
+            getState().setEstimatedCount(count);
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the estimated bounds of the table, from the cache or the database statistics, 
+     * or null if not available or the statistics could not be read
+     */
+    ReferencedEnvelope getEstimatedBounds() throws IOException {
+        JDBCDataStore dataStore = getDataStore();
+        ReferencedEnvelope bounds = getState().getEstimatedBounds(
+                dataStore.getEstimatedStatisticsTimeToLive());
+        if (bounds != null) {
+            return bounds;
+        }
+        
+        Connection cx = dataStore.getConnection(getState());
+        try {
+            List<ReferencedEnvelope> result = dataStore.getSQLDialect().getEstimatedBounds(
+                    dataStore.getDatabaseSchema(), getSchema(), cx);
+            if (result == null || result.isEmpty()) {
+                return null;
+            }
+            bounds = new ReferencedEnvelope(getSchema().getCoordinateReferenceSystem());
+            for (ReferencedEnvelope envelope : result) {
+                bounds = dataStore.mergeEnvelope(bounds, envelope);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not read the estimated bounds of " 
+                    + getSchema().getTypeName() + ", computing the exact ones instead", e);
+            return null;
+        } finally {
+            dataStore.releaseConnection(cx, getState());
+        }
+        
+        getState().setEstimatedBounds(bounds);
+        return bounds;
+    }
+    
     protected boolean canFilter() {
         return true;
     }
@@ -533,10 +644,36 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             }
         }
         
+        //create the reader
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+        
+        // split the scan over several connections if so requested
+        List<Filter> partitions = getPartitionFilters(query, preQuery);
+        if ( partitions != null ) {
+            reader = getPartitionedReader(querySchema, preQuery, partitions, query.getHints());
+        } else {
+            reader = getTableReader(querySchema, preQuery, query);
+        }
+        
+
+        // if post filter, wrap it
+        if (postFilter != null && postFilter != Filter.INCLUDE) {
+            reader = new FilteringFeatureReader<SimpleFeatureType, SimpleFeature>(reader,postFilter);
+            if(!returnedSchema.equals(querySchema))
+                reader = new ReTypeFeatureReader(reader, returnedSchema);
+        }
+
+        return reader;
+    }
+
+    /**
+     * Reads the features of a query out of a single result set.
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> getTableReader(SimpleFeatureType querySchema,
+            Query preQuery, Query query) throws IOException {
         //grab connection
         Connection cx = getDataStore().getConnection(getState());
         
-        //create the reader
         FeatureReader<SimpleFeatureType, SimpleFeature> reader;
         
         try {
@@ -556,22 +693,137 @@ public class JDBCFeatureSource extends ContentFeatureSource {
     
                 reader = new JDBCFeatureReader( sql, cx, this, querySchema, query.getHints() );
             }
+            
+            // decode the features in background if so requested, closing will stop the
+            // background reader before releasing the connection
+            if ( isPrefetch( query ) ) {
+                reader = new JDBCClosingFeatureReader( new JDBCPrefetchingFeatureReader( 
+                        (JDBCFeatureReader) reader, getDataStore().getPrefetchExecutor(), 
+                        getDataStore().getFetchSize() ) );
+            }
         } catch (Exception e) {
             // close the connection 
             getDataStore().closeSafe(cx);
             // safely rethrow
             throw (IOException) new IOException().initCause(e);
         }
+        return reader;
+    }
+
+    /**
+     * Reads the features of a query with one reader per partition, each one running on its own
+     * connection, merged into a single reader.
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> getPartitionedReader(
+            SimpleFeatureType querySchema, Query preQuery, List<Filter> partitions, Hints hints)
+            throws IOException {
+        FilterFactory ff = getDataStore().getFilterFactory();
+        List<JDBCFeatureReader> readers = new ArrayList<JDBCFeatureReader>(partitions.size());
+        try {
+            for (Filter partition : partitions) {
+                DefaultQuery partitionQuery = new DefaultQuery(preQuery);
+                if (preQuery.getFilter() != null && preQuery.getFilter() != Filter.INCLUDE) {
+                    partitionQuery.setFilter(ff.and(preQuery.getFilter(), partition));
+                } else {
+                    partitionQuery.setFilter(partition);
+                }
+                
+                // auto commit state, each partition gets its own connection
+                Connection cx = getDataStore().getConnection(getState());
+                try {
+                    cx.setAutoCommit(false);
+                    SQLDialect dialect = getDataStore().getSQLDialect();
+                    if ( dialect instanceof PreparedStatementSQLDialect ) {
+                        PreparedStatement ps = getDataStore().selectSQLPS(querySchema, partitionQuery, cx);
+                        readers.add(new JDBCFeatureReader( ps, cx, this, querySchema, hints ));
+                    } else {
+                        String sql = getDataStore().selectSQL(querySchema, partitionQuery);
+                        getDataStore().getLogger().fine(sql);
+                        readers.add(new JDBCFeatureReader( sql, cx, this, querySchema, hints ));
+                    }
+                } catch (Exception e) {
+                    getDataStore().closeSafe(cx);
+                    throw e;
+                }
+            }
+        } catch (Exception e) {
+            // release the partitions already opened
+            for (JDBCFeatureReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException ioe) {
+                    LOGGER.log(Level.FINE, "Error closing partition reader", ioe);
+                }
+            }
+            throw (IOException) new IOException().initCause(e);
+        }
         
+        return new JDBCPartitionedFeatureReader(readers, getDataStore().getPrefetchExecutor(),
+                getDataStore().getFetchSize());
+    }
 
-        // if post filter, wrap it
-        if (postFilter != null && postFilter != Filter.INCLUDE) {
-            reader = new FilteringFeatureReader<SimpleFeatureType, SimpleFeature>(reader,postFilter);
-            if(!returnedSchema.equals(querySchema))
-                reader = new ReTypeFeatureReader(reader, returnedSchema);
+    /**
+     * Builds the filters splitting a query over the primary key into the number of partitions
+     * requested with the {@link Hints#FEATURE_PARTITIONS} hint, or configured in the datastore.
+     * Returns <code>null</code> if the query should not, or cannot, be partitioned: the
+     * partitions need their own connections, hence an auto commit transaction, and do not
+     * preserve the order, hence no sorting nor paging.
+     */
+    List<Filter> getPartitionFilters(Query query, Query preQuery) throws IOException {
+        Hints hints = query.getHints();
+        Integer requested = hints != null ? (Integer) hints.get(Hints.FEATURE_PARTITIONS) : null;
+        int partitions = requested != null ? requested.intValue() : getDataStore().getScanPartitions();
+        if (partitions <= 1 || getState().getTransaction() != Transaction.AUTO_COMMIT
+                || (query.getSortBy() != null && query.getSortBy().length > 0)
+                || query.getMaxFeatures() != Integer.MAX_VALUE
+                || (query.getStartIndex() != null && query.getStartIndex() > 0)
+                || primaryKey.getColumns().size() != 1
+                || getDataStore().getVirtualTables().containsKey(getSchema().getTypeName())
+                || Filter.EXCLUDE.equals(preQuery.getFilter())) {
+            return null;
+        }
+        
+        PrimaryKeyColumn column = primaryKey.getColumns().get(0);
+        List<Object> points;
+        Connection cx = getDataStore().getConnection(getState());
+        try {
+            points = getDataStore().getSQLDialect().getSplitPoints(
+                    getDataStore().getDatabaseSchema(), primaryKey.getTableName(), column,
+                    partitions, cx);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not compute the partitions of "
+                    + primaryKey.getTableName() + ", scanning it as a whole", e);
+            return null;
+        } finally {
+            getDataStore().releaseConnection(cx, getState());
         }
+        if (points == null || points.isEmpty()) {
+            return null;
+        }
+        
+        FilterFactory ff = getDataStore().getFilterFactory();
+        PropertyName key = ff.property(column.getName());
+        List<Filter> filters = new ArrayList<Filter>(points.size() + 1);
+        filters.add(ff.less(key, ff.literal(points.get(0))));
+        for (int i = 1; i < points.size(); i++) {
+            filters.add(ff.and(ff.greaterOrEqual(key, ff.literal(points.get(i - 1))),
+                    ff.less(key, ff.literal(points.get(i)))));
+        }
+        filters.add(ff.greaterOrEqual(key, ff.literal(points.get(points.size() - 1))));
+        return filters;
+    }
 
-        return reader;
+    /**
+     * Checks whether the features of the query should be read in background, the
+     * {@link Hints#FEATURE_PREFETCH} hint taking precedence over the datastore setting.
+     */
+    boolean isPrefetch(Query query) {
+        Hints hints = query.getHints();
+        Boolean prefetch = hints != null ? (Boolean) hints.get(Hints.FEATURE_PREFETCH) : null;
+        if (prefetch != null) {
+            return prefetch.booleanValue();
+        }
+        return getDataStore().isPrefetch();
     }
 
     @Override
@@ -629,19 +881,7 @@ public class JDBCFeatureSource extends ContentFeatureSource {
 
         try {
             while (columns.next()) {
-                ColumnMetadata column = new ColumnMetadata();
-                column.name = columns.getString("COLUMN_NAME");
-                column.typeName = columns.getString("TYPE_NAME");
-                column.sqlType = columns.getInt("DATA_TYPE");
-                column.nullable = "YES".equalsIgnoreCase(columns.getString("IS_NULLABLE"));
-                column.binding = dialect.getMapping(columns, cx);
-                
-                //support for user defined types, allow the dialect to handle them
-                if (column.sqlType == Types.DISTINCT) {
-                    dialect.handleUserDefinedType(columns, column, cx);
-                }
-                
-                result.add(column);
+                result.add(getColumnMetadata(columns, null, dialect, cx));
             }
         } finally {
             getDataStore().closeSafe(columns);
@@ -650,6 +890,33 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         return result;
     }
     
+    /**
+     * Builds the metadata of the column at the current row of a 
+     * {@link DatabaseMetaData#getColumns(String, String, String, String)} result set
+     * 
+     * @param geometry The geometry type and srid of the column, if already known
+     */
+    static ColumnMetadata getColumnMetadata(ResultSet columns, ColumnMetadata geometry, 
+            SQLDialect dialect, Connection cx) throws SQLException {
+        ColumnMetadata column = new ColumnMetadata();
+        column.name = columns.getString("COLUMN_NAME");
+        column.typeName = columns.getString("TYPE_NAME");
+        column.sqlType = columns.getInt("DATA_TYPE");
+        column.nullable = "YES".equalsIgnoreCase(columns.getString("IS_NULLABLE"));
+        if (geometry != null) {
+            column.binding = geometry.binding;
+            column.srid = geometry.srid;
+        } else {
+            column.binding = dialect.getMapping(columns, cx);
+        }
+        
+        //support for user defined types, allow the dialect to handle them
+        if (column.sqlType == Types.DISTINCT) {
+            dialect.handleUserDefinedType(columns, column, cx);
+        }
+        return column;
+    }
+    
     /**
      * Computes the column metadata by running the virtual table query
      * @param cx
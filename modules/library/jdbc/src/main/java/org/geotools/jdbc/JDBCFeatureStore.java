@@ -20,9 +20,13 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
 
 import org.geotools.data.DefaultQuery;
 import org.geotools.data.FeatureEvent;
@@ -38,6 +42,9 @@ import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentFeatureStore;
 import org.geotools.data.store.ContentState;
 import org.geotools.factory.Hints;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.identity.FeatureIdImpl;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeature;
@@ -45,6 +52,7 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
+import org.opengis.filter.identity.FeatureId;
 
 import com.vividsolutions.jts.geom.Geometry;
 
@@ -372,6 +380,107 @@ public final class JDBCFeatureStore extends ContentFeatureStore {
         }
     }
     
+    /**
+     * Adds a collection of features to the store.
+     * <p>
+     * Collections holding at least {@link JDBCDataStore#getBulkInsertThreshold()} features are
+     * inserted in batches of that size through
+     * {@link JDBCDataStore#bulkInsert(List, SimpleFeatureType, Connection)}, which lets the
+     * dialect use its bulk loading facilities. When running in auto commit mode all the
+     * batches are inserted in a single database transaction.
+     * </p>
+     */
+    @Override
+    public List<FeatureId> addFeatures(FeatureCollection<SimpleFeatureType, SimpleFeature> collection)
+            throws IOException {
+        int threshold = getDataStore().getBulkInsertThreshold();
+        if (threshold <= 0 || collection.size() < threshold) {
+            return super.addFeatures(collection);
+        }
+
+        List<FeatureId> ids = new ArrayList<FeatureId>();
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(threshold);
+        List<SimpleFeature> inserted = new ArrayList<SimpleFeature>(threshold);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(getSchema());
+        boolean autoCommit = getTransaction() == Transaction.AUTO_COMMIT;
+        boolean committed = false;
+        ContentState state = getEntry().getState(transaction);
+        
+        Connection cx = getDataStore().getConnection(getState());
+        Iterator<SimpleFeature> it = collection.iterator();
+        try {
+            if (autoCommit) {
+                cx.setAutoCommit(false);
+            }
+            while (it.hasNext() || !features.isEmpty()) {
+                // gather up the next batch
+                while (it.hasNext() && features.size() < threshold) {
+                    SimpleFeature feature = it.next();
+                    features.add(feature);
+                    inserted.add(prepareFeature(feature, builder));
+                }
+                
+                getDataStore().bulkInsert(inserted, getSchema(), cx);
+                
+                for (int i = 0; i < inserted.size(); i++) {
+                    SimpleFeature toWrite = inserted.get(i);
+                    
+                    //the datastore sets as userData, grab it and update the fid
+                    String fid = (String) toWrite.getUserData().get("fid");
+                    ((FeatureIdImpl) toWrite.getIdentifier()).setID(fid);
+                    features.get(i).getUserData().putAll(toWrite.getUserData());
+                    ids.add(toWrite.getIdentifier());
+                    
+                    state.fireFeatureAdded(this, toWrite);
+                }
+                features.clear();
+                inserted.clear();
+            }
+            if (autoCommit) {
+                cx.commit();
+                committed = true;
+            }
+        } catch (SQLException e) {
+            throw (IOException) new IOException("Error inserting features").initCause(e);
+        } finally {
+            collection.close(it);
+            if (autoCommit) {
+                try {
+                    if (!committed) {
+                        cx.rollback();
+                    }
+                    cx.setAutoCommit(true);
+                } catch (SQLException e) {
+                    getDataStore().getLogger().log(Level.FINE, "Error ending the insert transaction", e);
+                }
+            }
+            getDataStore().releaseConnection(cx, getState());
+        }
+        
+        return ids;
+    }
+
+    /**
+     * Copies a feature into the schema of this store, along with its user data and, if the
+     * caller asked so, its id.
+     */
+    SimpleFeature prepareFeature(SimpleFeature feature, SimpleFeatureBuilder builder) {
+        for (AttributeDescriptor att : getSchema().getAttributeDescriptors()) {
+            String name = att.getLocalName();
+            builder.set(name, feature.getAttribute(name));
+        }
+        
+        // pass through the fid if the user asked so
+        boolean useExisting = Boolean.TRUE.equals(feature.getUserData().get(Hints.USE_PROVIDED_FID));
+        SimpleFeature toWrite = builder.buildFeature(useExisting ? feature.getID() : null);
+        
+        // copy over the user data
+        if (feature.getUserData().size() > 0) {
+            toWrite.getUserData().putAll(feature.getUserData());
+        }
+        return toWrite;
+    }
+
     @Override
     public void removeFeatures(Filter filter) throws IOException {
         Filter[] splitted = delegate.splitFilter(filter);
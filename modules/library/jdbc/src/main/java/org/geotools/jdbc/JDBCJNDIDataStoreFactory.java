@@ -155,6 +155,12 @@ public abstract class JDBCJNDIDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(SCHEMA.key, SCHEMA);
         parameters.put(NAMESPACE.key, NAMESPACE);
         parameters.put(EXPOSE_PK.key, EXPOSE_PK);
+        parameters.put(PREFETCH.key, PREFETCH);
+        parameters.put(BULK_INSERT_THRESHOLD.key, BULK_INSERT_THRESHOLD);
+        parameters.put(SCAN_PARTITIONS.key, SCAN_PARTITIONS);
+        parameters.put(ESTIMATED_STATISTICS_TTL.key, ESTIMATED_STATISTICS_TTL);
+        parameters.put(METADATA_CACHE.key, METADATA_CACHE);
+        parameters.put(METADATA_CACHE_DIRECTORY.key, METADATA_CACHE_DIRECTORY);
         parameters.put(PK_METADATA_TABLE.key, PK_METADATA_TABLE);
 
     }
@@ -0,0 +1,480 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Caches the column and primary key metadata of the tables of a database schema, sparing the
+ * several metadata round trips per table needed to build each feature type.
+ * <p>
+ * The columns of all the tables are loaded in bulk, with a single
+ * {@link DatabaseMetaData#getColumns(String, String, String, String)} call plus, when the
+ * dialect supports it, a single lookup of the geometry types and srids (see
+ * {@link SQLDialect#getGeometryColumnsMetadata(String, Connection)}). Primary keys are still
+ * computed by the {@link PrimaryKeyFinder} of the store, but only once per table.
+ * </p>
+ * <p>
+ * Caches are shared among the stores connecting to the same database schema with the same
+ * user. Primary keys depend on the configuration of the finder as well, so they are cached
+ * separately for each {@link PrimaryKeyFinder} instance, and only the ones found by the
+ * default finder of {@link JDBCDataStore} are persisted.
+ * </p>
+ * <p>
+ * When the dialect can compute a version of the schema structure (see
+ * {@link SQLDialect#getSchemaVersion(String, Connection)}) the cache is reloaded once a
+ * change of version is detected, and can be persisted to a directory to be reused across
+ * restarts. Computing the version can be expensive, so it is not checked at each access but
+ * only once the check interval given to {@link #validate(JDBCDataStore, Connection, long, boolean)}
+ * has elapsed. Otherwise the cache is reloaded once it gets older than
+ * {@link #getExpiry() expiry} milliseconds, changes made through the stores are tracked in
+ * any case.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class JDBCMetadataCache {
+
+    static final Logger LOGGER = Logging.getLogger(JDBCMetadataCache.class);
+
+    /**
+     * Version of the persisted file format
+     */
+    static final int FORMAT_VERSION = 2;
+
+    /**
+     * Default time to live of the metadata that cannot be validated against a schema version
+     */
+    public static final long DEFAULT_EXPIRY = 5 * 60 * 1000;
+
+    /**
+     * Default interval between two checks of the schema version
+     */
+    public static final long DEFAULT_CHECK_INTERVAL = 60 * 1000;
+
+    static final Map<String, JDBCMetadataCache> CACHES = new ConcurrentHashMap<String, JDBCMetadataCache>();
+
+    /**
+     * Returns the cache shared by all the stores connecting to the specified database schema
+     *
+     * @param cx A connection to the database, used to identify it
+     * @param databaseSchema The database schema, can be null
+     * @param directory The directory the cache is persisted into, or null
+     */
+    public static JDBCMetadataCache getCache(Connection cx, String databaseSchema, File directory)
+            throws SQLException {
+        DatabaseMetaData md = cx.getMetaData();
+        String key = md.getURL() + "|" + md.getUserName() + "|" + databaseSchema;
+        synchronized (CACHES) {
+            JDBCMetadataCache cache = CACHES.get(key);
+            if (cache == null) {
+                cache = new JDBCMetadataCache(key);
+                CACHES.put(key, cache);
+            }
+            if (directory != null && cache.file == null) {
+                cache.file = new File(directory, "jdbc-metadata-"
+                        + Integer.toHexString(key.hashCode()) + ".cache");
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Drops all the shared caches, persisted ones are kept
+     */
+    public static void clearCaches() {
+        CACHES.clear();
+    }
+
+    final String key;
+
+    File file;
+
+    /**
+     * The schema version the cached metadata refers to, null if unknown
+     */
+    String version;
+
+    boolean loaded;
+
+    /**
+     * When the metadata was loaded, used to expire it if the schema version is unknown
+     */
+    long loadTime;
+
+    /**
+     * When the schema version was last checked
+     */
+    long checkTime;
+
+    long expiry = DEFAULT_EXPIRY;
+
+    boolean dirty;
+
+    Map<String, List<ColumnMetadata>> columns = new ConcurrentHashMap<String, List<ColumnMetadata>>();
+
+    /**
+     * The primary keys, by table, found by each finder
+     */
+    Map<PrimaryKeyFinder, Map<String, PrimaryKey>> primaryKeys = Collections
+            .synchronizedMap(new WeakHashMap<PrimaryKeyFinder, Map<String, PrimaryKey>>());
+
+    JDBCMetadataCache(String key) {
+        this.key = key;
+    }
+
+    /**
+     * The file the cache is persisted into, or null
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Time to live, in milliseconds, of the metadata when the dialect cannot compute a schema
+     * version
+     */
+    public long getExpiry() {
+        return expiry;
+    }
+
+    public void setExpiry(long expiry) {
+        this.expiry = expiry;
+    }
+
+    /**
+     * Makes sure the cache content matches the current schema structure, reading it from the
+     * persisted file or loading it in bulk from the database if needed.
+     * <p>
+     * Meant to be called before each use of the cache. Once loaded the schema version is
+     * looked up again only if <tt>force</tt> is set or if it was last checked more than
+     * <tt>checkInterval</tt> milliseconds ago, a negative interval disables the periodic
+     * checks. If the dialect has no notion of schema version the cache expires instead.
+     * </p>
+     */
+    public synchronized void validate(JDBCDataStore store, Connection cx, long checkInterval,
+            boolean force) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (loaded && !force && (checkInterval < 0 || now - checkTime < checkInterval)
+                && (version != null || now - loadTime < expiry)) {
+            return;
+        }
+
+        String current = store.getSQLDialect().getSchemaVersion(store.getDatabaseSchema(), cx);
+        checkTime = now;
+        if (loaded) {
+            if (current != null ? current.equals(version) : now - loadTime < expiry) {
+                return;
+            }
+        }
+
+        if (current != null && file != null && file.exists()) {
+            try {
+                if (read(current)) {
+                    return;
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Could not read the metadata cache " + file, e);
+            }
+        }
+
+        load(store, cx);
+        version = current;
+        dirty = true;
+        save();
+    }
+
+    /**
+     * Loads the columns of all the tables in bulk
+     */
+    void load(JDBCDataStore store, Connection cx) throws SQLException {
+        SQLDialect dialect = store.getSQLDialect();
+        String databaseSchema = store.getDatabaseSchema();
+        Map<String, Map<String, ColumnMetadata>> geometries = dialect
+                .getGeometryColumnsMetadata(databaseSchema, cx);
+
+        Map<String, List<ColumnMetadata>> result = new HashMap<String, List<ColumnMetadata>>();
+        ResultSet rs = cx.getMetaData().getColumns(null, databaseSchema, "%", "%");
+        try {
+            while (rs.next()) {
+                String tableName = rs.getString("TABLE_NAME");
+                ColumnMetadata geometry = null;
+                if (geometries != null && geometries.containsKey(tableName)) {
+                    geometry = geometries.get(tableName).get(rs.getString("COLUMN_NAME"));
+                }
+                ColumnMetadata column = JDBCFeatureSource.getColumnMetadata(rs, geometry,
+                        dialect, cx);
+
+                List<ColumnMetadata> tableColumns = result.get(tableName);
+                if (tableColumns == null) {
+                    tableColumns = new ArrayList<ColumnMetadata>();
+                    result.put(tableName, tableColumns);
+                }
+                tableColumns.add(column);
+            }
+        } finally {
+            store.closeSafe(rs);
+        }
+        LOGGER.fine("Loaded the column metadata of " + result.size() + " tables");
+
+        columns.clear();
+        columns.putAll(result);
+        primaryKeys.clear();
+        loaded = true;
+        loadTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the cached columns of a table, or null if not known
+     */
+    public List<ColumnMetadata> getColumns(String tableName) {
+        return columns.get(tableName);
+    }
+
+    public void putColumns(String tableName, List<ColumnMetadata> tableColumns) {
+        columns.put(tableName, tableColumns);
+        dirty = true;
+    }
+
+    /**
+     * Returns the primary key of a table found by the specified finder, or null if not known
+     */
+    public PrimaryKey getPrimaryKey(PrimaryKeyFinder finder, String tableName) {
+        return primaryKeys(finder).get(tableName);
+    }
+
+    public void putPrimaryKey(PrimaryKeyFinder finder, String tableName, PrimaryKey key) {
+        primaryKeys(finder).put(tableName, key);
+        dirty = true;
+    }
+
+    Map<String, PrimaryKey> primaryKeys(PrimaryKeyFinder finder) {
+        synchronized (primaryKeys) {
+            Map<String, PrimaryKey> keys = primaryKeys.get(finder);
+            if (keys == null) {
+                keys = new ConcurrentHashMap<String, PrimaryKey>();
+                primaryKeys.put(finder, keys);
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Drops the metadata of a table, to be called when its structure changes
+     */
+    public synchronized void invalidate(String tableName) {
+        columns.remove(tableName);
+        synchronized (primaryKeys) {
+            for (Map<String, PrimaryKey> keys : primaryKeys.values()) {
+                keys.remove(tableName);
+            }
+        }
+        // the schema version changed, the persisted content must be refreshed
+        version = null;
+        loaded = false;
+    }
+
+    /**
+     * Persists the cache, if a file has been configured and the schema version is known
+     */
+    public synchronized void save() {
+        if (file == null || version == null || !dirty) {
+            return;
+        }
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(temp)));
+            try {
+                write(out);
+            } finally {
+                out.close();
+            }
+            if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+                throw new IOException("Could not replace " + file);
+            }
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not persist the metadata cache " + file, e);
+            temp.delete();
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+        out.writeUTF(version);
+
+        Map<String, List<ColumnMetadata>> columns = new HashMap<String, List<ColumnMetadata>>(
+                this.columns);
+        out.writeInt(columns.size());
+        for (Map.Entry<String, List<ColumnMetadata>> entry : columns.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (ColumnMetadata column : entry.getValue()) {
+                out.writeUTF(column.name);
+                writeString(out, column.typeName);
+                out.writeInt(column.sqlType);
+                out.writeBoolean(column.nullable);
+                writeClass(out, column.binding);
+                out.writeBoolean(column.srid != null);
+                if (column.srid != null) {
+                    out.writeInt(column.srid);
+                }
+            }
+        }
+
+        Map<String, PrimaryKey> keys = new HashMap<String, PrimaryKey>(
+                primaryKeys(JDBCDataStore.DEFAULT_PRIMARY_KEY_FINDER));
+        out.writeInt(keys.size());
+        for (Map.Entry<String, PrimaryKey> entry : keys.entrySet()) {
+            out.writeUTF(entry.getKey());
+            PrimaryKey key = entry.getValue();
+            out.writeBoolean(key instanceof NullPrimaryKey);
+            out.writeInt(key.getColumns().size());
+            for (PrimaryKeyColumn column : key.getColumns()) {
+                out.writeUTF(column.getName());
+                writeClass(out, column.getType());
+                if (column instanceof SequencedPrimaryKeyColumn) {
+                    out.writeUTF("sequence");
+                    out.writeUTF(((SequencedPrimaryKeyColumn) column).getSequenceName());
+                } else if (column instanceof AutoGeneratedPrimaryKeyColumn) {
+                    out.writeUTF("auto");
+                } else {
+                    out.writeUTF("none");
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the persisted cache, returns false if it does not match the current version
+     */
+    boolean read(String currentVersion) throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+                file)));
+        try {
+            if (in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())
+                    || !currentVersion.equals(in.readUTF())) {
+                return false;
+            }
+
+            Map<String, List<ColumnMetadata>> columns = new HashMap<String, List<ColumnMetadata>>();
+            int tables = in.readInt();
+            for (int i = 0; i < tables; i++) {
+                String tableName = in.readUTF();
+                int count = in.readInt();
+                List<ColumnMetadata> tableColumns = new ArrayList<ColumnMetadata>(count);
+                for (int j = 0; j < count; j++) {
+                    ColumnMetadata column = new ColumnMetadata();
+                    column.name = in.readUTF();
+                    column.typeName = readString(in);
+                    column.sqlType = in.readInt();
+                    column.nullable = in.readBoolean();
+                    column.binding = readClass(in);
+                    if (in.readBoolean()) {
+                        column.srid = in.readInt();
+                    }
+                    tableColumns.add(column);
+                }
+                columns.put(tableName, tableColumns);
+            }
+
+            Map<String, PrimaryKey> keys = new HashMap<String, PrimaryKey>();
+            tables = in.readInt();
+            for (int i = 0; i < tables; i++) {
+                String tableName = in.readUTF();
+                boolean nullKey = in.readBoolean();
+                int count = in.readInt();
+                List<PrimaryKeyColumn> keyColumns = new ArrayList<PrimaryKeyColumn>(count);
+                for (int j = 0; j < count; j++) {
+                    String name = in.readUTF();
+                    Class type = readClass(in);
+                    String kind = in.readUTF();
+                    if ("sequence".equals(kind)) {
+                        keyColumns.add(new SequencedPrimaryKeyColumn(name, type, in.readUTF()));
+                    } else if ("auto".equals(kind)) {
+                        keyColumns.add(new AutoGeneratedPrimaryKeyColumn(name, type));
+                    } else {
+                        keyColumns.add(new NonIncrementingPrimaryKeyColumn(name, type));
+                    }
+                }
+                keys.put(tableName, nullKey ? new NullPrimaryKey(tableName) : new PrimaryKey(
+                        tableName, keyColumns));
+            }
+
+            this.columns.clear();
+            this.columns.putAll(columns);
+            this.primaryKeys.clear();
+            this.primaryKeys.put(JDBCDataStore.DEFAULT_PRIMARY_KEY_FINDER,
+                    new ConcurrentHashMap<String, PrimaryKey>(keys));
+            this.version = currentVersion;
+            this.loaded = true;
+            this.loadTime = System.currentTimeMillis();
+            this.dirty = false;
+            LOGGER.fine("Read the metadata of " + columns.size() + " tables from " + file);
+            return true;
+        } finally {
+            in.close();
+        }
+    }
+
+    void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    void writeClass(DataOutputStream out, Class clazz) throws IOException {
+        writeString(out, clazz != null ? clazz.getName() : null);
+    }
+
+    Class readClass(DataInputStream in) throws IOException, ClassNotFoundException {
+        String name = readString(in);
+        return name != null ? Class.forName(name) : null;
+    }
+}
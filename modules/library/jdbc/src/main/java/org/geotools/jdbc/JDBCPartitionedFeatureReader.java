@@ -0,0 +1,223 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.geotools.data.FeatureReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Reader merging the features of several {@link JDBCFeatureReader}, each one scanning a
+ * partition of the same table on its own connection, which are read in parallel by background
+ * threads.
+ * <p>
+ * Features are returned in the order the partitions produce them, which is not the table
+ * order. At most {@link JDBCPrefetchingFeatureReader#BATCHES} decoded batches per partition are
+ * kept in memory. Closing the reader stops the background threads and then closes the
+ * partition readers, releasing their connections.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+class JDBCPartitionedFeatureReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+
+    List<JDBCFeatureReader> readers;
+
+    SimpleFeatureType featureType;
+
+    final int batchSize;
+
+    final BlockingQueue<List<SimpleFeature>> batches;
+
+    final List<Future<?>> producers = new ArrayList<Future<?>>();
+
+    volatile boolean closed;
+
+    /**
+     * The error that stopped a producer, if any
+     */
+    volatile Throwable failure;
+
+    /**
+     * Number of partitions not yet exhausted
+     */
+    int running;
+
+    /**
+     * The batch being consumed
+     */
+    List<SimpleFeature> current;
+
+    int index;
+
+    public JDBCPartitionedFeatureReader(List<JDBCFeatureReader> readers,
+            ExecutorService executor, int batchSize) {
+        this.readers = readers;
+        this.featureType = readers.get(0).getFeatureType();
+        this.batchSize = batchSize > 0 ? batchSize
+                : JDBCPrefetchingFeatureReader.DEFAULT_BATCH_SIZE;
+        this.batches = new ArrayBlockingQueue<List<SimpleFeature>>(readers.size()
+                * (JDBCPrefetchingFeatureReader.BATCHES + 1));
+        this.running = readers.size();
+        for (final JDBCFeatureReader reader : readers) {
+            producers.add(executor.submit(new Runnable() {
+                public void run() {
+                    produce(reader);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Reads a partition until exhausted or closed, handing over the features in batches
+     */
+    void produce(FeatureReader<SimpleFeatureType, SimpleFeature> reader) {
+        try {
+            List<SimpleFeature> batch = new ArrayList<SimpleFeature>(batchSize);
+            while (!closed && failure == null && reader.hasNext()) {
+                batch.add(reader.next());
+                if (batch.size() == batchSize) {
+                    if (!offer(batch))
+                        return;
+                    batch = new ArrayList<SimpleFeature>(batchSize);
+                }
+            }
+            if (!batch.isEmpty())
+                offer(batch);
+        } catch (Throwable t) {
+            if (!closed && failure == null)
+                failure = t;
+        } finally {
+            offer(JDBCPrefetchingFeatureReader.END);
+        }
+    }
+
+    /**
+     * Waits for room in the queue, giving up if the reader gets closed
+     */
+    boolean offer(List<SimpleFeature> batch) {
+        try {
+            while (!closed) {
+                if (batches.offer(batch, JDBCPrefetchingFeatureReader.OFFER_TIMEOUT,
+                        TimeUnit.MILLISECONDS))
+                    return true;
+            }
+        } catch (InterruptedException e) {
+            closed = true;
+        }
+        return false;
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    public boolean hasNext() throws IOException {
+        if (closed) {
+            throw new IOException("reader already closed");
+        }
+        while (current == null || index >= current.size()) {
+            if (running == 0) {
+                return false;
+            }
+            try {
+                current = batches.take();
+            } catch (InterruptedException e) {
+                throw (IOException) new IOException("Interrupted while waiting for features")
+                        .initCause(e);
+            }
+            index = 0;
+            if (current == JDBCPrefetchingFeatureReader.END) {
+                running--;
+                current = null;
+            }
+            Throwable t = failure;
+            if (t != null) {
+                // no point in going on, the result would be incomplete
+                running = 0;
+                current = null;
+                failure = null;
+                if (t instanceof IOException)
+                    throw (IOException) t;
+                if (t instanceof RuntimeException)
+                    throw (RuntimeException) t;
+                throw (IOException) new IOException(t.getMessage()).initCause(t);
+            }
+        }
+        return true;
+    }
+
+    public SimpleFeature next() throws IOException, IllegalArgumentException,
+            NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features in this reader, you should call "
+                    + "hasNext() to check for feature availability");
+        }
+        // release the reference as soon as possible
+        SimpleFeature f = current.set(index++, null);
+        return f;
+    }
+
+    public void close() throws IOException {
+        if (readers == null) {
+            return;
+        }
+        // stop the producers and wait for them to let go of the result sets
+        closed = true;
+        batches.clear();
+        try {
+            for (Future<?> producer : producers) {
+                try {
+                    producer.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JDBCFeatureReader.LOGGER.log(Level.FINE, "Partition reader failed", e);
+                }
+            }
+        } finally {
+            batches.clear();
+            current = null;
+            IOException error = null;
+            for (JDBCFeatureReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            readers = null;
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
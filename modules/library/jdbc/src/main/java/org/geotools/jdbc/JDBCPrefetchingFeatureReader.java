@@ -0,0 +1,228 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.geotools.data.DelegatingFeatureReader;
+import org.geotools.data.FeatureReader;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Reader that pulls features out of a {@link JDBCFeatureReader} in a background thread, a batch
+ * of fetch size features at a time, so that the database round trips and the geometry decoding
+ * overlap with the consumer work.
+ * <p>
+ * At most {@link #BATCHES} decoded batches are kept in memory; the producer waits for the consumer
+ * when they are full. Closing the reader stops the producer before the wrapped reader, and its
+ * connection, are closed, which is why it is meant to be wrapped by a
+ * {@link JDBCClosingFeatureReader}.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+class JDBCPrefetchingFeatureReader implements
+        DelegatingFeatureReader<SimpleFeatureType, SimpleFeature> {
+
+    /**
+     * Number of batches the producer can get ahead of the consumer
+     */
+    static final int BATCHES = 2;
+
+    /**
+     * Batch size used when the datastore has no fetch size
+     */
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Marks the end of the features
+     */
+    static final List<SimpleFeature> END = new ArrayList<SimpleFeature>(0);
+
+    /**
+     * How long the producer waits for room before checking if it has been closed, in milliseconds
+     */
+    static final long OFFER_TIMEOUT = 100;
+
+    JDBCFeatureReader delegate;
+
+    SimpleFeatureType featureType;
+
+    final int batchSize;
+
+    final BlockingQueue<List<SimpleFeature>> batches = new ArrayBlockingQueue<List<SimpleFeature>>(
+            BATCHES + 1);
+
+    final Future<?> producer;
+
+    volatile boolean closed;
+
+    /**
+     * The error that stopped the producer, if any
+     */
+    volatile Throwable failure;
+
+    /**
+     * The batch being consumed
+     */
+    List<SimpleFeature> current;
+
+    int index;
+
+    boolean done;
+
+    public JDBCPrefetchingFeatureReader(JDBCFeatureReader delegate, ExecutorService executor,
+            int batchSize) {
+        this.delegate = delegate;
+        this.featureType = delegate.getFeatureType();
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+        this.producer = executor.submit(new Runnable() {
+            public void run() {
+                produce();
+            }
+        });
+    }
+
+    /**
+     * Reads the wrapped reader until exhausted or closed, handing over the features in batches
+     */
+    void produce() {
+        final FeatureReader<SimpleFeatureType, SimpleFeature> reader = delegate;
+        try {
+            List<SimpleFeature> batch = new ArrayList<SimpleFeature>(batchSize);
+            while (!closed && reader.hasNext()) {
+                batch.add(reader.next());
+                if (batch.size() == batchSize) {
+                    if (!offer(batch))
+                        return;
+                    batch = new ArrayList<SimpleFeature>(batchSize);
+                }
+            }
+            if (!batch.isEmpty())
+                offer(batch);
+        } catch (Throwable t) {
+            if (!closed)
+                failure = t;
+        } finally {
+            offer(END);
+        }
+    }
+
+    /**
+     * Waits for room in the queue, giving up if the reader gets closed
+     */
+    boolean offer(List<SimpleFeature> batch) {
+        try {
+            while (!closed) {
+                if (batches.offer(batch, OFFER_TIMEOUT, TimeUnit.MILLISECONDS))
+                    return true;
+            }
+        } catch (InterruptedException e) {
+            closed = true;
+        }
+        return false;
+    }
+
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getDelegate() {
+        return delegate;
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    public boolean hasNext() throws IOException {
+        if (closed) {
+            throw new IOException("reader already closed");
+        }
+        while (current == null || index >= current.size()) {
+            if (done) {
+                return false;
+            }
+            try {
+                current = batches.take();
+            } catch (InterruptedException e) {
+                throw (IOException) new IOException("Interrupted while waiting for features")
+                        .initCause(e);
+            }
+            index = 0;
+            if (current == END) {
+                done = true;
+                current = null;
+                Throwable t = failure;
+                if (t != null) {
+                    failure = null;
+                    if (t instanceof IOException)
+                        throw (IOException) t;
+                    if (t instanceof RuntimeException)
+                        throw (RuntimeException) t;
+                    throw (IOException) new IOException(t.getMessage()).initCause(t);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public SimpleFeature next() throws IOException, IllegalArgumentException,
+            NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features in this reader, you should call "
+                    + "hasNext() to check for feature availability");
+        }
+        // release the reference as soon as possible
+        SimpleFeature f = current.set(index++, null);
+        return f;
+    }
+
+    public void close() throws IOException {
+        if (delegate == null) {
+            return;
+        }
+        // stop the producer and wait for it to let go of the result set
+        closed = true;
+        batches.clear();
+        try {
+            producer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            JDBCFeatureReader.LOGGER.log(Level.FINE, "Background reader failed", e);
+        } finally {
+            batches.clear();
+            current = null;
+            try {
+                delegate.close();
+            } finally {
+                delegate = null;
+            }
+        }
+    }
+}
@@ -19,12 +19,17 @@ package org.geotools.jdbc;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.filter.LikeFilterImpl;
+import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.Id;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.expression.Expression;
 import org.opengis.filter.expression.Literal;
 import org.opengis.filter.identity.Identifier;
 
@@ -36,6 +41,8 @@ import com.vividsolutions.jts.geom.Geometry;
  * Each time a {@link Literal} is visited, a '?' is encoded, and the 
  * value and type of the literal are stored, available after the fact 
  * via {@link #getLiteralValues()} and {@link #getLiteralTypes()}. 
+ * The same goes for like patterns and feature ids, so that filters differing only
+ * in their values generate the same sql.
  * 
  * </p>
  * @author Justin Deoliveira, OpenGEO
@@ -131,6 +138,53 @@ public class PreparedFilterToSQL extends FilterToSQL {
         return context;
     }
     
+    /**
+     * Encodes the like pattern as a parameter, so that the sql does not change with the
+     * pattern and the statement can be reused
+     */
+    public Object visit(PropertyIsLike filter, Object extraData) {
+        if(!prepareEnabled)
+            return super.visit(filter, extraData);
+        
+        char esc = filter.getEscape().charAt(0);
+        char multi = filter.getWildCard().charAt(0);
+        char single = filter.getSingleChar().charAt(0);
+        boolean matchCase = filter.isMatchingCase();
+        
+        String literal = filter.getLiteral();
+        Expression att = filter.getExpression();
+        
+        // same padding for date values as the non prepared encoding
+        AttributeDescriptor ad = (AttributeDescriptor) att.evaluate( featureType );
+        if ( ad != null && Date.class.isAssignableFrom( ad.getType().getBinding() ) ) {
+            literal += multi;
+        }
+        
+        String pattern = LikeFilterImpl.convertToSQL92(esc, multi, single, matchCase, literal);
+        
+        try {
+            if (!matchCase){
+                out.write(" UPPER(");
+            }
+
+            att.accept(this, extraData);
+
+            if (!matchCase){
+                out.write(") LIKE ? ");
+            } else {
+                out.write(" LIKE ? ");
+            }
+            
+            // the conversion escapes quotes for inlining, not needed for a parameter
+            literalValues.add(pattern.replace("''", "'"));
+            SRIDs.add(-1);
+            literalTypes.add(String.class);
+        } catch (java.io.IOException ioe) {
+            throw new RuntimeException(IO_ERROR, ioe);
+        }
+        return extraData;
+    }
+    
     /**
      * Encodes an Id filter
      *
@@ -0,0 +1,343 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.UnWrapper;
+
+/**
+ * A bounded cache of prepared statements, kept open for each physical database connection and
+ * looked up by their sql text.
+ * <p>
+ * The statements returned by {@link #prepareStatement(Connection, String, int, int)} are
+ * handed out exclusively, closing them puts them back in the cache of their connection instead
+ * of releasing them. When a cache grows past the maximum size the least recently used
+ * statement is closed. Pooled connections are unwrapped so that the statements survive the
+ * connection being returned to the pool and borrowed again, the caches of connections found
+ * closed are dropped.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class PreparedStatementCache {
+
+    static final Logger LOGGER = JDBCDataStore.LOGGER;
+
+    final int maxStatements;
+
+    /**
+     * The statement caches, keyed by physical connection
+     */
+    final Map<Connection, Statements> caches = new IdentityHashMap<Connection, Statements>();
+
+    final AtomicLong hits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+
+    final AtomicLong evictions = new AtomicLong();
+
+    UnWrapper unwrapper;
+
+    boolean unwrapperLookedUp;
+
+    /**
+     * Builds a new cache
+     *
+     * @param maxStatements The maximum number of statements kept open for each connection
+     */
+    public PreparedStatementCache(int maxStatements) {
+        if (maxStatements <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Returns a prepared statement for the sql, reusing one cached for the physical connection
+     * behind <tt>cx</tt> if available.
+     */
+    public PreparedStatement prepareStatement(Connection cx, String sql, int resultSetType,
+            int resultSetConcurrency) throws SQLException {
+        Connection physical = unwrap(cx);
+        Statements statements;
+        synchronized (caches) {
+            statements = caches.get(physical);
+            if (statements == null) {
+                purge();
+                statements = new Statements(physical);
+                caches.put(physical, statements);
+            }
+        }
+        return statements.checkOut(sql, resultSetType, resultSetConcurrency);
+    }
+
+    /**
+     * Drops the caches of the connections that have been closed
+     */
+    void purge() {
+        for (Iterator<Statements> it = caches.values().iterator(); it.hasNext();) {
+            Statements statements = it.next();
+            boolean closed;
+            try {
+                closed = statements.cx.isClosed();
+            } catch (SQLException e) {
+                closed = true;
+            }
+            if (closed) {
+                it.remove();
+                statements.close();
+            }
+        }
+    }
+
+    Connection unwrap(Connection cx) {
+        synchronized (caches) {
+            if (!unwrapperLookedUp) {
+                unwrapper = DataSourceFinder.getUnWrapper(cx);
+                unwrapperLookedUp = true;
+            }
+        }
+        if (unwrapper != null) {
+            try {
+                Connection physical = unwrapper.unwrap(cx);
+                if (physical != null) {
+                    return physical;
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Could not unwrap the connection", e);
+            }
+        }
+        return cx;
+    }
+
+    /**
+     * Closes all the cached statements
+     */
+    public void clear() {
+        List<Statements> all;
+        synchronized (caches) {
+            all = new ArrayList<Statements>(caches.values());
+            caches.clear();
+        }
+        for (Statements statements : all) {
+            statements.close();
+        }
+    }
+
+    /**
+     * The maximum number of statements kept open for each connection
+     */
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    /**
+     * The number of statements currently kept open, across all connections
+     */
+    public int getSize() {
+        int size = 0;
+        synchronized (caches) {
+            for (Statements statements : caches.values()) {
+                size += statements.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The number of times a cached statement has been reused
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of times a statement had to be prepared
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The number of statements closed to make room for others
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * The ratio between hits and requests, or 0 if no statement has been requested yet
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : ((double) h) / total;
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedStatementCache[size=" + getSize() + ", hits=" + getHits() + ", misses="
+                + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    /**
+     * The idle statements of a connection, in least recently used order
+     */
+    class Statements {
+        final Connection cx;
+
+        final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<String, PreparedStatement>(
+                16, 0.75f, true);
+
+        boolean closed;
+
+        Statements(Connection cx) {
+            this.cx = cx;
+        }
+
+        PreparedStatement checkOut(String sql, int resultSetType, int resultSetConcurrency)
+                throws SQLException {
+            String key = resultSetType + ":" + resultSetConcurrency + ":" + sql;
+            PreparedStatement ps;
+            synchronized (this) {
+                ps = idle.remove(key);
+            }
+            if (ps != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                ps = cx.prepareStatement(sql, resultSetType, resultSetConcurrency);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[] { PreparedStatement.class }, new CachedStatement(ps, key, this));
+        }
+
+        void checkIn(String key, PreparedStatement ps) {
+            try {
+                ps.clearParameters();
+                ps.clearWarnings();
+            } catch (SQLException e) {
+                // not safe to reuse
+                closeSafe(ps);
+                return;
+            }
+
+            PreparedStatement evicted = null;
+            synchronized (this) {
+                if (closed || idle.containsKey(key)) {
+                    evicted = ps;
+                } else {
+                    idle.put(key, ps);
+                    if (idle.size() > maxStatements) {
+                        Iterator<PreparedStatement> it = idle.values().iterator();
+                        evicted = it.next();
+                        it.remove();
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+            if (evicted != null) {
+                closeSafe(evicted);
+            }
+        }
+
+        synchronized int size() {
+            return idle.size();
+        }
+
+        void close() {
+            List<PreparedStatement> statements;
+            synchronized (this) {
+                closed = true;
+                statements = new ArrayList<PreparedStatement>(idle.values());
+                idle.clear();
+            }
+            for (PreparedStatement ps : statements) {
+                closeSafe(ps);
+            }
+        }
+
+        void closeSafe(PreparedStatement ps) {
+            try {
+                ps.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINER, "Error occurred closing cached statement", e);
+            }
+        }
+    }
+
+    /**
+     * Delegates to a cached statement, giving it back to the cache when closed
+     */
+    static class CachedStatement implements InvocationHandler {
+        final PreparedStatement delegate;
+
+        final String key;
+
+        final Statements owner;
+
+        boolean closed;
+
+        CachedStatement(PreparedStatement delegate, String key, Statements owner) {
+            this.delegate = delegate;
+            this.key = key;
+            this.owner = owner;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(delegate, args);
+            } else if ("close".equals(name) && method.getParameterTypes().length == 0) {
+                if (!closed) {
+                    closed = true;
+                    owner.checkIn(key, delegate);
+                }
+                return null;
+            } else if ("isClosed".equals(name) && method.getParameterTypes().length == 0) {
+                return closed;
+            } else if (closed) {
+                throw new SQLException("Statement already closed");
+            }
+
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -84,6 +84,28 @@ public abstract class PreparedStatementSQLDialect extends SQLDialect {
     public abstract void setGeometryValue(Geometry g, int srid,
             Class binding, PreparedStatement ps, int column) throws SQLException;
 
+    /**
+     * Sets the geometry value into the prepared statement as well known binary. Small
+     * geometries are bound as a byte array, while geometries whose encoding is larger than
+     * {@link JDBCDataStore#getGeometryStreamingThreshold()} are bound as a stream generating
+     * the encoding while the driver reads it, so that it's never held fully in memory.
+     *
+     * @param g The geometry, not null
+     * @param ps the prepared statement
+     * @param column the column index where the geometry is to be set
+     * @throws SQLException
+     */
+    protected void setGeometryWKB(Geometry g, PreparedStatement ps, int column)
+            throws SQLException {
+        WKBEncoder encoder = new WKBEncoder(g);
+        int threshold = dataStore.getGeometryStreamingThreshold();
+        if (threshold > 0 && encoder.getSize() > threshold) {
+            ps.setBinaryStream(column, encoder.getInputStream(), encoder.getSize());
+        } else {
+            ps.setBytes(column, encoder.toByteArray());
+        }
+    }
+
     /**
      * Sets a value in a prepared statement, for "basic types" (non-geometry).
      * <p>
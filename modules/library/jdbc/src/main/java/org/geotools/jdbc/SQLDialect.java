@@ -23,9 +23,11 @@ import java.sql.DatabaseMetaData;
 import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +46,7 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -546,6 +549,41 @@ public abstract class SQLDialect {
         return null;
     }
     
+    /**
+     * Returns the geometry type and srid of all the geometry columns in a database schema,
+     * used to load the table metadata in bulk.
+     * <p>
+     * The result is keyed by table name and then by column name, the returned column
+     * metadata must have both the binding and the srid set. Columns missing from the result
+     * are handled with {@link #getMapping(ResultSet, Connection)} and
+     * {@link #getGeometrySRID(String, String, String, Connection)} as usual.
+     * </p>
+     * <p>
+     * This default implementation returns <code>null</code>, meaning that the lookup cannot be
+     * done in bulk, subclasses should override.
+     * </p>
+     * @param schemaName The database schema, could be <code>null</code>.
+     * @param cx The database connection.
+     */
+    public Map<String, Map<String, ColumnMetadata>> getGeometryColumnsMetadata(
+            String schemaName, Connection cx) throws SQLException {
+        return null;
+    }
+    
+    /**
+     * Returns a token that changes whenever the structure of the tables in a database schema
+     * changes, used to validate the cached table metadata.
+     * <p>
+     * This default implementation returns <code>null</code>, meaning that changes cannot be
+     * detected, subclasses should override.
+     * </p>
+     * @param schemaName The database schema, could be <code>null</code>.
+     * @param cx The database connection.
+     */
+    public String getSchemaVersion(String schemaName, Connection cx) throws SQLException {
+        return null;
+    }
+    
     /**
      * Turns the specified srid into a {@link CoordinateReferenceSystem}, or returns <code>null</code> if not possible.
      * <p>
@@ -590,6 +628,69 @@ public abstract class SQLDialect {
         return null;
     }
 
+    /**
+     * Returns the number of rows in the table as estimated by the database statistics, or -1
+     * if no estimate is available.
+     * <p>
+     * Called only when the caller opted into estimates through the
+     * {@link Hints#ESTIMATED_STATISTICS} hint. This default implementation returns -1.
+     * </p>
+     * 
+     * @param schema
+     *            The database schema, if any, or null
+     * @param featureType
+     *            The feature type of the table
+     * @param cx
+     */
+    public int getEstimatedCount(String schema, SimpleFeatureType featureType, Connection cx)
+            throws SQLException, IOException {
+        return -1;
+    }
+
+    /**
+     * Returns the bounds of all geometry columns in the table as estimated by the database
+     * statistics, or null if no estimate is available.
+     * <p>
+     * Called only when the caller opted into estimates through the
+     * {@link Hints#ESTIMATED_STATISTICS} hint. This default implementation returns the
+     * {@link #getOptimizedBounds(String, SimpleFeatureType, Connection) optimized bounds}.
+     * </p>
+     * 
+     * @param schema
+     *            The database schema, if any, or null
+     * @param featureType
+     *            The feature type containing the geometry columns whose bounds need to computed
+     * @param cx
+     * @return a list of referenced envelopes (some of which may be null or empty)
+     */
+    public List<ReferencedEnvelope> getEstimatedBounds(String schema, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
+        return getOptimizedBounds(schema, featureType, cx);
+    }
+
+    /**
+     * Returns the histogram of a column kept in the database statistics, as the sorted list
+     * of the bounds of buckets holding about the same number of rows (the first and last
+     * value being the estimated minimum and maximum), or null if not available.
+     * <p>
+     * This default implementation returns null.
+     * </p>
+     * 
+     * @param schema
+     *            The database schema, if any, or null
+     * @param tableName
+     *            The table name
+     * @param columnName
+     *            The column name
+     * @param binding
+     *            The class the bounds should be converted to
+     * @param cx
+     */
+    public List<Object> getEstimatedHistogram(String schema, String tableName,
+            String columnName, Class<?> binding, Connection cx) throws SQLException {
+        return null;
+    }
+
     /**
      * Encodes the spatial extent function of a geometry column in a SELECT statement.
      * <p>
@@ -689,6 +790,38 @@ public abstract class SQLDialect {
         throw new UnsupportedOperationException("Geometry simplification not supported");
     }
 
+    /**
+     * Encodes a geometry column reduced for display at the specified resolution, in the
+     * compact format read by {@link #decodeQuantizedGeometryValue(GeometryDescriptor, ResultSet, int, GeometryFactory, Connection)}.
+     * <p>
+     * Implementations should snap the coordinates to a grid no coarser than <tt>distance</tt>
+     * and remove the vertices made redundant by it on the database side, the default
+     * decoding expects the geometries to be encoded as TWKB (see {@link TWKBWriter}).
+     * Only called if {@link Hints#GEOMETRY_DISTANCE} is supported.
+     * </p>
+     */
+    public void encodeGeometryColumnQuantized(GeometryDescriptor gatt, int srid,
+            StringBuffer sql, Double distance) {
+        throw new UnsupportedOperationException("Geometry quantization not supported");
+    }
+
+    /**
+     * Decodes a geometry column encoded by
+     * {@link #encodeGeometryColumnQuantized(GeometryDescriptor, int, StringBuffer, Double)}.
+     * <p>
+     * This default implementation reads the column as TWKB bytes.
+     * </p>
+     */
+    public Geometry decodeQuantizedGeometryValue(GeometryDescriptor descriptor, ResultSet rs,
+            int column, GeometryFactory factory, Connection cx) throws IOException,
+            SQLException {
+        byte[] bytes = rs.getBytes(column);
+        if (bytes == null) {
+            return null;
+        }
+        return new TWKBReader(factory).read(bytes);
+    }
+
 
     /**
      * Decodes a geometry value from the result of a query.
@@ -982,6 +1115,19 @@ public abstract class SQLDialect {
         return false;
     }
     
+    /**
+     * Returns true if the database supports the <code>ntile</code> window function, used to
+     * compute quantile classifications natively.
+     * <p>
+     * Subclasses should override this method when the database supports window functions, by
+     * default it returns <code>false</code>.
+     * </p>
+     * @param cx A database connection, to check the database version if needed.
+     */
+    public boolean isWindowFunctionSupported(Connection cx) throws SQLException {
+        return false;
+    }
+    
     /**
      * Alters the query provided so that limit and offset are natively dealt with. This might mean
      * simply appending some extra directive to the query, or wrapping it into a bigger one.
@@ -992,7 +1138,115 @@ public abstract class SQLDialect {
     public void applyLimitOffset(StringBuffer sql, int limit, int offset) {
         throw new UnsupportedOperationException("Ovveride this method when isLimitOffsetSupported returns true");
     }
-    
+
+    /**
+     * Computes the values splitting a primary key column into ranges holding about the same
+     * number of rows, which the datastore uses to scan a table with several connections in
+     * parallel.
+     * <p>
+     * The returned values must be sorted in ascending order, the first range being made of the
+     * rows whose key is less than the first value, and the last one of the rows whose key is
+     * greater or equal than the last value. At most <tt>partitions - 1</tt> values should be
+     * returned; <code>null</code> or an empty list means the table cannot be split.
+     * </p>
+     * <p>
+     * This default implementation splits the range between the minimum and maximum value of
+     * integral columns evenly, subclasses can override it to use database statistics or the
+     * physical layout of the table.
+     * </p>
+     * <p>
+     * This method is given a direct connection to the database, but this connection
+     * should never be closed. However any statements or result sets instantiated
+     * from the connection must be closed.
+     * </p>
+     * @param schemaName The schema name, this might be <code>null</code>.
+     * @param tableName The name of the table.
+     * @param column The primary key column.
+     * @param partitions The number of ranges requested.
+     * @param cx The database connection.
+     *
+     * @return The split points, or <code>null</code>.
+     */
+    public List<Object> getSplitPoints(String schemaName, String tableName,
+            PrimaryKeyColumn column, int partitions, Connection cx) throws SQLException {
+        Class<?> type = column.getType();
+        if (type != Short.class && type != Integer.class && type != Long.class) {
+            return null;
+        }
+
+        StringBuffer sql = new StringBuffer("SELECT MIN(");
+        encodeColumnName(column.getName(), sql);
+        sql.append("), MAX(");
+        encodeColumnName(column.getName(), sql);
+        sql.append(") FROM ");
+        if (schemaName != null && !"".equals(schemaName)) {
+            encodeSchemaName(schemaName, sql);
+            sql.append(".");
+        }
+        encodeTableName(tableName, sql);
+        LOGGER.fine(sql.toString());
+
+        long min, max;
+        Statement st = cx.createStatement();
+        try {
+            ResultSet rs = st.executeQuery(sql.toString());
+            try {
+                if (!rs.next() || rs.getObject(1) == null) {
+                    return null;
+                }
+                min = rs.getLong(1);
+                max = rs.getLong(2);
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(st);
+        }
+
+        // mind overflows on wide ranges
+        double step = ((double) max - (double) min + 1) / partitions;
+        List<Object> points = new ArrayList<Object>();
+        for (int i = 1; i < partitions; i++) {
+            long point = min + (long) Math.floor(step * i);
+            if (point > min && point <= max
+                    && (points.isEmpty() || point > (Long) points.get(points.size() - 1))) {
+                points.add(point);
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Inserts a batch of new features with a single bulk load operation, usually through a
+     * database specific loading protocol which is much faster than one insert per feature.
+     * <p>
+     * <tt>keyValues</tt> holds, for each feature, the values of the primary key columns, or
+     * <code>null</code> when they have to be generated. On a successful load the implementation
+     * must fill it with the key values of all the inserted features, in the same order.
+     * </p>
+     * <p>
+     * Implementations returning <code>false</code> must not have written anything, the
+     * datastore then falls back on batched insert statements. This is the default.
+     * </p>
+     * <p>
+     * This method is given a direct connection to the database, but this connection
+     * should never be closed. However any statements or result sets instantiated
+     * from the connection must be closed.
+     * </p>
+     * @param featureType The feature type of the table.
+     * @param key The primary key of the table.
+     * @param features The features to insert.
+     * @param keyValues The key values of each feature, <code>null</code> when to be generated.
+     * @param cx The database connection.
+     *
+     * @return Whether the features have been inserted.
+     */
+    public boolean bulkInsert(SimpleFeatureType featureType, PrimaryKey key,
+            List<SimpleFeature> features, List<List<Object>> keyValues, Connection cx)
+            throws SQLException, IOException {
+        return false;
+    }
+
     /**
      * Add hints to the JDBC Feature Source. A subclass 
      * can override
@@ -1001,6 +1255,7 @@ public abstract class SQLDialect {
      *  
      * {@link Hints#GEOMETRY_GENERALIZATION}
      * {@link Hints#GEOMETRY_SIMPLIFICATION}
+     * {@link Hints#GEOMETRY_DISTANCE}
      *  
      * @param hints
      */
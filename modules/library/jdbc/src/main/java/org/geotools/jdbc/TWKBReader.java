@@ -0,0 +1,273 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Reads geometries in the Tiny Well Known Binary format, the compact encoding produced by
+ * {@link TWKBWriter} and by the PostGIS <code>ST_AsTWKB</code> function.
+ * <p>
+ * Coordinates are stored as integer deltas from the previous coordinate, scaled by a power of
+ * ten and written as zig-zag varints. The reader decodes them straight into
+ * <code>double[]</code> arrays, which are wrapped without copies when the geometry factory
+ * uses a {@link LiteCoordinateSequenceFactory}. Dimensions beyond the second are skipped.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class TWKBReader {
+
+    static final int POINT = 1;
+
+    static final int LINESTRING = 2;
+
+    static final int POLYGON = 3;
+
+    static final int MULTIPOINT = 4;
+
+    static final int MULTILINESTRING = 5;
+
+    static final int MULTIPOLYGON = 6;
+
+    static final int GEOMETRYCOLLECTION = 7;
+
+    static final int BBOX = 0x01;
+
+    static final int SIZE = 0x02;
+
+    static final int IDLIST = 0x04;
+
+    static final int EXTENDED_DIMS = 0x08;
+
+    static final int EMPTY = 0x10;
+
+    GeometryFactory factory;
+
+    CoordinateSequenceFactory csFactory;
+
+    boolean lite;
+
+    byte[] bytes;
+
+    int pos;
+
+    /**
+     * The number of dimensions of the geometry being read
+     */
+    int dims;
+
+    /**
+     * The scale factors of the dimensions of the geometry being read
+     */
+    double[] scales = new double[4];
+
+    /**
+     * The last coordinate read, in scaled integer units
+     */
+    long[] last = new long[4];
+
+    public TWKBReader(GeometryFactory factory) {
+        this.factory = factory;
+        this.csFactory = factory.getCoordinateSequenceFactory();
+        this.lite = csFactory instanceof LiteCoordinateSequenceFactory;
+    }
+
+    /**
+     * Parses the geometry
+     */
+    public Geometry read(byte[] bytes) throws IOException {
+        this.bytes = bytes;
+        this.pos = 0;
+        try {
+            return readGeometry();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Unexpected end of TWKB geometry at byte " + pos);
+        } finally {
+            this.bytes = null;
+        }
+    }
+
+    Geometry readGeometry() throws IOException {
+        int header = bytes[pos++] & 0xFF;
+        int type = header & 0x0F;
+        int precision = unzigzag(header >> 4);
+        int metadata = bytes[pos++] & 0xFF;
+
+        dims = 2;
+        double[] precisions = { precision, precision, 0, 0 };
+        if ((metadata & EXTENDED_DIMS) != 0) {
+            int ext = bytes[pos++] & 0xFF;
+            if ((ext & 0x01) != 0) {
+                precisions[dims++] = (ext >> 2) & 0x07;
+            }
+            if ((ext & 0x02) != 0) {
+                precisions[dims++] = (ext >> 5) & 0x07;
+            }
+        }
+        for (int i = 0; i < dims; i++) {
+            scales[i] = Math.pow(10, -precisions[i]);
+            last[i] = 0;
+        }
+        if ((metadata & SIZE) != 0) {
+            readUnsigned();
+        }
+        if ((metadata & BBOX) != 0) {
+            for (int i = 0; i < dims * 2; i++) {
+                readUnsigned();
+            }
+        }
+        boolean empty = (metadata & EMPTY) != 0;
+        boolean idList = (metadata & IDLIST) != 0;
+
+        switch (type) {
+        case POINT:
+            return empty ? factory.createPoint((CoordinateSequence) null) : factory
+                    .createPoint(readCoordinates(1));
+        case LINESTRING:
+            return empty ? factory.createLineString((CoordinateSequence) null)
+                    : readLineString();
+        case POLYGON:
+            return empty ? factory.createPolygon(null, null) : readPolygon();
+        case MULTIPOINT: {
+            if (empty) {
+                return factory.createMultiPoint((Point[]) null);
+            }
+            Point[] points = new Point[readCount(idList)];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = factory.createPoint(readCoordinates(1));
+            }
+            return factory.createMultiPoint(points);
+        }
+        case MULTILINESTRING: {
+            if (empty) {
+                return factory.createMultiLineString(null);
+            }
+            LineString[] lines = new LineString[readCount(idList)];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = readLineString();
+            }
+            return factory.createMultiLineString(lines);
+        }
+        case MULTIPOLYGON: {
+            if (empty) {
+                return factory.createMultiPolygon(null);
+            }
+            Polygon[] polygons = new Polygon[readCount(idList)];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = readPolygon();
+            }
+            return factory.createMultiPolygon(polygons);
+        }
+        case GEOMETRYCOLLECTION: {
+            if (empty) {
+                return factory.createGeometryCollection(null);
+            }
+            Geometry[] geometries = new Geometry[readCount(idList)];
+            for (int i = 0; i < geometries.length; i++) {
+                geometries[i] = readGeometry();
+            }
+            return factory.createGeometryCollection(geometries);
+        }
+        default:
+            throw new IOException("Unknown TWKB geometry type " + type);
+        }
+    }
+
+    int readCount(boolean idList) {
+        int count = (int) readUnsigned();
+        if (idList) {
+            for (int i = 0; i < count; i++) {
+                readUnsigned();
+            }
+        }
+        return count;
+    }
+
+    LineString readLineString() {
+        return factory.createLineString(readCoordinates((int) readUnsigned()));
+    }
+
+    Polygon readPolygon() {
+        int rings = (int) readUnsigned();
+        if (rings == 0) {
+            return factory.createPolygon(null, null);
+        }
+        LinearRing shell = factory.createLinearRing(readCoordinates((int) readUnsigned()));
+        LinearRing[] holes = new LinearRing[rings - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = factory.createLinearRing(readCoordinates((int) readUnsigned()));
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    CoordinateSequence readCoordinates(int count) {
+        double[] xy = new double[count * 2];
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dims; d++) {
+                last[d] += readSigned();
+                if (d < 2) {
+                    xy[i * 2 + d] = last[d] * scales[d];
+                }
+            }
+        }
+
+        if (lite) {
+            return ((LiteCoordinateSequenceFactory) csFactory).create(xy, 2);
+        }
+        CoordinateSequence cs = csFactory.create(count, 2);
+        for (int i = 0; i < count; i++) {
+            cs.setOrdinate(i, 0, xy[i * 2]);
+            cs.setOrdinate(i, 1, xy[i * 2 + 1]);
+        }
+        return cs;
+    }
+
+    long readUnsigned() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[pos++];
+            value |= ((long) (b & 0x7F)) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    long readSigned() {
+        long value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Writes two dimensional geometries in the Tiny Well Known Binary format read by
+ * {@link TWKBReader}, reducing them for display at a given resolution.
+ * <p>
+ * Coordinates are snapped to a grid whose size is the largest power of ten not greater than
+ * the resolution, and vertices closer than the resolution to the previous one kept are
+ * dropped, while preserving the first and last vertex of each line or ring.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class TWKBWriter {
+
+    final double distance;
+
+    final int precision;
+
+    final double scale;
+
+    byte[] buffer = new byte[256];
+
+    int pos;
+
+    long lastX, lastY;
+
+    /**
+     * Builds a writer for the specified resolution
+     *
+     * @param distance The resolution, in the units of the geometry coordinates, a value less or
+     *        equal to 0 leaves the geometries unreduced and uses the maximum precision
+     */
+    public TWKBWriter(double distance) {
+        this.distance = distance > 0 ? distance : 0;
+        this.precision = getPrecision(distance);
+        this.scale = Math.pow(10, precision);
+    }
+
+    /**
+     * Returns the number of decimal digits kept for the specified resolution, that is, the
+     * exponent of the largest power of ten not greater than it, clamped to the range allowed
+     * by the format.
+     */
+    public static int getPrecision(double distance) {
+        if (distance <= 0 || Double.isNaN(distance) || Double.isInfinite(distance)) {
+            return 7;
+        }
+        int precision = (int) Math.ceil(-Math.log10(distance) - 1e-9);
+        return Math.max(-7, Math.min(7, precision));
+    }
+
+    /**
+     * Encodes the geometry
+     */
+    public byte[] write(Geometry g) {
+        pos = 0;
+        writeGeometry(g);
+        byte[] result = new byte[pos];
+        System.arraycopy(buffer, 0, result, 0, pos);
+        return result;
+    }
+
+    void writeGeometry(Geometry g) {
+        int type;
+        if (g instanceof Point) {
+            type = TWKBReader.POINT;
+        } else if (g instanceof LineString) {
+            type = TWKBReader.LINESTRING;
+        } else if (g instanceof Polygon) {
+            type = TWKBReader.POLYGON;
+        } else if (g instanceof MultiPoint) {
+            type = TWKBReader.MULTIPOINT;
+        } else if (g instanceof MultiLineString) {
+            type = TWKBReader.MULTILINESTRING;
+        } else if (g instanceof MultiPolygon) {
+            type = TWKBReader.MULTIPOLYGON;
+        } else {
+            type = TWKBReader.GEOMETRYCOLLECTION;
+        }
+        int zigzag = (precision << 1) ^ (precision >> 31);
+        writeByte((zigzag << 4) | type);
+        writeByte(g.isEmpty() ? TWKBReader.EMPTY : 0);
+        if (g.isEmpty()) {
+            return;
+        }
+
+        lastX = 0;
+        lastY = 0;
+        switch (type) {
+        case TWKBReader.POINT:
+            writeCoordinates(((Point) g).getCoordinateSequence(), 0, false);
+            break;
+        case TWKBReader.LINESTRING:
+            writeCoordinates(((LineString) g).getCoordinateSequence(), 2, true);
+            break;
+        case TWKBReader.POLYGON:
+            writePolygon((Polygon) g);
+            break;
+        case TWKBReader.MULTIPOINT:
+            writeUnsigned(g.getNumGeometries());
+            for (int i = 0; i < g.getNumGeometries(); i++) {
+                writeCoordinates(((Point) g.getGeometryN(i)).getCoordinateSequence(), 0, false);
+            }
+            break;
+        case TWKBReader.MULTILINESTRING:
+            writeUnsigned(g.getNumGeometries());
+            for (int i = 0; i < g.getNumGeometries(); i++) {
+                writeCoordinates(((LineString) g.getGeometryN(i)).getCoordinateSequence(), 2,
+                        true);
+            }
+            break;
+        case TWKBReader.MULTIPOLYGON:
+            writeUnsigned(g.getNumGeometries());
+            for (int i = 0; i < g.getNumGeometries(); i++) {
+                writePolygon((Polygon) g.getGeometryN(i));
+            }
+            break;
+        default:
+            GeometryCollection gc = (GeometryCollection) g;
+            writeUnsigned(gc.getNumGeometries());
+            for (int i = 0; i < gc.getNumGeometries(); i++) {
+                writeGeometry(gc.getGeometryN(i));
+            }
+        }
+    }
+
+    void writePolygon(Polygon p) {
+        writeUnsigned(p.getNumInteriorRing() + 1);
+        writeCoordinates(p.getExteriorRing().getCoordinateSequence(), 4, true);
+        for (int i = 0; i < p.getNumInteriorRing(); i++) {
+            writeCoordinates(p.getInteriorRingN(i).getCoordinateSequence(), 4, true);
+        }
+    }
+
+    /**
+     * Writes a coordinate sequence, dropping the vertices that are too close to the previous
+     * one as long as at least <tt>minPoints</tt> are left
+     */
+    void writeCoordinates(CoordinateSequence cs, int minPoints, boolean writeCount) {
+        int size = cs.size();
+        long[] xy = new long[size * 2];
+        int count = 0;
+        double lx = 0, ly = 0;
+        for (int i = 0; i < size; i++) {
+            double x = cs.getOrdinate(i, 0);
+            double y = cs.getOrdinate(i, 1);
+            long qx = Math.round(x * scale);
+            long qy = Math.round(y * scale);
+            if (count > 0 && i < size - 1) {
+                if (qx == xy[count * 2 - 2] && qy == xy[count * 2 - 1]) {
+                    continue;
+                }
+                if (Math.abs(x - lx) < distance && Math.abs(y - ly) < distance) {
+                    continue;
+                }
+            }
+            xy[count * 2] = qx;
+            xy[count * 2 + 1] = qy;
+            lx = x;
+            ly = y;
+            count++;
+        }
+
+        if (count < minPoints && count < size) {
+            // reduced too much (a ring collapsing to a line), keep all vertices instead
+            count = 0;
+            for (int i = 0; i < size; i++) {
+                xy[count * 2] = Math.round(cs.getOrdinate(i, 0) * scale);
+                xy[count * 2 + 1] = Math.round(cs.getOrdinate(i, 1) * scale);
+                count++;
+            }
+        }
+
+        if (writeCount) {
+            writeUnsigned(count);
+        }
+        for (int i = 0; i < count; i++) {
+            writeSigned(xy[i * 2] - lastX);
+            writeSigned(xy[i * 2 + 1] - lastY);
+            lastX = xy[i * 2];
+            lastY = xy[i * 2 + 1];
+        }
+    }
+
+    void writeSigned(long value) {
+        writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    void writeUnsigned(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+    }
+
+    void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[pos++] = (byte) b;
+    }
+
+    void ensureCapacity(int extra) {
+        if (pos + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, pos + extra)];
+            System.arraycopy(buffer, 0, grown, 0, pos);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Encodes a geometry in the big endian Well Known Binary format, producing the same output
+ * as {@link com.vividsolutions.jts.io.WKBWriter}, without building intermediate copies of it.
+ * <p>
+ * The exact size of the encoded geometry is computed up front, so that it can be either
+ * written in a single array, or generated on demand by a stream as the JDBC driver reads it,
+ * using a small buffer that is reused for the whole geometry. Three dimensional output
+ * flags the geometry type with the extended WKB Z bit, as {@link com.vividsolutions.jts.io.WKBWriter}
+ * does.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class WKBEncoder {
+
+    static final int CHUNK_SIZE = 8192;
+
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    final int dimension;
+
+    /**
+     * The headers (byte order, type, element counts) of all the geometry parts
+     */
+    byte[] headers = new byte[64];
+
+    int headersLength;
+
+    /**
+     * The parts of the geometry, each one a header followed by an optional coordinate sequence
+     */
+    List<Part> parts = new ArrayList<Part>();
+
+    int size;
+
+    /**
+     * Prepares the two dimensional encoding of the specified geometry
+     */
+    public WKBEncoder(Geometry geometry) {
+        this(geometry, 2);
+    }
+
+    /**
+     * Prepares the encoding of the specified geometry
+     *
+     * @param dimension The output dimension, either 2 or 3
+     * @throws IllegalArgumentException if the geometry contains empty points, which cannot be
+     *         represented in WKB
+     */
+    public WKBEncoder(Geometry geometry, int dimension) {
+        if (dimension != 2 && dimension != 3) {
+            throw new IllegalArgumentException("Output dimension must be 2 or 3");
+        }
+        this.dimension = dimension;
+        add(geometry);
+    }
+
+    /**
+     * The size, in bytes, of the encoded geometry
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Encodes the geometry in a new array of the exact size
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[size];
+        new Generator().fill(bytes, 0, size);
+        return bytes;
+    }
+
+    /**
+     * Returns a stream generating the encoded geometry as it gets read, every call returns a
+     * new independent stream.
+     */
+    public InputStream getInputStream() {
+        return new WKBInputStream();
+    }
+
+    /**
+     * Appends the encoded geometry to the buffer as an hexadecimal string, without quotes or
+     * prefixes
+     */
+    public void appendHex(StringBuffer sb) {
+        sb.ensureCapacity(sb.length() + size * 2);
+        byte[] chunk = new byte[Math.min(size, CHUNK_SIZE)];
+        Generator generator = new Generator();
+        int n;
+        while ((n = generator.fill(chunk, 0, chunk.length)) > 0) {
+            for (int i = 0; i < n; i++) {
+                sb.append(HEX[(chunk[i] >> 4) & 0xF]).append(HEX[chunk[i] & 0xF]);
+            }
+        }
+    }
+
+    void add(Geometry g) {
+        if (g instanceof Point) {
+            CoordinateSequence cs = ((Point) g).getCoordinateSequence();
+            if (cs.size() == 0) {
+                throw new IllegalArgumentException("Empty Points cannot be represented in WKB");
+            }
+            addHeader(1, -1, cs);
+        } else if (g instanceof LineString) {
+            CoordinateSequence cs = ((LineString) g).getCoordinateSequence();
+            addHeader(2, cs.size(), cs);
+        } else if (g instanceof Polygon) {
+            Polygon p = (Polygon) g;
+            if (p.isEmpty()) {
+                addHeader(3, 0, null);
+            } else {
+                addHeader(3, p.getNumInteriorRing() + 1, null);
+                CoordinateSequence cs = p.getExteriorRing().getCoordinateSequence();
+                addCount(cs.size(), cs);
+                for (int i = 0; i < p.getNumInteriorRing(); i++) {
+                    cs = p.getInteriorRingN(i).getCoordinateSequence();
+                    addCount(cs.size(), cs);
+                }
+            }
+        } else if (g instanceof GeometryCollection) {
+            int type;
+            if (g instanceof MultiPoint) {
+                type = 4;
+            } else if (g instanceof MultiLineString) {
+                type = 5;
+            } else if (g instanceof MultiPolygon) {
+                type = 6;
+            } else {
+                type = 7;
+            }
+            addHeader(type, g.getNumGeometries(), null);
+            for (int i = 0; i < g.getNumGeometries(); i++) {
+                add(g.getGeometryN(i));
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type: "
+                    + g.getClass().getName());
+        }
+    }
+
+    void addHeader(int type, int count, CoordinateSequence cs) {
+        int start = headersLength;
+        ensureHeaders(9);
+        headers[headersLength++] = 0; // big endian
+        putInt(dimension == 3 ? type | 0x80000000 : type);
+        if (count >= 0) {
+            putInt(count);
+        }
+        addPart(start, cs);
+    }
+
+    void addCount(int count, CoordinateSequence cs) {
+        int start = headersLength;
+        ensureHeaders(4);
+        putInt(count);
+        addPart(start, cs);
+    }
+
+    void addPart(int start, CoordinateSequence cs) {
+        Part part = new Part();
+        part.offset = start;
+        part.length = headersLength - start;
+        part.coordinates = cs;
+        parts.add(part);
+        size += part.length;
+        if (cs != null) {
+            size += cs.size() * dimension * 8;
+        }
+    }
+
+    void ensureHeaders(int length) {
+        if (headersLength + length > headers.length) {
+            byte[] copy = new byte[Math.max(headers.length * 2, headersLength + length)];
+            System.arraycopy(headers, 0, copy, 0, headersLength);
+            headers = copy;
+        }
+    }
+
+    void putInt(int value) {
+        headers[headersLength++] = (byte) (value >> 24);
+        headers[headersLength++] = (byte) (value >> 16);
+        headers[headersLength++] = (byte) (value >> 8);
+        headers[headersLength++] = (byte) value;
+    }
+
+    static class Part {
+        int offset;
+
+        int length;
+
+        CoordinateSequence coordinates;
+    }
+
+    /**
+     * Generates the encoded geometry incrementally, keeping track of the position reached
+     */
+    class Generator {
+        int part = 0;
+
+        /**
+         * Position in the current part header, or in its coordinates once past the header
+         */
+        int position = 0;
+
+        /**
+         * Writes at most length bytes, returning the number of bytes written, or 0 if the
+         * whole geometry has been generated. Coordinates are never split, so the length must
+         * be greater than a single coordinate.
+         */
+        int fill(byte[] buffer, int offset, int length) {
+            int start = offset;
+            int end = offset + length;
+            int coordinateSize = dimension * 8;
+            while (part < parts.size()) {
+                Part p = parts.get(part);
+                if (position < p.length) {
+                    int n = Math.min(p.length - position, end - offset);
+                    System.arraycopy(headers, p.offset + position, buffer, offset, n);
+                    offset += n;
+                    position += n;
+                    if (position < p.length) {
+                        break;
+                    }
+                }
+                CoordinateSequence cs = p.coordinates;
+                int count = cs != null ? cs.size() : 0;
+                int i = position - p.length;
+                while (i < count && end - offset >= coordinateSize) {
+                    offset = putDouble(cs.getOrdinate(i, 0), buffer, offset);
+                    offset = putDouble(cs.getOrdinate(i, 1), buffer, offset);
+                    if (dimension == 3) {
+                        double z = cs.getDimension() >= 3 ? cs.getOrdinate(i, 2)
+                                : Coordinate.NULL_ORDINATE;
+                        offset = putDouble(z, buffer, offset);
+                    }
+                    i++;
+                }
+                if (i < count) {
+                    position = p.length + i;
+                    break;
+                }
+                part++;
+                position = 0;
+            }
+            return offset - start;
+        }
+
+        int putDouble(double value, byte[] buffer, int offset) {
+            long bits = Double.doubleToLongBits(value);
+            buffer[offset++] = (byte) (bits >> 56);
+            buffer[offset++] = (byte) (bits >> 48);
+            buffer[offset++] = (byte) (bits >> 40);
+            buffer[offset++] = (byte) (bits >> 32);
+            buffer[offset++] = (byte) (bits >> 24);
+            buffer[offset++] = (byte) (bits >> 16);
+            buffer[offset++] = (byte) (bits >> 8);
+            buffer[offset++] = (byte) bits;
+            return offset;
+        }
+    }
+
+    /**
+     * Stream generating the encoded geometry one chunk at a time in a reused buffer
+     */
+    class WKBInputStream extends InputStream {
+        Generator generator = new Generator();
+
+        byte[] chunk = new byte[Math.max(1, Math.min(size, CHUNK_SIZE))];
+
+        int position;
+
+        int limit;
+
+        int remaining = size;
+
+        boolean fill() {
+            if (position < limit) {
+                return true;
+            }
+            position = 0;
+            limit = generator.fill(chunk, 0, chunk.length);
+            return limit > 0;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            remaining--;
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return remaining;
+        }
+    }
+}
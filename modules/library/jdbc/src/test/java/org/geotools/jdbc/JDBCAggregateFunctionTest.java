@@ -16,12 +16,18 @@
  */
 package org.geotools.jdbc;
 
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.geotools.data.DefaultQuery;
 import org.geotools.data.Query;
+import org.geotools.feature.visitor.GroupByVisitor;
 import org.geotools.feature.visitor.MaxVisitor;
 import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.QuantileBreaksVisitor;
 import org.geotools.feature.visitor.SumVisitor;
 import org.geotools.feature.visitor.UniqueVisitor;
 import org.geotools.filter.IllegalFilterException;
@@ -281,4 +287,72 @@ public abstract class JDBCAggregateFunctionTest extends JDBCTestSupport {
         Set result = v.getResult().toSet();
         assertEquals(2, result.size());
     }
+    
+    class MyGroupByVisitor extends GroupByVisitor {
+
+        public MyGroupByVisitor(Aggregate aggregate, Expression expr, List<Expression> groupBy) {
+            super(aggregate, expr, groupBy);
+        }
+        
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+    }
+    
+    public void testGroupBy() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("intProperty") );
+        List<Expression> groupBy = Collections.singletonList((Expression) ff.property( aname("stringProperty") ));
+        
+        GroupByVisitor v = new MyGroupByVisitor(GroupByVisitor.Aggregate.COUNT, p, groupBy);
+        Filter f = ff.greater( ff.property( aname("doubleProperty") ), ff.literal(1) );
+        Query q = new Query( tname("ft1"), f);
+        dataStore.getFeatureSource(tname("ft1")).accepts(q, v, null);
+        assertFalse(visited);
+        Map<List<Object>, Object> result = v.getGroups();
+        assertEquals(2, result.size());
+        assertEquals(1l, result.get(Collections.singletonList("one")));
+        assertEquals(1l, result.get(Collections.singletonList("two")));
+    }
+    
+    class MyQuantileBreaksVisitor extends QuantileBreaksVisitor {
+
+        public MyQuantileBreaksVisitor(Expression expr, int bins) {
+            super(expr, bins);
+        }
+        
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+    }
+    
+    public void testQuantileBreaks() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("intProperty") );
+        
+        QuantileBreaksVisitor v = new MyQuantileBreaksVisitor(p, 2);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        Connection cx = dataStore.getDataSource().getConnection();
+        try {
+            assertEquals(!dataStore.getSQLDialect().isWindowFunctionSupported(cx), visited);
+        } finally {
+            cx.close();
+        }
+        List<Comparable[]> ranges = v.getRanges();
+        assertEquals(2, ranges.size());
+        assertEquals(0, ((Number) ranges.get(0)[0]).intValue());
+        assertEquals(1, ((Number) ranges.get(0)[1]).intValue());
+        assertEquals(2, ((Number) ranges.get(1)[0]).intValue());
+        assertEquals(2, ((Number) ranges.get(1)[1]).intValue());
+    }
 }
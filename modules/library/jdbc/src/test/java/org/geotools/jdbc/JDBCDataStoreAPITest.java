@@ -1703,4 +1703,36 @@ public abstract class JDBCDataStoreAPITest extends JDBCTestSupport {
 	    
 	    assertTrue(original.getNumPoints()>=simplified.getNumPoints());
 	}
+	
+	public void testQuantization() throws Exception {
+	    SimpleFeatureSource fs = dataStore.getFeatureSource(tname("road"));
+	    
+	    if (fs.getSupportedHints().contains(Hints.GEOMETRY_DISTANCE)==false)
+	        return;
+	    
+	    SimpleFeatureCollection fColl = fs.getFeatures();
+	    SimpleFeatureIterator iterator =fColl.features();
+	    Geometry original = null;
+	    if (iterator.hasNext())
+	        original = (Geometry) iterator.next().getDefaultGeometry();
+	    fColl.close(iterator);
+	    
+	    double distance = original.getEnvelope().getEnvelopeInternal().getWidth() / 10;
+	    
+	    DefaultQuery query = new DefaultQuery();
+	    query.setHints(new Hints(Hints.GEOMETRY_DISTANCE, distance));
+	    
+	    Geometry quantized = null;
+	    fColl = fs.getFeatures(query);
+	    iterator =fColl.features();
+	    if (iterator.hasNext())
+	        quantized = (Geometry) iterator.next().getDefaultGeometry();
+	    fColl.close(iterator);
+	    
+	    assertEquals(original.getGeometryType(), quantized.getGeometryType());
+	    assertTrue(original.getNumPoints()>=quantized.getNumPoints());
+	    // vertices do not move by more than the grid size
+	    assertEquals(original.getEnvelopeInternal().getMinX(), quantized.getEnvelopeInternal().getMinX(), distance);
+	    assertEquals(original.getEnvelopeInternal().getMaxY(), quantized.getEnvelopeInternal().getMaxY(), distance);
+	}
 }
@@ -16,11 +16,19 @@
  */
 package org.geotools.jdbc;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.geotools.data.DefaultQuery;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.Query;
 import org.geotools.data.Transaction;
+import org.geotools.factory.Hints;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.FilterFactory;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.vividsolutions.jts.geom.Geometry;
@@ -41,4 +49,89 @@ public abstract class JDBCFeatureReaderTest extends JDBCTestSupport {
         reader.close();
     }
 
+    public void testPrefetch() throws Exception {
+        List<String> expected = readFids(false);
+
+        // small batches, so that the features get handed over more than once
+        int fetchSize = dataStore.getFetchSize();
+        dataStore.setFetchSize(2);
+        try {
+            assertEquals(expected, readFids(true));
+        } finally {
+            dataStore.setFetchSize(fetchSize);
+        }
+    }
+
+    public void testPrefetchEarlyClose() throws Exception {
+        DefaultQuery query = new DefaultQuery( tname("ft1") );
+        query.setHints(new Hints(Hints.FEATURE_PREFETCH, Boolean.TRUE));
+        FeatureReader reader = dataStore.getFeatureReader( query, Transaction.AUTO_COMMIT );
+        assertTrue( reader.hasNext() );
+        reader.next();
+        reader.close();
+        
+        try {
+            reader.hasNext();
+            fail("The reader should have been closed");
+        } catch(IOException e) {
+            // fine
+        }
+    }
+
+    public void testPartitioned() throws Exception {
+        List<String> expected = readFids(false);
+        
+        DefaultQuery query = new DefaultQuery( tname("ft1") );
+        query.setHints(new Hints(Hints.FEATURE_PARTITIONS, 2));
+        FeatureReader reader = dataStore.getFeatureReader( query, Transaction.AUTO_COMMIT );
+        Set<String> fids = new HashSet<String>();
+        try {
+            while(reader.hasNext()) {
+                SimpleFeature feature = (SimpleFeature) reader.next();
+                assertNotNull( feature.getDefaultGeometry() );
+                assertTrue( fids.add( feature.getID() ) );
+            }
+        } finally {
+            reader.close();
+        }
+        
+        // same features, in whatever order
+        assertEquals(new HashSet<String>(expected), fids);
+    }
+
+    public void testPartitionedWithFilter() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        DefaultQuery query = new DefaultQuery( tname("ft1"), 
+                ff.greater(ff.property(aname("intProperty")), ff.literal(0)) );
+        query.setHints(new Hints(Hints.FEATURE_PARTITIONS, 3));
+        FeatureReader reader = dataStore.getFeatureReader( query, Transaction.AUTO_COMMIT );
+        int count = 0;
+        try {
+            while(reader.hasNext()) {
+                SimpleFeature feature = (SimpleFeature) reader.next();
+                assertTrue( ((Number) feature.getAttribute(aname("intProperty"))).intValue() > 0 );
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(2, count);
+    }
+
+    List<String> readFids(boolean prefetch) throws Exception {
+        DefaultQuery query = new DefaultQuery( tname("ft1") );
+        query.setHints(new Hints(Hints.FEATURE_PREFETCH, prefetch));
+        FeatureReader reader = dataStore.getFeatureReader( query, Transaction.AUTO_COMMIT );
+        List<String> fids = new ArrayList<String>();
+        try {
+            while(reader.hasNext()) {
+                SimpleFeature feature = (SimpleFeature) reader.next();
+                assertNotNull( feature.getDefaultGeometry() );
+                fids.add( feature.getID() );
+            }
+        } finally {
+            reader.close();
+        }
+        return fids;
+    }
 }
@@ -437,4 +437,48 @@ public abstract class JDBCFeatureSourceTest extends JDBCTestSupport {
         assertEquals(1, featureSource.getCount(new Query(null, f)));
     }
     
+    public void testStatementCache() throws Exception {
+        if (!(dataStore.getSQLDialect() instanceof PreparedStatementSQLDialect)) {
+            return;
+        }
+        
+        dataStore.setStatementCacheSize(10);
+        try {
+            FilterFactory ff = dataStore.getFilterFactory();
+            PreparedStatementCache cache = dataStore.getStatementCache();
+            for (int i = 0; i < 3; i++) {
+                PropertyIsEqualTo f = ff.equals(ff.property(aname("intProperty")), ff.literal(i));
+                SimpleFeatureIterator it = featureSource.getFeatures(f).features();
+                try {
+                    assertTrue(it.hasNext());
+                    assertEquals(i, ((Number) it.next().getAttribute(aname("intProperty"))).intValue());
+                    assertFalse(it.hasNext());
+                } finally {
+                    it.close();
+                }
+            }
+            // same sql, the statement is reused at least on the pooled connections already seen
+            assertEquals(3, cache.getHits() + cache.getMisses());
+            assertTrue(cache.getHits() > 0);
+        } finally {
+            dataStore.setStatementCacheSize(0);
+        }
+    }
+
+    public void testEstimatedStatistics() throws Exception {
+        Query q = new Query(tname("ft1"));
+        q.setHints(new Hints(Hints.ESTIMATED_STATISTICS, Boolean.TRUE));
+
+        // estimates may be missing or stale, but never make the results unavailable
+        assertTrue(featureSource.getCount(q) >= 0);
+        ReferencedEnvelope bounds = featureSource.getBounds(q);
+        assertNotNull(bounds);
+        assertFalse(bounds.isEmpty());
+
+        // filtered queries are always computed exactly
+        FilterFactory ff = dataStore.getFilterFactory();
+        q.setFilter(ff.equals(ff.property(aname("intProperty")), ff.literal(1)));
+        assertEquals(1, featureSource.getCount(q));
+    }
+    
 }
@@ -32,6 +32,7 @@ import org.geotools.data.FeatureReader;
 import org.geotools.data.Transaction;
 import org.geotools.data.FeatureEvent.Type;
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.Hints;
 import org.geotools.feature.AttributeTypeBuilder;
@@ -102,7 +103,52 @@ public abstract class JDBCFeatureStoreTest extends JDBCTestSupport {
             features.close(iterator);
         }
     }
-    
+
+    public void testAddFeaturesBulk() throws IOException {
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
+                featureStore.getSchema());
+
+        FeatureEventWatcher watcher = new FeatureEventWatcher();
+
+        for (int i = 3; i < 6; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            collection.add(b.buildFeature(null));
+        }
+        featureStore.addFeatureListener( watcher );
+
+        // two batches, one full and one partial
+        int threshold = dataStore.getBulkInsertThreshold();
+        dataStore.setBulkInsertThreshold(2);
+        List<FeatureId> fids;
+        try {
+            fids = featureStore.addFeatures(collection);
+        } finally {
+            dataStore.setBulkInsertThreshold(threshold);
+        }
+        assertEquals( watcher.bounds, collection.getBounds() );
+        assertEquals(3, fids.size());
+        assertEquals(3, new HashSet<FeatureId>(fids).size());
+        assertEquals(6, featureStore.getFeatures().size());
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        for (int i = 0; i < fids.size(); i++) {
+            Id filter = ff.id(Collections.singleton(fids.get(i)));
+            SimpleFeatureCollection features = featureStore.getFeatures(filter);
+            SimpleFeatureIterator iterator = features.features();
+            try {
+                assertTrue(iterator.hasNext());
+                SimpleFeature feature = iterator.next();
+                assertEquals(fids.get(i).getID(), feature.getID());
+                assertEquals(i + 3, ((Number) feature.getAttribute(aname("intProperty"))).intValue());
+                assertFalse(iterator.hasNext());
+            } finally {
+                iterator.close();
+            }
+        }
+    }
+
     public void testAddFeaturesUseProvidedFid() throws IOException {
         // check we advertise the ability to reuse feature ids
         assertTrue(featureStore.getQueryCapabilities().isUseProvidedFIDSupported());
@@ -0,0 +1,193 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public abstract class JDBCMetadataCacheTest extends JDBCTestSupport {
+
+    JDBCDataStore cachedStore;
+
+    @Override
+    protected void setUpInternal() throws Exception {
+        super.setUpInternal();
+        JDBCMetadataCache.clearCaches();
+
+        HashMap params = new HashMap();
+        params.put(JDBCDataStoreFactory.NAMESPACE.key, "http://www.geotools.org/test");
+        params.put(JDBCDataStoreFactory.SCHEMA.key, "geotools");
+        params.put(JDBCDataStoreFactory.DATASOURCE.key, setup.getDataSource());
+        params.put(JDBCDataStoreFactory.METADATA_CACHE.key, Boolean.TRUE);
+        cachedStore = setup.createDataStoreFactory().createDataStore(params);
+        setup.setUpDataStore(cachedStore);
+    }
+
+    public void testCachedFeatureType() throws Exception {
+        SimpleFeatureType cached = cachedStore.getSchema(tname("ft1"));
+        assertFeatureTypesEqual(dataStore.getSchema(tname("ft1")), cached);
+
+        Connection cx = cachedStore.getDataSource().getConnection();
+        try {
+            JDBCMetadataCache cache = cachedStore.getMetadataCache(cx);
+            assertNotNull(cache.getColumns(tname("ft1")));
+            assertNotNull(cache.getPrimaryKey(cachedStore.getPrimaryKeyFinder(), tname("ft1")));
+            // the other tables have been loaded as well
+            assertNotNull(cache.getColumns(tname("ft2")));
+            assertSame(cache, JDBCMetadataCache.getCache(cx, cachedStore.getDatabaseSchema(), null));
+        } finally {
+            cx.close();
+        }
+    }
+
+    public void testExpiry() throws Exception {
+        Connection cx = cachedStore.getDataSource().getConnection();
+        try {
+            JDBCMetadataCache cache = cachedStore.getMetadataCache(cx);
+            if (cachedStore.getSQLDialect().getSchemaVersion(cachedStore.getDatabaseSchema(),
+                    cx) != null) {
+                // validated against the schema version instead
+                return;
+            }
+            List<ColumnMetadata> columns = cache.getColumns(tname("ft1"));
+            cache.putColumns("notThere", columns);
+            assertSame(cache, cachedStore.getMetadataCache(cx));
+            assertNotNull(cache.getColumns("notThere"));
+
+            // expired, reloaded on next access even if the check interval did not elapse
+            cache.setExpiry(0);
+            assertSame(cache, cachedStore.getMetadataCache(cx));
+            assertNull(cache.getColumns("notThere"));
+            assertNotNull(cache.getColumns(tname("ft1")));
+        } finally {
+            cx.close();
+        }
+    }
+
+    public void testCheckInterval() throws Exception {
+        Connection cx = cachedStore.getDataSource().getConnection();
+        try {
+            JDBCMetadataCache cache = cachedStore.getMetadataCache(cx);
+            List<ColumnMetadata> columns = cache.getColumns(tname("ft1"));
+            cache.putColumns("notThere", columns);
+            boolean versioned = cache.version != null;
+            if (versioned) {
+                cache.version = "stale";
+            }
+
+            // not checked again before the interval elapses
+            assertSame(cache, cachedStore.getMetadataCache(cx));
+            assertNotNull(cache.getColumns("notThere"));
+            cachedStore.setMetadataCacheCheckInterval(-1);
+            assertSame(cache, cachedStore.getMetadataCache(cx));
+            assertNotNull(cache.getColumns("notThere"));
+
+            if (versioned) {
+                // the version changed, reloaded once checked
+                cachedStore.setMetadataCacheCheckInterval(0);
+                assertSame(cache, cachedStore.getMetadataCache(cx));
+                assertNull(cache.getColumns("notThere"));
+                assertNotNull(cache.getColumns(tname("ft1")));
+                assertFalse("stale".equals(cache.version));
+            }
+        } finally {
+            cx.close();
+        }
+    }
+
+    public void testPrimaryKeysByFinder() throws Exception {
+        cachedStore.getSchema(tname("ft1"));
+
+        HashMap params = new HashMap();
+        params.put(JDBCDataStoreFactory.NAMESPACE.key, "http://www.geotools.org/test");
+        params.put(JDBCDataStoreFactory.SCHEMA.key, "geotools");
+        params.put(JDBCDataStoreFactory.DATASOURCE.key, setup.getDataSource());
+        params.put(JDBCDataStoreFactory.METADATA_CACHE.key, Boolean.TRUE);
+        JDBCDataStore other = setup.createDataStoreFactory().createDataStore(params);
+        setup.setUpDataStore(other);
+        PrimaryKeyFinder finder = new PrimaryKeyFinder() {
+            @Override
+            public PrimaryKey getPrimaryKey(JDBCDataStore store, String schema, String table,
+                    Connection cx) throws SQLException {
+                return null;
+            }
+        };
+        other.setPrimaryKeyFinder(finder);
+        other.getSchema(tname("ft1"));
+
+        Connection cx = cachedStore.getDataSource().getConnection();
+        try {
+            // same shared cache, but the primary keys depend on the finder
+            JDBCMetadataCache cache = cachedStore.getMetadataCache(cx);
+            assertSame(cache, other.getMetadataCache(cx));
+            assertFalse(cache.getPrimaryKey(cachedStore.getPrimaryKeyFinder(), tname("ft1"))
+                    instanceof NullPrimaryKey);
+            assertTrue(cache.getPrimaryKey(finder, tname("ft1")) instanceof NullPrimaryKey);
+        } finally {
+            cx.close();
+            other.dispose();
+        }
+    }
+
+    public void testPersistence() throws Exception {
+        cachedStore.getSchema(tname("ft1"));
+        File file = File.createTempFile("metadata", ".cache");
+        Connection cx = cachedStore.getDataSource().getConnection();
+        try {
+            JDBCMetadataCache cache = cachedStore.getMetadataCache(cx);
+            cache.file = file;
+            cache.version = "1";
+            cache.dirty = true;
+            cache.save();
+
+            JDBCMetadataCache copy = new JDBCMetadataCache(cache.key);
+            copy.file = file;
+            assertFalse(copy.read("2"));
+            assertTrue(copy.read("1"));
+
+            List<ColumnMetadata> expected = cache.getColumns(tname("ft1"));
+            List<ColumnMetadata> actual = copy.getColumns(tname("ft1"));
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getName(), actual.get(i).getName());
+                assertEquals(expected.get(i).getBinding(), actual.get(i).getBinding());
+                assertEquals(expected.get(i).getSrid(), actual.get(i).getSrid());
+                assertEquals(expected.get(i).isNullable(), actual.get(i).isNullable());
+            }
+
+            PrimaryKeyFinder finder = cachedStore.getPrimaryKeyFinder();
+            PrimaryKey key = copy.getPrimaryKey(finder, tname("ft1"));
+            assertEquals(cache.getPrimaryKey(finder, tname("ft1")).getColumns().size(), key
+                    .getColumns().size());
+            assertEquals(cache.getPrimaryKey(finder, tname("ft1")).getColumns().get(0)
+                    .getClass(), key.getColumns().get(0).getClass());
+        } finally {
+            cx.close();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import junit.framework.TestCase;
+
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class TWKBWriterTest extends TestCase {
+
+    WKTReader wkt = new WKTReader();
+
+    public void testPrecision() {
+        assertEquals(0, TWKBWriter.getPrecision(1));
+        assertEquals(1, TWKBWriter.getPrecision(0.37));
+        assertEquals(2, TWKBWriter.getPrecision(0.01));
+        assertEquals(-2, TWKBWriter.getPrecision(250));
+        assertEquals(7, TWKBWriter.getPrecision(0));
+    }
+
+    public void testRoundTrip() throws Exception {
+        String[] geometries = { "POINT(1.5 -2.25)", "LINESTRING(0 0, 10 10, 20 0)",
+                "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2))",
+                "MULTIPOINT((0 0), (1 1))",
+                "MULTILINESTRING((0 0, 1 1), (2 2, 3 3))",
+                "MULTIPOLYGON(((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+                "GEOMETRYCOLLECTION(POINT(1 1), LINESTRING(0 0, 5 5))",
+                "LINESTRING EMPTY" };
+        TWKBReader reader = new TWKBReader(new GeometryFactory());
+        for (String g : geometries) {
+            Geometry original = wkt.read(g);
+            Geometry decoded = reader.read(new TWKBWriter(0.01).write(original));
+            assertTrue(g, original.equalsExact(decoded));
+        }
+    }
+
+    public void testQuantization() throws Exception {
+        LineString line = (LineString) wkt.read("LINESTRING(0 0, 0.2 0.1, 0.4 0.1, 1.3 1.2, 2 2)");
+        GeometryFactory gf = new GeometryFactory(new LiteCoordinateSequenceFactory());
+        LineString decoded = (LineString) new TWKBReader(gf).read(new TWKBWriter(1).write(line));
+
+        // vertices closer than the resolution are gone, the end points are preserved
+        assertTrue(decoded.getCoordinateSequence() instanceof LiteCoordinateSequence);
+        assertEquals(3, decoded.getNumPoints());
+        assertEquals(0, decoded.getCoordinateN(0).x, 0d);
+        assertEquals(1, decoded.getCoordinateN(1).x, 0d);
+        assertEquals(2, decoded.getCoordinateN(2).x, 0d);
+    }
+
+    public void testRingPreserved() throws Exception {
+        Polygon p = (Polygon) wkt.read("POLYGON((0 0, 0.1 0, 0.1 0.1, 0 0.1, 0 0))");
+        Polygon decoded = (Polygon) new TWKBReader(new GeometryFactory()).read(new TWKBWriter(1)
+                .write(p));
+        // too small to be thinned, still a valid ring
+        assertEquals(5, decoded.getExteriorRing().getNumPoints());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class WKBEncoderTest extends TestCase {
+
+    WKTReader wkt = new WKTReader();
+
+    public void testSameAsWKBWriter() throws Exception {
+        String[] geometries = { "POINT(1.5 -2.25)", "LINESTRING(0 0, 10 10, 20 0)",
+                "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2))",
+                "MULTIPOINT((0 0), (1 1))", "MULTILINESTRING((0 0, 1 1), (2 2, 3 3))",
+                "MULTIPOLYGON(((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+                "GEOMETRYCOLLECTION(POINT(1 1), LINESTRING(0 0, 5 5))", "LINESTRING EMPTY",
+                "POLYGON((0 0 1, 10 0 2, 10 10 3, 0 0 1))" };
+        for (String g : geometries) {
+            Geometry geometry = wkt.read(g);
+            for (int dimension = 2; dimension <= 3; dimension++) {
+                byte[] expected = new WKBWriter(dimension).write(geometry);
+                WKBEncoder encoder = new WKBEncoder(geometry, dimension);
+                assertEquals(g, expected.length, encoder.getSize());
+                assertTrue(g, Arrays.equals(expected, encoder.toByteArray()));
+                assertTrue(g, Arrays.equals(expected, read(encoder.getInputStream())));
+            }
+        }
+    }
+
+    public void testStreamLargeGeometry() throws Exception {
+        Coordinate[] coordinates = new Coordinate[10001];
+        for (int i = 0; i < coordinates.length - 1; i++) {
+            double angle = Math.PI * 2 * i / (coordinates.length - 1);
+            coordinates[i] = new Coordinate(Math.cos(angle), Math.sin(angle));
+        }
+        coordinates[coordinates.length - 1] = coordinates[0];
+        GeometryFactory gf = new GeometryFactory();
+        Geometry polygon = gf.createPolygon(gf.createLinearRing(coordinates), null);
+
+        byte[] expected = new WKBWriter().write(polygon);
+        WKBEncoder encoder = new WKBEncoder(polygon);
+        assertTrue(encoder.getSize() > WKBEncoder.CHUNK_SIZE);
+        assertTrue(Arrays.equals(expected, read(encoder.getInputStream())));
+
+        StringBuffer sb = new StringBuffer();
+        encoder.appendHex(sb);
+        assertEquals(expected.length * 2, sb.length());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], (byte) Integer.parseInt(sb.substring(i * 2, i * 2 + 2), 16));
+        }
+    }
+
+    byte[] read(InputStream is) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int n;
+        while ((n = is.read(buffer)) > 0) {
+            bos.write(buffer, 0, n);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * Computes an aggregate for each group of features sharing the same values of a list of
+ * expressions, like the SQL <code>GROUP BY</code> clause.
+ * <p>
+ * The result maps the list of grouping values of each group to its aggregate. As in SQL, null
+ * values of the aggregated expression are ignored, while null grouping values form a group of
+ * their own. Counting the features grouped by the counted expression gives the unique values
+ * along with their number of occurrences.
+ * </p>
+ * <p>
+ * Stores able to compute the groups natively set them with {@link #setGroups(Map)}.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class GroupByVisitor implements FeatureCalc {
+
+    /**
+     * The aggregates that can be computed for each group
+     */
+    public enum Aggregate {
+        COUNT, SUM, MIN, MAX, AVERAGE
+    }
+
+    final Aggregate aggregate;
+
+    final Expression expression;
+
+    final List<Expression> groupBy;
+
+    /**
+     * The aggregate values, the sums in case of averages
+     */
+    Map<List<Object>, Object> groups = new LinkedHashMap<List<Object>, Object>();
+
+    /**
+     * The number of values in each group, used to compute the averages
+     */
+    Map<List<Object>, Long> counts = new HashMap<List<Object>, Long>();
+
+    /**
+     * The groups computed by a store
+     */
+    Map<List<Object>, Object> computed;
+
+    /**
+     * Builds a new visitor
+     *
+     * @param aggregate The aggregate to compute
+     * @param expression The aggregated expression, can be null when counting features
+     * @param groupBy The grouping expressions
+     */
+    public GroupByVisitor(Aggregate aggregate, Expression expression, List<Expression> groupBy) {
+        if (aggregate == null) {
+            throw new IllegalArgumentException("The aggregate must be specified");
+        }
+        if (expression == null && aggregate != Aggregate.COUNT) {
+            throw new IllegalArgumentException("Only counts can be computed without expression");
+        }
+        if (groupBy == null || groupBy.isEmpty()) {
+            throw new IllegalArgumentException("At least one grouping expression is required");
+        }
+        this.aggregate = aggregate;
+        this.expression = expression;
+        this.groupBy = new ArrayList<Expression>(groupBy);
+    }
+
+    public Aggregate getAggregate() {
+        return aggregate;
+    }
+
+    /**
+     * The aggregated expression, or null if features are counted
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    public List<Expression> getGroupBy() {
+        return Collections.unmodifiableList(groupBy);
+    }
+
+    public void init(SimpleFeatureCollection collection) {
+        // do nothing
+    }
+
+    public void visit(SimpleFeature feature) {
+        visit((Feature) feature);
+    }
+
+    public void visit(Feature feature) {
+        List<Object> key = new ArrayList<Object>(groupBy.size());
+        for (Expression e : groupBy) {
+            key.add(e.evaluate(feature));
+        }
+
+        Object value = expression != null ? expression.evaluate(feature) : Boolean.TRUE;
+        Object current = groups.get(key);
+        if (value == null) {
+            // the group exists even if it has no values
+            if (!groups.containsKey(key)) {
+                groups.put(key, aggregate == Aggregate.COUNT ? new Long(0) : null);
+            }
+            return;
+        }
+
+        switch (aggregate) {
+        case COUNT:
+            groups.put(key, current == null ? 1 : ((Long) current) + 1);
+            break;
+        case SUM:
+            groups.put(key, add((Number) current, (Number) value));
+            break;
+        case AVERAGE:
+            groups.put(key, add((Number) current, (Number) value));
+            Long count = counts.get(key);
+            counts.put(key, count == null ? 1 : count + 1);
+            break;
+        case MIN:
+            if (current == null || ((Comparable) value).compareTo(current) < 0) {
+                groups.put(key, value);
+            }
+            break;
+        case MAX:
+            if (current == null || ((Comparable) value).compareTo(current) > 0) {
+                groups.put(key, value);
+            }
+            break;
+        }
+    }
+
+    /**
+     * Sums two numbers, keeping integral sums as longs
+     */
+    Number add(Number sum, Number value) {
+        boolean integral = isIntegral(value) && (sum == null || isIntegral(sum));
+        if (integral) {
+            return (sum == null ? 0 : sum.longValue()) + value.longValue();
+        }
+        return (sum == null ? 0 : sum.doubleValue()) + value.doubleValue();
+    }
+
+    boolean isIntegral(Number n) {
+        return n instanceof Long || n instanceof Integer || n instanceof Short
+                || n instanceof Byte;
+    }
+
+    /**
+     * Returns the aggregate of each group, keyed by the list of its grouping values
+     */
+    public Map<List<Object>, Object> getGroups() {
+        if (computed != null) {
+            return computed;
+        }
+        if (aggregate != Aggregate.AVERAGE) {
+            return groups;
+        }
+
+        Map<List<Object>, Object> averages = new LinkedHashMap<List<Object>, Object>();
+        for (Map.Entry<List<Object>, Object> entry : groups.entrySet()) {
+            Number sum = (Number) entry.getValue();
+            Long count = counts.get(entry.getKey());
+            averages.put(entry.getKey(), sum == null ? null : sum.doubleValue() / count);
+        }
+        return averages;
+    }
+
+    /**
+     * Sets the aggregate of each group, computed by other means than visiting the features
+     */
+    public void setGroups(Map<List<Object>, Object> groups) {
+        this.computed = groups;
+    }
+
+    public void reset() {
+        this.groups = new LinkedHashMap<List<Object>, Object>();
+        this.counts = new HashMap<List<Object>, Long>();
+        this.computed = null;
+    }
+
+    public CalcResult getResult() {
+        final Map<List<Object>, Object> result = getGroups();
+        if (result.isEmpty()) {
+            return CalcResult.NULL_RESULT;
+        }
+        return new AbstractCalcResult() {
+            public Object getValue() {
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * Computes the smallest and largest value of each class of a quantile classification, that
+ * is, of the classes of equal size the sorted values can be split into.
+ * <p>
+ * The classes are the same as the ones built by {@link QuantileListVisitor}, the first classes
+ * holding one more value when the values cannot be split evenly, but only their ranges are
+ * kept. Null, NaN and infinite values are ignored.
+ * </p>
+ * <p>
+ * Stores able to compute the ranges natively set them with {@link #setRanges(List)}.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class QuantileBreaksVisitor implements FeatureCalc {
+
+    final Expression expr;
+
+    final int bins;
+
+    List<Comparable> items = new ArrayList<Comparable>();
+
+    List<Comparable[]> ranges;
+
+    public QuantileBreaksVisitor(Expression expr, int bins) {
+        this.expr = expr;
+        this.bins = bins;
+    }
+
+    public Expression getExpression() {
+        return expr;
+    }
+
+    /**
+     * The number of classes
+     */
+    public int getBins() {
+        return bins;
+    }
+
+    public void init(SimpleFeatureCollection collection) {
+        // do nothing
+    }
+
+    public void visit(SimpleFeature feature) {
+        visit((Feature) feature);
+    }
+
+    public void visit(Feature feature) {
+        Object value = expr.evaluate(feature);
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Double) {
+            double d = ((Double) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                return;
+            }
+        }
+        items.add((Comparable) value);
+        ranges = null;
+    }
+
+    /**
+     * Returns the smallest and largest value of each class, there are less classes than
+     * requested if there are less values than classes
+     */
+    public List<Comparable[]> getRanges() {
+        if (ranges == null) {
+            ranges = computeRanges();
+        }
+        return ranges;
+    }
+
+    List<Comparable[]> computeRanges() {
+        List<Comparable[]> result = new ArrayList<Comparable[]>();
+        int count = items.size();
+        if (bins <= 0 || count == 0) {
+            return result;
+        }
+        Collections.sort(items);
+
+        int classes = Math.min(bins, count);
+        int small = count / classes;
+        int big = count % classes;
+        int start = 0;
+        for (int i = 0; i < classes; i++) {
+            int size = i < big ? small + 1 : small;
+            result.add(new Comparable[] { items.get(start), items.get(start + size - 1) });
+            start += size;
+        }
+        return result;
+    }
+
+    /**
+     * Sets the ranges of the classes, computed by other means than visiting the features
+     */
+    public void setRanges(List<Comparable[]> ranges) {
+        this.ranges = ranges;
+    }
+
+    public void reset() {
+        this.items = new ArrayList<Comparable>();
+        this.ranges = null;
+    }
+
+    public CalcResult getResult() {
+        final List<Comparable[]> result = getRanges();
+        if (result.isEmpty()) {
+            return CalcResult.NULL_RESULT;
+        }
+        return new AbstractCalcResult() {
+            public Object getValue() {
+                return result;
+            }
+        };
+    }
+}
@@ -17,15 +17,19 @@
 
 package org.geotools.filter.function;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.feature.FeatureCollection;
-import org.opengis.feature.simple.SimpleFeature;
+import org.geotools.feature.visitor.GroupByVisitor;
+import org.geotools.feature.visitor.GroupByVisitor.Aggregate;
+import org.geotools.util.NullProgressListener;
 import org.geotools.util.logging.Logging;
 
 /**
@@ -75,17 +79,32 @@ public class JenksNaturalBreaksFunction extends ClassificationFunction {
      * @return a RangedClassifier
      */
     private Object calculate(SimpleFeatureCollection featureCollection) {
-        SimpleFeatureIterator features = featureCollection.features();
+        // gather the distinct values along with their number of occurrences, stores can compute
+        // them natively instead of returning all the features
+        GroupByVisitor visitor = new GroupByVisitor(Aggregate.COUNT, getExpression(), Collections
+                .singletonList(getExpression()));
+        if (progress == null) progress = new NullProgressListener();
+        try {
+            featureCollection.accepts(visitor, progress);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "JenksNaturalBreaksFunction calculate(SimpleFeatureCollection) failed", e);
+            return null;
+        }
+        if (progress.isCanceled()) return null;
+
         ArrayList<Double> data = new ArrayList<Double>();
         try {
-            while (features.hasNext()) {
-                SimpleFeature feature = features.next();
-                final Object result = getExpression().evaluate(feature);
+            for (Map.Entry<List<Object>, Object> entry : visitor.getGroups().entrySet()) {
+                final Object result = entry.getKey().get(0);
                 logger.finest("importing " + result);
                 if (result != null) {
                     final Double e = new Double(result.toString());
-                    if (!e.isInfinite() && !e.isNaN())
-                        data.add(e);
+                    if (!e.isInfinite() && !e.isNaN()) {
+                        long count = ((Number) entry.getValue()).longValue();
+                        for (long i = 0; i < count; i++) {
+                            data.add(e);
+                        }
+                    }
                 }
             }
         } catch (NumberFormatException e) {
@@ -26,6 +26,7 @@ import java.util.logging.Level;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.QuantileBreaksVisitor;
 import org.geotools.feature.visitor.QuantileListVisitor;
 import org.geotools.util.NullProgressListener;
 
@@ -46,9 +47,30 @@ public class QuantileFunction extends ClassificationFunction {
     }
     
 	private Object calculate(SimpleFeatureCollection featureCollection) {
+		if (progress == null) progress = new NullProgressListener();
+		// the class ranges are enough for numbers, and stores can compute them natively
+		QuantileBreaksVisitor breaksVisit = new QuantileBreaksVisitor(getExpression(), getClasses());
+		try {
+		    featureCollection.accepts(breaksVisit, progress);
+		} catch (IOException e) {
+		    LOGGER.log(Level.SEVERE, "QuantileFunction calculate(SimpleFeatureCollection) failed" , e);
+		    return null;
+		}
+		if (progress.isCanceled()) return null;
+		List<Comparable[]> ranges = breaksVisit.getRanges();
+		if (ranges == null || ranges.isEmpty()) {
+		    return null;
+		}
+		
+		//generate the min and max values, and round off if applicable/necessary
+		Comparable globalMin = ranges.get(0)[0];
+		Comparable globalMax = ranges.get(ranges.size() - 1)[1];
+		if ((globalMin instanceof Number) && (globalMax instanceof Number)) {
+		    return calculateNumerical(ranges, globalMin, globalMax);
+		}
+		
 		// use a visitor to find the values in each bin
 		QuantileListVisitor quantileVisit = new QuantileListVisitor(getExpression(), getClasses());
-		if (progress == null) progress = new NullProgressListener();
 		try {
             featureCollection.accepts(quantileVisit, progress);
         } catch (IOException e) {
@@ -57,26 +79,13 @@ public class QuantileFunction extends ClassificationFunction {
         }
 		if (progress.isCanceled()) return null;
 		CalcResult calcResult = quantileVisit.getResult();
-		if (calcResult == null) return null;
+		if (calcResult == null || calcResult.getValue() == null) return null;
         List[] bin = (List[]) calcResult.getValue();
-		
-		//generate the min and max values, and round off if applicable/necessary
-		Comparable globalMin = (Comparable) bin[0].toArray()[0];
-        Object lastBin[] = bin[bin.length-1].toArray(); 
-		if (lastBin.length == 0) {
-		    return null;
-        }
-		Comparable globalMax = (Comparable) lastBin[lastBin.length-1];
-	
-		if ((globalMin instanceof Number) && (globalMax instanceof Number)) {
-            return calculateNumerical(bin, globalMin, globalMax);
-		} else {
-            return calculateNonNumerical(bin);
-		}
+        return calculateNonNumerical(bin);
 	}
     
-    private Object calculateNumerical(List[] bin, Comparable globalMin, Comparable globalMax) {
-        int classNum = bin.length;
+    private Object calculateNumerical(List<Comparable[]> ranges, Comparable globalMin, Comparable globalMax) {
+        int classNum = ranges.size();
         //size arrays
         Comparable[] localMin = new Comparable[classNum];
         Comparable[] localMax = new Comparable[classNum];
@@ -84,9 +93,8 @@ public class QuantileFunction extends ClassificationFunction {
         //double slotWidth = (((Number) globalMax).doubleValue() - ((Number) globalMin).doubleValue()) / classNum;
         for (int i = 0; i < classNum; i++) {
             //copy the min + max values
-            List thisBin = bin[i];
-            localMin[i] = (Comparable) thisBin.get(0);
-            localMax[i] = (Comparable) thisBin.get(thisBin.size()-1);
+            localMin[i] = ranges.get(i)[0];
+            localMax[i] = ranges.get(i)[1];
             //locally accurate
             double slotWidth = ((Number) localMax[i]).doubleValue() - ((Number) localMin[i]).doubleValue();
             if (slotWidth == 0.0) { //use global value, as there is only 1 value in this set
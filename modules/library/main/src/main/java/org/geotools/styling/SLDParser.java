@@ -260,6 +260,14 @@ public class SLDParser {
         source = new InputSource(in);
     }
 
+    /**
+     * Sets the url used to resolve the relative online resources of an SLD read from a
+     * stream or a reader
+     */
+    void setSourceUrl(URL sourceUrl) {
+        this.sourceUrl = sourceUrl;
+    }
+
     /**
      * Sets the input stream to read the SLD from
      * 
@@ -0,0 +1,194 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.styling;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.util.SoftValueHashMap;
+
+/**
+ * Caches the styles parsed out of SLD documents, so that the same document is parsed only once
+ * no matter how many times it is requested.
+ * <p>
+ * Documents are identified by the SHA-1 hash of their contents, along with the url relative
+ * online resources are resolved against, if any. Parsed styles are kept as long as there is no
+ * memory shortage.
+ * </p>
+ * <p>
+ * The same style instances are returned for the same document, so that the caches of the
+ * renderer, which look up symbolizers and expressions by identity, keep working across
+ * requests: the returned styles are shared and must not be modified, use a
+ * {@link org.geotools.styling.visitor.DuplicatingStyleVisitor} to get a copy that can be.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class StyleDocumentCache {
+
+    private static StyleDocumentCache defaultCache;
+
+    private final StyleFactory factory;
+
+    private final Map<String, Style[]> styles = new SoftValueHashMap<String, Style[]>();
+
+    private long hits;
+
+    private long requests;
+
+    /**
+     * @param factory
+     *            The factory used to build the styles
+     */
+    public StyleDocumentCache(StyleFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the cache shared by the whole application, building styles with the default style
+     * factory
+     */
+    public static synchronized StyleDocumentCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new StyleDocumentCache(CommonFactoryFinder.getStyleFactory(null));
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Returns the styles of the document read from the url, against which relative online
+     * resources are resolved
+     */
+    public Style[] getStyles(URL url) throws IOException {
+        InputStream in = url.openStream();
+        try {
+            return getStyles(in, url);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the styles of the document read from the stream, which is not closed
+     *
+     * @param sourceUrl
+     *            The url relative online resources are resolved against, may be
+     *            <code>null</code>
+     */
+    public Style[] getStyles(InputStream in, URL sourceUrl) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return getStyles(out.toByteArray(), sourceUrl);
+    }
+
+    /**
+     * Returns the styles of the document
+     *
+     * @param sourceUrl
+     *            The url relative online resources are resolved against, may be
+     *            <code>null</code>
+     * @throws RuntimeException
+     *             If the document cannot be parsed, as {@link SLDParser#readXML()} does
+     */
+    public Style[] getStyles(byte[] document, URL sourceUrl) {
+        String key = hash(document);
+        if (sourceUrl != null) {
+            key += "@" + sourceUrl.toExternalForm();
+        }
+
+        Style[] cached;
+        synchronized (this) {
+            requests++;
+            cached = styles.get(key);
+            if (cached != null) {
+                hits++;
+            }
+        }
+
+        if (cached == null) {
+            // parse outside of the lock, at worst the same document is parsed twice
+            SLDParser parser = new SLDParser(factory, new ByteArrayInputStream(document));
+            parser.setSourceUrl(sourceUrl);
+            cached = parser.readXML();
+            synchronized (this) {
+                Style[] other = styles.get(key);
+                if (other != null) {
+                    cached = other;
+                } else {
+                    styles.put(key, cached);
+                }
+            }
+        }
+        return cached.clone();
+    }
+
+    /**
+     * Discards the cached styles, the statistics are kept
+     */
+    public synchronized void clear() {
+        styles.clear();
+    }
+
+    /**
+     * Returns the ratio between the documents found in the cache and the requested ones, 0 if
+     * no document has been requested yet
+     */
+    public synchronized double getHitRatio() {
+        if (requests == 0) {
+            return 0;
+        }
+        return (double) hits / (double) requests;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    static String hash(byte[] document) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(document);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
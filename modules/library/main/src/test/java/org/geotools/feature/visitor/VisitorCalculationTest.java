@@ -18,8 +18,10 @@ package org.geotools.feature.visitor;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.geotools.data.DataTestCase;
@@ -414,6 +416,68 @@ public class VisitorCalculationTest extends DataTestCase {
         assertSame(result, result.merge(emptyVisitor.getResult()));
     }
 
+    public void testQuantileBreaks() throws Exception {
+        FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
+        Expression expr = factory.property(ft3.getDescriptor(0).getLocalName());
+        QuantileBreaksVisitor visitor = new QuantileBreaksVisitor(expr, 3);
+        fc3.accepts(visitor, null);
+        List<Comparable[]> ranges = visitor.getRanges();
+        // same classes as the quantile list, 34, 33 and 33 values
+        QuantileListVisitor listVisitor = new QuantileListVisitor(expr, 3);
+        fc3.accepts(listVisitor, null);
+        List[] bins = (List[]) listVisitor.getResult().getValue();
+        assertEquals(bins.length, ranges.size());
+        for (int i = 0; i < bins.length; i++) {
+            assertEquals(bins[i].get(0), ranges.get(i)[0]);
+            assertEquals(bins[i].get(bins[i].size() - 1), ranges.get(i)[1]);
+        }
+        assertEquals(34, ranges.get(0)[1]);
+        assertEquals(68, ranges.get(2)[0]);
+        //test empty collection
+        QuantileBreaksVisitor emptyVisitor = new QuantileBreaksVisitor(expr, 3);
+        empty.accepts(emptyVisitor, null);
+        assertEquals(CalcResult.NULL_RESULT, emptyVisitor.getResult());
+    }
+
+    public void testGroupBy() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("groups", "group:String,value:Integer");
+        SimpleFeatureCollection groups = DataUtilities.collection(new SimpleFeature[] {
+                SimpleFeatureBuilder.build(type, new Object[] { "a", 1 }, null),
+                SimpleFeatureBuilder.build(type, new Object[] { "a", 3 }, null),
+                SimpleFeatureBuilder.build(type, new Object[] { "b", 5 }, null),
+                SimpleFeatureBuilder.build(type, new Object[] { "b", null }, null),
+                SimpleFeatureBuilder.build(type, new Object[] { null, 2 }, null) });
+        FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
+        Expression value = factory.property("value");
+        List<Expression> groupBy = Collections.singletonList((Expression) factory.property("group"));
+        
+        GroupByVisitor visitor = new GroupByVisitor(GroupByVisitor.Aggregate.COUNT, value, groupBy);
+        groups.accepts(visitor, null);
+        Map<List<Object>, Object> result = visitor.getGroups();
+        assertEquals(3, result.size());
+        assertEquals(2l, result.get(Collections.singletonList("a")));
+        assertEquals(1l, result.get(Collections.singletonList("b")));
+        assertEquals(1l, result.get(Collections.singletonList(null)));
+        
+        visitor = new GroupByVisitor(GroupByVisitor.Aggregate.SUM, value, groupBy);
+        groups.accepts(visitor, null);
+        assertEquals(4l, visitor.getGroups().get(Collections.singletonList("a")));
+        
+        visitor = new GroupByVisitor(GroupByVisitor.Aggregate.AVERAGE, value, groupBy);
+        groups.accepts(visitor, null);
+        assertEquals(2d, visitor.getGroups().get(Collections.singletonList("a")));
+        assertEquals(5d, visitor.getGroups().get(Collections.singletonList("b")));
+        
+        visitor = new GroupByVisitor(GroupByVisitor.Aggregate.MAX, value, groupBy);
+        groups.accepts(visitor, null);
+        assertEquals(3, visitor.getGroups().get(Collections.singletonList("a")));
+        
+        //test empty collection
+        visitor.reset();
+        empty.accepts(visitor, null);
+        assertEquals(CalcResult.NULL_RESULT, visitor.getResult());
+    }
+
     public void testStandardDeviation() throws Exception {
     	FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
     	Expression expr = factory.property(ft3.getDescriptor(0).getLocalName());
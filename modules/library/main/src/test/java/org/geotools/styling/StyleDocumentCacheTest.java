@@ -0,0 +1,81 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.styling;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+
+import junit.framework.TestCase;
+
+import org.geotools.factory.CommonFactoryFinder;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class StyleDocumentCacheTest extends TestCase {
+
+    StyleDocumentCache cache = new StyleDocumentCache(CommonFactoryFinder.getStyleFactory(null));
+
+    public void testHitRatioBeforeRequests() throws Exception {
+        assertEquals(0, cache.getRequests());
+        assertEquals(0d, cache.getHitRatio(), 0d);
+    }
+
+    public void testSameDocumentParsedOnce() throws Exception {
+        Style[] styles = cache.getStyles(SLDParserTest.SLD.getBytes(), null);
+        assertEquals(1, styles.length);
+        assertEquals("style", styles[0].getName());
+
+        Style[] again = cache.getStyles(new ByteArrayInputStream(SLDParserTest.SLD.getBytes()),
+                null);
+        assertEquals(1, again.length);
+        assertSame(styles[0], again[0]);
+        // the arrays are not shared
+        assertNotSame(styles, again);
+
+        assertEquals(2, cache.getRequests());
+        assertEquals(1, cache.getHits());
+        assertEquals(0.5, cache.getHitRatio(), 0d);
+    }
+
+    public void testDifferentDocuments() throws Exception {
+        Style[] styles = cache.getStyles(SLDParserTest.SLD.getBytes(), null);
+        String other = SLDParserTest.SLD.replace("<Name>style</Name>", "<Name>other</Name>");
+        Style[] otherStyles = cache.getStyles(other.getBytes(), null);
+        assertEquals("other", otherStyles[0].getName());
+        assertNotSame(styles[0], otherStyles[0]);
+        assertEquals(0, cache.getHits());
+    }
+
+    public void testSourceUrlIsPartOfTheKey() throws Exception {
+        byte[] document = SLDParserTest.SLD.getBytes();
+        Style[] styles = cache.getStyles(document, new URL("http://example.com/a/style.sld"));
+        Style[] other = cache.getStyles(document, new URL("http://example.com/b/style.sld"));
+        assertNotSame(styles[0], other[0]);
+        assertSame(other[0], cache.getStyles(document, new URL("http://example.com/b/style.sld"))[0]);
+    }
+
+    public void testClear() throws Exception {
+        Style[] styles = cache.getStyles(SLDParserTest.SLD.getBytes(), null);
+        cache.clear();
+        assertNotSame(styles[0], cache.getStyles(SLDParserTest.SLD.getBytes(), null)[0]);
+        assertEquals(2, cache.getRequests());
+        assertEquals(0, cache.getHits());
+    }
+}
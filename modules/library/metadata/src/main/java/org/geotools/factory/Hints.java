@@ -562,6 +562,34 @@ public class Hints extends RenderingHints {
      */
     public static final Key FEATURE_DETACHED = new Key(Boolean.class);
 
+    /**
+     * Asks the data store to read and decode the features in a background thread while they are
+     * being consumed, so that fetching them overlaps with processing them. Data stores not
+     * supporting it just ignore the hint.
+     *
+     * @since 2.8
+     */
+    public static final Key FEATURE_PREFETCH = new Key(Boolean.class);
+
+    /**
+     * Asks the data store to split the query into the given number of partitions read in
+     * parallel, each one on its own connection. The order of the returned features is not
+     * preserved. Data stores not supporting it just ignore the hint.
+     *
+     * @since 2.8
+     */
+    public static final Key FEATURE_PARTITIONS = new Key(Integer.class);
+
+    /**
+     * Allows the data store to answer bounds and count requests with the estimates kept in
+     * the database statistics, which can be out of date, instead of computing them exactly.
+     * Only whole layer requests can be estimated. Data stores not supporting it just ignore
+     * the hint.
+     *
+     * @since 2.8
+     */
+    public static final Key ESTIMATED_STATISTICS = new Key(Boolean.class);
+
     /**
      * Request that the features returned by the feature collections should
      * be 2D only. Can be used to prevent the request of the third ordinate
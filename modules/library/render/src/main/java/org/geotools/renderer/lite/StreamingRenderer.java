@@ -709,6 +709,8 @@ public final class StreamingRenderer implements GTRenderer {
         scaleDenominator = computeScale(mapArea, paintArea,worldToScreenTransform, rendererHints);
         if(LOGGER.isLoggable(Level.FINE))
             LOGGER.fine("Computed scale denominator: " + scaleDenominator);
+        // a new rendering request, the environment variables may have changed
+        styleFactory.setMapScaleDenominator(scaleDenominator);
         //////////////////////////////////////////////////////////////////////
         //
         // Consider expanding the map extent so that a few more geometries
@@ -160,49 +160,63 @@ class ColorMapNode extends StyleVisitorCoverageProcessingNodeAdapter implements
 			//
 			// /////////////////////////////////////////////////////////////////////
 			final GridSampleDimension candidateSD = (GridSampleDimension) sourceCoverage.getSampleDimension(0);
-			double[] candidateNoDataValues = preparaNoDataValues(candidateSD);
+			colorMapTransform = buildLinearColorMap(colorMap, candidateSD);
 
-			// /////////////////////////////////////////////////////////////////////
-			//
-			// Main Loop
-			//
-			// /////////////////////////////////////////////////////////////////////
-			//TODO MAKE THE COLORS CONFIGURABLE 
-			final SLDColorMapBuilder builder = new SLDColorMapBuilder();
-			builder.setExtendedColors(this.extendedColors)
-					.setLinearColorMapType(this.type)
-					.setNumberColorMapEntries(cmEntries.length)
-					.setColorForValuesToPreserve(new Color(0, 0, 0, 0))
-					.setGapsColor(new Color(0, 0, 0, 0));
-			for (int i = 0; i < cmEntries.length; i++) {
-				builder.addColorMapEntry(cmEntries[i]);
+		} else
+			this.type = -1;
 
-			}
+	}
 
+	/**
+	 * Builds the {@link LinearColorMap} for the provided {@link ColorMap}, preserving the no data
+	 * values of the provided {@link GridSampleDimension}.
+	 * 
+	 * @param colorMap the {@link ColorMap} to convert, must have at least one entry.
+	 * @param candidateSD the {@link GridSampleDimension} of the band we are going to classify.
+	 * @return the {@link LinearColorMap} to classify the band with.
+	 */
+	static LinearColorMap buildLinearColorMap(final ColorMap colorMap,
+			final GridSampleDimension candidateSD) {
+		final ColorMapEntry[] cmEntries = colorMap.getColorMapEntries();
+		double[] candidateNoDataValues = preparaNoDataValues(candidateSD);
 
+		// /////////////////////////////////////////////////////////////////////
+		//
+		// Main Loop
+		//
+		// /////////////////////////////////////////////////////////////////////
+		//TODO MAKE THE COLORS CONFIGURABLE 
+		final SLDColorMapBuilder builder = new SLDColorMapBuilder();
+		builder.setExtendedColors(colorMap.getExtendedColors())
+				.setLinearColorMapType(colorMap.getType())
+				.setNumberColorMapEntries(cmEntries.length)
+				.setColorForValuesToPreserve(new Color(0, 0, 0, 0))
+				.setGapsColor(new Color(0, 0, 0, 0));
+		for (int i = 0; i < cmEntries.length; i++) {
+			builder.addColorMapEntry(cmEntries[i]);
 
-			// /////////////////////////////////////////////////////////////////////
-			//
-			// Create the list of no data colorMapTransform domain elements. Note that all of them 
-			//
-			// /////////////////////////////////////////////////////////////////////
-			if(candidateNoDataValues!=null&&candidateNoDataValues.length>0){
-				final LinearColorMapElement noDataCategories[] = new LinearColorMapElement[candidateNoDataValues.length];
-				for (int i = 0; i < noDataCategories.length; i++) {
-					builder.addValueToPreserve(candidateNoDataValues[i]);
-				}
-			}
+		}
 
-			// /////////////////////////////////////////////////////////////////////
-			//
-			// Create the list of colorMapTransform categories
-			//
-			// /////////////////////////////////////////////////////////////////////
-			colorMapTransform = builder.buildLinearColorMap();
 
-		} else
-			this.type = -1;
 
+		// /////////////////////////////////////////////////////////////////////
+		//
+		// Create the list of no data colorMapTransform domain elements. Note that all of them 
+		//
+		// /////////////////////////////////////////////////////////////////////
+		if(candidateNoDataValues!=null&&candidateNoDataValues.length>0){
+			final LinearColorMapElement noDataCategories[] = new LinearColorMapElement[candidateNoDataValues.length];
+			for (int i = 0; i < noDataCategories.length; i++) {
+				builder.addValueToPreserve(candidateNoDataValues[i]);
+			}
+		}
+
+		// /////////////////////////////////////////////////////////////////////
+		//
+		// Create the list of colorMapTransform categories
+		//
+		// /////////////////////////////////////////////////////////////////////
+		return builder.buildLinearColorMap();
 	}
 
     /**
@@ -0,0 +1,261 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.SourcelessOpImage;
+import javax.media.jai.util.ImagingException;
+
+import org.geotools.renderer.i18n.ErrorKeys;
+import org.geotools.renderer.i18n.Errors;
+
+/**
+ * An image which scales a single band source to screen space with nearest neighbour interpolation
+ * and classifies it through a {@link LinearColorMap} in a single pass, writing palette indexes
+ * straight into each destination tile.
+ *
+ * <p>
+ * This is equivalent to a <code>Scale</code> applied to the output of the {@link RasterClassifier}
+ * but does not create any intermediate image: for each tile the needed source pixels are pulled
+ * once, mapped and classified. Classification of byte and short sources goes through a lookup
+ * table which is built the first time it is needed.
+ *
+ * @since 2.8
+ */
+final class ColorMapScaleOpImage extends SourcelessOpImage {
+
+    /** Maximum number of source samples read at once for a tile, larger regions are read by rows. */
+    private static final int MAX_BLOCK_SAMPLES = 1024 * 1024;
+
+    private final RenderedImage source;
+
+    private final LinearColorMap colorMap;
+
+    private final double scaleX;
+
+    private final double scaleY;
+
+    private final double translateX;
+
+    private final double translateY;
+
+    /** Palette index for each integral sample value, lazily built. */
+    private volatile int[] lookup;
+
+    /**
+     * Creates a new image.
+     *
+     * @param source the single band image to render.
+     * @param colorMap the {@link LinearColorMap} to classify it with.
+     * @param colorModel the color model of the palette, usually the one of the color map.
+     * @param scaleX the scale along x from source to screen pixels, must be positive.
+     * @param scaleY the scale along y from source to screen pixels, must be positive.
+     * @param translateX the translation along x from source to screen pixels.
+     * @param translateY the translation along y from source to screen pixels.
+     * @param bounds the bounds of the image in screen space.
+     * @param tileWidth the tile width.
+     * @param tileHeight the tile height.
+     * @param configuration rendering hints for the image, may be <code>null</code>.
+     */
+    ColorMapScaleOpImage(final RenderedImage source, final LinearColorMap colorMap,
+            final IndexColorModel colorModel, final double scaleX, final double scaleY,
+            final double translateX, final double translateY, final Rectangle bounds,
+            final int tileWidth, final int tileHeight, final Map<?, ?> configuration) {
+        super(createLayout(colorMap, colorModel, bounds, tileWidth, tileHeight), configuration,
+                colorMap.getSampleModel(tileWidth, tileHeight), bounds.x, bounds.y,
+                bounds.width, bounds.height);
+        this.source = source;
+        this.colorMap = colorMap;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        this.translateX = translateX;
+        this.translateY = translateY;
+    }
+
+    private static ImageLayout createLayout(final LinearColorMap colorMap,
+            final IndexColorModel colorModel, final Rectangle bounds, final int tileWidth,
+            final int tileHeight) {
+        final SampleModel sm = colorMap.getSampleModel(tileWidth, tileHeight);
+        return new ImageLayout(bounds.x, bounds.y, bounds.width, bounds.height, 0, 0, tileWidth,
+                tileHeight, sm, colorModel);
+    }
+
+    /**
+     * Computes the bounds in screen space covered by the provided source bounds, that is the
+     * pixels whose center falls inside the source once mapped back.
+     */
+    static Rectangle getBounds(final Rectangle sourceBounds, final double scaleX,
+            final double scaleY, final double translateX, final double translateY) {
+        final int minX = (int) Math.ceil(sourceBounds.x * scaleX + translateX - 0.5);
+        final int minY = (int) Math.ceil(sourceBounds.y * scaleY + translateY - 0.5);
+        final int maxX = (int) Math.ceil((sourceBounds.x + sourceBounds.width) * scaleX
+                + translateX - 0.5);
+        final int maxY = (int) Math.ceil((sourceBounds.y + sourceBounds.height) * scaleY
+                + translateY - 0.5);
+        return new Rectangle(minX, minY, Math.max(0, maxX - minX), Math.max(0, maxY - minY));
+    }
+
+    @Override
+    protected void computeRect(final PlanarImage[] sources, final WritableRaster dest,
+            final Rectangle destRect) {
+        // //
+        //
+        // map back each destination column and row to the source grid once
+        //
+        // //
+        final int srcMinX = source.getMinX();
+        final int srcMinY = source.getMinY();
+        final int srcMaxX = srcMinX + source.getWidth() - 1;
+        final int srcMaxY = srcMinY + source.getHeight() - 1;
+        final int[] columns = new int[destRect.width];
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = clamp(
+                    (int) Math.floor((destRect.x + i + 0.5 - translateX) / scaleX), srcMinX,
+                    srcMaxX);
+        final int[] rows = new int[destRect.height];
+        for (int j = 0; j < rows.length; j++)
+            rows[j] = clamp((int) Math.floor((destRect.y + j + 0.5 - translateY) / scaleY),
+                    srcMinY, srcMaxY);
+        final int minCol = columns[0];
+        final int maxCol = columns[columns.length - 1];
+        final int minRow = rows[0];
+        final int maxRow = rows[rows.length - 1];
+        final int width = maxCol - minCol + 1;
+        final int height = maxRow - minRow + 1;
+
+        final int dataType = source.getSampleModel().getDataType();
+        final int offset = dataType == DataBuffer.TYPE_SHORT ? -Short.MIN_VALUE : 0;
+        try {
+            final int[] lut = getLookup(dataType);
+
+            // //
+            //
+            // read the needed source region at once, or row by row if it is too big
+            //
+            // //
+            final boolean block = (long) width * height <= MAX_BLOCK_SAMPLES;
+            final Raster region = block ? source.getData(new Rectangle(minCol, minRow, width,
+                    height)) : null;
+            final int[] intSamples = lut != null ? new int[block ? width * height : width] : null;
+            final double[] samples = lut == null ? new double[block ? width * height : width]
+                    : null;
+            if (block) {
+                if (lut != null)
+                    region.getSamples(minCol, minRow, width, height, 0, intSamples);
+                else
+                    region.getSamples(minCol, minRow, width, height, 0, samples);
+            }
+
+            final int[] indexes = new int[destRect.width];
+            int lastRow = Integer.MIN_VALUE;
+            double lastValue = Double.NaN;
+            int lastIndex = -1;
+            for (int j = 0; j < rows.length; j++) {
+                final int row = rows[j];
+                if (row != lastRow) {
+                    int base = 0;
+                    if (block)
+                        base = (row - minRow) * width;
+                    else {
+                        final Raster line = source.getData(new Rectangle(minCol, row, width, 1));
+                        if (lut != null)
+                            line.getSamples(minCol, row, width, 1, 0, intSamples);
+                        else
+                            line.getSamples(minCol, row, width, 1, 0, samples);
+                    }
+                    for (int i = 0; i < indexes.length; i++) {
+                        final int k = base + columns[i] - minCol;
+                        if (lut != null)
+                            indexes[i] = lut[intSamples[k] + offset];
+                        else {
+                            final double value = samples[k];
+                            if (lastIndex < 0 || Double.doubleToLongBits(value) != Double
+                                            .doubleToLongBits(lastValue)) {
+                                lastValue = value;
+                                lastIndex = classify(value);
+                            }
+                            indexes[i] = lastIndex;
+                        }
+                    }
+                    lastRow = row;
+                }
+                dest.setSamples(destRect.x, destRect.y + j, destRect.width, 1, 0, indexes);
+            }
+        } catch (ImagingException e) {
+            throw e;
+        } catch (Throwable cause) {
+            throw new ImagingException(cause.getLocalizedMessage(), cause);
+        }
+    }
+
+    /**
+     * Returns the lookup table for the provided data type, or <code>null</code> if samples have
+     * to be classified one by one.
+     */
+    private int[] getLookup(final int dataType) {
+        if (dataType != DataBuffer.TYPE_BYTE && dataType != DataBuffer.TYPE_USHORT
+                && dataType != DataBuffer.TYPE_SHORT)
+            return null;
+        int[] table = lookup;
+        if (table == null) {
+            synchronized (this) {
+                table = lookup;
+                if (table == null) {
+                    final int min = dataType == DataBuffer.TYPE_SHORT ? Short.MIN_VALUE : 0;
+                    final int size = dataType == DataBuffer.TYPE_BYTE ? 256 : 65536;
+                    table = new int[size];
+                    for (int i = 0; i < size; i++)
+                        table[i] = classify(min + i);
+                    lookup = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the palette index for the provided value, exactly as the {@link RasterClassifier}
+     * would do.
+     */
+    private int classify(final double value) {
+        try {
+            final LinearColorMapElement element = colorMap.findDomainElement(value);
+            if (element != null)
+                return (int) element.transform(value);
+        } catch (Exception e) {
+            throw new ImagingException(e.getLocalizedMessage(), e);
+        }
+        if (colorMap.hasDefaultValue())
+            return (int) colorMap.getDefaultValue();
+        throw new IllegalArgumentException(Errors.format(ErrorKeys.ILLEGAL_ARGUMENT_$1, Double
+                .toString(value)));
+    }
+
+    private static int clamp(final int value, final int min, final int max) {
+        return value < min ? min : value > max ? max : value;
+    }
+}
@@ -71,7 +71,11 @@ import org.geotools.referencing.operation.matrix.XAffineTransform;
 import org.geotools.resources.i18n.ErrorKeys;
 import org.geotools.resources.i18n.Errors;
 import org.geotools.resources.image.ImageUtilities;
+import org.geotools.styling.ChannelSelection;
+import org.geotools.styling.ColorMap;
+import org.geotools.styling.ContrastEnhancement;
 import org.geotools.styling.RasterSymbolizer;
+import org.geotools.styling.SelectedChannelType;
 import org.opengis.coverage.grid.GridCoverage;
 import org.opengis.filter.expression.Expression;
 import org.opengis.metadata.spatial.PixelOrientation;
@@ -107,6 +111,16 @@ public final class GridCoverageRenderer {
     private static boolean DEBUG = Boolean
             .getBoolean("org.geotools.renderer.lite.gridcoverage2d.debug");
 
+    /**
+     * Whether simple color mapped renderings should go through the fused scale and classify
+     * path instead of the generic chain of coverage operations, disabled by default.
+     */
+    private static final boolean FUSED = Boolean.valueOf(System.getProperty(
+            "org.geotools.renderer.lite.gridcoverage2d.fused", "false"));
+
+    /** Tile size of the images produced by the fused path when painting. */
+    private static final int FUSED_TILE_SIZE = 512;
+
     private static String debugDir;
     static {
         if (DEBUG) {
@@ -204,6 +218,9 @@ public final class GridCoverageRenderer {
 
     private final Hints hints = new Hints();
 
+    /** Whether simple color mapped renderings go through the fused path. */
+    private boolean fused = FUSED;
+
     // FORMULAE FOR FORWARD MAP are derived as follows
     //     Nearest
     //        Minimum:
@@ -761,6 +778,146 @@ public final class GridCoverageRenderer {
         return new GCpair(clonedFinalWorldToGrid,finalGC);
     }            	
 
+    /**
+     * Enables the fused scale and classify path for simple color mapped renderings, which is
+     * otherwise controlled by the <code>org.geotools.renderer.lite.gridcoverage2d.fused</code>
+     * system property and disabled by default.
+     * 
+     * @param fused
+     *                whether the fused path should be used when possible.
+     */
+    public void setFusedRendering(final boolean fused) {
+        this.fused = fused;
+    }
+
+    /**
+     * Tells whether the fused scale and classify path is used for simple color mapped renderings.
+     */
+    public boolean isFusedRendering() {
+        return fused;
+    }
+
+    /**
+     * Checks whether the provided coverage can be rendered with the provided symbolizer through
+     * the fused path, that is when the symbolizer does nothing but applying a {@link ColorMap} to a
+     * single band coverage which needs no reprojection and no rotation, using nearest neighbour
+     * interpolation.
+     * 
+     * @return the transformation from the coverage raster space to the screen, or <code>null</code>
+     *         if the fused path cannot be used.
+     */
+    private AffineTransform getFusedTransform(
+            final GridCoverage2D gridCoverage,
+            final RasterSymbolizer symbolizer,
+            final Interpolation interpolation) throws FactoryException {
+        if (!fused || symbolizer == null || gridCoverage == null)
+            return null;
+        if (interpolation != null && !(interpolation instanceof InterpolationNearest))
+            return null;
+
+        // only a color map, no channel selection nor contrast enhancement
+        final ColorMap colorMap = symbolizer.getColorMap();
+        if (colorMap == null || colorMap.getColorMapEntries() == null
+                || colorMap.getColorMapEntries().length == 0)
+            return null;
+        final ChannelSelection cs = symbolizer.getChannelSelection();
+        if (cs != null) {
+            if (cs.getGrayChannel() != null)
+                return null;
+            final SelectedChannelType[] rgb = cs.getRGBChannels();
+            if (rgb != null)
+                for (SelectedChannelType channel : rgb)
+                    if (channel != null)
+                        return null;
+        }
+        final ContrastEnhancement ce = symbolizer.getContrastEnhancement();
+        if (ce != null) {
+            if (ce.getType() != null)
+                return null;
+            final Number gamma = ce.getGammaValue() != null ? ce.getGammaValue().evaluate(null,
+                    Double.class) : null;
+            if (gamma != null && Math.abs(gamma.doubleValue() - 1) >= 1E-6)
+                return null;
+        }
+
+        // single band, with a data type the classifier can handle
+        if (gridCoverage.getNumSampleDimensions() != 1)
+            return null;
+        final RenderedImage image = gridCoverage.getRenderedImage();
+        if (image.getSampleModel().getNumBands() != 1)
+            return null;
+
+        // no reprojection
+        final MathTransform sourceToDestination = CRS.findMathTransform(
+                gridCoverage.getCoordinateReferenceSystem2D(), destinationCRS, true);
+        if (!sourceToDestination.isIdentity())
+            return null;
+
+        // only scale and translate
+        final MathTransform2D gridToWorld = gridCoverage.getGridGeometry().getGridToCRS2D(
+                PixelOrientation.UPPER_LEFT);
+        if (!(gridToWorld instanceof AffineTransform))
+            return null;
+        final AffineTransform transform = (AffineTransform) finalWorldToGrid.clone();
+        transform.concatenate((AffineTransform) gridToWorld);
+        if (Math.abs(transform.getShearX()) > 1E-9 || Math.abs(transform.getShearY()) > 1E-9
+                || transform.getScaleX() <= 0 || transform.getScaleY() <= 0)
+            return null;
+        return transform;
+    }
+
+    /**
+     * Renders the provided coverage in screen space scaling and classifying it in a single pass,
+     * without creating the intermediate crop, resample and color map coverages.
+     * 
+     * @return the rendered image, or <code>null</code> if nothing falls inside the screen area.
+     */
+    private RenderedImage renderFused(
+            final GridCoverage2D gridCoverage,
+            final RasterSymbolizer symbolizer,
+            final AffineTransform sourceToScreen,
+            final int tileSizeX,
+            final int tileSizeY) {
+        if (LOGGER.isLoggable(Level.FINE))
+            LOGGER.fine("Drawing coverage " + gridCoverage.toString() + " through the fused path");
+
+        final RenderedImage image = gridCoverage.getRenderedImage();
+        final Rectangle bounds = ColorMapScaleOpImage.getBounds(new Rectangle(image.getMinX(),
+                image.getMinY(), image.getWidth(), image.getHeight()), sourceToScreen.getScaleX(),
+                sourceToScreen.getScaleY(), sourceToScreen.getTranslateX(), sourceToScreen
+                        .getTranslateY());
+        final Rectangle screenBounds = bounds.intersection(destinationSize);
+        if (screenBounds.isEmpty()) {
+            if (LOGGER.isLoggable(Level.FINE))
+                LOGGER.fine("Skipping current coverage because it does not intersect the screen area");
+            return null;
+        }
+
+        // the color map, with the opacity folded into its palette
+        final LinearColorMap colorMap = ColorMapNode.buildLinearColorMap(symbolizer.getColorMap(),
+                gridCoverage.getSampleDimension(0));
+        IndexColorModel colorModel = colorMap.getColorModel();
+        final float opacity = getOpacity(symbolizer);
+        if (opacity < 1) {
+            final int size = colorModel.getMapSize();
+            final byte[] r = new byte[size], g = new byte[size], b = new byte[size], a = new byte[size];
+            colorModel.getReds(r);
+            colorModel.getGreens(g);
+            colorModel.getBlues(b);
+            colorModel.getAlphas(a);
+            for (int i = 0; i < size; i++)
+                a[i] = (byte) Math.round((a[i] & 0xFF) * opacity);
+            colorModel = new IndexColorModel(colorModel.getPixelSize(), size, r, g, b, a);
+        }
+
+        final RenderedImage finalImage = new ColorMapScaleOpImage(image, colorMap, colorModel,
+                sourceToScreen.getScaleX(), sourceToScreen.getScaleY(), sourceToScreen
+                        .getTranslateX(), sourceToScreen.getTranslateY(), screenBounds,
+                tileSizeX, tileSizeY, hints);
+        if (DEBUG)
+            writeRenderedImage(finalImage, "fused");
+        return finalImage;
+    }
 
     /**
      * Turns the coverage into a rendered image applying the necessary transformations and the
@@ -783,6 +940,11 @@ public final class GridCoverageRenderer {
             final int tileSizeY
             ) throws FactoryException, TransformException, NoninvertibleTransformException {
 
+        // simple color mapped coverages are scaled and classified in a single pass
+        final AffineTransform sourceToScreen = getFusedTransform(gridCoverage, symbolizer, interpolation);
+        if (sourceToScreen != null)
+            return renderFused(gridCoverage, symbolizer, sourceToScreen, tileSizeX, tileSizeY);
+
         // Build the final image and the associated world to grid transformation
         final GCpair couple = prepareFinalImage(gridCoverage, symbolizer);
         if (couple == null)
@@ -931,6 +1093,25 @@ public final class GridCoverageRenderer {
         final RenderingHints oldHints = graphics.getRenderingHints();
         graphics.setRenderingHints(this.hints);
         
+        // simple color mapped coverages are scaled and classified in a single pass, as long as
+        // Java2D is not asked to interpolate
+        final Object java2dInterpolation = this.hints.get(RenderingHints.KEY_INTERPOLATION);
+        if (java2dInterpolation == null
+                || RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR.equals(java2dInterpolation)) {
+            final AffineTransform sourceToScreen = getFusedTransform(gridCoverage, symbolizer,
+                    (Interpolation) hints.get(JAI.KEY_INTERPOLATION));
+            if (sourceToScreen != null) {
+                try {
+                    final RenderedImage image = renderFused(gridCoverage, symbolizer,
+                            sourceToScreen, FUSED_TILE_SIZE, FUSED_TILE_SIZE);
+                    if (image != null)
+                        graphics.drawRenderedImage(image, new AffineTransform());
+                } finally {
+                    graphics.setRenderingHints(oldHints);
+                }
+                return;
+            }
+        }
         
         // Build the final image and the transformation
         GCpair couple = prepareFinalImage(gridCoverage, symbolizer);
@@ -0,0 +1,92 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.style;
+
+import java.util.List;
+
+import org.geotools.filter.function.EnvFunction;
+import org.geotools.filter.visitor.DefaultFilterVisitor;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.VolatileFunction;
+
+/**
+ * Tells how often the value of a style expression can change while rendering.
+ * <ul>
+ * <li>{@link Kind#CONSTANT}: literals, and math or functions over constants only</li>
+ * <li>{@link Kind#SCALE_DEPENDENT}: expressions using {@link EnvFunction}, whose values
+ * (such as <code>wms_scale_denominator</code>) are set once per rendering request</li>
+ * <li>{@link Kind#ATTRIBUTE}: expressions using feature attributes, volatile functions, or
+ * functions without parameters, that may read the feature directly (e.g. <code>id()</code>)</li>
+ * </ul>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class ExpressionClassifier extends DefaultFilterVisitor {
+
+    /**
+     * The expression kinds, from the most to the least stable one
+     */
+    public enum Kind {
+        CONSTANT, SCALE_DEPENDENT, ATTRIBUTE;
+
+        Kind max(Kind other) {
+            return other != null && other.ordinal() > ordinal() ? other : this;
+        }
+    }
+
+    static final ExpressionClassifier INSTANCE = new ExpressionClassifier();
+
+    /**
+     * Returns the kind of the expression, a <code>null</code> expression is constant
+     */
+    public static Kind classify(Expression expression) {
+        if (expression == null || expression instanceof Literal) {
+            return Kind.CONSTANT;
+        } else if (expression instanceof PropertyName) {
+            return Kind.ATTRIBUTE;
+        }
+        return (Kind) expression.accept(INSTANCE, Kind.CONSTANT);
+    }
+
+    protected ExpressionClassifier() {
+    }
+
+    @Override
+    public Object visit(PropertyName expression, Object data) {
+        return Kind.ATTRIBUTE;
+    }
+
+    @Override
+    public Object visit(Function expression, Object data) {
+        Kind kind = (Kind) data;
+        List<Expression> parameters = expression.getParameters();
+        if (expression instanceof VolatileFunction || parameters == null
+                || parameters.isEmpty()) {
+            return Kind.ATTRIBUTE;
+        }
+        kind = (Kind) super.visit(expression, kind);
+        if (expression instanceof EnvFunction) {
+            kind = kind.max(Kind.SCALE_DEPENDENT);
+        }
+        return kind;
+    }
+}
@@ -33,6 +33,7 @@ import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -163,6 +164,21 @@ public class SLDStyleFactory {
 	/** Symbolizers that do not depend on attributes */
 	Map staticSymbolizers = new SoftValueHashMap();
 
+	/**
+	 * Symbolizers that do not depend on attributes, but use environment
+	 * variables, cached until the map scale is set again
+	 */
+	Map scaleSymbolizers = new SoftValueHashMap();
+
+	/** The compiled style expressions, looked up by identity */
+	Map compiledExpressions = new SoftValueHashMap();
+
+	/**
+	 * Incremented each time the map scale is set, invalidates the scale
+	 * dependent values
+	 */
+	private long scaleGeneration;
+
 	/**
 	 * Build a default rendering hint to avoid NPE
 	 */
@@ -290,6 +306,9 @@ public class SLDStyleFactory {
 
 		SymbolizerKey key = new SymbolizerKey(symbolizer, scaleRange);
 		style = (Style2D) staticSymbolizers.get(key);
+		if (style == null) {
+			style = (Style2D) scaleSymbolizers.get(key);
+		}
 
 		requests++;
 
@@ -317,7 +336,11 @@ public class SLDStyleFactory {
 				Set nameSet = sae.getAttributeNameSet();
 				boolean noAttributes = (nameSet == null) || (nameSet.size() == 0);
 				if (noAttributes && !sae.isUsingVolatileFunctions()) {
-					staticSymbolizers.put(key, style);
+					if (sae.isUsingEnvironmentFunctions()) {
+						scaleSymbolizers.put(key, style);
+					} else {
+						staticSymbolizers.put(key, style);
+					}
 				} else {
 					dynamicSymbolizers.put(key, Boolean.TRUE);
 				}
@@ -1375,6 +1398,11 @@ public class SLDStyleFactory {
 
 	/**
 	 * Setter for property mapScaleDenominator.
+	 * <p>
+	 * Should be called once per rendering request, since it also discards the
+	 * styles and the values computed from scale dependent expressions, that is,
+	 * expressions using environment variables.
+	 * </p>
 	 * 
 	 * @param mapScaleDenominator
 	 *            New value of property mapScaleDenominator.
@@ -1382,6 +1410,8 @@ public class SLDStyleFactory {
 	public void setMapScaleDenominator(double mapScaleDenominator) {
 
 		this.mapScaleDenominator = mapScaleDenominator;
+		scaleGeneration++;
+		scaleSymbolizers.clear();
 	}
 
 	/**
@@ -1436,7 +1466,7 @@ public class SLDStyleFactory {
 		if (exp == null) {
 			return fallback;
 		}
-		String s = exp.evaluate(f, String.class);
+		String s = evaluate(exp, f, String.class);
 		if (s != null) {
 			return s;
 		}
@@ -1447,7 +1477,7 @@ public class SLDStyleFactory {
 		if (exp == null) {
 			return fallback;
 		}
-		Float fo = (Float) exp.evaluate(f, Float.class);
+		Float fo = evaluate(exp, f, Float.class);
 		if (fo != null) {
 			return fo.floatValue();
 		}
@@ -1458,7 +1488,7 @@ public class SLDStyleFactory {
 		if (exp == null) {
 			return fallback;
 		}
-		Double d = exp.evaluate(f, Double.class);
+		Double d = evaluate(exp, f, Double.class);
 		if (d != null) {
 			return d.doubleValue();
 		}
@@ -1469,7 +1499,7 @@ public class SLDStyleFactory {
 		if (exp == null) {
 			return fallback;
 		}
-		Integer i = exp.evaluate(f, Integer.class);
+		Integer i = evaluate(exp, f, Integer.class);
 		if (i != null) {
 			return i.intValue();
 		}
@@ -1480,7 +1510,7 @@ public class SLDStyleFactory {
 		if (exp == null) {
 			return fallback;
 		}
-		Color color = exp.evaluate(f, Color.class);
+		Color color = evaluate(exp, f, Color.class);
 		if (color != null) {
 			return color;
 		}
@@ -1491,4 +1521,83 @@ public class SLDStyleFactory {
 		return evalToFloat(e, f, 1);
 	}
 
+	/**
+	 * Evaluates the expression, reusing the values of constant expressions,
+	 * and the ones of scale dependent expressions until the scale changes
+	 */
+	<T> T evaluate(Expression exp, Object f, Class<T> target) {
+		if (exp instanceof PropertyName) {
+			return exp.evaluate(f, target);
+		}
+
+		ExpressionKey key = new ExpressionKey(exp);
+		CompiledExpression compiled = (CompiledExpression) compiledExpressions
+				.get(key);
+		if (compiled == null) {
+			compiled = new CompiledExpression(exp);
+			compiledExpressions.put(key, compiled);
+		}
+		return compiled.evaluate(f, target, scaleGeneration);
+	}
+
+	/**
+	 * Compares expressions by identity, like {@link SymbolizerKey} does for
+	 * symbolizers
+	 */
+	static class ExpressionKey {
+		private Expression expression;
+
+		public ExpressionKey(Expression expression) {
+			this.expression = expression;
+		}
+
+		public boolean equals(Object obj) {
+			return (obj instanceof ExpressionKey)
+					&& ((ExpressionKey) obj).expression == expression;
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(expression);
+		}
+	}
+
+	/**
+	 * An expression along with its kind and the values it evaluated to, for
+	 * each target class, when it does not depend on the feature
+	 */
+	static class CompiledExpression {
+		final Expression expression;
+
+		final ExpressionClassifier.Kind kind;
+
+		Map<Class<?>, Object> values;
+
+		long generation;
+
+		CompiledExpression(Expression expression) {
+			this.expression = expression;
+			this.kind = ExpressionClassifier.classify(expression);
+		}
+
+		<T> T evaluate(Object f, Class<T> target, long scaleGeneration) {
+			if (kind == ExpressionClassifier.Kind.ATTRIBUTE
+					|| (kind == ExpressionClassifier.Kind.SCALE_DEPENDENT && scaleGeneration == 0)) {
+				// no scale set, we cannot tell when the environment changes
+				return expression.evaluate(f, target);
+			}
+
+			if (values == null
+					|| (kind == ExpressionClassifier.Kind.SCALE_DEPENDENT && generation != scaleGeneration)) {
+				values = new HashMap<Class<?>, Object>(4);
+				generation = scaleGeneration;
+			}
+			if (values.containsKey(target)) {
+				return (T) values.get(target);
+			}
+			T value = expression.evaluate(f, target);
+			values.put(target, value);
+			return value;
+		}
+	}
+
 }
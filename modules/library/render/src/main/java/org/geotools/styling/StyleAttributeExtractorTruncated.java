@@ -16,6 +16,7 @@
  */
 package org.geotools.styling;
 
+import org.geotools.filter.function.EnvFunction;
 import org.opengis.filter.expression.VolatileFunction;
 
 /**
@@ -43,19 +44,31 @@ public class StyleAttributeExtractorTruncated extends StyleAttributeExtractor
 		implements StyleVisitor {
 
 	boolean usingVolatileFunctions = false;
+
+	boolean usingEnvironmentFunctions = false;
 	
 	@Override
 	public void clear() {
 		super.clear();
 		usingVolatileFunctions = false;
+		usingEnvironmentFunctions = false;
 	}
 	
 	public boolean isUsingVolatileFunctions() {
 		return usingVolatileFunctions;
 	}
 
+	/**
+	 * Returns true if the style uses {@link EnvFunction}, whose values may
+	 * change at each rendering request (e.g. the scale denominator)
+	 */
+	public boolean isUsingEnvironmentFunctions() {
+		return usingEnvironmentFunctions;
+	}
+
 	public Object visit(org.opengis.filter.expression.Function expression, Object data) {
 		usingVolatileFunctions |= (expression instanceof VolatileFunction);
+		usingEnvironmentFunctions |= (expression instanceof EnvFunction);
 		return super.visit(expression, data);
 	};
 
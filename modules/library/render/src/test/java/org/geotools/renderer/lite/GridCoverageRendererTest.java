@@ -17,20 +17,28 @@
 package org.geotools.renderer.lite;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Collections;
 
 import javax.imageio.ImageIO;
+import javax.media.jai.InterpolationNearest;
 
+import org.geotools.coverage.CoverageFactoryFinder;
 import org.geotools.coverage.GridSampleDimension;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
@@ -43,6 +51,8 @@ import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.referencing.crs.DefaultProjectedCRS;
 import org.geotools.referencing.cs.DefaultCartesianCS;
 import org.geotools.referencing.operation.DefaultMathTransformFactory;
+import org.geotools.renderer.lite.gridcoverage2d.GridCoverageRenderer;
+import org.geotools.styling.ColorMap;
 import org.geotools.styling.RasterSymbolizer;
 import org.geotools.styling.Style;
 import org.geotools.styling.StyleBuilder;
@@ -245,6 +255,145 @@ public class GridCoverageRendererTest  {
 
 	}
 
+	/**
+	 * Tests the single pass scale and classification of a color mapped coverage.
+	 */
+	@Test
+	public void renderImageColorMap() throws Exception {
+		final GridCoverage2D gc = colorMapCoverage();
+		final StyleBuilder sb = new StyleBuilder();
+		final RasterSymbolizer symbolizer = colorMapSymbolizer(sb);
+
+		// render at twice the native resolution
+		final GridCoverageRenderer renderer = new GridCoverageRenderer(
+				DefaultGeographicCRS.WGS84, new ReferencedEnvelope(0, 4, 0, 4,
+						DefaultGeographicCRS.WGS84), new Rectangle(0, 0, 8, 8), null);
+		renderer.setFusedRendering(true);
+		RenderedImage rendered = renderer.renderImage(gc, symbolizer, new InterpolationNearest(),
+				null, 256, 256);
+		assertEquals(new Rectangle(0, 0, 8, 8), new Rectangle(rendered.getMinX(),
+				rendered.getMinY(), rendered.getWidth(), rendered.getHeight()));
+		assertTrue(rendered.getColorModel() instanceof IndexColorModel);
+		IndexColorModel icm = (IndexColorModel) rendered.getColorModel();
+		Raster data = rendered.getData();
+		for (int y = 0; y < 8; y++)
+			for (int x = 0; x < 8; x++)
+				assertEquals(COLORS[(x / 2 + y / 2) % 4].getRGB(), icm.getRGB(data.getSample(x, y,
+						0)));
+
+		// opacity goes into the palette
+		symbolizer.setOpacity(sb.literalExpression(0.5));
+		rendered = renderer.renderImage(gc, symbolizer, new InterpolationNearest(), null, 256, 256);
+		icm = (IndexColorModel) rendered.getColorModel();
+		data = rendered.getData();
+		assertEquals(128, icm.getAlpha(data.getSample(0, 0, 0)), 1);
+		assertEquals(Color.RED.getRGB() & 0xFFFFFF, icm.getRGB(data.getSample(0, 0, 0)) & 0xFFFFFF);
+	}
+
+	/**
+	 * Checks the fused path renders the same pixels as the generic chain of coverage operations,
+	 * both through renderImage and paint, with the whole coverage on screen and with a zoomed in
+	 * area cropping it.
+	 */
+	@Test
+	public void fusedMatchesLegacy() throws Exception {
+		final GridCoverage2D gc = colorMapCoverage();
+		final StyleBuilder sb = new StyleBuilder();
+		final RasterSymbolizer symbolizer = colorMapSymbolizer(sb);
+		final Color background = Color.MAGENTA;
+
+		final ReferencedEnvelope[] areas = new ReferencedEnvelope[] {
+				new ReferencedEnvelope(0, 4, 0, 4, DefaultGeographicCRS.WGS84),
+				new ReferencedEnvelope(1, 3, 1, 3, DefaultGeographicCRS.WGS84),
+				new ReferencedEnvelope(2, 6, 2, 6, DefaultGeographicCRS.WGS84) };
+		for (ReferencedEnvelope area : areas) {
+			for (int i = 0; i < 2; i++) {
+				// second round with a translucent symbolizer
+				if (i == 1)
+					symbolizer.setOpacity(sb.literalExpression(0.5));
+				else
+					symbolizer.setOpacity(sb.literalExpression(1.0));
+
+				final GridCoverageRenderer legacy = new GridCoverageRenderer(
+						DefaultGeographicCRS.WGS84, area, new Rectangle(0, 0, 8, 8), null);
+				final GridCoverageRenderer fused = new GridCoverageRenderer(
+						DefaultGeographicCRS.WGS84, area, new Rectangle(0, 0, 8, 8), null);
+				fused.setFusedRendering(true);
+
+				assertSamePixels(area.toString(), draw(legacy.renderImage(gc, symbolizer,
+						new InterpolationNearest(), background, 256, 256), background), draw(fused
+						.renderImage(gc, symbolizer, new InterpolationNearest(), background, 256, 256),
+						background));
+
+				final BufferedImage legacyPainted = draw(null, background);
+				Graphics2D graphics = legacyPainted.createGraphics();
+				legacy.paint(graphics, gc, symbolizer);
+				graphics.dispose();
+				final BufferedImage fusedPainted = draw(null, background);
+				graphics = fusedPainted.createGraphics();
+				fused.paint(graphics, gc, symbolizer);
+				graphics.dispose();
+				assertSamePixels(area.toString(), legacyPainted, fusedPainted);
+			}
+		}
+	}
+
+	private static final Color[] COLORS = new Color[] { Color.RED, Color.GREEN, Color.BLUE,
+			Color.YELLOW };
+
+	/**
+	 * A 4x4 byte coverage with values from 0 to 3
+	 */
+	private static GridCoverage2D colorMapCoverage() {
+		final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_BYTE_GRAY);
+		final WritableRaster raster = image.getRaster();
+		for (int y = 0; y < 4; y++)
+			for (int x = 0; x < 4; x++)
+				raster.setSample(x, y, 0, (x + y) % 4);
+		final GeneralEnvelope envelope = new GeneralEnvelope(new double[] { 0, 0 },
+				new double[] { 4, 4 });
+		envelope.setCoordinateReferenceSystem(DefaultGeographicCRS.WGS84);
+		return CoverageFactoryFinder.getGridCoverageFactory(null).create("values", image,
+				envelope);
+	}
+
+	/**
+	 * A symbolizer mapping the values of {@link #colorMapCoverage()} to {@link #COLORS}
+	 */
+	private static RasterSymbolizer colorMapSymbolizer(final StyleBuilder sb) {
+		final RasterSymbolizer symbolizer = sb.createRasterSymbolizer();
+		symbolizer.setColorMap(sb.createColorMap(new String[] { "0", "1", "2", "3" },
+				new double[] { 0, 1, 2, 3 }, COLORS, ColorMap.TYPE_VALUES));
+		return symbolizer;
+	}
+
+	/**
+	 * Draws the image in screen space over the background color
+	 */
+	private static BufferedImage draw(final RenderedImage image, final Color background) {
+		final BufferedImage result = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D graphics = result.createGraphics();
+		graphics.setColor(background);
+		graphics.fillRect(0, 0, 8, 8);
+		if (image != null)
+			graphics.drawRenderedImage(image, new AffineTransform());
+		graphics.dispose();
+		return result;
+	}
+
+	/**
+	 * Compares the pixels channel by channel, allowing for alpha rounding differences
+	 */
+	private static void assertSamePixels(final String message, final BufferedImage expected,
+			final BufferedImage actual) {
+		for (int y = 0; y < expected.getHeight(); y++)
+			for (int x = 0; x < expected.getWidth(); x++)
+				for (int shift = 0; shift < 32; shift += 8)
+					assertEquals(message + " at " + x + "," + y,
+							(expected.getRGB(x, y) >> shift) & 0xFF,
+							(actual.getRGB(x, y) >> shift) & 0xFF, 1);
+	}
+
 	private static Style getStyle() {
 		StyleBuilder sb = new StyleBuilder();
 		Style rasterstyle = sb.createStyle();
@@ -16,6 +16,7 @@
  */
 package org.geotools.renderer.style;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Shape;
 import java.awt.Stroke;
@@ -31,8 +32,10 @@ import junit.framework.TestCase;
 
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.function.EnvFunction;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.renderer.style.ExpressionClassifier.Kind;
 import org.geotools.renderer.style.SLDStyleFactory.SymbolizerKey;
 import org.geotools.styling.ExternalGraphic;
 import org.geotools.styling.Fill;
@@ -46,6 +49,7 @@ import org.geotools.util.NumberRange;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -302,4 +306,52 @@ public class SLDStyleFactoryTest extends TestCase {
         assertTrue(ps.getFill() instanceof TexturePaint);
     }
     
+    public void testClassifyExpressions() throws Exception {
+        assertEquals(Kind.CONSTANT, ExpressionClassifier.classify(ff.literal(1)));
+        assertEquals(Kind.CONSTANT, ExpressionClassifier.classify(ff.add(ff.literal(1),
+                ff.function("abs", ff.literal(-2)))));
+        assertEquals(Kind.SCALE_DEPENDENT, ExpressionClassifier.classify(ff.multiply(
+                ff.literal(2), ff.function("env", ff.literal("width")))));
+        assertEquals(Kind.ATTRIBUTE, ExpressionClassifier.classify(ff.property("symb")));
+        assertEquals(Kind.ATTRIBUTE, ExpressionClassifier.classify(ff.add(ff.function("env",
+                ff.literal("width")), ff.function("strLength", ff.property("symb")))));
+    }
+
+    public void testConstantExpressionsEvaluatedOnce() throws Exception {
+        Expression color = ff.literal("#0000FF");
+        Color c = sld.evaluate(color, feature, Color.class);
+        assertEquals(Color.BLUE, c);
+        assertSame(c, sld.evaluate(color, feature, Color.class));
+        assertEquals("#0000FF", sld.evaluate(color, feature, String.class));
+
+        Expression attribute = ff.property("symb");
+        assertEquals("0xF054", sld.evaluate(attribute, feature, String.class));
+    }
+
+    public void testScaleDependentSymbolizer() throws Exception {
+        LineSymbolizer symb = sf.createLineSymbolizer();
+        symb.setStroke(sf.createStroke(ff.literal("#0000FF"), ff.function("env",
+                ff.literal("width"), ff.literal(1))));
+        try {
+            EnvFunction.setLocalValue("width", 2);
+            sld.setMapScaleDenominator(1000);
+            LineStyle2D style = (LineStyle2D) sld.createStyle(feature, symb, range);
+            assertEquals(2f, ((BasicStroke) style.getStroke()).getLineWidth());
+            SymbolizerKey key = new SymbolizerKey(symb, range);
+            assertTrue(sld.scaleSymbolizers.containsKey(key));
+            assertFalse(sld.staticSymbolizers.containsKey(key));
+
+            // same rendering request, the style is reused
+            EnvFunction.setLocalValue("width", 4);
+            assertSame(style, sld.createStyle(feature, symb, range));
+
+            // new request
+            sld.setMapScaleDenominator(1000);
+            style = (LineStyle2D) sld.createStyle(feature, symb, range);
+            assertEquals(4f, ((BasicStroke) style.getStroke()).getLineWidth());
+        } finally {
+            EnvFunction.clearLocalValues();
+        }
+    }
+
 }
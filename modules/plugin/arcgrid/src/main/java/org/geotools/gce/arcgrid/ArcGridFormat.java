@@ -63,6 +63,17 @@ public final class ArcGridFormat extends AbstractGridFormat implements Format {
 			Boolean.class,
 			Boolean.FALSE,
 			false);
+
+	/**
+	 * Indicates whether the grid has to be read and written in strips of rows rather than as a
+	 * whole, for grids larger than the available memory.
+	 */
+	public static final DefaultParameterDescriptor<Boolean> STREAMING = DefaultParameterDescriptor.create(
+			"STREAMING",
+			"Indicates whether the grid has to be read and written in strips of rows",
+			Boolean.class,
+			Boolean.FALSE,
+			false);
 	
 
 	/** Caching the {@link AsciiGridsImageReaderSpi} factory. */
@@ -94,13 +105,13 @@ public final class ArcGridFormat extends AbstractGridFormat implements Format {
 		writeParameters = new ParameterGroup(
 				new DefaultParameterDescriptorGroup(mInfo,
 						new GeneralParameterDescriptor[] { GRASS,
-								GEOTOOLS_WRITE_PARAMS,FORCE_CELLSIZE }));
+								GEOTOOLS_WRITE_PARAMS,FORCE_CELLSIZE, STREAMING }));
 
 		// reading parameters
 		readParameters = new ParameterGroup(
 				new DefaultParameterDescriptorGroup(
 						mInfo,
-						new GeneralParameterDescriptor[] { READ_GRIDGEOMETRY2D }));
+						new GeneralParameterDescriptor[] { READ_GRIDGEOMETRY2D, STREAMING }));
 	}
 
 	/**
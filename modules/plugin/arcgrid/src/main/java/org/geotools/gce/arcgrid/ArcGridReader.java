@@ -24,6 +24,7 @@ import it.geosolutions.imageio.utilities.ImageIOUtilities;
 import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.image.ColorModel;
+import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.renderable.ParameterBlock;
 import java.io.File;
@@ -399,6 +400,7 @@ public final class ArcGridReader extends AbstractGridCoverage2DReader implements
 		GeneralEnvelope readEnvelope = null;
 		Rectangle requestedDim = null;
 		OverviewPolicy overviewPolicy=null;
+		boolean streaming = false;
 		if (params != null) {
 			final int length = params.length;
 			for (int i = 0; i < length; i++) {
@@ -412,9 +414,19 @@ public final class ArcGridReader extends AbstractGridCoverage2DReader implements
 				}
 				if (name.equals(AbstractGridFormat.OVERVIEW_POLICY.getName().toString())) {
 					overviewPolicy=(OverviewPolicy) param.getValue();
+					continue;
+				}
+				if (name.equals(ArcGridFormat.STREAMING.getName().toString())) {
+					streaming = param.booleanValue();
 				}
 			}
 		}
+		if (streaming) {
+			if (source instanceof File && !gzipped)
+				return createStreamingCoverage();
+			if (LOGGER.isLoggable(Level.FINE))
+				LOGGER.fine("Streaming is only supported for uncompressed files, falling back to a plain read");
+		}
 		return createCoverage(readEnvelope, requestedDim, overviewPolicy);
 	}
 
@@ -505,7 +517,27 @@ public final class ArcGridReader extends AbstractGridCoverage2DReader implements
 		pbjImageRead.add(readP);
 		pbjImageRead.add(readerSPI.createReaderInstance());
 		final RenderedOp asciiCoverage = JAI.create("ImageRead", pbjImageRead,hints);
+		return createCoverage(asciiCoverage);
+	}
+
+	/**
+	 * Creates the GridCoverage2D as an {@link AsciiGridStripImage} which decodes the underlying
+	 * file strip by strip on demand, at full resolution.
+	 * 
+	 * @return a GridCoverage
+	 * 
+	 * @throws java.io.IOException
+	 */
+	private GridCoverage2D createStreamingCoverage() throws IOException {
+		return createCoverage(new AsciiGridStripImage((File) source,
+				originalGridRange.getSpan(0), originalGridRange.getSpan(1),
+				inNoData, hints));
+	}
 
+	/**
+	 * Wraps the provided image into a GridCoverage2D.
+	 */
+	private GridCoverage2D createCoverage(final RenderedImage asciiCoverage) throws IOException {
 		// //
 		//
 		// Creating the coverage
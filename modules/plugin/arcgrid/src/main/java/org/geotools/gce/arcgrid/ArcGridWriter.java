@@ -223,9 +223,11 @@ public final class ArcGridWriter extends AbstractGridCoverageWriter implements G
 			GeoToolsWriteParams gtParams = null;
 			boolean grass = false;
 			boolean forceCellSize = false;
+			boolean streaming = false;
 			final String grassParam = ArcGridFormat.GRASS.getName().getCode().toString();
 			final String cellSizeParam = ArcGridFormat.FORCE_CELLSIZE
 					.getName().getCode().toString();
+			final String streamingParam = ArcGridFormat.STREAMING.getName().getCode();
 			if (parameters != null) {
 				for (int i = 0; i < parameters.length; i++) {
 					Parameter param = (Parameter) parameters[i];
@@ -239,6 +241,8 @@ public final class ArcGridWriter extends AbstractGridCoverageWriter implements G
 						grass = param.booleanValue();
 					if (name.equalsIgnoreCase(cellSizeParam))
 						forceCellSize = param.booleanValue();
+					if (name.equalsIgnoreCase(streamingParam))
+						streaming = param.booleanValue();
 				}
 			}
 			if (gtParams == null)
@@ -332,9 +336,14 @@ public final class ArcGridWriter extends AbstractGridCoverageWriter implements G
 			// setting
 			// //
 
-			// Setting the source for the image write operation
-			mWriter.write(null, new IIOImage(source, null,
-					new AsciiGridsImageMetadata(cols, rows, cellsizeX,cellsizeY, xl, yl,  true,grass, inNoData)), null);
+			if (streaming) {
+				// pulling the source band of rows by band of rows
+				AsciiGridStripWriter.write(outStream, source, cellsizeX, cellsizeY, xl, yl, grass, inNoData);
+			} else {
+				// Setting the source for the image write operation
+				mWriter.write(null, new IIOImage(source, null,
+						new AsciiGridsImageMetadata(cols, rows, cellsizeX,cellsizeY, xl, yl,  true,grass, inNoData)), null);
+			}
 
 			// writing crs info
 			writeCRSInfo(crs);
@@ -0,0 +1,236 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.arcgrid;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.SourcelessOpImage;
+
+import org.geotools.data.DataSourceException;
+
+/**
+ * A {@link SourcelessOpImage} exposing an uncompressed ASCII grid (ESRI or GRASS) as a tiled
+ * image made of full width row strips which are parsed from the file on demand.
+ *
+ * <p>
+ * The first time a strip is requested the file is scanned once in order to build an index of the
+ * byte offset of each row; from then on each strip is decoded by seeking straight to its first
+ * row. Only the row index is kept in memory, the pixels live in the JAI tile cache.
+ *
+ * @since 2.8
+ */
+final class AsciiGridStripImage extends SourcelessOpImage {
+
+    /** Number of samples we aim at for a single strip. */
+    private static final int STRIP_SAMPLES = 256 * 1024;
+
+    /** Size of the buffer used when scanning the file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+
+    private final float noData;
+
+    /** Byte offset of the first value of each row, lazily built. */
+    private volatile long[] rowOffsets;
+
+    /**
+     * Creates a strip image for the provided ascii grid.
+     *
+     * @param file the uncompressed ascii grid file.
+     * @param width the number of columns as declared in the header.
+     * @param height the number of rows as declared in the header.
+     * @param noData value to use for GRASS <code>*</code> null cells.
+     * @param configuration rendering hints for the image, may be <code>null</code>.
+     */
+    AsciiGridStripImage(final File file, final int width, final int height, final double noData,
+            final Map<?, ?> configuration) {
+        super(createLayout(width, height), configuration, createSampleModel(width, height), 0, 0,
+                width, height);
+        this.file = file;
+        this.noData = (float) noData;
+    }
+
+    private static int getStripHeight(final int width, final int height) {
+        return Math.max(1, Math.min(height, STRIP_SAMPLES / Math.max(1, width)));
+    }
+
+    private static SampleModel createSampleModel(final int width, final int height) {
+        return RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_FLOAT, width,
+                getStripHeight(width, height), 1);
+    }
+
+    private static ImageLayout createLayout(final int width, final int height) {
+        final SampleModel sm = createSampleModel(width, height);
+        return new ImageLayout(0, 0, width, height, 0, 0, width, getStripHeight(width, height),
+                sm, PlanarImage.createColorModel(sm));
+    }
+
+    /**
+     * Returns the byte offset of the first value of each row, scanning the file the first time it
+     * is called.
+     */
+    long[] getRowOffsets() throws IOException {
+        long[] offsets = rowOffsets;
+        if (offsets == null) {
+            synchronized (this) {
+                offsets = rowOffsets;
+                if (offsets == null)
+                    rowOffsets = offsets = scan();
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Walks the whole file once counting values, recording where each row starts.
+     */
+    private long[] scan() throws IOException {
+        final int width = getWidth();
+        final int height = getHeight();
+        final long[] offsets = new long[height];
+        final InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            long position = 0;
+            int c;
+
+            // skip the header, made of lines starting with a keyword
+            boolean atLineStart = true;
+            while ((c = in.read()) != -1) {
+                if (atLineStart && !isWhitespace(c)) {
+                    if (!Character.isLetter((char) c))
+                        break;
+                    atLineStart = false;
+                }
+                position++;
+                if (c == '\n' || c == '\r')
+                    atLineStart = true;
+            }
+
+            // count values, c holds the first character of the first one
+            long values = 0;
+            boolean inToken = false;
+            final long total = (long) width * height;
+            while (c != -1) {
+                if (isWhitespace(c))
+                    inToken = false;
+                else if (!inToken) {
+                    inToken = true;
+                    if (values % width == 0)
+                        offsets[(int) (values / width)] = position;
+                    if (++values == total)
+                        break;
+                }
+                position++;
+                c = in.read();
+            }
+            if (values < total)
+                throw new DataSourceException("Unexpected end of file after " + values
+                        + " values, expected " + total + " for " + file);
+            return offsets;
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    protected void computeRect(final PlanarImage[] sources, final WritableRaster dest,
+            final Rectangle destRect) {
+        try {
+            final long[] offsets = getRowOffsets();
+            final FileInputStream fis = new FileInputStream(file);
+            try {
+                fis.getChannel().position(offsets[destRect.y]);
+                final InputStream in = new BufferedInputStream(fis, BUFFER_SIZE);
+                final int width = getWidth();
+                final int minX = destRect.x;
+                final int maxX = destRect.x + destRect.width;
+                final float[] row = new float[destRect.width];
+                final char[] token = new char[64];
+                for (int y = destRect.y; y < destRect.y + destRect.height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        final float value = nextValue(in, token);
+                        if (x >= minX && x < maxX)
+                            row[x - minX] = value;
+                    }
+                    dest.setSamples(minX, y, destRect.width, 1, 0, row);
+                }
+            } finally {
+                fis.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Parses the next value from the stream, using a fast path for plain integers which are by far
+     * the most common content of these grids.
+     */
+    private float nextValue(final InputStream in, final char[] token) throws IOException {
+        int c = in.read();
+        while (c != -1 && isWhitespace(c))
+            c = in.read();
+        if (c == -1)
+            throw new DataSourceException("Unexpected end of file while reading " + file);
+        int length = 0;
+        boolean integer = true;
+        while (c != -1 && !isWhitespace(c)) {
+            if (length == token.length)
+                throw new DataSourceException("Invalid value found while reading " + file);
+            if ((c < '0' || c > '9') && !(length == 0 && (c == '-' || c == '+')))
+                integer = false;
+            token[length++] = (char) c;
+            c = in.read();
+        }
+        if (length == 1 && token[0] == '*')
+            return noData;
+        if (integer && length < 10 && !(length == 1 && token[0] < '0')) {
+            int start = 0;
+            boolean negative = false;
+            if (token[0] == '-' || token[0] == '+') {
+                negative = token[0] == '-';
+                start = 1;
+            }
+            int value = 0;
+            for (int i = start; i < length; i++)
+                value = value * 10 + (token[i] - '0');
+            return negative ? -value : value;
+        }
+        try {
+            return Float.parseFloat(new String(token, 0, length));
+        } catch (NumberFormatException e) {
+            throw new DataSourceException("Invalid value found while reading " + file, e);
+        }
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
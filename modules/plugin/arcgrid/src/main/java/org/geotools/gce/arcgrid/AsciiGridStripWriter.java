@@ -0,0 +1,161 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.arcgrid;
+
+import it.geosolutions.imageio.plugins.arcgrid.AsciiGridsImageWriter;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Writes a {@link RenderedImage} as an ASCII grid pulling it from the source one band of rows at a
+ * time, so that the whole raster never needs to be held in memory.
+ *
+ * @since 2.8
+ */
+final class AsciiGridStripWriter {
+
+    /** Number of samples we aim at for a single band of rows. */
+    private static final int STRIP_SAMPLES = 256 * 1024;
+
+    /** The no data value used when the coverage does not declare one. */
+    private static final double DEFAULT_NODATA = -9999;
+
+    private AsciiGridStripWriter() {
+    }
+
+    /**
+     * Writes the header and the values of the first band of the provided image.
+     *
+     * @param out the destination stream.
+     * @param image the image to write.
+     * @param cellsizeX the resolution along x.
+     * @param cellsizeY the resolution along y.
+     * @param xll x of the lower left corner.
+     * @param yll y of the lower left corner.
+     * @param grass whether to write a GRASS rather than an ESRI header.
+     * @param noData the no data value, may be {@link Double#NaN}.
+     * @throws IOException
+     */
+    static void write(final ImageOutputStream out, final RenderedImage image,
+            final double cellsizeX, final double cellsizeY, final double xll, final double yll,
+            final boolean grass, final double noData) throws IOException {
+        final int cols = image.getWidth();
+        final int rows = image.getHeight();
+        final int dataType = image.getSampleModel().getDataType();
+        final boolean integral = isIntegral(dataType);
+        final boolean floating = dataType == DataBuffer.TYPE_FLOAT;
+
+        // //
+        //
+        // header
+        //
+        // //
+        final double outNoData = Double.isNaN(noData) && !grass ? DEFAULT_NODATA : noData;
+        final StringBuilder header = new StringBuilder();
+        if (grass) {
+            header.append("north: ").append(format(yll + rows * cellsizeY)).append('\n');
+            header.append("south: ").append(format(yll)).append('\n');
+            header.append("east: ").append(format(xll + cols * cellsizeX)).append('\n');
+            header.append("west: ").append(format(xll)).append('\n');
+            header.append("rows: ").append(rows).append('\n');
+            header.append("cols: ").append(cols).append('\n');
+        } else {
+            header.append("NCOLS ").append(cols).append('\n');
+            header.append("NROWS ").append(rows).append('\n');
+            header.append("XLLCORNER ").append(format(xll)).append('\n');
+            header.append("YLLCORNER ").append(format(yll)).append('\n');
+            if (AsciiGridsImageWriter.resolutionCheck(cellsizeX, cellsizeY,
+                    AsciiGridsImageWriter.EPS))
+                header.append("CELLSIZE ").append(format(cellsizeX)).append('\n');
+            else {
+                header.append("DX ").append(format(cellsizeX)).append('\n');
+                header.append("DY ").append(format(cellsizeY)).append('\n');
+            }
+            header.append("NODATA_VALUE ").append(format(outNoData)).append('\n');
+        }
+        out.writeBytes(header.toString());
+
+        // //
+        //
+        // values, band of rows by band of rows
+        //
+        // //
+        final String noDataString = Double.isNaN(outNoData) ? "*" : format(outNoData);
+        final int minX = image.getMinX();
+        final int minY = image.getMinY();
+        final int stripHeight = Math.max(1, Math.min(rows, STRIP_SAMPLES / Math.max(1, cols)));
+        final double[] values = new double[cols];
+        final StringBuilder line = new StringBuilder();
+        for (int y = minY; y < minY + rows; y += stripHeight) {
+            final int height = Math.min(stripHeight, minY + rows - y);
+            final Raster strip = image.getData(new Rectangle(minX, y, cols, height));
+            for (int j = y; j < y + height; j++) {
+                strip.getSamples(minX, j, cols, 1, 0, values);
+                line.setLength(0);
+                for (int i = 0; i < cols; i++) {
+                    if (i > 0)
+                        line.append(' ');
+                    final double value = values[i];
+                    if (Double.isNaN(value) || value == noData)
+                        line.append(noDataString);
+                    else if (integral)
+                        line.append((long) value);
+                    else if (floating)
+                        line.append(format((float) value));
+                    else
+                        line.append(format(value));
+                }
+                line.append('\n');
+                out.writeBytes(line.toString());
+            }
+        }
+        out.flush();
+    }
+
+    private static boolean isIntegral(final int dataType) {
+        return dataType == DataBuffer.TYPE_BYTE || dataType == DataBuffer.TYPE_SHORT
+                || dataType == DataBuffer.TYPE_USHORT || dataType == DataBuffer.TYPE_INT;
+    }
+
+    /**
+     * Formats a number avoiding the scientific notation which many ascii grid parsers choke on.
+     */
+    private static String format(final double value) {
+        if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE)
+            return Long.toString((long) value);
+        final String s = Double.toString(value);
+        if (s.indexOf('E') < 0)
+            return s;
+        return new BigDecimal(s).toPlainString();
+    }
+
+    private static String format(final float value) {
+        if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE)
+            return Long.toString((long) value);
+        final String s = Float.toString(value);
+        if (s.indexOf('E') < 0)
+            return s;
+        return new BigDecimal(s).toPlainString();
+    }
+}
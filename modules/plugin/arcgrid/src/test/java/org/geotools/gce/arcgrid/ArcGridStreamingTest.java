@@ -0,0 +1,102 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.arcgrid;
+
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+
+import org.geotools.TestData;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.factory.Hints;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.opengis.coverage.grid.GridCoverageWriter;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+
+/**
+ * Testing the streaming read and write paths for ascii grids against the plain ones.
+ *
+ * @source $URL$
+ */
+public class ArcGridStreamingTest extends ArcGridBaseTestCase {
+
+	public ArcGridStreamingTest(String name) {
+		super(name);
+	}
+
+	@Override
+	public void runMe(final File testFile) throws Exception {
+		if (testFile.getName().toLowerCase().endsWith("gz"))
+			return;
+		final Hints hints = new Hints(Hints.DEFAULT_COORDINATE_REFERENCE_SYSTEM,
+				DefaultGeographicCRS.WGS84);
+
+		// streaming read vs plain read
+		final GridCoverage2D plain = new ArcGridReader(testFile, hints).read(null);
+		final GridCoverage2D streamed = new ArcGridReader(testFile, hints)
+				.read(new GeneralParameterValue[] { streaming() });
+		final RenderedImage image = streamed.getRenderedImage();
+		assertTrue(image instanceof AsciiGridStripImage);
+		assertEquals(image.getWidth(), image.getTileWidth());
+		compareValues(plain, streamed);
+
+		// streaming write, read back plainly
+		final File written = TestData.temp(this, "streamed-" + testFile.getName());
+		written.deleteOnExit();
+		final GridCoverageWriter writer = new ArcGridWriter(written);
+		writer.write(streamed, new GeneralParameterValue[] { streaming() });
+		writer.dispose();
+		final GridCoverage2D readBack = new ArcGridReader(written, hints).read(null);
+		compareValues(plain, readBack);
+	}
+
+	private static ParameterValue<Boolean> streaming() {
+		final ParameterValue<Boolean> streaming = ArcGridFormat.STREAMING.createValue();
+		streaming.setValue(true);
+		return streaming;
+	}
+
+	/**
+	 * Compares envelopes and values of the two coverages, regardless of their tile layouts.
+	 */
+	private static void compareValues(GridCoverage2D gc1, GridCoverage2D gc2) {
+		final GeneralEnvelope e1 = (GeneralEnvelope) gc1.getEnvelope();
+		final GeneralEnvelope e2 = (GeneralEnvelope) gc2.getEnvelope();
+		assertTrue(e1.equals(e2, 1E-6, false));
+
+		final double noData1 = ArcGridWriter.getCandidateNoData(gc1);
+		final double noData2 = ArcGridWriter.getCandidateNoData(gc2);
+		final Raster r1 = gc1.getRenderedImage().getData();
+		final Raster r2 = gc2.getRenderedImage().getData();
+		assertEquals(r1.getWidth(), r2.getWidth());
+		assertEquals(r1.getHeight(), r2.getHeight());
+		for (int y = r1.getMinY(); y < r1.getMinY() + r1.getHeight(); y++)
+			for (int x = r1.getMinX(); x < r1.getMinX() + r1.getWidth(); x++) {
+				final double v1 = r1.getSampleDouble(x, y, 0);
+				final double v2 = r2.getSampleDouble(x, y, 0);
+				if (isNoData(v1, noData1) && isNoData(v2, noData2))
+					continue;
+				assertEquals((float) v1, (float) v2, 0f);
+			}
+	}
+
+	private static boolean isNoData(double value, double noData) {
+		return Double.isNaN(value) || value == noData;
+	}
+}
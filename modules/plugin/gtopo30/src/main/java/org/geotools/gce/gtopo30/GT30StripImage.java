@@ -0,0 +1,123 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.gtopo30;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.SourcelessOpImage;
+
+/**
+ * A {@link SourcelessOpImage} exposing a GTOPO30 .DEM file as a tiled image made of full width row
+ * strips, each one read from the file only when JAI asks for it.
+ *
+ * <p>
+ * Rows have a fixed length of two bytes per sample, therefore the offset of each strip is computed
+ * directly and no scan of the file is needed.
+ *
+ * @since 2.8
+ */
+final class GT30StripImage extends SourcelessOpImage {
+
+    /** Number of samples we aim at for a single strip. */
+    private static final int STRIP_SAMPLES = 256 * 1024;
+
+    private final File file;
+
+    private final ByteOrder byteOrder;
+
+    /**
+     * Creates a strip image for the provided .DEM file.
+     *
+     * @param file the .DEM file.
+     * @param width the number of columns.
+     * @param height the number of rows.
+     * @param byteOrder the byte order of the samples.
+     * @param configuration rendering hints for the image, may be <code>null</code>.
+     */
+    GT30StripImage(final File file, final int width, final int height, final ByteOrder byteOrder,
+            final Map<?, ?> configuration) {
+        super(createLayout(width, height), configuration, createSampleModel(width, height), 0, 0,
+                width, height);
+        this.file = file;
+        this.byteOrder = byteOrder;
+    }
+
+    private static int getStripHeight(final int width, final int height) {
+        return Math.max(1, Math.min(height, STRIP_SAMPLES / Math.max(1, width)));
+    }
+
+    private static SampleModel createSampleModel(final int width, final int height) {
+        return RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_SHORT, width,
+                getStripHeight(width, height), 1);
+    }
+
+    private static ImageLayout createLayout(final int width, final int height) {
+        final SampleModel sm = createSampleModel(width, height);
+        return new ImageLayout(0, 0, width, height, 0, 0, width, getStripHeight(width, height),
+                sm, PlanarImage.createColorModel(sm));
+    }
+
+    @Override
+    protected void computeRect(final PlanarImage[] sources, final WritableRaster dest,
+            final Rectangle destRect) {
+        final int width = getWidth();
+        final ByteBuffer buffer = ByteBuffer.allocate(width * 2 * destRect.height);
+        buffer.order(byteOrder);
+        try {
+            final FileInputStream in = new FileInputStream(file);
+            try {
+                final FileChannel channel = in.getChannel();
+                long position = (long) destRect.y * width * 2;
+                while (buffer.hasRemaining()) {
+                    final int read = channel.read(buffer, position);
+                    if (read < 0)
+                        throw new EOFException("Unexpected end of file while reading " + file);
+                    position += read;
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        buffer.flip();
+
+        final short[] row = new short[width];
+        final int[] samples = new int[destRect.width];
+        for (int y = destRect.y; y < destRect.y + destRect.height; y++) {
+            buffer.asShortBuffer().get(row);
+            buffer.position(buffer.position() + width * 2);
+            for (int x = 0; x < destRect.width; x++)
+                samples[x] = row[destRect.x + x];
+            dest.setSamples(destRect.x, y, destRect.width, 1, 0, samples);
+        }
+    }
+}
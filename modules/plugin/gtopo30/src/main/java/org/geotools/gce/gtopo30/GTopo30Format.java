@@ -29,6 +29,7 @@ import org.geotools.coverage.grid.io.AbstractGridFormat;
 import org.geotools.coverage.grid.io.imageio.GeoToolsWriteParams;
 import org.geotools.data.DataSourceException;
 import org.geotools.factory.Hints;
+import org.geotools.parameter.DefaultParameterDescriptor;
 import org.geotools.parameter.DefaultParameterDescriptorGroup;
 import org.geotools.parameter.ParameterGroup;
 import org.opengis.coverage.grid.Format;
@@ -48,6 +49,17 @@ public final class GTopo30Format extends AbstractGridFormat implements Format {
 	/** Logger. */
 	private final static Logger LOGGER = org.geotools.util.logging.Logging.getLogger("org.geotools.gce.gtopo30");
 
+	/**
+	 * Indicates whether the .DEM has to be exposed as strips of rows read on
+	 * demand, for files larger than the available memory.
+	 */
+	public static final DefaultParameterDescriptor<Boolean> STREAMING = DefaultParameterDescriptor.create(
+			"STREAMING",
+			"Indicates whether the DEM has to be read in strips of rows",
+			Boolean.class,
+			Boolean.FALSE,
+			false);
+
 	/**
 	 * Creates an instance and sets the metadata.
 	 */
@@ -63,7 +75,7 @@ public final class GTopo30Format extends AbstractGridFormat implements Format {
 		readParameters = new ParameterGroup(
 				new DefaultParameterDescriptorGroup(
 						mInfo,
-						new GeneralParameterDescriptor[] { READ_GRIDGEOMETRY2D }));
+						new GeneralParameterDescriptor[] { READ_GRIDGEOMETRY2D, STREAMING }));
 
 		// reading parameters
 		writeParameters = new ParameterGroup(
@@ -26,6 +26,7 @@ import java.awt.color.ColorSpace;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.awt.image.renderable.ParameterBlock;
 import java.io.BufferedReader;
@@ -50,7 +51,6 @@ import javax.measure.unit.Unit;
 import javax.measure.unit.UnitFormat;
 import javax.media.jai.ImageLayout;
 import javax.media.jai.JAI;
-import javax.media.jai.RenderedOp;
 
 import org.geotools.coverage.Category;
 import org.geotools.coverage.GridSampleDimension;
@@ -300,6 +300,7 @@ public final class GTopo30Reader extends AbstractGridCoverage2DReader implements
 		GeneralEnvelope requestedEnvelope = null;
 		Rectangle dim = null;
 		OverviewPolicy overviewPolicy=null;
+		boolean streaming = false;
 		if (params != null) {
 			// /////////////////////////////////////////////////////////////////////
 			//
@@ -322,7 +323,11 @@ public final class GTopo30Reader extends AbstractGridCoverage2DReader implements
 							.getName().toString())) {
 						overviewPolicy=(OverviewPolicy) param.getValue();
 						continue;
-					}					
+					}
+					if (name.equals(GTopo30Format.STREAMING.getName().toString())) {
+						streaming = ((Boolean) param.getValue()).booleanValue();
+						continue;
+					}
 				}
 			}
 		}
@@ -332,7 +337,7 @@ public final class GTopo30Reader extends AbstractGridCoverage2DReader implements
 		// Building the required coverage
 		//
 		// /////////////////////////////////////////////////////////////////////
-		return getGridCoverage(requestedEnvelope, dim,overviewPolicy);
+		return getGridCoverage(requestedEnvelope, dim,overviewPolicy, streaming);
 	}
 
 	/**
@@ -394,7 +399,7 @@ public final class GTopo30Reader extends AbstractGridCoverage2DReader implements
 	 *             if an error occurs
 	 */
 	private GridCoverage2D getGridCoverage(GeneralEnvelope requestedEnvelope,
-			Rectangle dim, OverviewPolicy overviewPolicy) throws IOException {
+			Rectangle dim, OverviewPolicy overviewPolicy, boolean streaming) throws IOException {
 		int hrWidth = originalGridRange.getSpan(0);
 		int hrHeight = originalGridRange.getSpan(1);
 
@@ -430,48 +435,14 @@ public final class GTopo30Reader extends AbstractGridCoverage2DReader implements
 		// /////////////////////////////////////////////////////////////////////
 		// trying to create a channel to the file to read
 		final File file = DataUtilities.urlToFile(demURL);
-		final ImageInputStream iis = ImageIO.createImageInputStream(file);
-		if (header.getByteOrder().compareToIgnoreCase("M") == 0) {
-			iis.setByteOrder(ByteOrder.BIG_ENDIAN);
-		} else {
-			iis.setByteOrder(ByteOrder.LITTLE_ENDIAN);
-		}
-
-		// Prepare temporaray colorModel and sample model, needed to build the
-		// RawImageInputStream
-		final ColorModel cm = new ComponentColorModel(ColorSpace
-				.getInstance(ColorSpace.CS_GRAY), false, false,
-				Transparency.OPAQUE, DataBuffer.TYPE_SHORT);
-		final SampleModel sm = cm
-				.createCompatibleSampleModel(hrWidth, hrHeight);
-		final ImageTypeSpecifier its = new ImageTypeSpecifier(cm, sm);
-		// Finally, build the image input stream
-		final RawImageInputStream raw = new RawImageInputStream(iis, its,
-				new long[] { 0 }, new Dimension[] { new Dimension(hrWidth,
-						hrHeight) });
-
-		// building the final image layout
-		final Dimension tileSize = ImageUtilities.toTileSize(new Dimension(
-				hrWidth, hrHeight));
-		final ImageLayout il = new ImageLayout(0, 0, hrWidth
-				/ readP.getSourceXSubsampling(), hrHeight
-				/ readP.getSourceYSubsampling(), 0, 0, (int) tileSize
-				.getWidth(), (int) tileSize.getHeight(), sm, cm);
-
-		// First operator: read the image
-		final RenderingHints hints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT,
-				il);
-		final ParameterBlock pbjImageRead = new ParameterBlock();
-		pbjImageRead.add(raw);
-		pbjImageRead.add(imageChoice);
-		pbjImageRead.add(Boolean.FALSE);
-		pbjImageRead.add(Boolean.FALSE);
-		pbjImageRead.add(Boolean.FALSE);
-		pbjImageRead.add(null);
-		pbjImageRead.add(null);
-		pbjImageRead.add(readP);
-		pbjImageRead.add(imageIOSPI.createReaderInstance());
-		RenderedOp image = JAI.create("ImageRead", pbjImageRead, hints);
+		final ByteOrder byteOrder = header.getByteOrder().compareToIgnoreCase("M") == 0 ? ByteOrder.BIG_ENDIAN
+				: ByteOrder.LITTLE_ENDIAN;
+		final RenderedImage image;
+		if (streaming) {
+			// full resolution strips, read on demand
+			image = new GT30StripImage(file, hrWidth, hrHeight, byteOrder, hints);
+		} else
+			image = readImage(file, byteOrder, readP, imageChoice, hrWidth, hrHeight);
 
 		// sample dimension for this coverage
 		final GridSampleDimension band = getSampleDimension(max, min);
@@ -510,6 +481,53 @@ public final class GTopo30Reader extends AbstractGridCoverage2DReader implements
 				new GridSampleDimension[] { band }, null, metadata);
 	}
 
+	/**
+	 * Reads the .DEM through the imageio raw reader, honouring the subsampling
+	 * factors computed from the request.
+	 */
+	private RenderedImage readImage(final File file, final ByteOrder byteOrder,
+			final ImageReadParam readP, final Integer imageChoice,
+			final int hrWidth, final int hrHeight) throws IOException {
+		final ImageInputStream iis = ImageIO.createImageInputStream(file);
+		iis.setByteOrder(byteOrder);
+
+		// Prepare temporaray colorModel and sample model, needed to build the
+		// RawImageInputStream
+		final ColorModel cm = new ComponentColorModel(ColorSpace
+				.getInstance(ColorSpace.CS_GRAY), false, false,
+				Transparency.OPAQUE, DataBuffer.TYPE_SHORT);
+		final SampleModel sm = cm
+				.createCompatibleSampleModel(hrWidth, hrHeight);
+		final ImageTypeSpecifier its = new ImageTypeSpecifier(cm, sm);
+		// Finally, build the image input stream
+		final RawImageInputStream raw = new RawImageInputStream(iis, its,
+				new long[] { 0 }, new Dimension[] { new Dimension(hrWidth,
+						hrHeight) });
+
+		// building the final image layout
+		final Dimension tileSize = ImageUtilities.toTileSize(new Dimension(
+				hrWidth, hrHeight));
+		final ImageLayout il = new ImageLayout(0, 0, hrWidth
+				/ readP.getSourceXSubsampling(), hrHeight
+				/ readP.getSourceYSubsampling(), 0, 0, (int) tileSize
+				.getWidth(), (int) tileSize.getHeight(), sm, cm);
+
+		// First operator: read the image
+		final RenderingHints hints = new RenderingHints(JAI.KEY_IMAGE_LAYOUT,
+				il);
+		final ParameterBlock pbjImageRead = new ParameterBlock();
+		pbjImageRead.add(raw);
+		pbjImageRead.add(imageChoice);
+		pbjImageRead.add(Boolean.FALSE);
+		pbjImageRead.add(Boolean.FALSE);
+		pbjImageRead.add(Boolean.FALSE);
+		pbjImageRead.add(null);
+		pbjImageRead.add(null);
+		pbjImageRead.add(readP);
+		pbjImageRead.add(imageIOSPI.createReaderInstance());
+		return JAI.create("ImageRead", pbjImageRead, hints);
+	}
+
 	/**
 	 * This method is responsible for the creation of the CRS for this GTOPO30.
 	 * The possible options are two, EPSG:4326 and POlar Stereographc. Inc ase
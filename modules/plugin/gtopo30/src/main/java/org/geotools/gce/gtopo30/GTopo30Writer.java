@@ -17,9 +17,11 @@
  */
 package org.geotools.gce.gtopo30;
 
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
 import java.awt.image.renderable.ParameterBlock;
 import java.io.BufferedOutputStream;
@@ -116,6 +118,9 @@ final public class GTopo30Writer extends AbstractGridCoverageWriter implements
 	/** Standard height for the GIF image. */
 	private final static int GIF_HEIGHT = 480;
 
+	/** Number of samples we aim at for a single band of rows of the DEM. */
+	private final static int STRIP_SAMPLES = 256 * 1024;
+
 	/**
 	 * Creates a {@link GTopo30Writer}.
 	 * 
@@ -1064,19 +1069,27 @@ final public class GTopo30Writer extends AbstractGridCoverageWriter implements
 
 		out.setByteOrder(java.nio.ByteOrder.BIG_ENDIAN);
 
-		// untile the image in case it is tiled
-		// otherwise we could add tiles which are unexistant in the original
-		// data
-		// generating failures when reading back the data again.
-		image = untileImage(image);
-
-		// requesting an imageio writer
-		// setting tile parameters in order to tile the image on the disk
-		final ParameterBlockJAI pbjW = new ParameterBlockJAI("ImageWrite");
-		pbjW.addSource(image);
-		pbjW.setParameter("Format", "raw");
-		pbjW.setParameter("Output", out);
-		JAI.create("ImageWrite", pbjW);
+		// pulling the image band of rows by band of rows, this way we never
+		// need the whole raster in memory and we do not write down tiles which
+		// are unexistant in the original data
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+		final int minX = image.getMinX();
+		final int minY = image.getMinY();
+		final int stripHeight = Math.max(1, Math.min(height, STRIP_SAMPLES
+				/ Math.max(1, width)));
+		final int[] samples = new int[width];
+		final short[] row = new short[width];
+		for (int y = minY; y < minY + height; y += stripHeight) {
+			final int h = Math.min(stripHeight, minY + height - y);
+			final Raster strip = image.getData(new Rectangle(minX, y, width, h));
+			for (int j = y; j < y + h; j++) {
+				strip.getSamples(minX, j, width, 1, 0, samples);
+				for (int i = 0; i < width; i++)
+					row[i] = (short) samples[i];
+				out.writeShorts(row, 0, width);
+			}
+		}
 
 		if (dest instanceof File) {
 			out.flush();
@@ -17,6 +17,8 @@
  */
 package org.geotools.gce.gtopo30;
 
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.net.URL;
 
@@ -30,6 +32,8 @@ import org.geotools.test.TestData;
 import org.geotools.resources.coverage.CoverageUtilities;
 import org.opengis.coverage.grid.GridCoverageReader;
 import org.opengis.coverage.grid.GridCoverageWriter;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
 
 /**
  * Purpose of this class is testing the ability of this plug in to read and
@@ -142,6 +146,36 @@ public class GT30ReaderWriterTest extends GT30TestBase {
 		}
 	}
 
+	/**
+	 * Testing that the streaming read path exposes the very same values as
+	 * the plain one, using full width strips.
+	 * 
+	 * @throws Exception
+	 */
+	public void testStreaming() throws Exception {
+		final URL statURL = TestData.url(this, (new StringBuffer(this.fileName)
+				.append(".DEM").toString()));
+		final AbstractGridFormat format = (AbstractGridFormat) new GTopo30FormatFactory()
+				.createFormat();
+		assertTrue(format.accepts(statURL));
+
+		final GridCoverage2D plain = (GridCoverage2D) format.getReader(statURL).read(null);
+		final ParameterValue<Boolean> streaming = GTopo30Format.STREAMING.createValue();
+		streaming.setValue(true);
+		final GridCoverage2D streamed = (GridCoverage2D) format.getReader(statURL).read(
+				new GeneralParameterValue[] { streaming });
+
+		final RenderedImage image = streamed.getRenderedImage();
+		assertEquals(image.getWidth(), image.getTileWidth());
+		final Raster expected = plain.getRenderedImage().getData();
+		final Raster actual = image.getData();
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for (int y = 0; y < expected.getHeight(); y++)
+			for (int x = 0; x < expected.getWidth(); x++)
+				assertEquals(expected.getSample(x, y, 0), actual.getSample(x, y, 0));
+	}
+
 	public static final void main(String[] args) throws Exception {
 		junit.textui.TestRunner.run(GT30ReaderWriterTest.class);
 	}
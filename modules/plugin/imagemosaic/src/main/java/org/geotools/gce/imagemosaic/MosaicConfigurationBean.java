@@ -127,6 +127,9 @@ public class MosaicConfigurationBean {
 	/** we want to use caching for our index.*/
 	private boolean caching = Utils.DEFAULT_CONFIGURATION_CACHING;
 
+	/** we want to use a persistent, memory mapped, packed index (requires caching).*/
+	private boolean packedIndex;
+
    /** <code>true</code> if we need to manage footprint if available.  */
     private boolean footprintManagement;
 
@@ -191,6 +194,12 @@ public class MosaicConfigurationBean {
 	public void setCaching(final boolean caching) {
 		this.caching = caching;
 	}
+	public boolean isPackedIndex() {
+		return packedIndex;
+	}
+	public void setPackedIndex(final boolean packedIndex) {
+		this.packedIndex = packedIndex;
+	}
 
         public void setFootprintManagement(final boolean footprintManagement) {
                 this.footprintManagement = footprintManagement;
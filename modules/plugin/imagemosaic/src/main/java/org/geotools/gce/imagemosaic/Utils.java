@@ -133,6 +133,7 @@ public class Utils {
         static final String TIME_ATTRIBUTE = "TimeAttribute";
         static final String ELEVATION_ATTRIBUTE = "ElevationAttribute";
         final static String CACHING= "Caching";
+        final static String PACKED_INDEX= "PackedIndex";
         static final String RUN_TIME = "RuntimeAttribute";
     }
     
@@ -251,6 +252,14 @@ public class Utils {
 			
 			if (props.containsKey("Caching"))
 				configuration.setCaching(Boolean.valueOf(props.getProperty("Caching")));
+
+			// incremental update of an existing index
+			if (props.containsKey("Incremental"))
+				configuration.setIncremental(Boolean.valueOf(props.getProperty("Incremental")));
+
+			// parallel harvesting
+			if (props.containsKey("HarvestingThreads"))
+				configuration.setHarvestingThreads(Integer.parseInt(props.getProperty("HarvestingThreads").trim()));
 		}
 
 		// create the builder
@@ -440,6 +449,14 @@ public class Utils {
 			}
 		}
 
+		//
+		// packed index
+		//
+		if (properties.containsKey(Prop.PACKED_INDEX)) {
+			final String packedIndex = properties.getProperty(Prop.PACKED_INDEX).trim();
+			retValue.setPackedIndex(Boolean.valueOf(packedIndex));
+		}
+
 		//
 		// name is not optional
 		//
@@ -88,6 +88,12 @@ public abstract class GranuleCatalogFactory {
 			params.put("ParentLocation", DataUtilities.fileToURL(parentDirectory).toString());
 			
 			final DataStoreFactorySpi spi=configuration.isCaching() ? Utils.SHAPE_SPI : Utils.INDEXED_SHAPE_SPI;
+			if(configuration.isCaching()&&configuration.isPackedIndex()&&sourceURL.getProtocol().equalsIgnoreCase("file")){
+				// persistent packed index living next to the shapefile
+				final File indexFile=new File(sourceFile.getParentFile(),
+						FilenameUtils.getBaseName(sourceFile.getName())+"."+PackedRTreeGranuleCatalog.INDEX_EXTENSION);
+				return new PackedRTreeGranuleCatalog(new GTDataStoreGranuleCatalog(params,false,spi),indexFile,sourceFile);
+			}
 			return configuration.isCaching()?new STRTreeGranuleCatalog(params,spi):new GTDataStoreGranuleCatalog(params,false,spi);
 		}
 		else
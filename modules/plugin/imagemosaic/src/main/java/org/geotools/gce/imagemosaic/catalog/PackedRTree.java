@@ -0,0 +1,443 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A static, bulk loaded, packed R-tree persisted in a single file and accessed through a read
+ * only memory mapped buffer.
+ *
+ * <p>
+ * Items are sorted along a Hilbert curve and packed bottom up into nodes of fixed capacity, so
+ * that the tree can be stored as two flat arrays (node boxes and node pointers) and queried
+ * without any deserialization. Once opened the tree is immutable, hence queries can be run
+ * concurrently without any locking, and since its content lives outside the Java heap it is
+ * never reclaimed by the garbage collector.
+ *
+ * <p>
+ * File layout (big endian):
+ * <ul>
+ * <li>header: magic, version, source timestamp, source length, number of items, node capacity,
+ * number of nodes, number of levels</li>
+ * <li>level bounds: one int per level</li>
+ * <li>node boxes: four doubles (minx, miny, maxx, maxy) per node</li>
+ * <li>node pointers: one int per node, the item ordinal for leaves and the first child for
+ * internal nodes</li>
+ * <li>identifiers: one int offset per item (plus a trailing one) followed by the UTF-8 encoded
+ * feature identifiers</li>
+ * </ul>
+ *
+ * @since 2.8
+ */
+final class PackedRTree {
+
+    /** Logger. */
+    private final static Logger LOGGER = org.geotools.util.logging.Logging.getLogger(PackedRTree.class);
+
+    /** Magic number, "GPRT". */
+    static final int MAGIC = 0x47505254;
+
+    static final int VERSION = 1;
+
+    /** Default number of children per node. */
+    static final int DEFAULT_NODE_CAPACITY = 16;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 4 + 4;
+
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+
+    /**
+     * Callback used by {@link PackedRTree#query(Envelope, ItemVisitor)} to receive the ordinals of
+     * the matching items.
+     */
+    interface ItemVisitor {
+        void visit(int item);
+    }
+
+    private final ByteBuffer buffer;
+
+    private final long sourceTimestamp;
+
+    private final long sourceLength;
+
+    private final int numItems;
+
+    private final int nodeCapacity;
+
+    private final int numNodes;
+
+    private final int[] levelBounds;
+
+    private final int boxesOffset;
+
+    private final int pointersOffset;
+
+    private final int idsOffset;
+
+    private PackedRTree(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a packed R-tree index");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported packed R-tree version " + buffer.getInt(4));
+        sourceTimestamp = buffer.getLong(8);
+        sourceLength = buffer.getLong(16);
+        numItems = buffer.getInt(24);
+        nodeCapacity = buffer.getInt(28);
+        numNodes = buffer.getInt(32);
+        final int numLevels = buffer.getInt(36);
+        levelBounds = new int[numLevels];
+        int pos = HEADER_SIZE;
+        for (int i = 0; i < numLevels; i++, pos += 4)
+            levelBounds[i] = buffer.getInt(pos);
+        boxesOffset = pos;
+        pointersOffset = boxesOffset + numNodes * 32;
+        idsOffset = pointersOffset + numNodes * 4;
+        if (buffer.capacity() < idsOffset + (numItems + 1) * 4)
+            throw new IOException("Truncated packed R-tree index");
+    }
+
+    /**
+     * Opens a previously written index, mapping it in memory.
+     *
+     * @param file the index file
+     * @return the opened index
+     * @throws IOException in case the file cannot be read or is not a valid index
+     */
+    static PackedRTree open(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            // the mapping stays valid after the channel has been closed
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new PackedRTree(buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Bulk loads a packed R-tree for the provided envelopes and persists it to the provided file.
+     *
+     * <p>
+     * The file is first written to a temporary location and then renamed, so that concurrent
+     * readers never see a partially written index.
+     *
+     * @param file the destination file
+     * @param envelopes the items envelopes, the position in the list is the item ordinal
+     * @param ids the items identifiers, in the same order as the envelopes
+     * @param nodeCapacity the maximum number of children per node
+     * @param sourceTimestamp last modification time of the source the index has been built from
+     * @param sourceLength length of the source the index has been built from
+     * @throws IOException in case the index cannot be written
+     */
+    static void write(final File file, final List<Envelope> envelopes, final List<String> ids,
+            final int nodeCapacity, final long sourceTimestamp, final long sourceLength)
+            throws IOException {
+        if (envelopes.size() != ids.size())
+            throw new IllegalArgumentException("Envelopes and identifiers must have the same size");
+        if (nodeCapacity < 2)
+            throw new IllegalArgumentException("Node capacity must be at least 2: " + nodeCapacity);
+        final int n = envelopes.size();
+
+        // compute the level bounds
+        final List<Integer> bounds = new ArrayList<Integer>();
+        int count = n;
+        int nodes = n;
+        bounds.add(nodes);
+        if (n > 0) {
+            do {
+                count = (count + nodeCapacity - 1) / nodeCapacity;
+                nodes += count;
+                bounds.add(nodes);
+            } while (count != 1);
+        }
+
+        // sort items along the hilbert curve
+        final Envelope extent = new Envelope();
+        for (Envelope env : envelopes)
+            extent.expandToInclude(env);
+        final long[] keys = new long[n];
+        final double width = extent.getWidth() > 0 ? extent.getWidth() : 1;
+        final double height = extent.getHeight() > 0 ? extent.getHeight() : 1;
+        for (int i = 0; i < n; i++) {
+            final Envelope env = envelopes.get(i);
+            final int x = (int) Math.floor(HILBERT_MAX * ((env.getMinX() + env.getMaxX()) / 2 - extent.getMinX()) / width);
+            final int y = (int) Math.floor(HILBERT_MAX * ((env.getMinY() + env.getMaxY()) / 2 - extent.getMinY()) / height);
+            // hilbert value in the high bits, ordinal in the low ones
+            keys[i] = ((hilbert(x, y) & 0xFFFFFFFFL) << 31) | i;
+        }
+        java.util.Arrays.sort(keys);
+
+        final double[] boxes = new double[nodes * 4];
+        final int[] pointers = new int[nodes];
+        for (int i = 0; i < n; i++) {
+            final int item = (int) (keys[i] & 0x7FFFFFFFL);
+            final Envelope env = envelopes.get(item);
+            boxes[i * 4] = env.getMinX();
+            boxes[i * 4 + 1] = env.getMinY();
+            boxes[i * 4 + 2] = env.getMaxX();
+            boxes[i * 4 + 3] = env.getMaxY();
+            pointers[i] = item;
+        }
+
+        // pack the upper levels
+        int pos = 0;
+        int parent = n;
+        for (int level = 0; level < bounds.size() - 1; level++) {
+            final int end = bounds.get(level);
+            while (pos < end) {
+                final int first = pos;
+                double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+                for (int j = 0; j < nodeCapacity && pos < end; j++, pos++) {
+                    minX = Math.min(minX, boxes[pos * 4]);
+                    minY = Math.min(minY, boxes[pos * 4 + 1]);
+                    maxX = Math.max(maxX, boxes[pos * 4 + 2]);
+                    maxY = Math.max(maxY, boxes[pos * 4 + 3]);
+                }
+                boxes[parent * 4] = minX;
+                boxes[parent * 4 + 1] = minY;
+                boxes[parent * 4 + 2] = maxX;
+                boxes[parent * 4 + 3] = maxY;
+                pointers[parent] = first;
+                parent++;
+            }
+        }
+
+        // encode identifiers
+        final byte[][] encodedIds = new byte[n][];
+        int idsLength = 0;
+        for (int i = 0; i < n; i++) {
+            encodedIds[i] = encode(ids.get(i));
+            idsLength += encodedIds[i].length;
+        }
+
+        final int size = HEADER_SIZE + bounds.size() * 4 + nodes * 32 + nodes * 4 + (n + 1) * 4 + idsLength;
+        final ByteBuffer out = ByteBuffer.allocate(size);
+        out.order(ByteOrder.BIG_ENDIAN);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putLong(sourceTimestamp);
+        out.putLong(sourceLength);
+        out.putInt(n);
+        out.putInt(nodeCapacity);
+        out.putInt(nodes);
+        out.putInt(bounds.size());
+        for (Integer bound : bounds)
+            out.putInt(bound);
+        for (double d : boxes)
+            out.putDouble(d);
+        for (int p : pointers)
+            out.putInt(p);
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            out.putInt(offset);
+            offset += encodedIds[i].length;
+        }
+        out.putInt(offset);
+        for (byte[] id : encodedIds)
+            out.put(id);
+        out.flip();
+
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        final RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+        try {
+            raf.setLength(0);
+            final FileChannel channel = raf.getChannel();
+            while (out.hasRemaining())
+                channel.write(out);
+            channel.force(true);
+        } finally {
+            raf.close();
+        }
+        if (file.exists() && !file.delete()) {
+            if (LOGGER.isLoggable(Level.WARNING))
+                LOGGER.warning("Unable to replace the packed R-tree index " + file);
+        }
+        if (!temp.renameTo(file))
+            throw new IOException("Unable to rename " + temp + " to " + file);
+    }
+
+    /**
+     * Visits the ordinals of all the items whose envelope intersects the provided one.
+     *
+     * @param envelope the query envelope
+     * @param visitor the visitor receiving the item ordinals
+     */
+    void query(final Envelope envelope, final ItemVisitor visitor) {
+        if (numItems == 0 || envelope == null || envelope.isNull())
+            return;
+        final double minX = envelope.getMinX(), minY = envelope.getMinY();
+        final double maxX = envelope.getMaxX(), maxY = envelope.getMaxY();
+
+        int[] stack = new int[32];
+        int top = 0;
+        int node = numNodes - 1;
+        while (true) {
+            final int end = Math.min(node + nodeCapacity, upperBound(node));
+            for (int pos = node; pos < end; pos++) {
+                final int box = boxesOffset + pos * 32;
+                if (maxX < buffer.getDouble(box) || maxY < buffer.getDouble(box + 8)
+                        || minX > buffer.getDouble(box + 16) || minY > buffer.getDouble(box + 24))
+                    continue;
+                final int pointer = buffer.getInt(pointersOffset + pos * 4);
+                if (node >= numItems) {
+                    if (top == stack.length) {
+                        final int[] grown = new int[stack.length * 2];
+                        System.arraycopy(stack, 0, grown, 0, stack.length);
+                        stack = grown;
+                    }
+                    stack[top++] = pointer;
+                } else {
+                    visitor.visit(pointer);
+                }
+            }
+            if (top == 0)
+                break;
+            node = stack[--top];
+        }
+    }
+
+    /**
+     * Returns the ordinals of all the items whose envelope intersects the provided one.
+     *
+     * @param envelope the query envelope
+     * @return the matching ordinals
+     */
+    List<Integer> query(final Envelope envelope) {
+        final List<Integer> result = new ArrayList<Integer>();
+        query(envelope, new ItemVisitor() {
+            public void visit(int item) {
+                result.add(item);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the identifier of the provided item.
+     *
+     * @param item the item ordinal
+     * @return the identifier
+     */
+    String getId(final int item) {
+        if (item < 0 || item >= numItems)
+            throw new IndexOutOfBoundsException("Invalid item " + item);
+        final int start = buffer.getInt(idsOffset + item * 4);
+        final int end = buffer.getInt(idsOffset + (item + 1) * 4);
+        final int base = idsOffset + (numItems + 1) * 4;
+        final byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(base + start + i);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    int size() {
+        return numItems;
+    }
+
+    long getSourceTimestamp() {
+        return sourceTimestamp;
+    }
+
+    long getSourceLength() {
+        return sourceLength;
+    }
+
+    private int upperBound(final int node) {
+        for (int i = 0; i < levelBounds.length; i++)
+            if (levelBounds[i] > node)
+                return levelBounds[i];
+        return numNodes;
+    }
+
+    private static byte[] encode(final String id) {
+        try {
+            return id.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Computes the position of the provided point along a 16 bits Hilbert curve.
+     */
+    static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >>> 1);
+        int B = (a >>> 1) ^ a;
+        int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = A; b = B; c = C; d = D;
+        A = ((a & (a >>> 2)) ^ (b & (b >>> 2)));
+        B = ((a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2)));
+        C ^= ((a & (c >>> 2)) ^ (b & (d >>> 2)));
+        D ^= ((b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2)));
+
+        a = A; b = B; c = C; d = D;
+        A = ((a & (a >>> 4)) ^ (b & (b >>> 4)));
+        B = ((a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4)));
+        C ^= ((a & (c >>> 4)) ^ (b & (d >>> 4)));
+        D ^= ((b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4)));
+
+        a = A; b = B; c = C; d = D;
+        C ^= ((a & (c >>> 8)) ^ (b & (d >>> 8)));
+        D ^= ((b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8)));
+
+        a = C ^ (C >>> 1);
+        b = D ^ (D >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+        i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+        i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return (i1 << 1) | i0;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.factory.GeoTools;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.gce.imagemosaic.GranuleDescriptor;
+import org.geotools.gce.imagemosaic.catalog.GTDataStoreGranuleCatalog.BBOXFilterExtractor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Utilities;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A {@link GranuleCatalog} backed by a {@link PackedRTree} persisted next to the mosaic index.
+ *
+ * <p>
+ * Differently from the {@link STRTreeGranuleCatalog} the spatial index is built only once, when
+ * missing or older than the mosaic index, and then memory mapped, so opening the catalog does not
+ * require scanning the wrapped one and the index cannot be reclaimed by the garbage collector.
+ * Queries do not take any lock: the tree is immutable and the {@link GranuleDescriptor}s are
+ * loaded on demand from the wrapped catalog, by feature id, and then kept in a strongly referenced
+ * table.
+ *
+ * @since 2.8
+ */
+class PackedRTreeGranuleCatalog extends AbstractGranuleCatalog {
+
+    /** Logger. */
+    final static Logger LOGGER = org.geotools.util.logging.Logging.getLogger(PackedRTreeGranuleCatalog.class);
+
+    /** Extension of the packed index file, written next to the mosaic index. */
+    public static final String INDEX_EXTENSION = "prtree";
+
+    final static FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(GeoTools.getDefaultHints());
+
+    /** Maximum number of feature ids to be resolved with a single query on the wrapped catalog. */
+    private static final int RESOLVE_BATCH_SIZE = 1000;
+
+    private volatile GranuleCatalog wrappedCatalogue;
+
+    private volatile PackedRTree index;
+
+    private volatile AtomicReferenceArray<GranuleDescriptor> granules;
+
+    /**
+     * Creates a new catalog wrapping the provided one.
+     *
+     * <p>
+     * Notice that this implementation will take ownership of the provided {@link GranuleCatalog},
+     * which means it is responsible for closing it.
+     *
+     * @param catalogue the {@link GranuleCatalog} to be wrapped.
+     * @param indexFile the file holding the packed index, created if missing or stale.
+     * @param sourceFile the mosaic index file, used to check whether the packed index is up to
+     *        date, can be <code>null</code>.
+     */
+    public PackedRTreeGranuleCatalog(final GranuleCatalog catalogue, final File indexFile,
+            final File sourceFile) {
+        Utilities.ensureNonNull("catalogue", catalogue);
+        Utilities.ensureNonNull("indexFile", indexFile);
+        this.wrappedCatalogue = catalogue;
+        try {
+            final long timestamp = sourceFile != null ? sourceFile.lastModified() : 0;
+            final long length = sourceFile != null ? sourceFile.length() : 0;
+            PackedRTree tree = null;
+            if (indexFile.exists()) {
+                try {
+                    tree = PackedRTree.open(indexFile);
+                    if (tree.getSourceTimestamp() != timestamp || tree.getSourceLength() != length) {
+                        if (LOGGER.isLoggable(Level.FINE))
+                            LOGGER.fine("Packed index " + indexFile + " is stale, rebuilding it");
+                        tree = null;
+                    }
+                } catch (IOException e) {
+                    if (LOGGER.isLoggable(Level.WARNING))
+                        LOGGER.log(Level.WARNING, "Unable to open packed index " + indexFile
+                                + ", rebuilding it", e);
+                    tree = null;
+                }
+            }
+            if (tree != null) {
+                this.index = tree;
+                this.granules = new AtomicReferenceArray<GranuleDescriptor>(tree.size());
+            } else {
+                createIndex(indexFile, timestamp, length);
+            }
+        } catch (Throwable e) {
+            try {
+                catalogue.dispose();
+            } catch (Throwable e2) {
+                if (LOGGER.isLoggable(Level.FINE))
+                    LOGGER.log(Level.FINE, e2.getLocalizedMessage(), e2);
+            }
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Builds the packed index out of the wrapped catalog, persists it and maps it back. Since all
+     * the granules have been loaded anyway, they are used to seed the descriptors table.
+     */
+    private void createIndex(final File indexFile, final long timestamp, final long length)
+            throws IOException {
+        final Collection<GranuleDescriptor> features = wrappedCatalogue.getGranules();
+        if (features == null)
+            throw new NullPointerException(
+                    "The provided SimpleFeatureCollection is null, it's impossible to create an index!");
+
+        final List<Envelope> envelopes = new ArrayList<Envelope>(features.size());
+        final List<String> ids = new ArrayList<String>(features.size());
+        final List<GranuleDescriptor> descriptors = new ArrayList<GranuleDescriptor>(features.size());
+        for (GranuleDescriptor granule : features) {
+            final SimpleFeature originator = granule.getOriginator();
+            if (originator == null)
+                throw new IllegalArgumentException("Unable to index granules without originator");
+            envelopes.add(ReferencedEnvelope.reference(granule.getGranuleBBOX()));
+            ids.add(originator.getID());
+            descriptors.add(granule);
+        }
+        PackedRTree.write(indexFile, envelopes, ids, PackedRTree.DEFAULT_NODE_CAPACITY, timestamp, length);
+        if (LOGGER.isLoggable(Level.FINE))
+            LOGGER.fine("Created packed index " + indexFile + " with " + ids.size() + " granules");
+
+        final PackedRTree tree = PackedRTree.open(indexFile);
+        final AtomicReferenceArray<GranuleDescriptor> table = new AtomicReferenceArray<GranuleDescriptor>(tree.size());
+        for (int i = 0; i < descriptors.size(); i++)
+            table.set(i, descriptors.get(i));
+        this.granules = table;
+        this.index = tree;
+    }
+
+    /**
+     * Returns the descriptors for the provided items, loading the missing ones from the wrapped
+     * catalog.
+     */
+    private List<GranuleDescriptor> resolve(final List<Integer> items) throws IOException {
+        final AtomicReferenceArray<GranuleDescriptor> table = granules;
+        final PackedRTree tree = index;
+        final GranuleCatalog catalogue = wrappedCatalogue;
+        if (table == null || tree == null || catalogue == null)
+            throw new IllegalStateException("The underlying store has already been disposed!");
+
+        // collect what is missing
+        final Map<String, Integer> missing = new HashMap<String, Integer>();
+        for (Integer item : items) {
+            if (table.get(item) == null)
+                missing.put(tree.getId(item), item);
+        }
+
+        // load it in batches
+        if (!missing.isEmpty()) {
+            final SimpleFeatureType type = catalogue.getType();
+            final String typeName = type != null ? type.getTypeName() : null;
+            final List<String> ids = new ArrayList<String>(missing.keySet());
+            for (int start = 0; start < ids.size(); start += RESOLVE_BATCH_SIZE) {
+                final Set<FeatureId> fids = new HashSet<FeatureId>();
+                for (String id : ids.subList(start, Math.min(start + RESOLVE_BATCH_SIZE, ids.size())))
+                    fids.add(ff.featureId(id));
+                final Collection<GranuleDescriptor> loaded = catalogue.getGranules(new Query(typeName, ff.id(fids)));
+                for (GranuleDescriptor granule : loaded) {
+                    final Integer item = missing.get(granule.getOriginator().getID());
+                    if (item != null)
+                        table.compareAndSet(item, null, granule);
+                }
+            }
+        }
+
+        final List<GranuleDescriptor> retVal = new ArrayList<GranuleDescriptor>(items.size());
+        for (Integer item : items) {
+            final GranuleDescriptor granule = table.get(item);
+            if (granule != null)
+                retVal.add(granule);
+            else if (LOGGER.isLoggable(Level.FINE))
+                LOGGER.fine("Unable to resolve granule " + tree.getId(item));
+        }
+        return retVal;
+    }
+
+    private List<GranuleDescriptor> query(final BoundingBox envelope, final Filter filter)
+            throws IOException {
+        final PackedRTree tree = index;
+        if (tree == null)
+            throw new IllegalStateException("The underlying store has already been disposed!");
+        final List<GranuleDescriptor> candidates = resolve(tree.query(ReferencedEnvelope.reference(envelope)));
+        if (filter == null || filter.equals(Filter.INCLUDE))
+            return candidates;
+
+        final List<GranuleDescriptor> retVal = new ArrayList<GranuleDescriptor>();
+        for (GranuleDescriptor g : candidates) {
+            final SimpleFeature originator = g.getOriginator();
+            if (originator != null && filter.evaluate(originator))
+                retVal.add(g);
+        }
+        return retVal;
+    }
+
+    public List<GranuleDescriptor> getGranules(final BoundingBox envelope) throws IOException {
+        Utilities.ensureNonNull("envelope", envelope);
+        return query(envelope, null);
+    }
+
+    public void getGranules(final BoundingBox envelope, final GranuleCatalogVisitor visitor)
+            throws IOException {
+        Utilities.ensureNonNull("envelope", envelope);
+        Utilities.ensureNonNull("visitor", visitor);
+        for (GranuleDescriptor granule : query(envelope, null))
+            visitor.visit(granule, null);
+    }
+
+    public List<GranuleDescriptor> getGranules(final Query q) throws IOException {
+        Utilities.ensureNonNull("q", q);
+        return query(extractAndCombineBBox(q.getFilter()), q.getFilter());
+    }
+
+    public void getGranules(final Query q, final GranuleCatalogVisitor visitor) throws IOException {
+        Utilities.ensureNonNull("q", q);
+        Utilities.ensureNonNull("visitor", visitor);
+        for (GranuleDescriptor granule : getGranules(q))
+            visitor.visit(granule, null);
+    }
+
+    public List<GranuleDescriptor> getGranules() throws IOException {
+        return getGranules(this.getBounds());
+    }
+
+    private ReferencedEnvelope extractAndCombineBBox(final Filter filter) {
+        final BoundingBox bounds = checkStore().getBounds();
+        final BBOXFilterExtractor bboxExtractor = new BBOXFilterExtractor();
+        filter.accept(bboxExtractor, null);
+        final ReferencedEnvelope requestedBBox = bboxExtractor.getBBox();
+        if (requestedBBox == null)
+            return ReferencedEnvelope.reference(bounds);
+        return new ReferencedEnvelope(requestedBBox.intersection(ReferencedEnvelope.reference(bounds)),
+                bounds.getCoordinateReferenceSystem());
+    }
+
+    public BoundingBox getBounds() {
+        return checkStore().getBounds();
+    }
+
+    public SimpleFeatureType getType() throws IOException {
+        return checkStore().getType();
+    }
+
+    public void computeAggregateFunction(Query query, FeatureCalc function) throws IOException {
+        checkStore().computeAggregateFunction(query, function);
+    }
+
+    public QueryCapabilities getQueryCapabilities() {
+        return checkStore().getQueryCapabilities();
+    }
+
+    public void dispose() {
+        final GranuleCatalog catalogue = wrappedCatalogue;
+        wrappedCatalogue = null;
+        index = null;
+        granules = null;
+        if (catalogue != null)
+            try {
+                catalogue.dispose();
+            } catch (Exception e) {
+                if (LOGGER.isLoggable(Level.FINE))
+                    LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+            }
+    }
+
+    /**
+     * @throws IllegalStateException
+     */
+    private GranuleCatalog checkStore() throws IllegalStateException {
+        final GranuleCatalog catalogue = wrappedCatalogue;
+        if (catalogue == null)
+            throw new IllegalStateException("The underlying store has already been disposed!");
+        return catalogue;
+    }
+}
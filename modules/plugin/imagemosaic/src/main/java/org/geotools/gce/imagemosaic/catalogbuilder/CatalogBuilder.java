@@ -21,6 +21,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.IndexColorModel;
+import java.awt.image.RenderedImage;
 import java.awt.image.SampleModel;
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -44,6 +45,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -73,7 +78,9 @@ import org.geotools.coverage.grid.io.UnknownFormat;
 import org.geotools.data.DataStoreFactorySpi;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.DefaultTransaction;
+import org.geotools.data.Query;
 import org.geotools.data.shapefile.ShapefileDataStoreFactory;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.gce.image.WorldImageFormat;
 import org.geotools.gce.imagemosaic.MosaicConfigurationBean;
@@ -90,6 +97,8 @@ import org.geotools.resources.coverage.CoverageUtilities;
 import org.geotools.util.Utilities;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
 import org.opengis.geometry.Envelope;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.datum.PixelInCell;
@@ -110,6 +119,9 @@ public class CatalogBuilder implements Runnable {
 
     final private static double RESOLUTION_TOLERANCE_FACTOR = 1E-2;
 
+    /** Maximum number of granules removed from the index with a single filter.*/
+    final private static int REMOVAL_BATCH_SIZE = 500;
+
 	/** Default Logger * */
 	final static Logger LOGGER = org.geotools.util.logging.Logging.getLogger(CatalogBuilder.class);
 	
@@ -142,6 +154,12 @@ public class CatalogBuilder implements Runnable {
 		@Option(description="Default location attribute for this index",mandatory=false,name="locationAttribute")
 		private String locationAttribute = Utils.DEFAULT_LOCATION_ATTRIBUTE;
 
+		@Option(description="Update an existing index with the files changed since the last run",mandatory=false,name="incremental")
+		private Boolean incremental;
+
+		@Option(description="Number of threads inspecting files in parallel",mandatory=false,name="threads")
+		private Integer harvestingThreads;
+
 		public CommandLineCatalogBuilderRunner(String[] args) {
 			super(args);
 			if (this.absolute == null){
@@ -155,6 +173,10 @@ public class CatalogBuilder implements Runnable {
 			}
 			if(this.indexName==null)
 				this.indexName=Utils.DEFAULT_INDEX_NAME;
+			if(this.incremental==null)
+				this.incremental=Boolean.FALSE;
+			if(this.harvestingThreads==null)
+				this.harvestingThreads=1;
 		}
 
 
@@ -169,6 +191,8 @@ public class CatalogBuilder implements Runnable {
 			configuration.setRootMosaicDirectory(runner.rootMosaicDirectory);
 			configuration.setWildcard(runner.wildcardString);
 			configuration.setLocationAttribute(runner.locationAttribute);
+			configuration.setIncremental(runner.incremental);
+			configuration.setHarvestingThreads(runner.harvestingThreads);
 			
 			final String directories= runner.indexingDirectoriesString;
 			final String []dirs_=directories.split(",");
@@ -334,13 +358,25 @@ public class CatalogBuilder implements Runnable {
 	 */
 	final class CatalogBuilderDirectoryWalker  extends DirectoryWalker{
 
-		private AbstractGridFormat cachedFormat;
-		private SimpleFeatureType indexSchema;
 		private DefaultTransaction transaction;
+		
+		/** Bounded pool inspecting files in parallel, <code>null</code> when harvesting sequentially. */
+		private ThreadPoolExecutor harvestingPool;
+		
+		/** Harvesting state used when running sequentially. */
+		private HarvestingContext sequentialContext;
+		
+		/** Per thread harvesting state used when running in parallel. */
+		private ThreadLocal<HarvestingContext> parallelContext;
+		
+		/** Guards the index, only one thread at a time appends granules to it. */
+		private final Object writeLock = new Object();
+		
 		@Override
 		protected void handleCancelled(File startDirectory, Collection results,
 				CancelException cancel) throws IOException {			
 			super.handleCancelled(startDirectory, results, cancel);
+			shutdownHarvestingPool(true);
                         //clean up objects and rollback transaction
                         try{
                                 transaction.rollback();
@@ -367,7 +403,7 @@ public class CatalogBuilder implements Runnable {
 				throws IOException {
 			
 			// increment counter
-			fileIndex++;
+			fileIndex.incrementAndGet();
 
 			//
 			// Check that this file is actually good to go
@@ -380,18 +416,58 @@ public class CatalogBuilder implements Runnable {
 			//
 			if(!checkStop())
 				return; 
+			
+			if(harvestingPool!=null){
+				// inspect the file on the pool, the queue is bounded and when full
+				// the walking thread does the job itself
+				harvestingPool.execute(new Runnable() {
+					public void run() {
+						try{
+							harvestFile(fileBeingProcessed, parallelContext.get());
+						} catch (Exception e) {
+							fireException(e);
+						}
+					}
+				});
+			} else {
+				harvestFile(fileBeingProcessed, sequentialContext);
+			}
+			
+			super.handleFile(fileBeingProcessed, depth, results);
+		}
+		
+		/**
+		 * Inspects the provided file and adds it to the index.
+		 * 
+		 * <p>
+		 * Opening the file, reading its envelope, raster structure, resolutions and properties can be done
+		 * concurrently by several threads, each one with its own {@link HarvestingContext},
+		 * while checking the compatibility with the mosaic and appending the granule to the
+		 * index is done by one thread at a time.
+		 */
+		private void harvestFile(final File fileBeingProcessed, final HarvestingContext context) {
 		
 			// replacing chars on input path
 			String validFileName;
+			final String location;
 			try {
 				validFileName = fileBeingProcessed.getCanonicalPath();
 				validFileName=FilenameUtils.normalize(validFileName);
+				location=prepareLocation(fileBeingProcessed);
 			} catch (IOException e1) {
 				fireException(e1);
 				return;
 			}
 			validFileName=FilenameUtils.getName(validFileName);
-			fireEvent(Level.INFO,"Now indexing file "+validFileName, ((fileIndex * 100.0) / numFiles));
+			
+			//
+			// incremental mode, skip what did not change since last run
+			//
+			if(incrementalRun&&harvestState.isUpToDate(location, fileBeingProcessed)){
+				fireEvent(Level.FINE,"Skipped unchanged file "+validFileName, ((fileIndex.get() * 100.0) / numFiles));
+				return;
+			}
+			fireEvent(Level.INFO,"Now indexing file "+validFileName, ((fileIndex.get() * 100.0) / numFiles));
 			ImageInputStream inStream=null;
 			ImageReader imageioReader = null;
 			AbstractGridCoverage2DReader coverageReader=null;
@@ -402,7 +478,7 @@ public class CatalogBuilder implements Runnable {
 				//
 				inStream = ImageIO.createImageInputStream(fileBeingProcessed);
 				if(inStream==null) {
-					fireEvent(Level.INFO,fileBeingProcessed+" has been skipped since we could not get a stream for it", ((fileIndex * 100.0) / numFiles));
+					fireEvent(Level.INFO,fileBeingProcessed+" has been skipped since we could not get a stream for it", ((fileIndex.get() * 100.0) / numFiles));
 					return;
 				}
 				inStream.mark();
@@ -410,13 +486,13 @@ public class CatalogBuilder implements Runnable {
 				
 				cachedSPITest: {
 					// there is no cached reader spi, let's look for one
-					if(cachedSPI==null){
+					if(context.cachedSPI==null){
 						final Iterator<ImageReader> it = ImageIO.getImageReaders(inStream);
 						if (it.hasNext()) {
 							imageioReader = it.next();
 							if(imageioReader!=null){
 								//cache the SPI
-								cachedSPI=imageioReader.getOriginatingProvider();
+								context.cachedSPI=imageioReader.getOriginatingProvider();
 								imageioReader.setInput(inStream);
 							}
 						} else {
@@ -424,21 +500,21 @@ public class CatalogBuilder implements Runnable {
 						}
 					} else {
 						// we have a cached SPI, let's try to use it
-						if(!cachedSPI.canDecodeInput(inStream)){				
+						if(!context.cachedSPI.canDecodeInput(inStream)){				
 							// the SPI is no good for this input
-							cachedSPI=null;
+							context.cachedSPI=null;
 							//take me to the SPI search
 							break cachedSPITest;
 						}
 						// the spi is good
-						imageioReader=cachedSPI.createReaderInstance();
+						imageioReader=context.cachedSPI.createReaderInstance();
 						imageioReader.setInput(inStream);
 					}
 				}
 				// did we found a reader
 				if (imageioReader == null) {
 					// send a message
-					fireEvent(Level.INFO,new StringBuilder("Skipped file ").append(fileBeingProcessed).append(":No ImageIO reader	s availaible.").toString(), ((fileIndex * 99.0) / numFiles));
+					fireEvent(Level.INFO,new StringBuilder("Skipped file ").append(fileBeingProcessed).append(":No ImageIO reader	s availaible.").toString(), ((fileIndex.get() * 99.0) / numFiles));
 					return;
 				}
 
@@ -448,20 +524,20 @@ public class CatalogBuilder implements Runnable {
 				// Getting a coverage reader for this coverage.
 				//
 				final AbstractGridFormat format;
-				if(cachedFormat == null) {
+				if(context.cachedFormat == null) {
 					format= (AbstractGridFormat) GridFormatFinder.findFormat(fileBeingProcessed);
 				} else {
-					if(cachedFormat.accepts(fileBeingProcessed)) {
-						format=cachedFormat;
+					if(context.cachedFormat.accepts(fileBeingProcessed)) {
+						format=context.cachedFormat;
 					} else {
 						format=new UnknownFormat();
 					}
 				}
 				if ((format instanceof UnknownFormat)||format == null) {
-					fireEvent(Level.INFO,new StringBuilder("Skipped file ").append(fileBeingProcessed).append(": File format is not supported.").toString(), ((fileIndex * 99.0) / numFiles));
+					fireEvent(Level.INFO,new StringBuilder("Skipped file ").append(fileBeingProcessed).append(": File format is not supported.").toString(), ((fileIndex.get() * 99.0) / numFiles));
 					return;
 				}
-				cachedFormat=format;
+				context.cachedFormat=format;
 				coverageReader = (AbstractGridCoverage2DReader) format.getReader(fileBeingProcessed,runConfiguration.getHints());
 				GeneralEnvelope envelope = (GeneralEnvelope) coverageReader.getOriginalEnvelope();
 				CoordinateReferenceSystem actualCRS = coverageReader.getCrs();
@@ -473,180 +549,181 @@ public class CatalogBuilder implements Runnable {
 				// If this is the first cycle of the loop we initialize everything.
 				//
 				final ImageTypeSpecifier its = ((ImageTypeSpecifier) imageioReader.getImageTypes(0).next());
-				if (numberOfProcessedFiles==0) {
-					// /////////////////////////////////////////////////////////////////////
-					//
-					// at the first step we initialize everything that we will
-					// reuse afterwards starting with color models, sample
-					// models, crs, etc....
-					//
-					// /////////////////////////////////////////////////////////////////////
-					defaultCM = its.getColorModel();
-					defaultSM = its.getSampleModel();
-					if (defaultCM instanceof IndexColorModel) {
-						IndexColorModel icm = (IndexColorModel) defaultCM;
-						int numBands = defaultCM.getNumColorComponents();
-						defaultPalette = new byte[3][icm.getMapSize()];
-						icm.getReds(defaultPalette[0]);
-						icm.getGreens(defaultPalette[0]);
-						icm.getBlues(defaultPalette[0]);
-						if (numBands == 4)
-							icm.getAlphas(defaultPalette[0]);
 
+				// get the dimension of the hr image and build the model
+				// as well as computing the resolution
+				// 
+				// resetting reader and recreating stream, turnaround for a
+				// strange imageio bug that sometimes pops up
+				imageioReader.reset();
+				try {
+					inStream.reset();
+				} catch (IOException e) {
+					//close me and reopen me
+					try {
+						inStream.close();
+					} catch (Throwable e1) {
+						if(LOGGER.isLoggable(Level.FINE))
+							LOGGER.log(Level.FINE,e1.getLocalizedMessage(),e1);
 					}
-					defaultCRS = actualCRS;
+					inStream= ImageIO.createImageInputStream(fileBeingProcessed);
+				}
+			
+				//let's check if we got something now
+				if(inStream==null) {
+					//skip file
+					fireEvent(Level.INFO,fileBeingProcessed+" has been skipped since we could not get a stream for it", ((fileIndex.get() * 100.0) / numFiles));
+					return;
+				}
+				imageioReader.setInput(inStream);
+				final int numberOfLevels = imageioReader.getNumImages(true);
+				final double[][] resolutionLevels = new double[2][numberOfLevels];
+				setupResolutions(resolutionLevels, numberOfLevels, coverageReader, imageioReader, null);
 
-					// /////////////////////////////////////////////////////////////////////
-					//
-					// getting information about resolution
-					//
-					// /////////////////////////////////////////////////////////////////////
+				// collect the properties, they are set on the feature later on
+				final List<PropertiesCollector> collectors=context.propertiesCollectors;
+				if(collectors!=null)
+					for(PropertiesCollector pc: collectors)
+						pc.collect(fileBeingProcessed).collect(coverageReader).collect(imageioReader);
 
+				try {
+					// from now on we touch the index and the mosaic configuration
+					synchronized (writeLock) {
+						if (!indexInitialized) {
+							// /////////////////////////////////////////////////////////////////////
+							//
+							// at the first step we initialize everything that we will
+							// reuse afterwards starting with color models, sample
+							// models, crs, etc....
+							//
+							// /////////////////////////////////////////////////////////////////////
+							defaultCM = its.getColorModel();
+							defaultSM = its.getSampleModel();
+							if (defaultCM instanceof IndexColorModel) {
+								IndexColorModel icm = (IndexColorModel) defaultCM;
+								int numBands = defaultCM.getNumColorComponents();
+								defaultPalette = new byte[3][icm.getMapSize()];
+								icm.getReds(defaultPalette[0]);
+								icm.getGreens(defaultPalette[0]);
+								icm.getBlues(defaultPalette[0]);
+								if (numBands == 4)
+									icm.getAlphas(defaultPalette[0]);
 
-					// get the dimension of the hr image and build the model
-					// as well as computing the resolution
-					// 
-					// resetting reader and recreating stream, turnaround for a
-					// strange imageio bug that sometimes pops up
-					imageioReader.reset();
-					try {
-						inStream.reset();
-					} catch (IOException e) {
-						//close me and reopen me
-						try {
-							inStream.close();
-						} catch (Throwable e1) {
-							if(LOGGER.isLoggable(Level.FINE))
-								LOGGER.log(Level.FINE,e1.getLocalizedMessage(),e1);
-						}
-						inStream= ImageIO.createImageInputStream(fileBeingProcessed);
-					}
-					
-					//let's check if we got something now
-					if(inStream==null) {
-						//skip file
-						fireEvent(Level.INFO,fileBeingProcessed+" has been skipped since we could not get a stream for it", ((fileIndex * 100.0) / numFiles));
-						return;
-					}
-					imageioReader.setInput(inStream);
-					int numberOfLevels = imageioReader.getNumImages(true);
-					double[][] resolutionLevels = new double[2][numberOfLevels];
-					setupResolutions(resolutionLevels, numberOfLevels, coverageReader, imageioReader, null);
-					mosaicConfiguration.setLevelsNum(numberOfLevels);
-					mosaicConfiguration.setLevels(resolutionLevels);
-
-					// /////////////////////////////////////////////////////////////////////
-					//
-					// creating the schema
-					//
-					// /////////////////////////////////////////////////////////////////////
-					final String schemaDef= runConfiguration.getSchema();
-					if(schemaDef!=null){
-						// get the schema
-						try{
-							indexSchema=DataUtilities.createType(mosaicConfiguration.getName(), runConfiguration.getSchema());
-							//override the crs in case the provided one was wrong or absent
-							indexSchema=DataUtilities.createSubType(indexSchema, DataUtilities.attributeNames(indexSchema), actualCRS);
-						}
-						catch (Throwable e) {
-							if(LOGGER.isLoggable(Level.FINE))
-								LOGGER.log(Level.FINE,e.getLocalizedMessage(),e);
-							indexSchema=null;
+							}
+							defaultCRS = actualCRS;
+							mosaicConfiguration.setLevelsNum(numberOfLevels);
+							mosaicConfiguration.setLevels(resolutionLevels);
+
+							// /////////////////////////////////////////////////////////////////////
+							//
+							// creating the schema
+							//
+							// /////////////////////////////////////////////////////////////////////
+							final String schemaDef= runConfiguration.getSchema();
+							if(schemaDef!=null){
+								// get the schema
+								try{
+									indexSchema=DataUtilities.createType(mosaicConfiguration.getName(), runConfiguration.getSchema());
+									//override the crs in case the provided one was wrong or absent
+									indexSchema=DataUtilities.createSubType(indexSchema, DataUtilities.attributeNames(indexSchema), actualCRS);
+								}
+								catch (Throwable e) {
+									if(LOGGER.isLoggable(Level.FINE))
+										LOGGER.log(Level.FINE,e.getLocalizedMessage(),e);
+									indexSchema=null;
+								}
+							}
+							if(indexSchema==null){
+								final SimpleFeatureTypeBuilder featureBuilder = new SimpleFeatureTypeBuilder();
+								featureBuilder.setName(runConfiguration.getIndexName());
+								featureBuilder.setNamespaceURI("http://www.geo-solutions.it/");
+								featureBuilder.add(runConfiguration.getLocationAttribute(), String.class);
+								featureBuilder.add("the_geom", Polygon.class,actualCRS);
+								featureBuilder.setDefaultGeometry("the_geom");
+								if(runConfiguration.getTimeAttribute()!=null)
+									featureBuilder.add(runConfiguration.getTimeAttribute(), Date.class);
+								indexSchema = featureBuilder.buildFeatureType();
+							}
+							// create the schema for the new shape file
+							catalog.createType(indexSchema);
+							indexInitialized=true;
+						
+						} else {
+						    if (!mosaicConfiguration.isHeterogeneous()){
+						        // //
+						        //
+						        // There is no need to check resolutions if the mosaic
+						        // has been already marked as heterogeneous
+						        //
+						        // //
+						        if (numberOfLevels != mosaicConfiguration.getLevelsNum()) {
+						            mosaicConfiguration.setHeterogeneous(true);
+						            if (numberOfLevels > mosaicConfiguration.getLevelsNum()){
+						                mosaicConfiguration.setLevelsNum(numberOfLevels);
+						                mosaicConfiguration.setLevels(resolutionLevels);
+						            }
+						        } else if (!compareResolutions(resolutionLevels, numberOfLevels, mosaicConfiguration.getLevels())){
+						            mosaicConfiguration.setHeterogeneous(true);
+						        }
+						    }
+					    
+					    
+							// ////////////////////////////////////////////////////////
+							// 
+							// comparing ColorModel
+							// comparing SampeModel
+							// comparing CRSs
+							// ////////////////////////////////////////////////////////
+							ColorModel actualCM = its.getColorModel();
+							if((fileIndex.get() > 0 ? !(CRS.equalsIgnoreMetadata(defaultCRS, actualCRS)) : false)){
+								fireEvent(
+										Level.INFO,
+										new StringBuilder("Skipping image ").append(fileBeingProcessed).append(" because CRSs do not match.").toString(),
+										(((fileIndex.get() + 1) * 99.0) / numFiles));
+								return;
+							}
+						
+							if(checkColorModels(defaultCM, defaultPalette,actualCM)){
+								fireEvent(
+										Level.INFO,
+										new StringBuilder("Skipping image ").append(fileBeingProcessed).append(" because color models do not match.").toString(),
+										(((fileIndex.get() + 1) * 99.0) / numFiles));
+								return;
+							}							
 						}
-					}
-					if(indexSchema==null){
-						final SimpleFeatureTypeBuilder featureBuilder = new SimpleFeatureTypeBuilder();
-						featureBuilder.setName(runConfiguration.getIndexName());
-						featureBuilder.setNamespaceURI("http://www.geo-solutions.it/");
-						featureBuilder.add(runConfiguration.getLocationAttribute(), String.class);
-						featureBuilder.add("the_geom", Polygon.class,actualCRS);
-						featureBuilder.setDefaultGeometry("the_geom");
-						if(runConfiguration.getTimeAttribute()!=null)
-							featureBuilder.add(runConfiguration.getTimeAttribute(), Date.class);
-						indexSchema = featureBuilder.buildFeatureType();
-					}
-					// create the schema for the new shape file
-					catalog.createType(indexSchema);
-					
-				} else {
-				    if (!mosaicConfiguration.isHeterogeneous()){
-				        // //
-				        //
-				        // There is no need to check resolutions if the mosaic
-				        // has been already marked as heterogeneous
-				        //
-				        // //
-				        int numberOfLevels = imageioReader.getNumImages(true);
-                                        if (numberOfLevels != mosaicConfiguration.getLevelsNum()) {
-                                            mosaicConfiguration.setHeterogeneous(true);
-                                            if (numberOfLevels > mosaicConfiguration.getLevelsNum()){
-                                                final double[][] resolutionLevels = new double[2][numberOfLevels];
-                                                setupResolutions(resolutionLevels, numberOfLevels, coverageReader, imageioReader, null);
-                                                mosaicConfiguration.setLevelsNum(numberOfLevels);
-                                                mosaicConfiguration.setLevels(resolutionLevels);
-                                            }
-                                        } else {
-                                            final double[][] mosaicLevels = mosaicConfiguration.getLevels();
-                                            final double[][] resolutionLevels = new double[2][numberOfLevels];
-                                            final boolean homogeneousLevels = setupResolutions(resolutionLevels, numberOfLevels, coverageReader, imageioReader, mosaicLevels);
-                                            if (!homogeneousLevels){
-                                                mosaicConfiguration.setHeterogeneous(true);
-                                            }
-                                        }
-				    }
-				    
-				    
-					// ////////////////////////////////////////////////////////
-					// 
-					// comparing ColorModel
-					// comparing SampeModel
-					// comparing CRSs
-					// ////////////////////////////////////////////////////////
-					ColorModel actualCM = its.getColorModel();
-					if((fileIndex > 0 ? !(CRS.equalsIgnoreMetadata(defaultCRS, actualCRS)) : false)){
-						fireEvent(
-								Level.INFO,
-								new StringBuilder("Skipping image ").append(fileBeingProcessed).append(" because CRSs do not match.").toString(),
-								(((fileIndex + 1) * 99.0) / numFiles));
-						return;
-					}
-					
-					if(checkColorModels(defaultCM, defaultPalette,actualCM)){
-						fireEvent(
-								Level.INFO,
-								new StringBuilder("Skipping image ").append(fileBeingProcessed).append(" because color models do not match.").toString(),
-								(((fileIndex + 1) * 99.0) / numFiles));
-						return;
-					}							
-				}
 
-				// ////////////////////////////////////////////////////////
-				//
-				// STEP 4
-				//
-				// create and store features
-				//
-				// ////////////////////////////////////////////////////////
-				final SimpleFeature feature = DataUtilities.template(indexSchema);
-				feature.setAttribute(indexSchema.getGeometryDescriptor().getLocalName(), geomFactory.toGeometry(new ReferencedEnvelope((Envelope) envelope)));
-				feature.setAttribute(runConfiguration.getLocationAttribute(), prepareLocation(fileBeingProcessed));
-				
-				// collect and dump properties
-				if(propertiesCollectors!=null&&propertiesCollectors.size()>0)
-					for(PropertiesCollector pc: propertiesCollectors)
-					{
-						pc.collect(fileBeingProcessed).collect(coverageReader).collect(imageioReader).setProperties(feature);
-						pc.reset();
-					}
+						// ////////////////////////////////////////////////////////
+						//
+						// STEP 4
+						//
+						// create and store features
+						//
+						// ////////////////////////////////////////////////////////
+						final SimpleFeature feature = DataUtilities.template(indexSchema);
+						feature.setAttribute(indexSchema.getGeometryDescriptor().getLocalName(), geomFactory.toGeometry(new ReferencedEnvelope((Envelope) envelope)));
+						feature.setAttribute(runConfiguration.getLocationAttribute(), location);
+					
+						// dump the collected properties
+						if(collectors!=null)
+							for(PropertiesCollector pc: collectors)
+								pc.setProperties(feature);
 
-				catalog.addGranule(feature,transaction);
+						catalog.addGranule(feature,transaction);
+						harvestState.update(location, fileBeingProcessed);
+						cachedSPI=context.cachedSPI;
 
-				// fire event
-				fireEvent(Level.FINE,"Done with file "+fileBeingProcessed, (((fileIndex + 1) * 99.0) / numFiles));
-			
+						// fire event
+						fireEvent(Level.FINE,"Done with file "+fileBeingProcessed, (((fileIndex.get() + 1) * 99.0) / numFiles));
+				
 
-				// advance files
-				numberOfProcessedFiles++;
+						// advance files
+						numberOfProcessedFiles++;
+					}
+				} finally {
+					if(collectors!=null)
+						for(PropertiesCollector pc: collectors)
+							pc.reset();
+				}
 			} catch (IOException e) {
 				fireException(e);
 				return;
@@ -690,9 +767,6 @@ public class CatalogBuilder implements Runnable {
 						LOGGER.log(Level.FINEST,e.getLocalizedMessage(),e);					
 				}
 			}
-		
-			
-			super.handleFile(fileBeingProcessed, depth, results);
 		}
 
         private String prepareLocation(final File fileBeingProcessed) throws IOException {
@@ -710,8 +784,8 @@ public class CatalogBuilder implements Runnable {
 		private boolean checkStop() {
 
 			if (getStop()) {
-				StringBuilder message = new StringBuilder("Stopping requested at file  ").append(fileIndex).append(" of ").append(numFiles).append(" files");
-				fireEvent(Level.INFO,message.toString(), ((fileIndex * 100.0) / numFiles));
+				StringBuilder message = new StringBuilder("Stopping requested at file  ").append(fileIndex.get()).append(" of ").append(numFiles).append(" files");
+				fireEvent(Level.INFO,message.toString(), ((fileIndex.get() * 100.0) / numFiles));
 				return false;
 			}
 			return true;
@@ -722,7 +796,7 @@ public class CatalogBuilder implements Runnable {
 			{
 				// send a message
 				final StringBuilder message = new StringBuilder("Skipped file ").append(fileBeingProcessed).append(" snce it seems invalid.");
-				fireEvent(Level.INFO,message.toString(), ((fileIndex * 99.0) / numFiles));
+				fireEvent(Level.INFO,message.toString(), ((fileIndex.get() * 99.0) / numFiles));
 				return false;
 			}
 			return true;
@@ -731,7 +805,50 @@ public class CatalogBuilder implements Runnable {
 		public CatalogBuilderDirectoryWalker(final File root,final FileFilter filter) throws IOException {
 			super(filter,Integer.MAX_VALUE);//runConfiguration.isRecursive()?Integer.MAX_VALUE:0);
 			this.transaction= new DefaultTransaction("MosaicCreationTransaction"+System.nanoTime());
-			walk(root, null);
+			final int threads=runConfiguration.getHarvestingThreads();
+			if(threads>1){
+				this.harvestingPool= new ThreadPoolExecutor(
+						threads,
+						threads,
+						0L,
+						TimeUnit.MILLISECONDS,
+						new ArrayBlockingQueue<Runnable>(threads*4),
+						new ThreadPoolExecutor.CallerRunsPolicy());
+				this.parallelContext= new ThreadLocal<HarvestingContext>(){
+					@Override
+					protected HarvestingContext initialValue() {
+						return new HarvestingContext(createPropertyCollectors());
+					}
+				};
+			}
+			try{
+				walk(root, null);
+			} finally {
+				// handleEnd already released the pool unless the walk failed
+				shutdownHarvestingPool(true);
+			}
+		}
+		
+		/**
+		 * Waits for the pending inspections to complete, or cancels them, and releases the pool.
+		 */
+		private void shutdownHarvestingPool(final boolean cancel) {
+			if(harvestingPool==null)
+				return;
+			if(cancel)
+				harvestingPool.shutdownNow();
+			else
+				harvestingPool.shutdown();
+			try {
+				while(!harvestingPool.awaitTermination(1, TimeUnit.SECONDS)){
+					if(LOGGER.isLoggable(Level.FINE))
+						LOGGER.fine("Waiting for the harvesting threads to complete");
+				}
+			} catch (InterruptedException e) {
+				harvestingPool.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			harvestingPool=null;
 		}
 
 		public int getNumberOfProcessedFiles() {
@@ -849,6 +966,8 @@ public class CatalogBuilder implements Runnable {
 
 		@Override
 		protected void handleEnd(Collection results) throws IOException {
+			// wait for the in flight granules
+			shutdownHarvestingPool(false);
 			try{
 				transaction.commit();
 			}
@@ -863,6 +982,7 @@ public class CatalogBuilder implements Runnable {
 		protected void handleStart(File startDirectory, Collection results)
 				throws IOException {
 			indexingPreamble();
+			sequentialContext= new HarvestingContext(propertiesCollectors);
 			super.handleStart(startDirectory, results);
 			
 			
@@ -871,6 +991,24 @@ public class CatalogBuilder implements Runnable {
 		
 	}
 
+	/**
+	 * Per thread state of the harvesting process: readers' SPIs and formats are cached
+	 * across files since in most mosaics all the granules share the same format, while
+	 * {@link PropertiesCollector}s are stateful.
+	 */
+	final static class HarvestingContext {
+		
+		private AbstractGridFormat cachedFormat;
+		
+		private ImageReaderSpi cachedSPI;
+		
+		private final List<PropertiesCollector> propertiesCollectors;
+
+		HarvestingContext(final List<PropertiesCollector> propertiesCollectors) {
+			this.propertiesCollectors = propertiesCollectors;
+		}
+	}
+
 	/** Number of files to process. */
 	private int numFiles;
 
@@ -911,7 +1049,7 @@ public class CatalogBuilder implements Runnable {
 	 */
 	private boolean mustConvertToRGB = false;
 
-	private int fileIndex=0;
+	private final AtomicInteger fileIndex=new AtomicInteger();
 
 	private ColorModel defaultCM = null;
 
@@ -929,6 +1067,17 @@ public class CatalogBuilder implements Runnable {
 
 	private ReferencedEnvelope imposedBBox;
 	
+	private SimpleFeatureType indexSchema;
+	
+	/** <code>true</code> once the index schema and the reference raster structure are known.*/
+	private boolean indexInitialized;
+	
+	/** Files harvested so far, persisted next to the index.*/
+	private HarvestState harvestState;
+	
+	/** <code>true</code> if we are updating an existing index rather than creating it from scratch.*/
+	private boolean incrementalRun;
+	
 	/* (non-Javadoc)
 	 * @see org.geotools.gce.imagemosaic.JMXIndexBuilderMBean#run()
 	 */
@@ -1094,8 +1243,12 @@ public class CatalogBuilder implements Runnable {
 		defaultCM=null;
 		defaultCRS=null;
 		defaultPalette=null;
-		fileIndex=0;
+		fileIndex.set(0);
 		numberOfProcessedFiles=0;
+		indexSchema=null;
+		indexInitialized=false;
+		harvestState=null;
+		incrementalRun=false;
 		
 		// clear directories
 		runConfiguration=null;
@@ -1238,6 +1391,25 @@ public class CatalogBuilder implements Runnable {
 		// do we have a datastore.properties file?
 		final File parent=new File(runConfiguration.getRootMosaicDirectory());
 		final File datastoreProperties= new File(parent,"datastore.properties");
+		final File shapeFile= new File(parent ,runConfiguration.getIndexName() + ".shp");
+		
+		//
+		// incremental mode, we need the state of the previous run as well as the index
+		// and its configuration, otherwise we go for a complete rebuild
+		//
+		final File stateFile= new File(parent, runConfiguration.getIndexName() + HarvestState.FILE_SUFFIX);
+		final File mosaicProperties= new File(parent, runConfiguration.getIndexName() + ".properties");
+		harvestState=null;
+		if(runConfiguration.isIncremental()){
+			if(Utils.checkFileReadable(mosaicProperties)&&(Utils.checkFileReadable(datastoreProperties)||Utils.checkFileReadable(shapeFile)))
+				harvestState=HarvestState.load(stateFile);
+			if(harvestState==null)
+				fireEvent(Level.INFO,"Unable to find a previous index to update, creating it from scratch", 0);
+		}
+		incrementalRun=harvestState!=null;
+		if(harvestState==null)
+			harvestState= new HarvestState();
+		
 		if(Utils.checkFileReadable(datastoreProperties)){
 			// read the properties file
 			Properties properties = Utils.loadPropertiesFromURL(DataUtilities.fileToURL(datastoreProperties));
@@ -1250,7 +1422,7 @@ public class CatalogBuilder implements Runnable {
 				// create a datastore as instructed
 				final DataStoreFactorySpi spi = (DataStoreFactorySpi) Class.forName(SPIClass).newInstance();
 				final Map<String, Serializable> params = Utils.createDataStoreParamsFromPropertiesFile(properties,spi);
-				catalog=GranuleCatalogFactory.createGranuleCatalog(params,false,true, spi);
+				catalog=GranuleCatalogFactory.createGranuleCatalog(params,false,!incrementalRun, spi);
 			} catch (ClassNotFoundException e) {
 				final IOException ioe = new IOException();
 				throw (IOException) ioe.initCause(e);
@@ -1264,13 +1436,13 @@ public class CatalogBuilder implements Runnable {
 		} else {
 			
 			// we do not have a datastore properties file therefore we continue with a shapefile datastore
-			final URL file= new File(parent ,runConfiguration.getIndexName() + ".shp").toURI().toURL();
+			final URL file= shapeFile.toURI().toURL();
 			final Map<String, Serializable> params = new HashMap<String, Serializable>();			 
 			params.put(ShapefileDataStoreFactory.URLP.key,file);
 			if(file.getProtocol().equalsIgnoreCase("file"))
 				params.put(ShapefileDataStoreFactory.CREATE_SPATIAL_INDEX.key, Boolean.TRUE);
 			params.put(ShapefileDataStoreFactory.MEMORY_MAPPED.key, Boolean.TRUE);
-			catalog= GranuleCatalogFactory.createGranuleCatalog(params,false,true, Utils.SHAPE_SPI);
+			catalog= GranuleCatalogFactory.createGranuleCatalog(params,false,!incrementalRun, Utils.SHAPE_SPI);
 		}
 	
 		//
@@ -1279,6 +1451,14 @@ public class CatalogBuilder implements Runnable {
 		mosaicConfiguration= new MosaicConfigurationBean();
 		mosaicConfiguration.setName(runConfiguration.getIndexName());
 		
+		//
+		// reload what we know about the existing index and drop the granules whose files are gone or changed
+		//
+		if(incrementalRun){
+			loadExistingIndex(mosaicProperties, new File(parent,"sample_image"));
+			removeStaleGranules();
+		}
+		
 		//
 		// IMPOSED ENVELOPE
 		//
@@ -1294,11 +1474,90 @@ public class CatalogBuilder implements Runnable {
 		//
 		// load property collectors
 		//
-		loadPropertyCollectors();
+		this.propertiesCollectors=createPropertyCollectors();
 			
 	}
 
-	private void loadPropertyCollectors() {
+	/**
+	 * Initializes the reference schema, CRS, raster structure and levels from an existing index
+	 * and its properties file, as if its granules had just been harvested.
+	 */
+	private void loadExistingIndex(final File mosaicProperties, final File sampleImageFile) throws IOException {
+		indexSchema=catalog.getType();
+		if(indexSchema==null)
+			throw new IOException("Unable to get the schema of the existing index");
+		defaultCRS=indexSchema.getCoordinateReferenceSystem();
+		
+		final RenderedImage sampleImage=Utils.loadSampleImage(sampleImageFile);
+		if(sampleImage!=null){
+			defaultCM=sampleImage.getColorModel();
+			defaultSM=sampleImage.getSampleModel();
+			if (defaultCM instanceof IndexColorModel) {
+				final IndexColorModel icm = (IndexColorModel) defaultCM;
+				defaultPalette = new byte[3][icm.getMapSize()];
+				icm.getReds(defaultPalette[0]);
+				icm.getGreens(defaultPalette[0]);
+				icm.getBlues(defaultPalette[0]);
+			}
+		}
+		
+		final Properties properties=Utils.loadPropertiesFromURL(DataUtilities.fileToURL(mosaicProperties));
+		if(properties==null)
+			throw new IOException("Unable to load "+mosaicProperties);
+		final int levelsNum=Integer.parseInt(properties.getProperty("LevelsNum","1").trim());
+		final String[] levels=properties.getProperty("Levels","").trim().split("\\s+");
+		if(levels.length!=levelsNum)
+			throw new IOException("Inconsistent levels in "+mosaicProperties);
+		final double[][] resolutionLevels=new double[2][levelsNum];
+		for(int k=0;k<levelsNum;k++){
+			final String[] pair=levels[k].split(",");
+			resolutionLevels[0][k]=Double.parseDouble(pair[0].trim());
+			resolutionLevels[1][k]=Double.parseDouble(pair[1].trim());
+		}
+		mosaicConfiguration.setLevelsNum(levelsNum);
+		mosaicConfiguration.setLevels(resolutionLevels);
+		mosaicConfiguration.setHeterogeneous(Boolean.valueOf(properties.getProperty("Heterogeneous","false").trim()));
+		mustConvertToRGB=Boolean.valueOf(properties.getProperty("ExpandToRGB","false").trim());
+		final String suggestedSPI=properties.getProperty("SuggestedSPI");
+		if(suggestedSPI!=null){
+			try {
+				cachedSPI=(ImageReaderSpi) Class.forName(suggestedSPI.trim()).newInstance();
+			} catch (Exception e) {
+				if(LOGGER.isLoggable(Level.FINE))
+					LOGGER.log(Level.FINE,e.getLocalizedMessage(),e);
+			}
+		}
+		indexInitialized=true;
+	}
+
+	/**
+	 * Removes from the index the granules whose files have been removed or changed since the
+	 * last run, the changed ones will be harvested again.
+	 */
+	private void removeStaleGranules() throws IOException {
+		final FilterFactory2 ff=CommonFactoryFinder.getFilterFactory2(null);
+		final String locationAttribute=runConfiguration.getLocationAttribute();
+		final List<Filter> stale=new ArrayList<Filter>();
+		for(String location:harvestState.getLocations()){
+			final File file=runConfiguration.isAbsolute()?new File(location):new File(runConfiguration.getRootMosaicDirectory(),location);
+			if(file.isFile()&&harvestState.isUpToDate(location, file))
+				continue;
+			stale.add(ff.equals(ff.property(locationAttribute), ff.literal(location)));
+			harvestState.remove(location);
+		}
+		if(stale.isEmpty())
+			return;
+		
+		fireEvent(Level.INFO,"Removing "+stale.size()+" granules that changed since last run", 0);
+		for(int start=0;start<stale.size();start+=REMOVAL_BATCH_SIZE){
+			final List<Filter> batch=stale.subList(start, Math.min(start+REMOVAL_BATCH_SIZE, stale.size()));
+			final Filter filter=batch.size()==1?batch.get(0):ff.or(new ArrayList<Filter>(batch));
+			if(catalog.removeGranules(new Query(indexSchema.getTypeName(),filter))<0)
+				throw new IOException("Unable to remove stale granules from the index");
+		}
+	}
+
+	private List<PropertiesCollector> createPropertyCollectors() {
 		// load property collectors
 		final String pcConfig = runConfiguration.getPropertyCollectors();
 		if (pcConfig != null && pcConfig.length()>0){
@@ -1367,14 +1626,25 @@ public class CatalogBuilder implements Runnable {
 				}
 				
 			}
-			this.propertiesCollectors=pcs;
+			return pcs;
 		}
+		return null;
 	}
 
 	private void indexingPostamble() throws IOException {
 		//close shapefile elements
 		closeIndexObjects();
 		
+		// remember what we harvested for the next incremental run
+		if(harvestState!=null){
+			final File stateFile= new File(runConfiguration.getRootMosaicDirectory(), runConfiguration.getIndexName() + HarvestState.FILE_SUFFIX);
+			try {
+				harvestState.store(stateFile);
+			} catch (IOException e) {
+				fireEvent(Level.WARNING,"Unable to store the harvesting state: "+e.getLocalizedMessage(), 99);
+			}
+		}
+		
 		// create sample image if the needed elements are available
 		createSampleImage();
 		
@@ -1554,4 +1824,21 @@ public class CatalogBuilder implements Runnable {
             return true;
         }
 
+	/**
+	 * Checks the provided resolutions against the ones of the mosaic, within the
+	 * same tolerance used by {@link #setupResolutions}.
+	 */
+	private static boolean compareResolutions(
+                final double[][] resolutionLevels, 
+                final int numberOfLevels, 
+                final double[][] compareLevels) {
+            for (int k = 0; k < numberOfLevels; k++) {
+                if (Math.abs(resolutionLevels[0][k] - compareLevels[0][k]) > RESOLUTION_TOLERANCE_FACTOR * compareLevels[0][k] ||
+                    Math.abs(resolutionLevels[1][k] - compareLevels[1][k]) > RESOLUTION_TOLERANCE_FACTOR * compareLevels[1][k]){
+                    return false;
+                }
+            }
+            return true;
+        }
+
 }
@@ -56,6 +56,17 @@ public class CatalogBuilderConfiguration {
 
 	private boolean footprintManagement = Utils.DEFAULT_FOOTPRINT_MANAGEMENT;
 
+	/**
+	 * <code>true</code> if an existing index should be updated with the files
+	 * added, changed or removed since the last run instead of being rebuilt.
+	 */
+	private boolean incremental;
+
+	/**
+	 * Number of threads inspecting files in parallel. Default is 1, no parallelism.
+	 */
+	private int harvestingThreads = 1;
+
 	@Option(description = "Root directory where to place the index file", mandatory = true, name = "rootDirectory")
 	private String rootMosaicDirectory;
 
@@ -150,6 +161,22 @@ public class CatalogBuilderConfiguration {
 		this.caching = caching;
 	}
 
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public int getHarvestingThreads() {
+		return harvestingThreads;
+	}
+
+	public void setHarvestingThreads(int harvestingThreads) {
+		this.harvestingThreads = harvestingThreads;
+	}
+
 	public String getPropertyCollectors() {
 		return propertyCollectors;
 	}
@@ -270,6 +297,10 @@ public class CatalogBuilderConfiguration {
 			return false;
 		if (this.footprintManagement != that.footprintManagement)
 			return false;
+		if (this.incremental != that.incremental)
+			return false;
+		if (this.harvestingThreads != that.harvestingThreads)
+			return false;
 		if (!(this.indexName == null && that.indexName == null)
 				&& !this.indexName.equals(that.indexName))
 			return false;
@@ -293,6 +324,8 @@ public class CatalogBuilderConfiguration {
 		seed = Utilities.hash(recursive, seed);
 		seed = Utilities.hash(caching, seed);
 		seed = Utilities.hash(footprintManagement, seed);
+		seed = Utilities.hash(incremental, seed);
+		seed = Utilities.hash(harvestingThreads, seed);
 		seed = Utilities.hash(locationAttribute, seed);
 		seed = Utilities.hash(indexName, seed);
 		seed = Utilities.hash(wildcard, seed);
@@ -314,6 +347,9 @@ public class CatalogBuilderConfiguration {
 				.append(footprintManagement).append("\n");
 		builder.append("locationAttribute:\t\t\t").append(locationAttribute)
 				.append("\n");
+		builder.append("incremental:\t\t\t").append(incremental).append("\n");
+		builder.append("harvestingThreads:\t\t\t").append(harvestingThreads)
+				.append("\n");
 		builder.append("rootMosaicDirectory:\t\t\t")
 				.append(rootMosaicDirectory).append("\n");
 		builder.append("indexingDirectories:\t\t\t").append(
@@ -342,6 +378,10 @@ public class CatalogBuilderConfiguration {
 			throw new IllegalStateException(
 					"WildcardString name cannot be empty");
 
+		if (harvestingThreads < 1)
+			throw new IllegalStateException(
+					"HarvestingThreads must be at least 1");
+
 	}
 
 }
@@ -0,0 +1,134 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalogbuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the files harvested into a mosaic index, recording for each granule location the
+ * last modification time and the size of the file it has been built from.
+ *
+ * <p>
+ * It is used by the {@link CatalogBuilder} in incremental mode to only process the files that
+ * have been added, modified or removed since the last run. The state is persisted as a simple
+ * properties file, <code>location=lastModified,length</code>.
+ *
+ * @since 2.8
+ */
+final class HarvestState {
+
+    /** Suffix of the file holding the state, appended to the index name. */
+    static final String FILE_SUFFIX = "_harvest.properties";
+
+    private final Map<String, long[]> entries = new ConcurrentHashMap<String, long[]>();
+
+    /**
+     * Loads the state from the provided file.
+     *
+     * @param file the file to read from
+     * @return the loaded state, or <code>null</code> if the file does not exist.
+     * @throws IOException
+     */
+    static HarvestState load(final File file) throws IOException {
+        if (!file.isFile())
+            return null;
+        final Properties properties = new Properties();
+        final InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        final HarvestState state = new HarvestState();
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            final String[] values = ((String) entry.getValue()).split(",");
+            if (values.length != 2)
+                continue;
+            try {
+                state.entries.put((String) entry.getKey(), new long[] { Long.parseLong(values[0].trim()),
+                        Long.parseLong(values[1].trim()) });
+            } catch (NumberFormatException e) {
+                // skip it, the granule will be harvested again
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Writes down the state to the provided file.
+     *
+     * @param file the file to write to
+     * @throws IOException
+     */
+    void store(final File file) throws IOException {
+        final Properties properties = new Properties();
+        for (Map.Entry<String, long[]> entry : entries.entrySet())
+            properties.setProperty(entry.getKey(), entry.getValue()[0] + "," + entry.getValue()[1]);
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            properties.store(out, "-Automagically created from GeoTools-");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Tells whether the provided file has already been harvested at the provided location and has
+     * not changed since.
+     */
+    boolean isUpToDate(final String location, final File file) {
+        final long[] entry = entries.get(location);
+        return entry != null && entry[0] == file.lastModified() && entry[1] == file.length();
+    }
+
+    /**
+     * Records the provided file as harvested at the provided location.
+     */
+    void update(final String location, final File file) {
+        entries.put(location, new long[] { file.lastModified(), file.length() });
+    }
+
+    /**
+     * Forgets about the provided location.
+     */
+    void remove(final String location) {
+        entries.remove(location);
+    }
+
+    /**
+     * @return the locations currently recorded.
+     */
+    Set<String> getLocations() {
+        return new HashSet<String>(entries.keySet());
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -21,6 +21,7 @@ import java.awt.Rectangle;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Properties;
@@ -31,6 +32,9 @@ import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.grid.GridGeometry2D;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.shapefile.ShapefileDataStore;
 import org.geotools.gce.imagemosaic.catalog.GranuleCatalog;
 import org.geotools.gce.imagemosaic.catalogbuilder.CatalogBuilder;
 import org.geotools.gce.imagemosaic.catalogbuilder.CatalogBuilderConfiguration;
@@ -189,6 +193,80 @@ public class CatalogBuilderTest extends Assert {
 	}
 	
 	
+	@Test
+	public void buildParallelAndIncremental() throws FileNotFoundException, IOException {
+		CatalogBuilderConfiguration c1 = new CatalogBuilderConfiguration();
+		c1.setIndexName("shpindex_parallel");
+		c1.setLocationAttribute("location");
+		c1.setAbsolute(false);
+		c1.setHarvestingThreads(4);
+		c1.setRootMosaicDirectory(TestData.file(this, "/overview").toString());
+		c1.setIndexingDirectories(Arrays.asList(TestData.file(this, "/overview/0").toString()));
+
+		// build the index in parallel
+		CatalogBuilder builder = new CatalogBuilder(c1);
+		builder.addProcessingEventListener(new CatalogBuilderListener());
+		builder.run();
+		final File mosaic = TestData.file(this, "/overview/" + c1.getIndexName() + ".shp");
+		assertTrue(mosaic.exists());
+		final File stateFile = TestData.file(this, "/overview/" + c1.getIndexName() + "_harvest.properties");
+		assertTrue(stateFile.exists());
+		final int granules = countGranules(mosaic);
+		assertTrue(granules > 0);
+		assertEquals(granules, loadProperties(stateFile).size());
+
+		// nothing changed, the incremental run must keep the very same granules
+		c1.setIncremental(true);
+		builder = new CatalogBuilder(c1);
+		builder.addProcessingEventListener(new CatalogBuilderListener());
+		builder.run();
+		assertEquals(granules, countGranules(mosaic));
+		assertEquals(granules, loadProperties(stateFile).size());
+
+		// pretend one of the files changed, it must be replaced, not duplicated
+		final Properties state = loadProperties(stateFile);
+		final String changed = (String) state.keySet().iterator().next();
+		state.setProperty(changed, "0,0");
+		final FileOutputStream out = new FileOutputStream(stateFile);
+		try {
+			state.store(out, null);
+		} finally {
+			out.close();
+		}
+		builder = new CatalogBuilder(c1);
+		builder.addProcessingEventListener(new CatalogBuilderListener());
+		builder.run();
+		assertEquals(granules, countGranules(mosaic));
+		assertFalse("0,0".equals(loadProperties(stateFile).getProperty(changed)));
+
+		final ImageMosaicReader reader = new ImageMosaicReader(mosaic);
+		try {
+			assertNotNull(reader.getOriginalEnvelope());
+		} finally {
+			reader.dispose();
+		}
+	}
+
+	private static int countGranules(final File shapefile) throws IOException {
+		final ShapefileDataStore store = new ShapefileDataStore(DataUtilities.fileToURL(shapefile));
+		try {
+			return store.getFeatureSource().getCount(Query.ALL);
+		} finally {
+			store.dispose();
+		}
+	}
+
+	private static Properties loadProperties(final File file) throws IOException {
+		final Properties properties = new Properties();
+		final FileInputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		return properties;
+	}
+
 	@Test
 	public void buildCachingIndex() throws FileNotFoundException, IOException {
 		CatalogBuilder builder = null;
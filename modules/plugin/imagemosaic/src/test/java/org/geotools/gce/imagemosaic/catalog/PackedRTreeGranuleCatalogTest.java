@@ -0,0 +1,211 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.gce.imagemosaic.GranuleDescriptor;
+import org.geotools.gce.imagemosaic.PathType;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.geometry.BoundingBox;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Testing {@link PackedRTreeGranuleCatalog} class.
+ *
+ * @source $URL$
+ */
+public class PackedRTreeGranuleCatalogTest extends Assert {
+
+    private File indexFile;
+
+    private SimpleFeatureType type;
+
+    private List<SimpleFeature> features;
+
+    @Before
+    public void setUp() throws Exception {
+        indexFile = File.createTempFile("catalog", "." + PackedRTreeGranuleCatalog.INDEX_EXTENSION);
+        indexFile.delete();
+
+        final SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("index");
+        tb.add("the_geom", Polygon.class, DefaultGeographicCRS.WGS84);
+        tb.add("location", String.class);
+        type = tb.buildFeatureType();
+
+        // a row of one degree granules, all pointing to the same image
+        final String location = DataUtilities.urlToFile(TestData.url(GranuleDescriptor.class, "rgb/global_mosaic_0.png"))
+                .getAbsolutePath();
+        final SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 10; i++) {
+            fb.add(JTS.toGeometry(new Envelope(i, i + 1, 0, 1)));
+            fb.add(location);
+            features.add(fb.buildFeature("index." + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        indexFile.delete();
+    }
+
+    @Test
+    public void queryAndDispose() throws IOException {
+        final MemoryCatalog wrapped = new MemoryCatalog();
+        final PackedRTreeGranuleCatalog catalog = new PackedRTreeGranuleCatalog(wrapped, indexFile, null);
+        assertTrue(indexFile.exists());
+
+        final List<GranuleDescriptor> granules = catalog.getGranules(new ReferencedEnvelope(2.5, 4.5,
+                0.2, 0.8, DefaultGeographicCRS.WGS84));
+        assertEquals(ids("index.2", "index.3", "index.4"), ids(granules));
+        assertEquals(10, catalog.getGranules().size());
+
+        catalog.dispose();
+        assertTrue(wrapped.disposed);
+        try {
+            catalog.getGranules(new ReferencedEnvelope(0, 1, 0, 1, DefaultGeographicCRS.WGS84));
+            fail("A disposed catalog should not be queried");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void reopenExistingIndex() throws IOException {
+        new PackedRTreeGranuleCatalog(new MemoryCatalog(), indexFile, null).dispose();
+
+        // the second catalog maps the persisted index and resolves granules by id
+        final MemoryCatalog wrapped = new MemoryCatalog();
+        final PackedRTreeGranuleCatalog catalog = new PackedRTreeGranuleCatalog(wrapped, indexFile, null);
+        try {
+            assertEquals(0, wrapped.scans);
+            final List<GranuleDescriptor> granules = catalog.getGranules(new ReferencedEnvelope(8.5, 20,
+                    0, 1, DefaultGeographicCRS.WGS84));
+            assertEquals(ids("index.8", "index.9"), ids(granules));
+            assertEquals(0, wrapped.scans);
+            assertEquals(1, wrapped.lookups);
+
+            // resolved granules are kept
+            catalog.getGranules(new ReferencedEnvelope(8.5, 20, 0, 1, DefaultGeographicCRS.WGS84));
+            assertEquals(1, wrapped.lookups);
+        } finally {
+            catalog.dispose();
+        }
+    }
+
+    private static Set<String> ids(String... ids) {
+        final Set<String> result = new HashSet<String>();
+        for (String id : ids)
+            result.add(id);
+        return result;
+    }
+
+    private static Set<String> ids(Collection<GranuleDescriptor> granules) {
+        final Set<String> result = new HashSet<String>();
+        for (GranuleDescriptor granule : granules)
+            result.add(granule.getOriginator().getID());
+        return result;
+    }
+
+    /**
+     * A catalog holding the granules in memory, counting the accesses.
+     */
+    private class MemoryCatalog extends AbstractGranuleCatalog {
+
+        boolean disposed;
+
+        int scans;
+
+        int lookups;
+
+        private List<GranuleDescriptor> granules(final Query q) {
+            final List<GranuleDescriptor> result = new ArrayList<GranuleDescriptor>();
+            for (SimpleFeature feature : features)
+                if (q == null || q.getFilter().evaluate(feature))
+                    result.add(new GranuleDescriptor(feature, null, PathType.ABSOLUTE, "location", null));
+            return result;
+        }
+
+        @Override
+        public BoundingBox getBounds() {
+            final ReferencedEnvelope bounds = new ReferencedEnvelope(DefaultGeographicCRS.WGS84);
+            for (SimpleFeature feature : features)
+                bounds.include(feature.getBounds());
+            return bounds;
+        }
+
+        @Override
+        public Collection<GranuleDescriptor> getGranules(BoundingBox envelope) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<GranuleDescriptor> getGranules(Query q) throws IOException {
+            lookups++;
+            return granules(q);
+        }
+
+        @Override
+        public Collection<GranuleDescriptor> getGranules() throws IOException {
+            scans++;
+            return granules(null);
+        }
+
+        @Override
+        public void getGranules(BoundingBox envelope, GranuleCatalogVisitor visitor) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void getGranules(Query q, GranuleCatalogVisitor visitor) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SimpleFeatureType getType() throws IOException {
+            return type;
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic.catalog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Testing {@link PackedRTree} class.
+ *
+ * @source $URL$
+ */
+public class PackedRTreeTest extends Assert {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("packed", ".prtree");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void queryMatchesBruteForce() throws IOException {
+        final Random random = new Random(1);
+        for (int size : new int[] { 0, 1, 16, 17, 1000 }) {
+            final List<Envelope> envelopes = new ArrayList<Envelope>();
+            final List<String> ids = new ArrayList<String>();
+            for (int i = 0; i < size; i++) {
+                final double x = random.nextDouble() * 100;
+                final double y = random.nextDouble() * 100;
+                envelopes.add(new Envelope(x, x + random.nextDouble(), y, y + random.nextDouble()));
+                ids.add("granule." + i);
+            }
+            PackedRTree.write(file, envelopes, ids, 4, 10, 20);
+            final PackedRTree tree = PackedRTree.open(file);
+            assertEquals(size, tree.size());
+            assertEquals(10, tree.getSourceTimestamp());
+            assertEquals(20, tree.getSourceLength());
+
+            for (int q = 0; q < 100; q++) {
+                final double x = random.nextDouble() * 100;
+                final double y = random.nextDouble() * 100;
+                final Envelope query = new Envelope(x, x + random.nextDouble() * 10, y, y
+                        + random.nextDouble() * 10);
+                final Set<Integer> expected = new HashSet<Integer>();
+                for (int i = 0; i < size; i++)
+                    if (envelopes.get(i).intersects(query))
+                        expected.add(i);
+
+                final List<Integer> result = tree.query(query);
+                assertEquals(expected.size(), result.size());
+                assertEquals(expected, new HashSet<Integer>(result));
+                for (Integer item : result)
+                    assertEquals("granule." + item, tree.getId(item));
+            }
+        }
+    }
+
+    @Test
+    public void invalidFile() throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[64]);
+        } finally {
+            out.close();
+        }
+        try {
+            PackedRTree.open(file);
+            fail("An invalid index should not be opened");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -24,8 +24,8 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.nio.channels.Channels;
-import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,7 +48,6 @@ import org.geotools.gce.imagemosaic.ImageMosaicReader;
 import org.geotools.geometry.GeneralEnvelope;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.operation.builder.GridToEnvelopeMapper;
-import org.geotools.util.SoftValueHashMap;
 import org.opengis.coverage.grid.Format;
 import org.opengis.coverage.grid.GridCoverage;
 import org.opengis.coverage.grid.GridCoverageReader;
@@ -111,6 +110,10 @@ import org.opengis.referencing.operation.TransformException;
  *           LevelsNum=6
  *           #envelope for this pyramid
  *           Envelope2D=13.398228477973406,43.591366397808976 13.537912459169803,43.67121274528585
+ *           #optional, maximum number of levels kept open at the same time
+ *           LevelReadersPoolSize=3
+ *           #optional, whether to open the next level in background when zooming
+ *           LevelReadAhead=true
  * </pre>
  * 
  * @author Simone Giannecchini
@@ -135,10 +138,10 @@ public final class ImagePyramidReader extends AbstractGridCoverage2DReader imple
 	private String[] levelsDirs;
 
 	/**
-	 * Cache of {@link ImageMosaicReader} objects for the different levels.
+	 * Pool of {@link ImageMosaicReader} objects for the different levels.
 	 * 
 	 */
-	private Map<Integer, ImageMosaicReader> readers;
+	private LevelReaderPool readers;
 
 	/**
 	 * Constructor for an {@link ImagePyramidReader}.
@@ -263,9 +266,21 @@ public final class ImagePyramidReader extends AbstractGridCoverage2DReader imple
 			numOverviews = Integer.parseInt(properties.getProperty("LevelsNum")) - 1;
 			levelsDirs = properties.getProperty("LevelsDirs").split(" ");
 
-			// readers soft map
-			final int readersCacheSize = (numOverviews + 1) / 3;
-			readers = new SoftValueHashMap<Integer, ImageMosaicReader>(readersCacheSize == 0 ? numOverviews + 1 : readersCacheSize);
+			// readers pool
+			final int defaultPoolSize = Math.max(2, (numOverviews + 1) / 3);
+			final String poolSize = properties.getProperty("LevelReadersPoolSize");
+			final boolean readAhead = Boolean.valueOf(properties.getProperty("LevelReadAhead", "false").trim());
+			final Object executor = hints.get(Hints.EXECUTOR_SERVICE);
+			readers = new LevelReaderPool(
+					new LevelReaderPool.LevelLoader() {
+						public ImageMosaicReader load(int level) throws IOException {
+							return createLevelReader(level);
+						}
+					},
+					numOverviews + 1,
+					Math.min(numOverviews + 1, poolSize != null ? Integer.parseInt(poolSize.trim()) : defaultPoolSize),
+					readAhead,
+					executor instanceof ExecutorService ? (ExecutorService) executor : null);
 
 			// resolutions levels
 			final String levels = properties.getProperty("Levels");
@@ -480,37 +495,52 @@ public final class ImagePyramidReader extends AbstractGridCoverage2DReader imple
 		// Check to have the needed reader in memory
 		// 
 		// /////////////////////////////////////////////////////////////////////
-		ImageMosaicReader reader = null;
-		synchronized (readers) {
-			Object o = readers.get(imageChoice);
-			if (o == null) {
-				final String levelDirName = levelsDirs[imageChoice.intValue()];
-				final URL parentUrl = DataUtilities.getParentUrl(sourceURL);
-				// look for a shapefile first
-				final String extension = new StringBuilder(levelDirName).append("/").append(coverageName).append(".shp").toString();
-				final URL shpFileUrl = DataUtilities.extendURL(parentUrl,extension);
-				if(shpFileUrl.getProtocol()!=null&&shpFileUrl.getProtocol().equalsIgnoreCase("file")&&!DataUtilities.urlToFile(shpFileUrl).exists())
-					reader= new ImageMosaicReader(DataUtilities.extendURL(parentUrl,levelDirName), hints);
-				else
-					reader = new ImageMosaicReader(shpFileUrl,hints);
-				readers.put(imageChoice, reader);
-
-			} else
-				reader = (ImageMosaicReader) o;
+		final ImageMosaicReader reader = readers.acquire(imageChoice);
+		try {
+			//
+			// Abusing of the created ImageMosaicreader for getting a
+			// gridcoverage2d, then rename it
+			//
+			GridCoverage2D mosaicCoverage = reader.read(params);
+			if(mosaicCoverage != null) {
+			    return new GridCoverage2D(coverageName, mosaicCoverage);
+			} else {
+			    // the mosaic can still return null in corner cases, handle that gracefully
+			    return null;
+			}
+		} finally {
+			readers.release(imageChoice, reader);
 		}
+	}
 
-	
-		//
-		// Abusing of the created ImageMosaicreader for getting a
-		// gridcoverage2d, then rename it
-		//
-		GridCoverage2D mosaicCoverage = reader.read(params);
-		if(mosaicCoverage != null) {
-		    return new GridCoverage2D(coverageName, mosaicCoverage);
-		} else {
-		    // the mosaic can still return null in corner cases, handle that gracefully
-		    return null;
-		}
+	/**
+	 * Creates the {@link ImageMosaicReader} for the provided level.
+	 * 
+	 * @param level
+	 *            the level, 0 being the highest resolution.
+	 * @return the reader for the level.
+	 * @throws IOException
+	 */
+	private ImageMosaicReader createLevelReader(final int level) throws IOException {
+		final String levelDirName = levelsDirs[level];
+		final URL parentUrl = DataUtilities.getParentUrl(sourceURL);
+		// look for a shapefile first
+		final String extension = new StringBuilder(levelDirName).append("/").append(coverageName).append(".shp").toString();
+		final URL shpFileUrl = DataUtilities.extendURL(parentUrl,extension);
+		if(shpFileUrl.getProtocol()!=null&&shpFileUrl.getProtocol().equalsIgnoreCase("file")&&!DataUtilities.urlToFile(shpFileUrl).exists())
+			return new ImageMosaicReader(DataUtilities.extendURL(parentUrl,levelDirName), hints);
+		else
+			return new ImageMosaicReader(shpFileUrl,hints);
+	}
+
+	/**
+	 * Gives access to the pool of the readers for the pyramid levels, mostly
+	 * in order to look at its statistics.
+	 * 
+	 * @return the {@link LevelReaderPool} of this reader.
+	 */
+	public LevelReaderPool getLevelReaderPool() {
+		return readers;
 	}
 
 	/**
@@ -519,7 +549,7 @@ public final class ImagePyramidReader extends AbstractGridCoverage2DReader imple
 	@Override
 	public synchronized void dispose() {
 		super.dispose();
-		readers.clear();
+		readers.dispose();
 	}
 	
 	/**
@@ -0,0 +1,412 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagepyramid;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.DataSourceException;
+import org.geotools.gce.imagemosaic.ImageMosaicReader;
+
+/**
+ * Strongly referenced pool of the {@link ImageMosaicReader} instances serving the levels of an
+ * {@link ImagePyramidReader}.
+ *
+ * <p>
+ * At most {@link #getMaxSize()} levels are kept open, the least recently used one being disposed
+ * when room is needed; readers being used by an in progress read are disposed only once released.
+ * Each level is loaded at most once, concurrent requests for the same level wait for the same load.
+ *
+ * <p>
+ * When read-ahead is enabled, a request for a level different from the previous one is taken as a
+ * zoom in or zoom out, and the next level in the same direction is loaded in background so that
+ * the following request does not pay for opening its catalog.
+ *
+ * @since 2.8
+ */
+public final class LevelReaderPool {
+
+    /** Logger. */
+    private final static Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(LevelReaderPool.class.toString());
+
+    /**
+     * Creates the reader for a given level.
+     */
+    interface LevelLoader {
+        ImageMosaicReader load(int level) throws IOException;
+    }
+
+    /**
+     * A pooled level, loaded at most once through its task.
+     */
+    private static final class Entry {
+        final FutureTask<ImageMosaicReader> task;
+
+        /** Number of reads currently using this level. */
+        int users;
+
+        /** Whether this level has been removed from the pool. */
+        boolean evicted;
+
+        /** Whether this level has been loaded by the read-ahead and not yet used. */
+        boolean readAhead;
+
+        Entry(final FutureTask<ImageMosaicReader> task) {
+            this.task = task;
+        }
+
+        /** Tells whether this entry has been loaded into the provided reader. */
+        boolean holds(final ImageMosaicReader reader) {
+            if (!task.isDone())
+                return false;
+            try {
+                return task.get() == reader;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        void dispose() {
+            if (!task.isDone())
+                return;
+            try {
+                task.get().dispose();
+            } catch (Exception e) {
+                if (LOGGER.isLoggable(Level.FINE))
+                    LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<Integer, Entry>(16,
+            0.75f, true);
+
+    /** Evicted levels still in use or being loaded, to be disposed once done. */
+    private final List<Entry> orphans = new ArrayList<Entry>();
+
+    private final LevelLoader loader;
+
+    private final int numLevels;
+
+    private final int maxSize;
+
+    private final boolean readAhead;
+
+    /** The executor used for read-ahead, either provided or owned by this pool. */
+    private ExecutorService executor;
+
+    private final boolean ownExecutor;
+
+    /** The level requested last, used to detect zooming. */
+    private int lastLevel = -1;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong readAheads = new AtomicLong();
+
+    private final AtomicLong readAheadHits = new AtomicLong();
+
+    private final AtomicLong loadTime = new AtomicLong();
+
+    /**
+     * Creates a new pool.
+     *
+     * @param loader creates the reader for a level.
+     * @param numLevels number of levels of the pyramid.
+     * @param maxSize maximum number of levels to keep open.
+     * @param readAhead whether to warm the next level when zooming.
+     * @param executor executor to use for the read-ahead, if <code>null</code> a single daemon
+     *        thread is created on demand.
+     */
+    LevelReaderPool(final LevelLoader loader, final int numLevels, final int maxSize,
+            final boolean readAhead, final ExecutorService executor) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("The pool size must be positive: " + maxSize);
+        this.loader = loader;
+        this.numLevels = numLevels;
+        this.maxSize = maxSize;
+        // there is no room for the next level if we can keep only one
+        this.readAhead = readAhead && maxSize > 1 && numLevels > 1;
+        this.executor = executor;
+        this.ownExecutor = executor == null;
+    }
+
+    /**
+     * Returns the reader for the provided level, loading it if needed. Each call must be paired
+     * with a call to {@link #release(int, ImageMosaicReader)} once the reader is no longer used.
+     *
+     * @param level the requested level.
+     * @return the reader for the level.
+     * @throws IOException in case the reader cannot be created.
+     */
+    ImageMosaicReader acquire(final int level) throws IOException {
+        final Entry entry;
+        synchronized (this) {
+            Entry e = entries.get(level);
+            if (e == null) {
+                misses.incrementAndGet();
+                e = add(level);
+            } else {
+                hits.incrementAndGet();
+                if (e.readAhead) {
+                    e.readAhead = false;
+                    readAheadHits.incrementAndGet();
+                }
+            }
+            e.users++;
+            entry = e;
+            if (readAhead)
+                scheduleReadAhead(level);
+            lastLevel = level;
+        }
+
+        // load it, or wait for whoever is loading it
+        entry.task.run();
+        try {
+            return entry.task.get();
+        } catch (Exception e) {
+            synchronized (this) {
+                entry.users--;
+                if (entries.get(level) == entry)
+                    entries.remove(level);
+            }
+            final Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new DataSourceException("Unable to create the reader for level " + level, cause);
+        }
+    }
+
+    /**
+     * Tells the pool the provided reader, previously acquired for the provided level, is no longer
+     * used.
+     *
+     * @param level the level.
+     * @param reader the reader returned by {@link #acquire(int)}.
+     */
+    synchronized void release(final int level, final ImageMosaicReader reader) {
+        Entry entry = entries.get(level);
+        if (entry == null || !entry.holds(reader)) {
+            // it has been evicted while in use
+            entry = null;
+            for (Iterator<Entry> it = orphans.iterator(); it.hasNext();) {
+                final Entry orphan = it.next();
+                if (orphan.holds(reader)) {
+                    entry = orphan;
+                    break;
+                }
+            }
+            if (entry == null)
+                return;
+        }
+        entry.users--;
+        if (entry.evicted && entry.users <= 0) {
+            orphans.remove(entry);
+            entry.dispose();
+        }
+    }
+
+    /**
+     * Adds a new not yet loaded level to the pool, evicting the least recently used ones if needed.
+     */
+    private Entry add(final int level) {
+        final Entry entry = new Entry(new FutureTask<ImageMosaicReader>(
+                new Callable<ImageMosaicReader>() {
+                    public ImageMosaicReader call() throws Exception {
+                        final long start = System.nanoTime();
+                        try {
+                            return loader.load(level);
+                        } finally {
+                            loadTime.addAndGet(System.nanoTime() - start);
+                        }
+                    }
+                }));
+        entries.put(level, entry);
+
+        final Iterator<Map.Entry<Integer, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            final Map.Entry<Integer, Entry> eldest = it.next();
+            if (eldest.getValue() == entry)
+                continue;
+            it.remove();
+            evict(eldest.getKey(), eldest.getValue());
+        }
+        return entry;
+    }
+
+    private void evict(final Integer level, final Entry entry) {
+        evictions.incrementAndGet();
+        entry.evicted = true;
+        if (entry.users > 0 || !entry.task.isDone())
+            // in use or being loaded, it will be disposed when done
+            orphans.add(entry);
+        else
+            entry.dispose();
+        if (LOGGER.isLoggable(Level.FINE))
+            LOGGER.fine("Evicted level " + level + " from the pool: " + this);
+    }
+
+    /**
+     * Warms the next level in the direction we are moving, if any.
+     */
+    private void scheduleReadAhead(final int level) {
+        if (lastLevel < 0 || lastLevel == level)
+            return;
+        final int next = level + (level > lastLevel ? 1 : -1);
+        if (next < 0 || next >= numLevels || entries.containsKey(next))
+            return;
+        final Entry entry = add(next);
+        entry.readAhead = true;
+        readAheads.incrementAndGet();
+        try {
+            getExecutor().execute(new Runnable() {
+                public void run() {
+                    entry.task.run();
+                    synchronized (LevelReaderPool.this) {
+                        if (entry.evicted && entry.users <= 0) {
+                            orphans.remove(entry);
+                            entry.dispose();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // too busy, the level will be loaded on first use
+            if (LOGGER.isLoggable(Level.FINE))
+                LOGGER.log(Level.FINE, e.getLocalizedMessage(), e);
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(numLevels), new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "ImagePyramidReadAhead");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }, new ThreadPoolExecutor.DiscardPolicy());
+        }
+        return executor;
+    }
+
+    /**
+     * Disposes all the pooled readers; those currently in use are disposed once released.
+     */
+    synchronized void dispose() {
+        for (Map.Entry<Integer, Entry> entry : entries.entrySet())
+            evict(entry.getKey(), entry.getValue());
+        entries.clear();
+        if (ownExecutor && executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return the maximum number of levels kept open.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of levels currently open or being opened.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return whether the read-ahead is enabled.
+     */
+    public boolean isReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * @return the number of requests served by an already pooled level.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests which had to load their level.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of levels removed from the pool to make room for others.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of levels loaded by the read-ahead.
+     */
+    public long getReadAheads() {
+        return readAheads.get();
+    }
+
+    /**
+     * @return the number of levels loaded by the read-ahead which have then been requested.
+     */
+    public long getReadAheadHits() {
+        return readAheadHits.get();
+    }
+
+    /**
+     * @return the overall time spent loading levels, in milliseconds.
+     */
+    public long getLoadTime() {
+        return TimeUnit.NANOSECONDS.toMillis(loadTime.get());
+    }
+
+    @Override
+    public String toString() {
+        return "LevelReaderPool[size=" + size() + ", maxSize=" + maxSize + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + ", readAheads="
+                + readAheads + ", readAheadHits=" + readAheadHits + ", loadTime="
+                + getLoadTime() + "ms]";
+    }
+}
@@ -21,6 +21,7 @@ import java.awt.Rectangle;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
 
@@ -878,4 +879,72 @@ public class ImagePyramidReaderTest extends Assert {
 			((GridCoverage2D) coverage).getRenderedImage().getData();
 
 	}
+
+	/**
+	 * Testing the {@link LevelReaderPool} statistics, eviction and read-ahead
+	 * while zooming in and out.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testLevelReaderPool() throws IOException {
+		// a copy of the pyramid, with a descriptor enabling the read-ahead
+		final File sourceDir = TestData.file(this, TEST_FILE).getParentFile();
+		final File targetDir = File.createTempFile("pyramid", "tst", new File("./target"));
+		targetDir.delete();
+		targetDir.mkdir();
+		ImagePyramidReader reader = null;
+		try {
+			FileUtils.copyDirectory(sourceDir, targetDir);
+			final File properties = new File(targetDir, TEST_FILE);
+			final FileWriter writer = new FileWriter(properties, true);
+			try {
+				writer.write("\nLevelReadersPoolSize=3\nLevelReadAhead=true\n");
+			} finally {
+				writer.close();
+			}
+
+			reader = new ImagePyramidReader(properties,
+					new Hints(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.FALSE));
+			final LevelReaderPool pool = reader.getLevelReaderPool();
+			assertEquals(3, pool.getMaxSize());
+			assertTrue(pool.isReadAhead());
+
+			// level 0, 1, then the read-ahead should have warmed level 2
+			assertNotNull(readLevel(reader, 250));
+			assertNotNull(readLevel(reader, 125));
+			assertEquals(2, pool.getMisses());
+			assertEquals(1, pool.getReadAheads());
+
+			// level 2 was warmed, level 3 gets warmed in turn evicting level 0
+			assertNotNull(readLevel(reader, 62));
+			assertEquals(2, pool.getMisses());
+			assertEquals(1, pool.getHits());
+			assertEquals(1, pool.getReadAheadHits());
+			assertEquals(2, pool.getReadAheads());
+			assertEquals(1, pool.getEvictions());
+			assertEquals(3, pool.size());
+
+			// zooming in again, level 0 gets warmed back while reading level 1
+			assertNotNull(readLevel(reader, 125));
+			assertNotNull(readLevel(reader, 250));
+			assertEquals(2, pool.getMisses());
+			assertEquals(3, pool.getHits());
+			assertEquals(2, pool.getReadAheadHits());
+			assertTrue(pool.size() <= pool.getMaxSize());
+		} finally {
+			if (reader != null) {
+				reader.dispose();
+			}
+			// cleanup
+			FileUtils.deleteQuietly(targetDir);
+		}
+	}
+
+	private static GridCoverage2D readLevel(final ImagePyramidReader reader, final int size)
+			throws IOException {
+		final Parameter<GridGeometry2D> readGG = new Parameter<GridGeometry2D>(AbstractGridFormat.READ_GRIDGEOMETRY2D);
+		readGG.setValue(new GridGeometry2D(new GridEnvelope2D(0, 0, size, size), reader.getOriginalEnvelope()));
+		return (GridCoverage2D) reader.read(new GeneralParameterValue[] { readGG });
+	}
 }
@@ -29,8 +29,10 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
+import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.Geometries;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.SQLDialect;
@@ -69,6 +71,16 @@ public class H2Dialect extends SQLDialect {
     
     public static String H2_SPATIAL_INDEX = "org.geotools.data.h2.spatialIndex";
     
+    /**
+     * Geometry descriptor user data key holding the {@link H2GridIndex} of the column
+     */
+    public static String H2_GRID_INDEX = "org.geotools.data.h2.gridIndex";
+    
+    /**
+     * Number of grid index cells along the widest side of the crs area of validity
+     */
+    static final int GRID_SIZE = 1024;
+    
     public H2Dialect( JDBCDataStore dataStore ) {
         super( dataStore );
     }
@@ -78,16 +90,36 @@ public class H2Dialect extends SQLDialect {
     }
 
     
+    /**
+     * Whether the functions provided by {@link JTS} have been registered
+     */
+    volatile boolean functionsCreated = false;
+    
     @Override
     public void initializeConnection(Connection cx) throws SQLException {
         //spatialize the database
         GeoDB.InitGeoDB(cx);
+        
+        if (!functionsCreated) {
+            Statement st = cx.createStatement();
+            try {
+                st.execute("CREATE ALIAS IF NOT EXISTS GT_AsTWKB FOR \"" 
+                        + JTS.class.getName() + ".AsTWKB\"");
+                st.execute("CREATE ALIAS IF NOT EXISTS GT_CreateGridIndex FOR \"" 
+                        + H2GridIndex.class.getName() + ".CreateGridIndex\"");
+            } finally {
+                dataStore.closeSafe(st);
+            }
+            functionsCreated = true;
+        }
     }
     
     @Override
     public boolean includeTable(String schemaName, String tableName, Connection cx)
             throws SQLException {
-        if ("_GEODB".equals(tableName) || tableName.endsWith("_HATBOX")) {
+        if ("_GEODB".equals(tableName) || tableName.endsWith("_HATBOX")
+                || tableName.endsWith(H2GridIndex.INDEX_SUFFIX)
+                || H2GridIndex.METADATA_TABLE.equals(tableName)) {
             return false;
         }
         
@@ -168,6 +200,21 @@ public class H2Dialect extends SQLDialect {
         mappings.put(Geometry.class, Types.BLOB);
     }
     
+    /**
+     * Registers the geometry columns, and creates a {@link H2GridIndex} on each of them.
+     * <p>
+     * Grid indexes replace the HATBOX index previously created through 
+     * <code>CreateSpatialIndex</code>: they are kept current by triggers on any write, and 
+     * {@link H2FilterToSQL} uses them to narrow down spatial filters. Tables already indexed
+     * with HATBOX keep using their index.
+     * </p>
+     * <p>
+     * The cell size is derived from the area of validity of the column crs. Columns whose crs
+     * has none are not indexed here, as the table is still empty; they can be indexed once 
+     * loaded calling <code>GT_CreateGridIndex(schema, table, column)</code>, which derives the
+     * cell size from the data.
+     * </p>
+     */
     @Override
     public void postCreateTable(String schemaName,
             SimpleFeatureType featureType, Connection cx) throws SQLException {
@@ -215,22 +262,19 @@ public class H2Dialect extends SQLDialect {
                     LOGGER.fine(sql.toString());
                     st.execute(sql.toString());
                     
-                    if (epsg != -1) {
-                        sql = new StringBuffer();
-                        sql.append("CALL CreateSpatialIndex(");
-                        if (schemaName == null) {
-                            sql.append("NULL");
-                        }
-                        else {
-                            sql.append("'").append(schemaName).append("'");
-                        }
-                       
-                        sql.append(",'").append(tableName).append("'");
-                        sql.append(",'").append(propertyName).append("'");
-                        sql.append(",'").append(epsg).append("')");
-                        
-                        LOGGER.fine(sql.toString());
-                        st.execute(sql.toString());
+                    //create a spatial index, sized after the crs area of validity
+                    org.opengis.geometry.Envelope domain = 
+                        CRS.getEnvelope(gd.getCoordinateReferenceSystem());
+                    if (domain == null) {
+                        LOGGER.info("The crs of " + tableName + "." + propertyName + " has no "
+                                + "area of validity, not creating a spatial index, call "
+                                + "GT_CreateGridIndex once the table is loaded to create one");
+                        continue;
+                    }
+                    double cellSize = Math.max(domain.getSpan(0), domain.getSpan(1)) / GRID_SIZE;
+                    if (H2GridIndex.create(cx, schemaName, tableName, propertyName, cellSize) == null) {
+                        LOGGER.fine("Table " + tableName + " has no single column primary key, "
+                                + "not creating a spatial index on " + propertyName);
                     }
                 }
             }
@@ -247,6 +291,13 @@ public class H2Dialect extends SQLDialect {
         if (featureType.getGeometryDescriptor() == null) {
             return;
         }
+        for (H2GridIndex index : H2GridIndex.lookup(cx, schemaName, featureType.getTypeName())) {
+            AttributeDescriptor ad = featureType.getDescriptor(index.getGeometryColumn());
+            if (ad instanceof GeometryDescriptor) {
+                ad.getUserData().put(H2_GRID_INDEX, index);
+            }
+        }
+        
         String idxTableName = featureType.getTypeName() + "_HATBOX";
         ResultSet rs = metadata.getTables(null, schemaName, idxTableName, new String[]{"TABLE"});
         try {
@@ -315,6 +366,19 @@ public class H2Dialect extends SQLDialect {
         }
     }
 
+    @Override
+    public void encodeGeometryColumnQuantized(GeometryDescriptor gatt, int srid,
+            StringBuffer sql, Double distance) {
+        sql.append("GT_AsTWKB(");
+        encodeColumnName(gatt.getLocalName(), sql);
+        sql.append(",").append(distance).append(")");
+    }
+    
+    @Override
+    protected void addSupportedHints(Set<Hints.Key> hints) {
+        hints.add(Hints.GEOMETRY_DISTANCE);
+    }
+
     public void encodeGeometryEnvelope(String tableName, String geometryColumn, StringBuffer sql) {
         //TODO: change spatialdbbox to use envelope
         sql.append("ST_Envelope(");
@@ -394,6 +458,38 @@ public class H2Dialect extends SQLDialect {
         return null;
     }
     
+    @Override
+    public int getEstimatedCount(String schemaName, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
+        Statement st = cx.createStatement();
+        try {
+            StringBuffer sql = new StringBuffer();
+            sql.append( "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES ");
+            sql.append( "WHERE TABLE_NAME = '").append( featureType.getTypeName() ).append( "'" );
+            if ( schemaName != null ) {
+                sql.append( " AND TABLE_SCHEMA = '").append( schemaName ).append( "'" );
+            }
+            
+            dataStore.getLogger().fine( sql.toString() );
+            ResultSet rs = st.executeQuery( sql.toString() );
+            try {
+                if ( rs.next() ) {
+                    long count = rs.getLong( 1 );
+                    if ( count >= 0 ) {
+                        return (int) Math.min( Integer.MAX_VALUE, count );
+                    }
+                }
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        }
+        finally {
+            dataStore.closeSafe(st);
+        }
+        
+        return -1;
+    }
+    
     @Override
     public Object getNextSequenceValue(String schemaName, String sequenceName,
             Connection cx) throws SQLException {
@@ -22,8 +22,10 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Map;
+import java.util.Set;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.factory.Hints;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.JDBCDataStore;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -59,6 +61,23 @@ public class H2DialectBasic extends BasicSQLDialect {
     public void initializeConnection(Connection cx) throws SQLException {
         delegate.initializeConnection(cx);
     }
+
+    @Override
+    public void encodeGeometryColumnQuantized(GeometryDescriptor gatt, int srid,
+            StringBuffer sql, Double distance) {
+        delegate.encodeGeometryColumnQuantized(gatt, srid, sql, distance);
+    }
+    
+    @Override
+    protected void addSupportedHints(Set<Hints.Key> hints) {
+        delegate.addSupportedHints(hints);
+    }
+    
+    @Override
+    public int getEstimatedCount(String schemaName, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
+        return delegate.getEstimatedCount(schemaName, featureType, cx);
+    }
     
     @Override
     public boolean includeTable(String schemaName, String tableName, Connection cx)
@@ -16,8 +16,6 @@
  */
 package org.geotools.data.h2;
 
-import geodb.GeoDB;
-
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.Connection;
@@ -27,7 +25,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Map;
+import java.util.Set;
 
+import org.geotools.factory.Hints;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -62,6 +62,23 @@ public class H2DialectPrepared extends PreparedStatementSQLDialect {
     public void initializeConnection(Connection cx) throws SQLException {
         delegate.initializeConnection(cx);
     }
+
+    @Override
+    public void encodeGeometryColumnQuantized(GeometryDescriptor gatt, int srid,
+            StringBuffer sql, Double distance) {
+        delegate.encodeGeometryColumnQuantized(gatt, srid, sql, distance);
+    }
+    
+    @Override
+    protected void addSupportedHints(Set<Hints.Key> hints) {
+        delegate.addSupportedHints(hints);
+    }
+    
+    @Override
+    public int getEstimatedCount(String schemaName, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
+        return delegate.getEstimatedCount(schemaName, featureType, cx);
+    }
     
     @Override
     public boolean includeTable(String schemaName, String tableName, Connection cx)
@@ -178,7 +195,7 @@ public class H2DialectPrepared extends PreparedStatementSQLDialect {
             return;
         }
         
-        ps.setBytes( column, GeoDB.gToWKB(g) );
+        setGeometryWKB( g, ps, column );
     }
     
     @Override
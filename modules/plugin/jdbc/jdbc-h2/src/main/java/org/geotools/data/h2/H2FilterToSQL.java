@@ -75,6 +75,10 @@ public class H2FilterToSQL extends FilterToSQL {
         PropertyName property, Literal geometry, boolean swapped, Object extraData) {
         
         try {
+            // look up the candidates in the grid index first, so that the spatial function
+            // is evaluated only on them
+            boolean indexed = encodeGridIndexCondition(filter, geometry);
+            
             if (filter instanceof DistanceBufferOperator) {
                 out.write("ST_Distance(");
                 property.accept(this, extraData);
@@ -145,7 +149,10 @@ public class H2FilterToSQL extends FilterToSQL {
                 out.write(")");
             }
             
-            if (!(filter instanceof Disjoint)) {
+            if (indexed) {
+                out.write(")");
+            }
+            else if (!(filter instanceof Disjoint) && !(filter instanceof Beyond)) {
                 String spatialIndex = (String) 
                     currentGeometry.getUserData().get(H2Dialect.H2_SPATIAL_INDEX);
                 if (spatialIndex != null) {
@@ -153,7 +160,7 @@ public class H2FilterToSQL extends FilterToSQL {
                     if (primaryKey.getColumns().size() == 1 && 
                         Number.class.isAssignableFrom(primaryKey.getColumns().get(0).getType())) {
                         
-                        Envelope e = geometry.evaluate(null, Envelope.class);
+                        Envelope e = getSearchEnvelope(filter, geometry);
                         
                         out.write( " AND ");
                         out.write("\"" + primaryKey.getColumns().get(0).getName() + "\" ");
@@ -180,4 +187,41 @@ public class H2FilterToSQL extends FilterToSQL {
         
         return extraData;
     }
+    
+    /**
+     * Writes the lookup of the features in the grid index of the current geometry, if any, 
+     * as the opening of a parenthesized AND, returning true if it was written
+     */
+    boolean encodeGridIndexCondition(BinarySpatialOperator filter, Literal geometry) 
+        throws IOException {
+        if (filter instanceof Disjoint || filter instanceof Beyond || currentGeometry == null) {
+            return false;
+        }
+        H2GridIndex index = 
+            (H2GridIndex) currentGeometry.getUserData().get(H2Dialect.H2_GRID_INDEX);
+        if (index == null) {
+            return false;
+        }
+        Envelope e = getSearchEnvelope(filter, geometry);
+        if (e == null) {
+            return false;
+        }
+        
+        out.write("(\"" + index.getKeyColumn() + "\" IN (");
+        index.encodeIntersectsQuery(e, out);
+        out.write(") AND ");
+        return true;
+    }
+    
+    /**
+     * The envelope the matching geometries must intersect
+     */
+    Envelope getSearchEnvelope(BinarySpatialOperator filter, Literal geometry) {
+        Envelope e = geometry.evaluate(null, Envelope.class);
+        if (e != null && filter instanceof DWithin) {
+            e = new Envelope(e);
+            e.expandBy(((DWithin) filter).getDistance());
+        }
+        return e;
+    }
 }
@@ -0,0 +1,480 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.h2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+
+/**
+ * A spatial index for a geometry column of an H2 table, stored in a companion table and kept
+ * up to date by a {@link H2GridIndexTrigger} on every insert, update and delete.
+ * <p>
+ * The plane is divided in square cells, each feature envelope is recorded once for every cell
+ * it touches, together with the feature primary key. The cells are looked up through a regular
+ * b-tree index, so that a bounding box query only reads the entries of the cells it overlaps.
+ * Features touching more than {@link #MAX_CELLS} cells are recorded once without a cell, and
+ * are checked by envelope on every query.
+ * </p>
+ * <p>
+ * The indexes are described by the {@value #METADATA_TABLE} table, and can be built on
+ * existing tables calling the <code>GT_CreateGridIndex(schema, table, column)</code> procedure.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class H2GridIndex {
+
+    static final Logger LOGGER = Logging.getLogger(H2GridIndex.class);
+
+    /**
+     * The table listing the grid indexes
+     */
+    public static final String METADATA_TABLE = "GT_GRID_INDEX";
+
+    /**
+     * The suffix of the tables holding the index entries
+     */
+    public static final String INDEX_SUFFIX = "_GRIDX";
+
+    static final String TRIGGER_SUFFIX = "_TRG";
+
+    /**
+     * The maximum number of cells a feature is recorded in
+     */
+    static final int MAX_CELLS = 16;
+
+    /**
+     * The cell size used when all the geometries are in the same location
+     */
+    static final double DEFAULT_CELL_SIZE = 1;
+
+    final String schema;
+
+    final String table;
+
+    final String geometryColumn;
+
+    final String keyColumn;
+
+    final double cellSize;
+
+    H2GridIndex(String schema, String table, String geometryColumn, String keyColumn,
+            double cellSize) {
+        this.schema = schema;
+        this.table = table;
+        this.geometryColumn = geometryColumn;
+        this.keyColumn = keyColumn;
+        this.cellSize = cellSize;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getGeometryColumn() {
+        return geometryColumn;
+    }
+
+    /**
+     * The primary key column of the indexed table, stored in the index entries
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * The name of the table holding the index entries
+     */
+    public String getIndexTable() {
+        return getIndexTableName(table, geometryColumn);
+    }
+
+    public static String getIndexTableName(String table, String geometryColumn) {
+        return table + "_" + geometryColumn + INDEX_SUFFIX;
+    }
+
+    /**
+     * Writes a query returning the keys of the features whose envelope intersects the
+     * specified one. Keys may be returned more than once.
+     */
+    public void encodeIntersectsQuery(Envelope e, Writer out) throws IOException {
+        String idx = qualify(schema, getIndexTable());
+        out.write("SELECT ID FROM " + idx + " WHERE CX BETWEEN " + cell(e.getMinX()) + " AND "
+                + cell(e.getMaxX()) + " AND CY BETWEEN " + cell(e.getMinY()) + " AND "
+                + cell(e.getMaxY()) + " AND ");
+        encodeEnvelopeCheck(e, out);
+        out.write(" UNION ALL SELECT ID FROM " + idx + " WHERE CX IS NULL AND ");
+        encodeEnvelopeCheck(e, out);
+    }
+
+    void encodeEnvelopeCheck(Envelope e, Writer out) throws IOException {
+        out.write("MINX <= " + e.getMaxX() + " AND MAXX >= " + e.getMinX() + " AND MINY <= "
+                + e.getMaxY() + " AND MAXY >= " + e.getMinY());
+    }
+
+    int cell(double ordinate) {
+        // the cast saturates at the integer range limits
+        return (int) Math.floor(ordinate / cellSize);
+    }
+
+    /**
+     * Records the envelope of a feature
+     *
+     * @param insert A statement prepared with {@link #insertSQL()}
+     */
+    void add(PreparedStatement insert, Object key, Envelope e) throws SQLException {
+        if (key == null || e == null || e.isNull()) {
+            return;
+        }
+        addEntries(insert, key, e);
+        insert.executeBatch();
+    }
+
+    /**
+     * Removes the entries of a feature
+     *
+     * @param delete A statement prepared with {@link #deleteSQL()}
+     */
+    void remove(PreparedStatement delete, Object key) throws SQLException {
+        if (key == null) {
+            return;
+        }
+        delete.setObject(1, key);
+        delete.execute();
+    }
+
+    String insertSQL() {
+        return "INSERT INTO " + qualify(schema, getIndexTable())
+                + " (ID, CX, CY, MINX, MINY, MAXX, MAXY) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    String deleteSQL() {
+        return "DELETE FROM " + qualify(schema, getIndexTable()) + " WHERE ID = ?";
+    }
+
+    void addEntries(PreparedStatement ps, Object key, Envelope e) throws SQLException {
+        int minCX = cell(e.getMinX());
+        int maxCX = cell(e.getMaxX());
+        int minCY = cell(e.getMinY());
+        int maxCY = cell(e.getMaxY());
+        long cells = (maxCX - (long) minCX + 1) * (maxCY - (long) minCY + 1);
+
+        ps.setObject(1, key);
+        ps.setDouble(4, e.getMinX());
+        ps.setDouble(5, e.getMinY());
+        ps.setDouble(6, e.getMaxX());
+        ps.setDouble(7, e.getMaxY());
+        if (cells > MAX_CELLS) {
+            ps.setObject(2, null);
+            ps.setObject(3, null);
+            ps.addBatch();
+            return;
+        }
+        for (int x = minCX; x <= maxCX; x++) {
+            for (int y = minCY; y <= maxCY; y++) {
+                ps.setInt(2, x);
+                ps.setInt(3, y);
+                ps.addBatch();
+            }
+        }
+    }
+
+    /**
+     * Stored procedure building a grid index on an existing table, with a cell size computed
+     * from the data
+     */
+    public static void CreateGridIndex(Connection cx, String schema, String table, String column)
+            throws SQLException {
+        if (create(cx, schema, table, column, -1) == null) {
+            throw new SQLException("Table " + table
+                    + " needs a single column primary key to be indexed");
+        }
+    }
+
+    /**
+     * Builds a grid index on the specified column, replacing the existing one if any.
+     *
+     * @param cellSize The size of the cells, if not positive it is computed from the data
+     *        already in the table, which must not be empty
+     * @return The index, or null if the table does not have a single column primary key
+     */
+    public static H2GridIndex create(Connection cx, String schema, String table, String column,
+            double cellSize) throws SQLException {
+        schema = schema != null ? schema : "PUBLIC";
+
+        // look up the primary key, and its type
+        DatabaseMetaData md = cx.getMetaData();
+        String keyColumn = null;
+        ResultSet rs = md.getPrimaryKeys(null, schema, table);
+        try {
+            while (rs.next()) {
+                if (keyColumn != null) {
+                    return null;
+                }
+                keyColumn = rs.getString("COLUMN_NAME");
+            }
+        } finally {
+            rs.close();
+        }
+        if (keyColumn == null) {
+            return null;
+        }
+        String keyType = null;
+        rs = md.getColumns(null, schema, table, keyColumn);
+        try {
+            if (rs.next()) {
+                keyType = rs.getString("TYPE_NAME");
+            }
+        } finally {
+            rs.close();
+        }
+        if (keyType == null) {
+            return null;
+        }
+
+        if (cellSize <= 0) {
+            cellSize = computeCellSize(cx, schema, table, column);
+        }
+        H2GridIndex index = new H2GridIndex(schema, table, column, keyColumn, cellSize);
+        String idx = qualify(schema, index.getIndexTable());
+        String trigger = qualify(schema, index.getIndexTable() + TRIGGER_SUFFIX);
+
+        Statement st = cx.createStatement();
+        try {
+            execute(st, "CREATE TABLE IF NOT EXISTS " + qualify("PUBLIC", METADATA_TABLE)
+                    + " (TABLE_SCHEMA VARCHAR, TABLE_NAME VARCHAR, GEOMETRY_COLUMN VARCHAR, "
+                    + "KEY_COLUMN VARCHAR, CELL_SIZE DOUBLE, "
+                    + "PRIMARY KEY (TABLE_SCHEMA, TABLE_NAME, GEOMETRY_COLUMN))");
+            execute(st, "DROP TRIGGER IF EXISTS " + trigger);
+            execute(st, "DROP TABLE IF EXISTS " + idx);
+            execute(st, "DELETE FROM " + qualify("PUBLIC", METADATA_TABLE)
+                    + " WHERE TABLE_SCHEMA = '" + schema + "' AND TABLE_NAME = '" + table
+                    + "' AND GEOMETRY_COLUMN = '" + column + "'");
+
+            execute(st, "CREATE TABLE " + idx + " (ID " + keyType + " NOT NULL, CX INT, CY INT, "
+                    + "MINX DOUBLE, MINY DOUBLE, MAXX DOUBLE, MAXY DOUBLE)");
+            execute(st, "CREATE INDEX " + qualify(schema, index.getIndexTable() + "_CELL")
+                    + " ON " + idx + " (CX, CY)");
+            execute(st, "CREATE INDEX " + qualify(schema, index.getIndexTable() + "_ID")
+                    + " ON " + idx + " (ID)");
+            execute(st, "INSERT INTO " + qualify("PUBLIC", METADATA_TABLE) + " VALUES ('"
+                    + schema + "', '" + table + "', '" + column + "', '" + keyColumn + "', "
+                    + cellSize + ")");
+
+            // index the existing rows
+            PreparedStatement ps = cx.prepareStatement(index.insertSQL());
+            try {
+                ResultSet data = st.executeQuery("SELECT \"" + keyColumn + "\", \"" + column
+                        + "\" FROM " + qualify(schema, table));
+                try {
+                    int count = 0;
+                    while (data.next()) {
+                        Envelope e = envelope(data.getBytes(2));
+                        if (e != null) {
+                            index.addEntries(ps, data.getObject(1), e);
+                            if (++count % 1000 == 0) {
+                                ps.executeBatch();
+                            }
+                        }
+                    }
+                } finally {
+                    data.close();
+                }
+                ps.executeBatch();
+            } finally {
+                ps.close();
+            }
+
+            execute(st, "CREATE TRIGGER " + trigger + " AFTER INSERT, UPDATE, DELETE ON "
+                    + qualify(schema, table) + " FOR EACH ROW CALL \""
+                    + H2GridIndexTrigger.class.getName() + "\"");
+        } finally {
+            st.close();
+        }
+        return index;
+    }
+
+    /**
+     * Returns a cell size holding a few features each, based on the average feature size
+     * and density
+     */
+    static double computeCellSize(Connection cx, String schema, String table, String column)
+            throws SQLException {
+        Envelope extent = new Envelope();
+        double sizes = 0;
+        int count = 0;
+        Statement st = cx.createStatement();
+        try {
+            ResultSet rs = st.executeQuery("SELECT \"" + column + "\" FROM "
+                    + qualify(schema, table));
+            try {
+                while (rs.next()) {
+                    Envelope e = envelope(rs.getBytes(1));
+                    if (e != null) {
+                        extent.expandToInclude(e);
+                        sizes += Math.max(e.getWidth(), e.getHeight());
+                        count++;
+                    }
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            st.close();
+        }
+
+        if (count == 0) {
+            throw new SQLException("Table " + table + " has no geometries in " + column
+                    + " to compute the grid index cell size from");
+        }
+        double cellSize = Math.max(sizes / count, Math.sqrt(extent.getArea() / count * 4));
+        return cellSize > 0 ? cellSize : DEFAULT_CELL_SIZE;
+    }
+
+    /**
+     * Returns the grid indexes of a table, an empty list if there are none
+     */
+    public static List<H2GridIndex> lookup(Connection cx, String schema, String table)
+            throws SQLException {
+        schema = schema != null ? schema : "PUBLIC";
+        List<H2GridIndex> indexes = new ArrayList<H2GridIndex>();
+
+        ResultSet rs = cx.getMetaData().getTables(null, "PUBLIC", METADATA_TABLE,
+                new String[] { "TABLE" });
+        try {
+            if (!rs.next()) {
+                return indexes;
+            }
+        } finally {
+            rs.close();
+        }
+
+        PreparedStatement ps = cx.prepareStatement("SELECT GEOMETRY_COLUMN, KEY_COLUMN, "
+                + "CELL_SIZE FROM " + qualify("PUBLIC", METADATA_TABLE)
+                + " WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?");
+        try {
+            ps.setString(1, schema);
+            ps.setString(2, table);
+            rs = ps.executeQuery();
+            try {
+                while (rs.next()) {
+                    indexes.add(new H2GridIndex(schema, table, rs.getString(1), rs.getString(2),
+                            rs.getDouble(3)));
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            ps.close();
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns the envelope of a geometry stored as well known binary, or null if the geometry
+     * is null or empty
+     */
+    static Envelope envelope(Object value) throws SQLException {
+        byte[] bytes = toBytes(value);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            Geometry g = new WKBReader().read(bytes);
+            return g.isEmpty() ? null : g.getEnvelopeInternal();
+        } catch (ParseException e) {
+            throw (SQLException) new SQLException("Could not parse the geometry").initCause(e);
+        }
+    }
+
+    static byte[] toBytes(Object value) throws SQLException {
+        if (value == null || value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            return blob.getBytes(1, (int) blob.length());
+        }
+        if (value instanceof InputStream) {
+            InputStream in = (InputStream) value;
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw (SQLException) new SQLException("Could not read the geometry")
+                        .initCause(e);
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINER, "Error closing geometry stream", e);
+                }
+            }
+        }
+        throw new SQLException("Unexpected geometry value " + value.getClass());
+    }
+
+    static String qualify(String schema, String name) {
+        return "\"" + schema + "\".\"" + name + "\"";
+    }
+
+    static void execute(Statement st, String sql) throws SQLException {
+        LOGGER.fine(sql);
+        st.execute(sql);
+    }
+
+    @Override
+    public String toString() {
+        return "H2GridIndex[" + schema + "." + table + "." + geometryColumn + ", cellSize="
+                + cellSize + "]";
+    }
+}
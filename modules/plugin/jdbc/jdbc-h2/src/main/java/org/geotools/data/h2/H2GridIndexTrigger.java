@@ -0,0 +1,148 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.h2;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.h2.api.Trigger;
+
+/**
+ * Row trigger keeping a {@link H2GridIndex} in synch with the indexed table.
+ * <p>
+ * The trigger name is the index table name followed by {@link H2GridIndex#TRIGGER_SUFFIX},
+ * which is used to find the index definition when the trigger is initialized.
+ * </p>
+ * <p>
+ * The statements writing the index are prepared once in {@link #init}, and reused for every
+ * row. They are prepared again only if the database fires the trigger on another connection,
+ * so that the index is always written in the transaction of the change.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class H2GridIndexTrigger implements Trigger {
+
+    H2GridIndex index;
+
+    int keyIndex = -1;
+
+    int geometryIndex = -1;
+
+    /**
+     * The connection the statements are prepared on
+     */
+    Connection connection;
+
+    PreparedStatement insert;
+
+    PreparedStatement delete;
+
+    public void init(Connection cx, String schemaName, String triggerName, String tableName,
+            boolean before, int type) throws SQLException {
+        String indexTable = triggerName.substring(0, triggerName.length()
+                - H2GridIndex.TRIGGER_SUFFIX.length());
+        for (H2GridIndex gi : H2GridIndex.lookup(cx, schemaName, tableName)) {
+            if (gi.getIndexTable().equals(indexTable)) {
+                index = gi;
+            }
+        }
+        if (index == null) {
+            throw new SQLException("Could not find the grid index for trigger " + triggerName);
+        }
+
+        ResultSet rs = cx.getMetaData().getColumns(null, schemaName, tableName, null);
+        try {
+            while (rs.next()) {
+                String column = rs.getString("COLUMN_NAME");
+                int position = rs.getInt("ORDINAL_POSITION") - 1;
+                if (column.equals(index.getKeyColumn())) {
+                    keyIndex = position;
+                } else if (column.equals(index.getGeometryColumn())) {
+                    geometryIndex = position;
+                }
+            }
+        } finally {
+            rs.close();
+        }
+        if (keyIndex == -1 || geometryIndex == -1) {
+            throw new SQLException("Could not find the columns indexed by " + index);
+        }
+
+        prepare(cx);
+    }
+
+    void prepare(Connection cx) throws SQLException {
+        closeStatements();
+        insert = cx.prepareStatement(index.insertSQL());
+        delete = cx.prepareStatement(index.deleteSQL());
+        connection = cx;
+    }
+
+    public void fire(Connection cx, Object[] oldRow, Object[] newRow) throws SQLException {
+        // lob values might be streams, read them only once
+        byte[] geometry = newRow != null ? H2GridIndex.toBytes(newRow[geometryIndex]) : null;
+        if (oldRow != null && newRow != null) {
+            Object key = newRow[keyIndex];
+            if (key != null && key.equals(oldRow[keyIndex])
+                    && Arrays.equals(H2GridIndex.toBytes(oldRow[geometryIndex]), geometry)) {
+                // attribute only update
+                return;
+            }
+        }
+
+        if (cx != connection) {
+            prepare(cx);
+        }
+        if (oldRow != null) {
+            index.remove(delete, oldRow[keyIndex]);
+        }
+        if (newRow != null) {
+            index.add(insert, newRow[keyIndex], H2GridIndex.envelope(geometry));
+        }
+    }
+
+    void closeStatements() throws SQLException {
+        PreparedStatement insert = this.insert, delete = this.delete;
+        this.insert = null;
+        this.delete = null;
+        this.connection = null;
+        try {
+            if (insert != null) {
+                insert.close();
+            }
+        } finally {
+            if (delete != null) {
+                delete.close();
+            }
+        }
+    }
+
+    public void close() throws SQLException {
+        closeStatements();
+        index = null;
+    }
+
+    public void remove() throws SQLException {
+        close();
+    }
+}
@@ -20,6 +20,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
+import org.geotools.jdbc.TWKBWriter;
+
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.InputStreamInStream;
@@ -151,6 +153,26 @@ public class JTS {
         return g != null ? g.getGeometryType().toUpperCase() : null;
     }
     
+    /**
+     * Returns the geometry reduced for display at the specified resolution, in the compact
+     * TWKB format read by {@link org.geotools.jdbc.TWKBReader}.
+     * 
+     * @param wkb The well known binary of the geometry.
+     * @param distance The resolution, in the units of the geometry coordinates.
+     */
+    public static byte[] AsTWKB( byte[] wkb, double distance ) {
+        if ( wkb == null ) {
+            return null;
+        }
+        
+        try {
+            return new TWKBWriter( distance ).write( new WKBReader().read( wkb ) );
+        } 
+        catch (ParseException e) {
+            throw new RuntimeException( e );
+        }
+    }
+    
     private static Geometry fromWKB( byte[] wkb ) {
         
         try {
@@ -0,0 +1,140 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.h2;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCTestSetup;
+import org.geotools.jdbc.JDBCTestSupport;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.util.AffineTransformation;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class H2GridIndexTest extends JDBCTestSupport {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+
+    GeometryFactory gf = new GeometryFactory();
+
+    @Override
+    protected JDBCTestSetup createTestSetup() {
+        return new H2TestSetup();
+    }
+
+    @Override
+    protected void connect() throws Exception {
+        super.connect();
+        execute("DROP TABLE IF EXISTS \"geotools\".\"gridx\"");
+        execute("DELETE FROM geometry_columns WHERE f_table_name = 'gridx'");
+
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("gridx");
+        tb.setCRS(DefaultGeographicCRS.WGS84);
+        tb.add("geom", Polygon.class);
+        tb.add("intProperty", Integer.class);
+        dataStore.createSchema(tb.buildFeatureType());
+    }
+
+    public void testIndexMaintained() throws Exception {
+        SimpleFeatureType schema = dataStore.getSchema("gridx");
+        H2GridIndex index = (H2GridIndex) schema.getGeometryDescriptor().getUserData().get(
+                H2Dialect.H2_GRID_INDEX);
+        assertNotNull(index);
+
+        // a 10x10 grid of unit squares, plus one big enough to overflow the cell limit
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                fb.add(square(i, j, 1));
+                fb.add(i * 10 + j);
+                features.add(fb.buildFeature(null));
+            }
+        }
+        fb.add(square(-50, -50, 100));
+        fb.add(-1);
+        features.add(fb.buildFeature(null));
+
+        SimpleFeatureStore store = (SimpleFeatureStore) dataStore.getFeatureSource("gridx");
+        store.addFeatures(DataUtilities.collection(features));
+        assertEquals(101, countIndexed(index));
+
+        Filter bbox = ff.bbox(ff.property("geom"), 2.5, 2.5, 4.5, 4.5, null);
+        assertEquals(10, store.getCount(new Query("gridx", bbox)));
+
+        // delete and move features, the index follows
+        store.removeFeatures(ff.equals(ff.property("intProperty"), ff.literal(-1)));
+        store.modifyFeatures(schema.getDescriptor("geom"), square(20, 20, 1), ff.equals(ff
+                .property("intProperty"), ff.literal(33)));
+        assertEquals(100, countIndexed(index));
+        assertEquals(8, store.getCount(new Query("gridx", bbox)));
+        assertEquals(1, store.getCount(new Query("gridx", ff.bbox(ff
+                .property("geom"), 20, 20, 21, 21, null))));
+    }
+
+    Geometry square(double x, double y, double size) {
+        Geometry g = gf.toGeometry(new Envelope(0, size, 0, size));
+        return AffineTransformation.translationInstance(x, y).transform(g);
+    }
+
+    int countIndexed(H2GridIndex index) throws Exception {
+        Connection cx = dataStore.getDataSource().getConnection();
+        try {
+            Statement st = cx.createStatement();
+            ResultSet rs = st.executeQuery("SELECT COUNT(DISTINCT ID) FROM \""
+                    + index.getSchema() + "\".\"" + index.getIndexTable() + "\"");
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            cx.close();
+        }
+    }
+
+    void execute(String sql) throws Exception {
+        Connection cx = dataStore.getDataSource().getConnection();
+        try {
+            cx.createStatement().execute(sql);
+        } catch (Exception e) {
+            // table not there yet
+        } finally {
+            cx.close();
+        }
+    }
+}
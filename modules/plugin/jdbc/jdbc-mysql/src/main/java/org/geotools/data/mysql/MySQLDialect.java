@@ -441,6 +441,37 @@ public class MySQLDialect extends SQLDialect {
         return null;
     }
 
+    @Override
+    public int getEstimatedCount(String schemaName, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
+        Statement st = cx.createStatement();
+        try {
+            // exact for MyISAM, sampled by InnoDB
+            String sql = "SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = "
+                    + (schemaName != null ? "'" + schemaName + "'" : "DATABASE()")
+                    + " AND TABLE_NAME = '" + featureType.getTypeName() + "'";
+            dataStore.getLogger().fine( sql);
+            
+            ResultSet rs = st.executeQuery( sql);
+            try {
+                if ( rs.next() ) {
+                    long count = rs.getLong(1);
+                    if ( !rs.wasNull() ) {
+                        return (int) Math.min(Integer.MAX_VALUE, count);
+                    }
+                }
+            } 
+            finally {
+                dataStore.closeSafe(rs);
+            }
+        }
+        finally {
+            dataStore.closeSafe(st);
+        }
+
+        return -1;
+    }
+
     @Override
     public boolean isLimitOffsetSupported() {
         return true;
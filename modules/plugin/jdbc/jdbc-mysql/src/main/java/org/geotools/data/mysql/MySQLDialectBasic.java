@@ -25,6 +25,7 @@ import java.util.Map;
 import org.geotools.data.jdbc.FilterToSQL;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.WKBEncoder;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -35,7 +36,6 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.Polygon;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKBReader;
-import com.vividsolutions.jts.io.WKTWriter;
 
 /**
  * MySQL database dialect based on basic (non-prepared) statements.
@@ -153,8 +153,8 @@ public class MySQLDialectBasic extends BasicSQLDialect {
     public void encodeGeometryValue(Geometry value, int srid, StringBuffer sql)
             throws IOException {
         if (value != null) {
-            sql.append("GeomFromText('");
-            sql.append(new WKTWriter().write(value));
+            sql.append("GeomFromWKB(x'");
+            new WKBEncoder(value).appendHex(sql);
             sql.append("', ").append(srid).append(")");
         }
         else {
@@ -204,6 +204,12 @@ public class MySQLDialectBasic extends BasicSQLDialect {
         }
     }
     
+    @Override
+    public int getEstimatedCount(String schemaName, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
+        return delegate.getEstimatedCount(schemaName, featureType, cx);
+    }
+
     @Override
     public boolean isLimitOffsetSupported() {
         return delegate.isLimitOffsetSupported();
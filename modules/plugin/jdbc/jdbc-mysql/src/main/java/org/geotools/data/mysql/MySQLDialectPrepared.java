@@ -33,7 +33,6 @@ import org.opengis.feature.type.GeometryDescriptor;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
-import com.vividsolutions.jts.io.WKBWriter;
 
 /**
  * MySQL database dialect based on prepared statements.
@@ -186,7 +185,7 @@ public class MySQLDialectPrepared extends PreparedStatementSQLDialect {
     public void setGeometryValue(Geometry g, int srid, Class binding,
             PreparedStatement ps, int column) throws SQLException {
         if ( g != null ) {
-            ps.setBytes( column, new WKBWriter().write( g ) );
+            setGeometryWKB( g, ps, column );
             //ps.setString( column, g.toText() );
         }
         else {
@@ -195,6 +194,12 @@ public class MySQLDialectPrepared extends PreparedStatementSQLDialect {
         
     }
 
+    @Override
+    public int getEstimatedCount(String schemaName, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
+        return delegate.getEstimatedCount(schemaName, featureType, cx);
+    }
+
     @Override
     public boolean isLimitOffsetSupported() {
         return delegate.isLimitOffsetSupported();
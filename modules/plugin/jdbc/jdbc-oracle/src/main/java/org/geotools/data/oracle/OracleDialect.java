@@ -882,6 +882,11 @@ public class OracleDialect extends PreparedStatementSQLDialect {
         return true;
     }
     
+    @Override
+    public boolean isWindowFunctionSupported(Connection cx) throws SQLException {
+        return true;
+    }
+    
     @Override
     public void applyLimitOffset(StringBuffer sql, int limit, int offset) {
         // see http://progcookbook.blogspot.com/2006/02/using-rownum-properly-for-pagination.html
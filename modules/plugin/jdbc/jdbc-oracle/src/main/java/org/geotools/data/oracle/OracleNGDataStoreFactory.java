@@ -145,6 +145,7 @@ public class OracleNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(LOOSEBBOX.key, LOOSEBBOX);
         parameters.put(ESTIMATED_EXTENTS.key, ESTIMATED_EXTENTS);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
+        parameters.put(STATEMENT_CACHE_SIZE.key, STATEMENT_CACHE_SIZE);
         parameters.put(PORT.key, PORT);
         parameters.put(HOST.key, HOST);
         parameters.put(DATABASE.key, DATABASE);
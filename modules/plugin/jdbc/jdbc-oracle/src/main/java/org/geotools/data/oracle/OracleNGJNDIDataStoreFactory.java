@@ -40,5 +40,6 @@ public class OracleNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
         
         parameters.put(OracleNGDataStoreFactory.LOOSEBBOX.key, OracleNGDataStoreFactory.LOOSEBBOX);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
+        parameters.put(STATEMENT_CACHE_SIZE.key, STATEMENT_CACHE_SIZE);
     }
 }
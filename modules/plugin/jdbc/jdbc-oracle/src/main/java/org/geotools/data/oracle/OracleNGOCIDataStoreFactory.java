@@ -84,5 +84,6 @@ public class OracleNGOCIDataStoreFactory extends OracleNGDataStoreFactory {
         
         parameters.put(LOOSEBBOX.key, LOOSEBBOX);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
+        parameters.put(STATEMENT_CACHE_SIZE.key, STATEMENT_CACHE_SIZE);
     }
 }
@@ -0,0 +1,338 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.UnWrapper;
+import org.geotools.jdbc.AutoGeneratedPrimaryKeyColumn;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.geotools.jdbc.SequencedPrimaryKeyColumn;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Loads features into a PostGIS table through the PostgreSQL <code>COPY ... FROM STDIN</code>
+ * protocol, using the text format with geometries encoded as hex EWKB.
+ * <p>
+ * Keys generated by a sequence, including the ones of serial columns, are allocated with a
+ * single query before the load and copied along with the other columns, so that the feature
+ * ids are known without reading the table back.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+class PostGISBulkLoader {
+
+    /**
+     * Number of characters buffered before being sent to the server
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    PostGISDialect dialect;
+
+    JDBCDataStore dataStore;
+
+    UnWrapper uw;
+
+    PostGISBulkLoader(PostGISDialect dialect, JDBCDataStore dataStore) {
+        this.dialect = dialect;
+        this.dataStore = dataStore;
+    }
+
+    /**
+     * Copies the features into the table, returns <code>false</code> without writing anything
+     * if the connection does not support the copy protocol or some key values cannot be
+     * allocated in advance.
+     */
+    boolean insert(SimpleFeatureType featureType, PrimaryKey key, List<SimpleFeature> features,
+            List<List<Object>> keyValues, Connection cx) throws SQLException, IOException {
+        PGConnection pgcx = unwrapConnection(cx);
+        if (pgcx == null) {
+            return false;
+        }
+        String schema = dataStore.getDatabaseSchema();
+
+        // find out the sequences providing the missing key values
+        int missing = 0;
+        for (List<Object> values : keyValues) {
+            if (values == null) {
+                missing++;
+            }
+        }
+        if (missing > 0) {
+            if (key.getColumns().isEmpty()) {
+                return false;
+            }
+            List<List<Object>> generated = new ArrayList<List<Object>>(missing);
+            for (int i = 0; i < missing; i++) {
+                generated.add(new ArrayList<Object>(key.getColumns().size()));
+            }
+            for (PrimaryKeyColumn col : key.getColumns()) {
+                String sequence = null;
+                if (col instanceof SequencedPrimaryKeyColumn) {
+                    sequence = ((SequencedPrimaryKeyColumn) col).getSequenceName();
+                } else if (col instanceof AutoGeneratedPrimaryKeyColumn) {
+                    sequence = dialect.getSequenceForColumn(schema, key.getTableName(), col
+                            .getName(), cx);
+                }
+                if (sequence == null) {
+                    return false;
+                }
+                List<Object> values = nextValues(sequence, missing, cx);
+                for (int i = 0; i < missing; i++) {
+                    generated.get(i).add(values.get(i));
+                }
+            }
+            int g = 0;
+            for (int i = 0; i < keyValues.size(); i++) {
+                if (keyValues.get(i) == null) {
+                    keyValues.set(i, generated.get(g++));
+                }
+            }
+        }
+
+        // the pk columns might be exposed as attributes, we copy them from the key values
+        Set<String> pkColumnNames = new LinkedHashSet<String>();
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            pkColumnNames.add(col.getName());
+        }
+        List<AttributeDescriptor> attributes = new ArrayList<AttributeDescriptor>();
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (!pkColumnNames.contains(att.getLocalName())) {
+                attributes.add(att);
+            }
+        }
+
+        StringBuffer sql = new StringBuffer("COPY ");
+        if (schema != null && !"".equals(schema)) {
+            dialect.encodeSchemaName(schema, sql);
+            sql.append(".");
+        }
+        dialect.encodeTableName(key.getTableName(), sql);
+        sql.append(" (");
+        for (AttributeDescriptor att : attributes) {
+            dialect.encodeColumnName(att.getLocalName(), sql);
+            sql.append(",");
+        }
+        for (String name : pkColumnNames) {
+            dialect.encodeColumnName(name, sql);
+            sql.append(",");
+        }
+        sql.setLength(sql.length() - 1);
+        sql.append(") FROM STDIN");
+        dataStore.getLogger().fine(sql.toString());
+
+        CopyIn copy = pgcx.getCopyAPI().copyIn(sql.toString());
+        try {
+            WKBWriter writer = new WKBWriter();
+            StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+            for (int i = 0; i < features.size(); i++) {
+                SimpleFeature feature = features.get(i);
+                for (AttributeDescriptor att : attributes) {
+                    encodeValue(feature.getAttribute(att.getLocalName()), att, writer, buffer);
+                    buffer.append('\t');
+                }
+                for (Object value : keyValues.get(i)) {
+                    encodeValue(value, null, writer, buffer);
+                    buffer.append('\t');
+                }
+                buffer.setCharAt(buffer.length() - 1, '\n');
+
+                if (buffer.length() >= BUFFER_SIZE) {
+                    send(buffer, copy);
+                }
+            }
+            send(buffer, copy);
+            long rows = copy.endCopy();
+            if (dataStore.getLogger().isLoggable(Level.FINE)) {
+                dataStore.getLogger().fine("Copied " + rows + " rows into " + key.getTableName());
+            }
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Allocates <tt>count</tt> values from a sequence with a single query.
+     */
+    List<Object> nextValues(String sequence, int count, Connection cx) throws SQLException {
+        List<Object> values = new ArrayList<Object>(count);
+        Statement st = cx.createStatement();
+        try {
+            String sql = "SELECT nextval('" + sequence + "') FROM generate_series(1, " + count
+                    + ")";
+            dataStore.getLogger().fine(sql);
+            ResultSet rs = st.executeQuery(sql);
+            try {
+                while (rs.next()) {
+                    values.add(rs.getLong(1));
+                }
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(st);
+        }
+        if (values.size() != count) {
+            throw new SQLException("Expected " + count + " values from sequence " + sequence
+                    + " but got " + values.size());
+        }
+        return values;
+    }
+
+    void send(StringBuilder buffer, CopyIn copy) throws SQLException, IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes("UTF-8");
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    /**
+     * Encodes a value in the copy text format
+     */
+    void encodeValue(Object value, AttributeDescriptor att, WKBWriter writer,
+            StringBuilder buffer) {
+        if (value == null) {
+            buffer.append("\\N");
+        } else if (value instanceof Geometry) {
+            encodeGeometry((Geometry) value, att, writer, buffer);
+        } else if (value instanceof byte[]) {
+            // bytea escape format, backslashes doubled for the copy protocol
+            for (byte b : (byte[]) value) {
+                int v = b & 0xFF;
+                buffer.append("\\\\").append((char) ('0' + (v >> 6)))
+                        .append((char) ('0' + ((v >> 3) & 7))).append((char) ('0' + (v & 7)));
+            }
+        } else if (value instanceof Date && !(value instanceof java.sql.Date)
+                && !(value instanceof java.sql.Time) && !(value instanceof Timestamp)) {
+            buffer.append(new Timestamp(((Date) value).getTime()).toString());
+        } else {
+            String s = value.toString();
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '\t':
+                    buffer.append("\\t");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                default:
+                    buffer.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes a geometry as hex EWKB, that is WKB with the srid stored after the geometry type
+     */
+    void encodeGeometry(Geometry g, AttributeDescriptor att, WKBWriter writer,
+            StringBuilder buffer) {
+        if (g instanceof LinearRing) {
+            //postgis does not handle linear rings, convert to just a line string
+            g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
+        }
+        int srid = -1;
+        if (att != null && att.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID) != null) {
+            srid = (Integer) att.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+        }
+        if (srid <= 0 && g.getSRID() > 0) {
+            srid = g.getSRID();
+        }
+
+        // the writer uses the big endian byte order, the type follows the byte order mark
+        byte[] wkb = writer.write(g);
+        if (srid > 0) {
+            wkb[1] |= 0x20;
+        }
+        appendHex(wkb, 0, 5, buffer);
+        if (srid > 0) {
+            appendHex(new byte[] { (byte) (srid >>> 24), (byte) (srid >>> 16),
+                    (byte) (srid >>> 8), (byte) srid }, 0, 4, buffer);
+        }
+        appendHex(wkb, 5, wkb.length - 5, buffer);
+    }
+
+    static void appendHex(byte[] bytes, int offset, int length, StringBuilder buffer) {
+        for (int i = offset; i < offset + length; i++) {
+            buffer.append(HEX[(bytes[i] >> 4) & 0xF]).append(HEX[bytes[i] & 0xF]);
+        }
+    }
+
+    /**
+     * Obtains the native postgres connection, or <code>null</code> if it cannot be found
+     */
+    PGConnection unwrapConnection(Connection cx) {
+        if (cx instanceof PGConnection) {
+            return (PGConnection) cx;
+        }
+
+        try {
+            if (uw == null) {
+                uw = DataSourceFinder.getUnWrapper(cx);
+            }
+            if (uw != null) {
+                Connection uwcx = uw.unwrap(cx);
+                if (uwcx instanceof PGConnection) {
+                    return (PGConnection) uwcx;
+                }
+            }
+        } catch (Exception e) {
+            dataStore.getLogger().log(Level.FINE,
+                    "Could not obtain the native postgres connection", e);
+        }
+        return null;
+    }
+}
@@ -18,6 +18,7 @@ package org.geotools.data.postgis;
 
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Savepoint;
@@ -27,15 +28,24 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.geotools.jdbc.TWKBReader;
+import org.geotools.jdbc.TWKBWriter;
+import org.geotools.jdbc.WKBEncoder;
 import org.geotools.referencing.CRS;
+import org.geotools.util.Converters;
 import org.geotools.util.Version;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -94,6 +104,8 @@ public class PostGISDialect extends BasicSQLDialect {
     
     static final Version V_1_5_0 = new Version("1.5.0");
 
+    static final Version V_2_2_0 = new Version("2.2.0");
+
     public PostGISDialect(JDBCDataStore dataStore) {
         super(dataStore);
     }
@@ -104,6 +116,10 @@ public class PostGISDialect extends BasicSQLDialect {
     
     Version version;
 
+    Boolean windowFunctionSupported;
+    
+    PostGISBulkLoader bulkLoader = new PostGISBulkLoader(this, dataStore);
+
     public boolean isLooseBBOXEnabled() {
         return looseBBOXEnabled;
     }
@@ -182,6 +198,60 @@ public class PostGISDialect extends BasicSQLDialect {
         sql.append("),'base64')");
     }
 
+    /**
+     * Thins the geometry at the resolution and sends it over as base64 encoded TWKB
+     * quantized at the largest power of ten not greater than the resolution
+     */
+    @Override
+    public void encodeGeometryColumnQuantized(GeometryDescriptor gatt, int srid,
+            StringBuffer sql, Double distance) {
+        boolean geography = "geography".equals(gatt.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME));
+        
+        sql.append("encode(ST_AsTWKB(ST_RemoveRepeatedPoints(ST_Force_2D(");
+        encodeColumnName(gatt.getLocalName(), sql);
+        if (geography) {
+            sql.append("::geometry");
+        }
+        sql.append("),").append(distance).append("),");
+        sql.append(TWKBWriter.getPrecision(distance)).append("),'base64')");
+    }
+    
+    @Override
+    public Geometry decodeQuantizedGeometryValue(GeometryDescriptor descriptor, ResultSet rs,
+            int column, GeometryFactory factory, Connection cx) throws IOException,
+            SQLException {
+        byte[] bytes = rs.getBytes(column);
+        if (bytes == null) {
+            return null;
+        }
+        return new TWKBReader(factory).read(Base64.decode(bytes));
+    }
+    
+    @Override
+    protected void addSupportedHints(Set<Hints.Key> hints) {
+        if (supportsTWKB()) {
+            hints.add(Hints.GEOMETRY_DISTANCE);
+        }
+    }
+    
+    /**
+     * Returns true if the PostGIS version is >= 2.2.0, the first providing TWKB output
+     */
+    boolean supportsTWKB() {
+        if (version == null) {
+            Connection cx = null;
+            try {
+                cx = dataStore.getDataSource().getConnection();
+                getVersion(cx);
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Could not determine the PostGIS version", e);
+            } finally {
+                dataStore.closeSafe(cx);
+            }
+        }
+        return version != null && version.compareTo(V_2_2_0) >= 0;
+    }
+
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn,
             StringBuffer sql) {
@@ -195,6 +265,42 @@ public class PostGISDialect extends BasicSQLDialect {
         if (!estimatedExtentsEnabled)
             return null;
 
+        return getEstimatedBounds(schema, featureType, cx);
+    }
+
+    @Override
+    public int getEstimatedCount(String schema, SimpleFeatureType featureType, Connection cx)
+            throws SQLException, IOException {
+        StringBuffer sql = new StringBuffer();
+        sql.append("SELECT c.reltuples FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace");
+        sql.append(" WHERE c.relname = '").append(featureType.getTypeName()).append("'");
+        if (schema != null && !"".equals(schema)) {
+            sql.append(" AND n.nspname = '").append(schema).append("'");
+        } else {
+            sql.append(" AND n.nspname = current_schema()");
+        }
+        
+        Statement st = cx.createStatement();
+        try {
+            LOGGER.fine(sql.toString());
+            ResultSet rs = st.executeQuery(sql.toString());
+            try {
+                // reltuples is not significant for tables never vacuumed or analyzed
+                if (rs.next() && rs.getDouble(1) > 0) {
+                    return (int) Math.min(Integer.MAX_VALUE, Math.round(rs.getDouble(1)));
+                }
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(st);
+        }
+        return -1;
+    }
+
+    @Override
+    public List<ReferencedEnvelope> getEstimatedBounds(String schema, SimpleFeatureType featureType,
+            Connection cx) throws SQLException, IOException {
         String tableName = featureType.getTypeName();
 
         Statement st = null;
@@ -424,6 +530,89 @@ public class PostGISDialect extends BasicSQLDialect {
 
         return srid;
     }
+    
+    @Override
+    public Map<String, Map<String, ColumnMetadata>> getGeometryColumnsMetadata(
+            String schemaName, Connection cx) throws SQLException {
+        if (schemaName == null)
+            schemaName = "public";
+        
+        Map<String, Map<String, ColumnMetadata>> result = new HashMap<String, Map<String, ColumnMetadata>>();
+        lookupGeometryColumns(schemaName, "geometry_columns", "f_geometry_column", null, result, cx);
+        if(supportsGeography(cx)) {
+            // geography is always in wgs84, see getGeometrySRID
+            lookupGeometryColumns(schemaName, "geography_columns", "f_geography_column", 4326, 
+                    result, cx);
+        }
+        return result;
+    }
+    
+    void lookupGeometryColumns(String schemaName, String gTableName, String gColumnName, 
+            Integer srid, Map<String, Map<String, ColumnMetadata>> result, Connection cx) 
+            throws SQLException {
+        String sqlStatement = "SELECT F_TABLE_NAME, " + gColumnName + ", TYPE, SRID FROM " 
+                + gTableName + " WHERE F_TABLE_SCHEMA = '" + schemaName + "'";
+        LOGGER.log(Level.FINE, "Geometry columns lookup; {0} ", sqlStatement);
+        
+        Statement statement = cx.createStatement();
+        ResultSet rs = null;
+        try {
+            rs = statement.executeQuery(sqlStatement);
+            while (rs.next()) {
+                ColumnMetadata column = new ColumnMetadata();
+                column.setName(rs.getString(2));
+                String gType = rs.getString(3);
+                Class binding = gType != null ? TYPE_TO_CLASS_MAP.get(gType.toUpperCase()) : null;
+                column.setBinding(binding != null ? binding : Geometry.class);
+                column.setSrid(srid != null ? srid : rs.getInt(4));
+                
+                Map<String, ColumnMetadata> columns = result.get(rs.getString(1));
+                if (columns == null) {
+                    columns = new HashMap<String, ColumnMetadata>();
+                    result.put(rs.getString(1), columns);
+                }
+                columns.put(column.getName(), column);
+            }
+        } finally {
+            dataStore.closeSafe(rs);
+            dataStore.closeSafe(statement);
+        }
+    }
+    
+    /**
+     * Hashes the name, type, type modifier and nullability of all the columns and the unique
+     * indexes of the tables and views in the schema
+     */
+    @Override
+    public String getSchemaVersion(String schemaName, Connection cx) throws SQLException {
+        if (schemaName == null)
+            schemaName = "public";
+        
+        String sql = "SELECT (SELECT count(*) || ':' || coalesce(sum(hashtext(c.relname || '.' " 
+            + "|| a.attname || ':' || a.atttypid || ':' || a.atttypmod || ':' || a.attnotnull)), 0) " 
+            + "FROM pg_catalog.pg_attribute a " 
+            + "JOIN pg_catalog.pg_class c ON a.attrelid = c.oid " 
+            + "JOIN pg_catalog.pg_namespace n ON c.relnamespace = n.oid " 
+            + "WHERE n.nspname = '" + schemaName + "' AND c.relkind IN ('r', 'v') " 
+            + "AND a.attnum > 0 AND NOT a.attisdropped) || ':' || " 
+            + "(SELECT count(*) || ':' || coalesce(sum(hashtext(c.relname || ':' " 
+            + "|| i.indkey::text || ':' || i.indisprimary)), 0) " 
+            + "FROM pg_catalog.pg_index i " 
+            + "JOIN pg_catalog.pg_class c ON i.indrelid = c.oid " 
+            + "JOIN pg_catalog.pg_namespace n ON c.relnamespace = n.oid " 
+            + "WHERE n.nspname = '" + schemaName + "' AND i.indisunique)";
+        LOGGER.log(Level.FINE, "Schema version; {0} ", sql);
+        
+        Statement st = cx.createStatement();
+        ResultSet rs = null;
+        try {
+            rs = st.executeQuery(sql);
+            return rs.next() ? rs.getString(1) : null;
+        } finally {
+            dataStore.closeSafe(rs);
+            dataStore.closeSafe(st);
+        }
+    }
 
     @Override
     public String getSequenceForColumn(String schemaName, String tableName,
@@ -687,7 +876,10 @@ public class PostGISDialect extends BasicSQLDialect {
                 value = value.getFactory().createLineString(((LinearRing) value).getCoordinateSequence());
             }
             
-            sql.append("GeomFromText('" + value.toText() + "', " + srid + ")");
+            // hex encoded wkb is written straight into the buffer, and unlike wkt is lossless
+            sql.append("GeomFromWKB(decode('");
+            new WKBEncoder(value).appendHex(sql);
+            sql.append("', 'hex'), ").append(srid).append(")");
         }
     }
 
@@ -698,11 +890,144 @@ public class PostGISDialect extends BasicSQLDialect {
         return sql;
     }
     
+    /**
+     * Uses the equi-depth histogram the planner keeps for the key column, when available, so
+     * that partitions hold about the same number of rows even if the keys are not evenly
+     * distributed.
+     */
+    @Override
+    public List<Object> getSplitPoints(String schemaName, String tableName,
+            PrimaryKeyColumn column, int partitions, Connection cx) throws SQLException {
+        Class<?> type = column.getType();
+        if (type != Short.class && type != Integer.class && type != Long.class) {
+            return super.getSplitPoints(schemaName, tableName, column, partitions, cx);
+        }
+
+        // not analyzed yet, or too few distinct values
+        List<Object> values = getEstimatedHistogram(schemaName, tableName, column.getName(),
+                Long.class, cx);
+        if (values == null || values.size() < 3) {
+            return super.getSplitPoints(schemaName, tableName, column, partitions, cx);
+        }
+
+        // the bounds delimit buckets holding the same number of rows
+        List<Object> points = new ArrayList<Object>();
+        int buckets = values.size() - 1;
+        for (int i = 1; i < partitions; i++) {
+            int index = (int) Math.round((double) i * buckets / partitions);
+            if (index <= 0 || index >= buckets) {
+                continue;
+            }
+            Long point = (Long) values.get(index);
+            if (point != null
+                    && (points.isEmpty() || point > (Long) points.get(points.size() - 1))) {
+                points.add(point);
+            }
+        }
+        return points;
+    }
+
+    @Override
+    public List<Object> getEstimatedHistogram(String schemaName, String tableName,
+            String columnName, Class<?> binding, Connection cx) throws SQLException {
+        String bounds = null;
+        Statement st = cx.createStatement();
+        try {
+            // histogram_bounds is of type anyarray, cast to text to get the array literal
+            String sql = "SELECT histogram_bounds::text FROM pg_stats WHERE tablename = '"
+                    + tableName + "' AND attname = '" + columnName + "'";
+            if (schemaName != null && !"".equals(schemaName)) {
+                sql += " AND schemaname = '" + schemaName + "'";
+            }
+            dataStore.getLogger().fine(sql);
+            ResultSet rs = st.executeQuery(sql);
+            try {
+                if (rs.next()) {
+                    bounds = rs.getString(1);
+                }
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(st);
+        }
+        if (bounds == null || bounds.length() < 2) {
+            return null;
+        }
+
+        List<Object> values = new ArrayList<Object>();
+        for (String value : parseArray(bounds)) {
+            Object converted = value == null ? null : Converters.convert(value, binding);
+            if (value != null && converted == null) {
+                // not a type we can handle
+                return null;
+            }
+            values.add(converted);
+        }
+        return values;
+    }
+
+    /**
+     * Splits a one dimensional array literal, like <code>{1,"a,b",NULL}</code>, into its
+     * elements
+     */
+    static List<String> parseArray(String array) {
+        List<String> result = new ArrayList<String>();
+        int i = array.indexOf('{') + 1;
+        int end = array.lastIndexOf('}');
+        StringBuilder sb = new StringBuilder();
+        while (i < end) {
+            boolean quoted = false;
+            sb.setLength(0);
+            if (array.charAt(i) == '"') {
+                quoted = true;
+                i++;
+                while (i < end && array.charAt(i) != '"') {
+                    char c = array.charAt(i++);
+                    if (c == '\\' && i < end) {
+                        c = array.charAt(i++);
+                    }
+                    sb.append(c);
+                }
+                i++;
+            }
+            while (i < end && array.charAt(i) != ',') {
+                sb.append(array.charAt(i++));
+            }
+            i++;
+            String value = sb.toString();
+            result.add(!quoted && "NULL".equals(value.trim()) ? null : quoted ? value : value
+                    .trim());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean bulkInsert(SimpleFeatureType featureType, PrimaryKey key,
+            List<SimpleFeature> features, List<List<Object>> keyValues, Connection cx)
+            throws SQLException, IOException {
+        return bulkLoader.insert(featureType, key, features, keyValues, cx);
+    }
+
     @Override
     public boolean isLimitOffsetSupported() {
         return true;
     }
     
+    /**
+     * Window functions are available since PostgreSQL 8.4
+     */
+    @Override
+    public boolean isWindowFunctionSupported(Connection cx) throws SQLException {
+        if (windowFunctionSupported == null) {
+            DatabaseMetaData md = cx.getMetaData();
+            int major = md.getDatabaseMajorVersion();
+            int minor = md.getDatabaseMinorVersion();
+            windowFunctionSupported = major > 8 || (major == 8 && minor >= 4);
+        }
+        return windowFunctionSupported;
+    }
+    
     @Override
     public void applyLimitOffset(StringBuffer sql, int limit, int offset) {
         if(limit >= 0 && limit < Integer.MAX_VALUE) {
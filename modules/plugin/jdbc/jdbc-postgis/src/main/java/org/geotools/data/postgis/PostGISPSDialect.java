@@ -22,12 +22,19 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.geotools.factory.Hints;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.GeometryDescriptor;
 
@@ -35,7 +42,6 @@ import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
-import com.vividsolutions.jts.io.WKBWriter;
 
 
 public class PostGISPSDialect extends PreparedStatementSQLDialect {
@@ -80,6 +86,24 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
     }
 
 
+    @Override
+    public void encodeGeometryColumnQuantized(GeometryDescriptor gatt, int srid,
+            StringBuffer sql, Double distance) {
+        delegate.encodeGeometryColumnQuantized(gatt, srid, sql, distance);
+    }
+    
+    @Override
+    public Geometry decodeQuantizedGeometryValue(GeometryDescriptor descriptor, ResultSet rs,
+            int column, GeometryFactory factory, Connection cx) throws IOException,
+            SQLException {
+        return delegate.decodeQuantizedGeometryValue(descriptor, rs, column, factory, cx);
+    }
+    
+    @Override
+    protected void addSupportedHints(Set<Hints.Key> hints) {
+        delegate.addSupportedHints(hints);
+    }
+
     public void encodeGeometryEnvelope(String tableName, String geometryColumn,
             StringBuffer sql) {
         delegate.encodeGeometryEnvelope(tableName, geometryColumn, sql);
@@ -95,6 +119,17 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
             String columnName, Connection cx) throws SQLException {
         return delegate.getGeometrySRID(schemaName, tableName, columnName, cx);
     }
+    
+    @Override
+    public Map<String, Map<String, ColumnMetadata>> getGeometryColumnsMetadata(
+            String schemaName, Connection cx) throws SQLException {
+        return delegate.getGeometryColumnsMetadata(schemaName, cx);
+    }
+    
+    @Override
+    public String getSchemaVersion(String schemaName, Connection cx) throws SQLException {
+        return delegate.getSchemaVersion(schemaName, cx);
+    }
 
 
     public String getGeometryTypeName(Integer type) {
@@ -195,8 +230,7 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
                 g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
             }
             
-            byte[] bytes = new WKBWriter().write(g);
-            ps.setBytes(column, bytes);
+            setGeometryWKB(g, ps, column);
         } else {
             ps.setNull(column, Types.OTHER, "Geometry");
         }
@@ -209,11 +243,47 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         return fts;
     }
     
+    @Override
+    public List<Object> getSplitPoints(String schemaName, String tableName,
+            PrimaryKeyColumn column, int partitions, Connection cx) throws SQLException {
+        return delegate.getSplitPoints(schemaName, tableName, column, partitions, cx);
+    }
+
+    @Override
+    public int getEstimatedCount(String schema, SimpleFeatureType featureType, Connection cx)
+            throws SQLException, IOException {
+        return delegate.getEstimatedCount(schema, featureType, cx);
+    }
+
+    @Override
+    public List<ReferencedEnvelope> getEstimatedBounds(String schema,
+            SimpleFeatureType featureType, Connection cx) throws SQLException, IOException {
+        return delegate.getEstimatedBounds(schema, featureType, cx);
+    }
+
+    @Override
+    public List<Object> getEstimatedHistogram(String schemaName, String tableName,
+            String columnName, Class<?> binding, Connection cx) throws SQLException {
+        return delegate.getEstimatedHistogram(schemaName, tableName, columnName, binding, cx);
+    }
+
+    @Override
+    public boolean bulkInsert(SimpleFeatureType featureType, PrimaryKey key,
+            List<SimpleFeature> features, List<List<Object>> keyValues, Connection cx)
+            throws SQLException, IOException {
+        return delegate.bulkInsert(featureType, key, features, keyValues, cx);
+    }
+
     @Override
     public boolean isLimitOffsetSupported() {
         return delegate.isLimitOffsetSupported();
     }
     
+    @Override
+    public boolean isWindowFunctionSupported(Connection cx) throws SQLException {
+        return delegate.isWindowFunctionSupported(cx);
+    }
+    
     @Override
     public void applyLimitOffset(StringBuffer sql, int limit, int offset) {
         delegate.applyLimitOffset(sql, limit, offset);
@@ -30,6 +30,7 @@ import org.geotools.data.jdbc.FilterToSQL;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.WKBEncoder;
 import org.geotools.referencing.CRS;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
@@ -204,7 +205,9 @@ public class SQLServerDialect extends BasicSQLDialect {
             return;
         }
         
-        sql.append( "geometry::STGeomFromText('").append( value.toText() ).append( "',").append( srid ).append(")");
+        sql.append( "geometry::STGeomFromWKB(0x");
+        new WKBEncoder( value ).appendHex( sql );
+        sql.append( ",").append( srid ).append(")");
     }
     
     @Override
@@ -0,0 +1,87 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.geotools.data.Query;
+import org.geotools.data.store.ContentDataStore;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.feature.NameImpl;
+import org.opengis.feature.type.Name;
+
+/**
+ * Read only data store over a file in the {@link BinaryFeatureFormat binary feature format}, as
+ * written by {@link BinaryFeatureWriter}.
+ * <p>
+ * The file is mapped in memory the first time it is accessed, and features are decoded straight
+ * out of the mapping, skipping the blocks outside of the query bounds and the attributes not
+ * requested. The single feature type is named after the one the file was written from.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class BinaryFeatureDataStore extends ContentDataStore {
+
+    final File file;
+
+    BinaryFeatureFile binaryFile;
+
+    public BinaryFeatureDataStore(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the mapped file, mapping it if needed
+     */
+    synchronized BinaryFeatureFile getBinaryFile() throws IOException {
+        if (binaryFile == null) {
+            binaryFile = new BinaryFeatureFile(file);
+        }
+        return binaryFile;
+    }
+
+    @Override
+    protected List<Name> createTypeNames() throws IOException {
+        String typeName = getBinaryFile().getFeatureType().getTypeName();
+        return Collections.singletonList((Name) new NameImpl(namespaceURI, typeName));
+    }
+
+    @Override
+    protected ContentFeatureSource createFeatureSource(ContentEntry entry) throws IOException {
+        return new BinaryFeatureSource(entry, Query.ALL);
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        synchronized (this) {
+            // the mapping goes away once the readers using it are collected
+            binaryFile = null;
+        }
+    }
+}
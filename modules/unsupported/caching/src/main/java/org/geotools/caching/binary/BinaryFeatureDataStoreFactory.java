@@ -0,0 +1,104 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URL;
+import java.util.Map;
+
+import org.geotools.data.AbstractDataStoreFactory;
+import org.geotools.data.DataStore;
+import org.geotools.data.DataStoreFactorySpi;
+import org.geotools.data.DataUtilities;
+import org.geotools.util.KVP;
+
+/**
+ * Creates {@link BinaryFeatureDataStore} instances out of local binary feature files.
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class BinaryFeatureDataStoreFactory extends AbstractDataStoreFactory implements
+        DataStoreFactorySpi {
+
+    /**
+     * url to the binary feature file.
+     */
+    public static final Param URLP = new Param("url", URL.class,
+            "url to a ." + BinaryFeatureFormat.EXTENSION + " file", true, null, new KVP(
+                    Param.EXT, BinaryFeatureFormat.EXTENSION));
+
+    /**
+     * Optional - uri of the FeatureType's namespace
+     */
+    public static final Param NAMESPACEP = new Param("namespace", URI.class,
+            "uri to a the namespace", false, null, new KVP(Param.LEVEL, "advanced"));
+
+    public String getDisplayName() {
+        return "Binary features";
+    }
+
+    public String getDescription() {
+        return "Features in the GeoTools binary feature format, memory mapped";
+    }
+
+    public Param[] getParametersInfo() {
+        return new Param[] { URLP, NAMESPACEP };
+    }
+
+    @Override
+    public boolean canProcess(Map params) {
+        if (!super.canProcess(params)) {
+            return false;
+        }
+        try {
+            URL url = (URL) URLP.lookUp(params);
+            return url.getFile().toLowerCase().endsWith("." + BinaryFeatureFormat.EXTENSION);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    public DataStore createDataStore(Map<String, Serializable> params) throws IOException {
+        URL url = (URL) URLP.lookUp(params);
+        File file = DataUtilities.urlToFile(url);
+        if (file == null) {
+            throw new IOException("Only local files can be memory mapped, got " + url);
+        }
+        BinaryFeatureDataStore store = new BinaryFeatureDataStore(file);
+        URI namespace = (URI) NAMESPACEP.lookUp(params);
+        if (namespace != null) {
+            store.setNamespaceURI(namespace.toString());
+        }
+        store.setDataStoreFactory(this);
+        return store;
+    }
+
+    public DataStore createNewDataStore(Map<String, Serializable> params) throws IOException {
+        throw new UnsupportedOperationException(
+                "Binary feature files are created with a BinaryFeatureWriter");
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.binary;
+
+import static org.geotools.caching.binary.BinaryFeatureFormat.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A binary feature file mapped in memory, along with its header and block index.
+ * <p>
+ * The file is mapped read only as a whole, readers work on {@link #buffer() duplicates} of the
+ * mapped buffer so that they can run concurrently, files larger than 2GB are not supported.
+ * </p>
+ *
+ * @source $URL$
+ */
+class BinaryFeatureFile {
+
+    final File file;
+
+    final ByteBuffer buffer;
+
+    final SimpleFeatureType featureType;
+
+    final int[] offsets;
+
+    final int[] counts;
+
+    final Envelope[] envelopes;
+
+    BinaryFeatureFile(File file) throws IOException {
+        this.file = file;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too big to be mapped in memory");
+            }
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(MapMode.READ_ONLY, 0, size);
+        } finally {
+            raf.close();
+        }
+
+        try {
+            ByteBuffer b = buffer();
+            featureType = readHeader(b);
+
+            b.position(b.limit() - TRAILER_SIZE);
+            int blockCount = b.getInt();
+            long indexOffset = b.getLong();
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (b.get() != MAGIC[i]) {
+                    throw new IOException(file + " is truncated");
+                }
+            }
+
+            b.position((int) indexOffset);
+            offsets = new int[blockCount];
+            counts = new int[blockCount];
+            envelopes = new Envelope[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                offsets[i] = (int) b.getLong();
+                counts[i] = b.getInt();
+                envelopes[i] = readEnvelope(b);
+            }
+        } catch (BufferUnderflowException e) {
+            throw (IOException) new IOException(file + " is not a valid binary feature file")
+                    .initCause(e);
+        } catch (IllegalArgumentException e) {
+            // invalid positions
+            throw (IOException) new IOException(file + " is not a valid binary feature file")
+                    .initCause(e);
+        }
+    }
+
+    /**
+     * Returns a new view of the file contents, with its own position
+     */
+    ByteBuffer buffer() {
+        return buffer.duplicate();
+    }
+
+    SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    int getBlockCount() {
+        return offsets.length;
+    }
+
+    int getCount() {
+        int count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the envelope of all the geometries in the file
+     */
+    Envelope getBounds() {
+        Envelope bounds = new Envelope();
+        for (int i = 0; i < envelopes.length; i++) {
+            bounds.expandToInclude(envelopes[i]);
+        }
+        return bounds;
+    }
+}
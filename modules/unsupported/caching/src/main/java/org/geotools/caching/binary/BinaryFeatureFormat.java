@@ -0,0 +1,374 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.binary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.CRS;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Describes the binary feature format, a compact container for simple features meant to move
+ * intermediate results between processes, written by {@link BinaryFeatureWriter} and read by
+ * {@link BinaryFeatureDataStore}.
+ * <p>
+ * Features are stored in blocks of a fixed number of features, each block laid out by column so
+ * that readers can skip the attributes they are not interested in, and carrying the envelope of
+ * its geometries so that readers can skip the blocks not touched by a spatial filter. Everything
+ * is big endian:
+ *
+ * <pre>
+ * file      := header block* index trailer
+ * header    := magic version type-name namespace attribute-count attribute* default-geometry
+ * magic     := the "GTBF" ascii characters
+ * version   := int, currently 1
+ * attribute := name binding nillable crs
+ * binding   := byte, the index of the attribute binding in {@link #BINDINGS}
+ * nillable  := byte, 1 if the attribute is nillable, 0 otherwise
+ * crs       := string, the WKT of the CRS of geometric attributes, null if unknown
+ * default-geometry := int, the index of the default geometry attribute, -1 if none
+ *
+ * block     := feature-count fid-column column*
+ * column    := column-length null-mask values
+ * column-length := int, the number of bytes of the null mask and values, for skipping
+ * null-mask := (feature-count + 7) / 8 bytes, bit i (least significant first) set if the value
+ *              of the i-th feature is null
+ * values    := booleans and numbers take their natural width, dates are longs holding the
+ *              milliseconds since the epoch, and null values occupy their slot as zeroes so that
+ *              values can be accessed randomly. Strings, big numbers (in their string form) and
+ *              geometries (as WKB) are prefixed by their length in bytes, null values are
+ *              omitted. Feature identifiers are stored as a string column
+ *
+ * index     := block-entry*
+ * block-entry := offset feature-count minx maxx miny maxy
+ * offset    := long, the position of the block in the file
+ * minx, maxx, miny, maxy := doubles, the envelope of all the geometries in the block, NaN if
+ *              there are none
+ *
+ * trailer   := block-count index-offset magic
+ * block-count := int
+ * index-offset := long, the position of the index in the file
+ *
+ * string    := int length in bytes, followed by the UTF-8 bytes, a length of -1 stands for null
+ * </pre>
+ *
+ * </p>
+ * <p>
+ * The index comes after the blocks so that files can be written in a single pass over a feature
+ * collection of unknown size, readers find it through the fixed size trailer.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public final class BinaryFeatureFormat {
+
+    /**
+     * The magic bytes opening and closing the files
+     */
+    public static final byte[] MAGIC = new byte[] { 'G', 'T', 'B', 'F' };
+
+    public static final int VERSION = 1;
+
+    /**
+     * The default number of features per block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /**
+     * The extension of the files
+     */
+    public static final String EXTENSION = "gtbf";
+
+    /**
+     * The supported attribute bindings, the binding code stored in the header is the index in
+     * this array
+     */
+    public static final Class<?>[] BINDINGS = new Class<?>[] { String.class, Boolean.class,
+            Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+            java.util.Date.class, java.sql.Date.class, java.sql.Time.class,
+            java.sql.Timestamp.class, BigDecimal.class, BigInteger.class, Geometry.class,
+            Point.class, LineString.class, LinearRing.class, Polygon.class, MultiPoint.class,
+            MultiLineString.class, MultiPolygon.class, GeometryCollection.class };
+
+    static final int STRING = 0;
+
+    static final int BOOLEAN = 1;
+
+    static final int BYTE = 2;
+
+    static final int SHORT = 3;
+
+    static final int INTEGER = 4;
+
+    static final int LONG = 5;
+
+    static final int FLOAT = 6;
+
+    static final int DOUBLE = 7;
+
+    static final int DATE = 8;
+
+    static final int SQL_DATE = 9;
+
+    static final int TIME = 10;
+
+    static final int TIMESTAMP = 11;
+
+    static final int BIG_DECIMAL = 12;
+
+    static final int BIG_INTEGER = 13;
+
+    /**
+     * The first of the geometry bindings, all encoded as WKB
+     */
+    static final int GEOMETRY = 14;
+
+    /**
+     * The size of the trailer, block count, index offset and magic
+     */
+    static final int TRAILER_SIZE = 4 + 8 + 4;
+
+    /**
+     * The size of an index entry, offset, count and envelope
+     */
+    static final int INDEX_ENTRY_SIZE = 8 + 4 + 4 * 8;
+
+    private BinaryFeatureFormat() {
+    }
+
+    /**
+     * Returns true if all the attributes of the feature type can be stored in the format
+     */
+    public static boolean isSupported(SimpleFeatureType featureType) {
+        for (AttributeDescriptor descriptor : featureType.getAttributeDescriptors()) {
+            if (descriptor.getMaxOccurs() > 1 || code(descriptor.getType().getBinding()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the binding code of the class, -1 if not supported
+     */
+    static int code(Class<?> binding) {
+        for (int i = 0; i < BINDINGS.length; i++) {
+            if (BINDINGS[i] == binding) {
+                return i;
+            }
+        }
+        if (Geometry.class.isAssignableFrom(binding)) {
+            return GEOMETRY;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the width of the values of fixed width types, -1 for variable width types
+     */
+    static int width(int code) {
+        switch (code) {
+        case BOOLEAN:
+        case BYTE:
+            return 1;
+        case SHORT:
+            return 2;
+        case INTEGER:
+        case FLOAT:
+            return 4;
+        case LONG:
+        case DOUBLE:
+        case DATE:
+        case SQL_DATE:
+        case TIME:
+        case TIMESTAMP:
+            return 8;
+        default:
+            return -1;
+        }
+    }
+
+    static void writeHeader(SimpleFeatureType featureType, DataOutput out) throws IOException {
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        writeString(featureType.getTypeName(), out);
+        writeString(featureType.getName().getNamespaceURI(), out);
+
+        List<AttributeDescriptor> descriptors = featureType.getAttributeDescriptors();
+        out.writeInt(descriptors.size());
+        int defaultGeometry = -1;
+        for (int i = 0; i < descriptors.size(); i++) {
+            AttributeDescriptor descriptor = descriptors.get(i);
+            int code = code(descriptor.getType().getBinding());
+            if (descriptor.getMaxOccurs() > 1 || code < 0) {
+                throw new IllegalArgumentException("Attribute " + descriptor.getLocalName()
+                        + " of type " + descriptor.getType().getBinding().getName()
+                        + " cannot be stored in the binary feature format");
+            }
+            writeString(descriptor.getLocalName(), out);
+            out.writeByte(code);
+            out.writeByte(descriptor.isNillable() ? 1 : 0);
+
+            String wkt = null;
+            if (descriptor instanceof GeometryDescriptor) {
+                CoordinateReferenceSystem crs = ((GeometryDescriptor) descriptor)
+                        .getCoordinateReferenceSystem();
+                if (crs != null) {
+                    try {
+                        wkt = crs.toWKT();
+                    } catch (UnsupportedOperationException e) {
+                        // not all CRS can be formatted, store it as unknown
+                    }
+                }
+                if (descriptor == featureType.getGeometryDescriptor()) {
+                    defaultGeometry = i;
+                }
+            }
+            writeString(wkt, out);
+        }
+        out.writeInt(defaultGeometry);
+    }
+
+    /**
+     * Reads the header at the current position of the buffer
+     */
+    static SimpleFeatureType readHeader(ByteBuffer buffer) throws IOException {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get() != MAGIC[i]) {
+                throw new IOException("Not a binary feature file");
+            }
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary feature format version " + version);
+        }
+
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName(readString(buffer));
+        builder.setNamespaceURI(readString(buffer));
+        int count = buffer.getInt();
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = readString(buffer);
+            int code = buffer.get();
+            if (code < 0 || code >= BINDINGS.length) {
+                throw new IOException("Unknown binding code " + code + " for attribute "
+                        + names[i]);
+            }
+            builder.nillable(buffer.get() != 0);
+
+            String wkt = readString(buffer);
+            CoordinateReferenceSystem crs = null;
+            if (wkt != null) {
+                try {
+                    crs = CRS.parseWKT(wkt);
+                } catch (FactoryException e) {
+                    throw (IOException) new IOException("Invalid CRS for attribute " + names[i])
+                            .initCause(e);
+                }
+            }
+            if (code >= GEOMETRY) {
+                builder.add(names[i], BINDINGS[code], crs);
+            } else {
+                builder.add(names[i], BINDINGS[code]);
+            }
+        }
+        int defaultGeometry = buffer.getInt();
+        if (defaultGeometry >= 0) {
+            builder.setDefaultGeometry(names[defaultGeometry]);
+        }
+        return builder.buildFeatureType();
+    }
+
+    static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return decode(bytes, length);
+    }
+
+    static String decode(byte[] bytes, int length) {
+        try {
+            return new String(bytes, 0, length, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always there
+            throw new RuntimeException(e);
+        }
+    }
+
+    static void writeEnvelope(Envelope envelope, DataOutput out) throws IOException {
+        if (envelope.isNull()) {
+            for (int i = 0; i < 4; i++) {
+                out.writeDouble(Double.NaN);
+            }
+        } else {
+            out.writeDouble(envelope.getMinX());
+            out.writeDouble(envelope.getMaxX());
+            out.writeDouble(envelope.getMinY());
+            out.writeDouble(envelope.getMaxY());
+        }
+    }
+
+    static Envelope readEnvelope(ByteBuffer buffer) {
+        double minx = buffer.getDouble();
+        double maxx = buffer.getDouble();
+        double miny = buffer.getDouble();
+        double maxy = buffer.getDouble();
+        if (Double.isNaN(minx)) {
+            // the constructor would turn the nulls into a valid envelope
+            return new Envelope();
+        }
+        return new Envelope(minx, maxx, miny, maxy);
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.binary;
+
+import static org.geotools.caching.binary.BinaryFeatureFormat.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureReader;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.io.InStream;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+
+/**
+ * Reads the features of a {@link BinaryFeatureFile}.
+ * <p>
+ * Blocks whose envelope does not intersect the bounds of the filter are skipped without being
+ * looked at, and only the columns of the requested attributes, and of the ones needed to
+ * evaluate the filter, are decoded. Values are decoded straight out of the mapped buffer.
+ * </p>
+ *
+ * @source $URL$
+ */
+class BinaryFeatureReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+
+    final BinaryFeatureFile file;
+
+    final ByteBuffer buffer;
+
+    final SimpleFeatureType targetType;
+
+    final Filter filter;
+
+    /**
+     * The spatial extent of the filter, null if unbounded, in which case no block is skipped
+     */
+    final Envelope bounds;
+
+    /**
+     * The codes of all the attributes in the file
+     */
+    final int[] codes;
+
+    /**
+     * Whether each attribute in the file has to be decoded, and where it goes in the read type
+     */
+    final int[] readIndexes;
+
+    final SimpleFeatureBuilder builder;
+
+    /**
+     * Builds the target features out of the read ones, if the filter needs more attributes than
+     * the requested ones
+     */
+    final SimpleFeatureBuilder retypeBuilder;
+
+    final Class<?>[] bindings;
+
+    final WKBReader wkbReader;
+
+    final ByteBufferInStream wkbStream;
+
+    byte[] scratch = new byte[256];
+
+    int block = -1;
+
+    int count;
+
+    int row;
+
+    String[] fids;
+
+    Object[][] columns;
+
+    Object[] values;
+
+    SimpleFeature next;
+
+    /**
+     * @param schema
+     *            The feature type of the features in the file
+     * @param targetType
+     *            The feature type of the returned features, a subset of the schema
+     * @param filter
+     *            The filter the returned features must match
+     */
+    BinaryFeatureReader(BinaryFeatureFile file, SimpleFeatureType schema,
+            SimpleFeatureType targetType, Filter filter, GeometryFactory geometryFactory) {
+        this.file = file;
+        this.buffer = file.buffer();
+        this.targetType = targetType;
+        this.filter = filter == null || filter == Filter.INCLUDE ? null : filter;
+
+        Envelope bounds = null;
+        if (this.filter != null) {
+            bounds = (Envelope) this.filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR,
+                    new ReferencedEnvelope());
+            // non spatial filters extract an infinite envelope, which would also rule out the
+            // blocks without geometries
+            if (bounds != null && (bounds.isNull() || !isFinite(bounds))) {
+                bounds = null;
+            }
+        }
+        this.bounds = bounds;
+
+        // the filter may need attributes that are not returned
+        SimpleFeatureType readType = targetType;
+        if (this.filter != null) {
+            List<String> names = new ArrayList<String>();
+            for (AttributeDescriptor descriptor : targetType.getAttributeDescriptors()) {
+                names.add(descriptor.getLocalName());
+            }
+            boolean extended = false;
+            for (String name : DataUtilities.attributeNames(this.filter, schema)) {
+                if (!names.contains(name) && schema.getDescriptor(name) != null) {
+                    names.add(name);
+                    extended = true;
+                }
+            }
+            if (extended) {
+                readType = SimpleFeatureTypeBuilder.retype(schema, names
+                        .toArray(new String[names.size()]));
+            }
+        }
+        this.builder = new SimpleFeatureBuilder(readType);
+        this.retypeBuilder = readType == targetType ? null : new SimpleFeatureBuilder(targetType);
+
+        this.codes = new int[schema.getAttributeCount()];
+        this.readIndexes = new int[codes.length];
+        Arrays.fill(readIndexes, -1);
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = code(schema.getDescriptor(i).getType().getBinding());
+        }
+        this.bindings = new Class<?>[readType.getAttributeCount()];
+        for (int i = 0; i < bindings.length; i++) {
+            AttributeDescriptor descriptor = readType.getDescriptor(i);
+            readIndexes[schema.indexOf(descriptor.getLocalName())] = i;
+            bindings[i] = descriptor.getType().getBinding();
+        }
+        this.columns = new Object[bindings.length][];
+        this.values = new Object[bindings.length];
+
+        this.wkbStream = new ByteBufferInStream(buffer);
+        this.wkbReader = new WKBReader(geometryFactory);
+    }
+
+    static boolean isFinite(Envelope e) {
+        return !Double.isInfinite(e.getMinX()) && !Double.isInfinite(e.getMaxX())
+                && !Double.isInfinite(e.getMinY()) && !Double.isInfinite(e.getMaxY())
+                && !Double.isNaN(e.getWidth()) && !Double.isNaN(e.getHeight());
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return targetType;
+    }
+
+    public boolean hasNext() throws IOException {
+        while (next == null) {
+            if (row < count) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = columns[i][row];
+                }
+                SimpleFeature feature = builder.buildFeature(fids[row], values);
+                row++;
+                if (filter == null || filter.evaluate(feature)) {
+                    next = retypeBuilder == null ? feature : SimpleFeatureBuilder.retype(
+                            feature, retypeBuilder);
+                }
+            } else if (!nextBlock()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public SimpleFeature next() throws IOException, NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features");
+        }
+        SimpleFeature result = next;
+        next = null;
+        return result;
+    }
+
+    public void close() throws IOException {
+        // nothing to release, the mapping is shared
+        block = file.getBlockCount();
+        count = 0;
+        columns = null;
+        fids = null;
+    }
+
+    /**
+     * Moves to the next block intersecting the filter bounds, and decodes its columns
+     */
+    boolean nextBlock() throws IOException {
+        if (columns == null) {
+            // closed
+            return false;
+        }
+        do {
+            block++;
+            if (block >= file.getBlockCount()) {
+                count = 0;
+                return false;
+            }
+        } while (bounds != null && !bounds.intersects(file.envelopes[block]));
+
+        buffer.position(file.offsets[block]);
+        count = buffer.getInt();
+        row = 0;
+        try {
+            fids = new String[count];
+            readColumn(STRING, fids, null);
+            for (int i = 0; i < codes.length; i++) {
+                int index = readIndexes[i];
+                if (index < 0) {
+                    // skip it altogether
+                    int length = buffer.getInt();
+                    buffer.position(buffer.position() + length);
+                } else {
+                    columns[index] = new Object[count];
+                    readColumn(codes[i], columns[index], bindings[index]);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw (IOException) new IOException("Invalid block " + block + " in " + file.file)
+                    .initCause(e);
+        }
+        return true;
+    }
+
+    void readColumn(int code, Object[] values, Class<?> binding) throws IOException {
+        int length = buffer.getInt();
+        int start = buffer.position();
+        int end = start + length;
+
+        int maskLength = (count + 7) / 8;
+        buffer.position(start + maskLength);
+        int width = width(code);
+        for (int i = 0; i < count; i++) {
+            boolean isNull = (buffer.get(start + i / 8) & (1 << (i % 8))) != 0;
+            if (isNull) {
+                if (width > 0) {
+                    buffer.position(buffer.position() + width);
+                }
+                values[i] = null;
+                continue;
+            }
+
+            switch (code) {
+            case BOOLEAN:
+                values[i] = buffer.get() != 0 ? Boolean.TRUE : Boolean.FALSE;
+                break;
+            case BYTE:
+                values[i] = buffer.get();
+                break;
+            case SHORT:
+                values[i] = buffer.getShort();
+                break;
+            case INTEGER:
+                values[i] = buffer.getInt();
+                break;
+            case LONG:
+                values[i] = buffer.getLong();
+                break;
+            case FLOAT:
+                values[i] = buffer.getFloat();
+                break;
+            case DOUBLE:
+                values[i] = buffer.getDouble();
+                break;
+            case DATE:
+                values[i] = new java.util.Date(buffer.getLong());
+                break;
+            case SQL_DATE:
+                values[i] = new java.sql.Date(buffer.getLong());
+                break;
+            case TIME:
+                values[i] = new java.sql.Time(buffer.getLong());
+                break;
+            case TIMESTAMP:
+                values[i] = new java.sql.Timestamp(buffer.getLong());
+                break;
+            case STRING:
+                values[i] = readString();
+                break;
+            case BIG_DECIMAL:
+                values[i] = new BigDecimal(readString());
+                break;
+            case BIG_INTEGER:
+                values[i] = new BigInteger(readString());
+                break;
+            default:
+                values[i] = readGeometry(binding);
+            }
+        }
+
+        if (buffer.position() != end) {
+            throw new IOException("Column length mismatch in block " + block + " of "
+                    + file.file);
+        }
+    }
+
+    String readString() {
+        int length = buffer.getInt();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, length);
+        return decode(scratch, length);
+    }
+
+    Geometry readGeometry(Class<?> binding) throws IOException {
+        int length = buffer.getInt();
+        int end = buffer.position() + length;
+        Geometry geometry;
+        try {
+            geometry = wkbReader.read(wkbStream);
+        } catch (ParseException e) {
+            throw (IOException) new IOException("Invalid geometry in block " + block + " of "
+                    + file.file).initCause(e);
+        }
+        buffer.position(end);
+
+        // WKB has no notion of rings
+        if (binding == LinearRing.class && geometry instanceof LineString
+                && !(geometry instanceof LinearRing)) {
+            geometry = geometry.getFactory().createLinearRing(
+                    ((LineString) geometry).getCoordinateSequence());
+        }
+        return geometry;
+    }
+
+    /**
+     * Lets the WKB reader work straight on the mapped buffer
+     */
+    static class ByteBufferInStream implements InStream {
+
+        final ByteBuffer buffer;
+
+        ByteBufferInStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public void read(byte[] buf) throws IOException {
+            buffer.get(buf);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+
+/**
+ * Feature source of a {@link BinaryFeatureDataStore}, filtering and retyping natively.
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class BinaryFeatureSource extends ContentFeatureSource {
+
+    public BinaryFeatureSource(ContentEntry entry, Query query) {
+        super(entry, query);
+    }
+
+    @Override
+    public BinaryFeatureDataStore getDataStore() {
+        return (BinaryFeatureDataStore) super.getDataStore();
+    }
+
+    /**
+     * Returns true if the query is about the whole file, in which case the index can answer
+     */
+    boolean isFullScan(Query query) {
+        return (query.getFilter() == null || query.getFilter() == Filter.INCLUDE)
+                && query.getMaxFeatures() == Query.DEFAULT_MAX
+                && (query.getStartIndex() == null || query.getStartIndex() == 0);
+    }
+
+    @Override
+    protected ReferencedEnvelope getBoundsInternal(Query query) throws IOException {
+        SimpleFeatureType schema = getSchema();
+        if (isFullScan(query)) {
+            return new ReferencedEnvelope(getDataStore().getBinaryFile().getBounds(), schema
+                    .getCoordinateReferenceSystem());
+        }
+
+        ReferencedEnvelope bounds = new ReferencedEnvelope(schema.getCoordinateReferenceSystem());
+        List<String> geometries = new ArrayList<String>();
+        for (AttributeDescriptor descriptor : schema.getAttributeDescriptors()) {
+            if (descriptor instanceof GeometryDescriptor) {
+                geometries.add(descriptor.getLocalName());
+            }
+        }
+        if (geometries.isEmpty()) {
+            return bounds;
+        }
+
+        // only the geometries are needed
+        Query geometryQuery = new Query(query);
+        geometryQuery.setPropertyNames(geometries);
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReader(geometryQuery);
+        try {
+            while (reader.hasNext()) {
+                bounds.include(reader.next().getBounds());
+            }
+        } finally {
+            reader.close();
+        }
+        return bounds;
+    }
+
+    @Override
+    protected int getCountInternal(Query query) throws IOException {
+        if (isFullScan(query)) {
+            return getDataStore().getBinaryFile().getCount();
+        }
+
+        // the filter attributes are read anyways, skip all the others
+        Query countQuery = new Query(query);
+        countQuery.setPropertyNames(new String[0]);
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReader(countQuery);
+        try {
+            int count = 0;
+            while (reader.hasNext()) {
+                reader.next();
+                count++;
+            }
+            return count;
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    protected FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal(Query query)
+            throws IOException {
+        SimpleFeatureType schema = getSchema();
+        SimpleFeatureType targetType = schema;
+        if (query.getPropertyNames() != Query.ALL_NAMES) {
+            targetType = SimpleFeatureTypeBuilder.retype(schema, query.getPropertyNames());
+        }
+        return new BinaryFeatureReader(getDataStore().getBinaryFile(), schema, targetType, query
+                .getFilter(), getDataStore().getGeometryFactory());
+    }
+
+    @Override
+    protected boolean canFilter() {
+        return true;
+    }
+
+    @Override
+    protected boolean canRetype() {
+        return true;
+    }
+
+    @Override
+    protected SimpleFeatureType buildFeatureType() throws IOException {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.init(getDataStore().getBinaryFile().getFeatureType());
+        builder.setName(entry.getName());
+        return builder.buildFeatureType();
+    }
+}
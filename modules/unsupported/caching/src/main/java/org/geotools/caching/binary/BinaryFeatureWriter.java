@@ -0,0 +1,321 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.binary;
+
+import static org.geotools.caching.binary.BinaryFeatureFormat.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Writes features in the {@link BinaryFeatureFormat binary feature format}.
+ * <p>
+ * Features are buffered one block at a time, so any number of features can be written with a
+ * bounded amount of memory:
+ *
+ * <pre>
+ * BinaryFeatureWriter.write(featureSource.getFeatures(query), new File(&quot;result.gtbf&quot;));
+ * </pre>
+ *
+ * </p>
+ * <p>
+ * The file is not complete until the writer is closed, which writes the last block and the block
+ * index.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class BinaryFeatureWriter implements Closeable {
+
+    final SimpleFeatureType featureType;
+
+    final int[] codes;
+
+    final int blockSize;
+
+    final DataOutputStream out;
+
+    /**
+     * The features of the block being built
+     */
+    final List<SimpleFeature> block;
+
+    final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream();
+
+    final ByteArrayOutputStream columnBuffer = new ByteArrayOutputStream();
+
+    final DataOutputStream columnOut = new DataOutputStream(columnBuffer);
+
+    final ByteArrayOutputStream indexBuffer = new ByteArrayOutputStream();
+
+    final DataOutputStream indexOut = new DataOutputStream(indexBuffer);
+
+    final WKBWriter wkbWriter = new WKBWriter(2);
+
+    final WKBWriter wkbWriter3D = new WKBWriter(3);
+
+    long position;
+
+    int blockCount;
+
+    boolean closed;
+
+    /**
+     * Writes the features of the collection to the file
+     */
+    public static void write(FeatureCollection<SimpleFeatureType, SimpleFeature> features,
+            File file) throws IOException {
+        write(features, new FileOutputStream(file));
+    }
+
+    /**
+     * Writes the features of the collection to the stream, which is closed at the end
+     */
+    public static void write(FeatureCollection<SimpleFeatureType, SimpleFeature> features,
+            OutputStream out) throws IOException {
+        BinaryFeatureWriter writer;
+        try {
+            writer = new BinaryFeatureWriter(features.getSchema(), out);
+        } catch (RuntimeException e) {
+            out.close();
+            throw e;
+        }
+        try {
+            FeatureIterator<SimpleFeature> it = features.features();
+            try {
+                while (it.hasNext()) {
+                    writer.write(it.next());
+                }
+            } finally {
+                it.close();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    public BinaryFeatureWriter(SimpleFeatureType featureType, OutputStream out)
+            throws IOException {
+        this(featureType, out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param featureType
+     *            The type of the features, must be
+     *            {@link BinaryFeatureFormat#isSupported(SimpleFeatureType) supported}
+     * @param out
+     *            The stream features are written to
+     * @param blockSize
+     *            The number of features per block. Smaller blocks make for a finer grained
+     *            spatial skipping, bigger ones make for faster scans
+     */
+    public BinaryFeatureWriter(SimpleFeatureType featureType, OutputStream out, int blockSize)
+            throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.featureType = featureType;
+        this.blockSize = blockSize;
+        this.block = new ArrayList<SimpleFeature>(blockSize);
+        this.codes = new int[featureType.getAttributeCount()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = code(featureType.getDescriptor(i).getType().getBinding());
+        }
+
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        writeHeader(featureType, new DataOutputStream(header));
+        header.writeTo(this.out);
+        position = header.size();
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    /**
+     * Writes a feature, which must be of the writer feature type
+     */
+    public void write(SimpleFeature feature) throws IOException {
+        if (closed) {
+            throw new IOException("Writer has been closed");
+        }
+        if (feature.getAttributeCount() != codes.length) {
+            throw new IllegalArgumentException("Feature " + feature.getID() + " is not a "
+                    + featureType.getTypeName());
+        }
+        block.add(feature);
+        if (block.size() == blockSize) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the last block and the index, and closes the stream
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!block.isEmpty()) {
+                writeBlock();
+            }
+            long indexOffset = position;
+            indexBuffer.writeTo(out);
+            out.writeInt(blockCount);
+            out.writeLong(indexOffset);
+            out.write(MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+
+    void writeBlock() throws IOException {
+        int count = block.size();
+        Envelope envelope = new Envelope();
+        blockBuffer.reset();
+        DataOutputStream blockOut = new DataOutputStream(blockBuffer);
+        blockOut.writeInt(count);
+
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = block.get(i).getID();
+        }
+        writeColumn(STRING, values, blockOut, envelope);
+        for (int i = 0; i < codes.length; i++) {
+            for (int j = 0; j < count; j++) {
+                values[j] = block.get(j).getAttribute(i);
+            }
+            writeColumn(codes[i], values, blockOut, envelope);
+        }
+
+        indexOut.writeLong(position);
+        indexOut.writeInt(count);
+        writeEnvelope(envelope, indexOut);
+
+        blockBuffer.writeTo(out);
+        position += blockBuffer.size();
+        blockCount++;
+        block.clear();
+    }
+
+    void writeColumn(int code, Object[] values, DataOutputStream blockOut, Envelope envelope)
+            throws IOException {
+        columnBuffer.reset();
+        byte[] nulls = new byte[(values.length + 7) / 8];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                nulls[i / 8] |= 1 << (i % 8);
+            }
+        }
+        columnOut.write(nulls);
+
+        int width = width(code);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                // fixed width values keep their slot
+                for (int j = 0; j < width; j++) {
+                    columnOut.writeByte(0);
+                }
+                continue;
+            }
+
+            if (code >= GEOMETRY) {
+                if (!(value instanceof Geometry)) {
+                    throw new IllegalArgumentException(value + " is not a geometry");
+                }
+                Geometry geometry = (Geometry) value;
+                envelope.expandToInclude(geometry.getEnvelopeInternal());
+                // keep the third dimension only if the geometry has one
+                Coordinate first = geometry.getCoordinate();
+                byte[] wkb = first == null || Double.isNaN(first.z) ? wkbWriter.write(geometry)
+                        : wkbWriter3D.write(geometry);
+                columnOut.writeInt(wkb.length);
+                columnOut.write(wkb);
+                continue;
+            }
+
+            if (!BINDINGS[code].isInstance(value)) {
+                Object converted = Converters.convert(value, BINDINGS[code]);
+                if (converted == null) {
+                    throw new IllegalArgumentException("Could not convert " + value + " to "
+                            + BINDINGS[code].getName());
+                }
+                value = converted;
+            }
+            switch (code) {
+            case BOOLEAN:
+                columnOut.writeByte(((Boolean) value).booleanValue() ? 1 : 0);
+                break;
+            case BYTE:
+                columnOut.writeByte(((Byte) value).byteValue());
+                break;
+            case SHORT:
+                columnOut.writeShort(((Short) value).shortValue());
+                break;
+            case INTEGER:
+                columnOut.writeInt(((Integer) value).intValue());
+                break;
+            case LONG:
+                columnOut.writeLong(((Long) value).longValue());
+                break;
+            case FLOAT:
+                columnOut.writeFloat(((Float) value).floatValue());
+                break;
+            case DOUBLE:
+                columnOut.writeDouble(((Double) value).doubleValue());
+                break;
+            case DATE:
+            case SQL_DATE:
+            case TIME:
+            case TIMESTAMP:
+                columnOut.writeLong(((Date) value).getTime());
+                break;
+            default:
+                writeString(value.toString(), columnOut);
+            }
+        }
+
+        blockOut.writeInt(columnBuffer.size());
+        columnBuffer.writeTo(blockOut);
+    }
+}
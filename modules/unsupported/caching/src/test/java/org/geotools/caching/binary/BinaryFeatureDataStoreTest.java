@@ -0,0 +1,287 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.caching.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class BinaryFeatureDataStoreTest extends TestCase {
+
+    static final FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+
+    SimpleFeatureType type;
+
+    List<SimpleFeature> features;
+
+    File file;
+
+    BinaryFeatureDataStore store;
+
+    @Override
+    protected void setUp() throws Exception {
+        type = SimpleFeatureTypeBuilder.retype(DataUtilities.createType("test",
+                "geom:Point,name:String,count:Integer,when:Date,value:Double"),
+                DefaultGeographicCRS.WGS84);
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < 100; i++) {
+            builder.add(gf.createPoint(new Coordinate(i, i)));
+            // a few nulls
+            builder.add(i % 7 == 0 ? null : "name" + i);
+            builder.add(i);
+            builder.add(new Date(1000L * i));
+            builder.add(i % 5 == 0 ? null : Double.valueOf(i / 2d));
+            features.add(builder.buildFeature("test." + i));
+        }
+
+        file = File.createTempFile("features", "." + BinaryFeatureFormat.EXTENSION);
+        file.deleteOnExit();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter(type, new FileOutputStream(file), 10);
+        for (SimpleFeature feature : features) {
+            writer.write(feature);
+        }
+        writer.close();
+        store = new BinaryFeatureDataStore(file);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        store.dispose();
+        file.delete();
+    }
+
+    public void testSchema() throws Exception {
+        assertEquals(1, store.getTypeNames().length);
+        SimpleFeatureType schema = store.getSchema("test");
+        assertEquals(type.getAttributeCount(), schema.getAttributeCount());
+        for (int i = 0; i < type.getAttributeCount(); i++) {
+            assertEquals(type.getDescriptor(i).getLocalName(), schema.getDescriptor(i)
+                    .getLocalName());
+            assertEquals(type.getDescriptor(i).getType().getBinding(), schema.getDescriptor(i)
+                    .getType().getBinding());
+        }
+        assertEquals("geom", schema.getGeometryDescriptor().getLocalName());
+        assertNotNull(schema.getCoordinateReferenceSystem());
+        assertEquals(10, store.getBinaryFile().getBlockCount());
+    }
+
+    public void testReadAll() throws Exception {
+        ContentFeatureSource source = store.getFeatureSource("test");
+        assertEquals(100, source.getCount(Query.ALL));
+        ReferencedEnvelope bounds = source.getBounds();
+        assertEquals(0, bounds.getMinX(), 0d);
+        assertEquals(99, bounds.getMaxY(), 0d);
+
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = source.getReader();
+        try {
+            for (SimpleFeature expected : features) {
+                assertTrue(reader.hasNext());
+                SimpleFeature actual = reader.next();
+                assertEquals(expected.getID(), actual.getID());
+                assertTrue(((Geometry) expected.getDefaultGeometry())
+                        .equalsExact((Geometry) actual.getDefaultGeometry()));
+                for (int i = 1; i < type.getAttributeCount(); i++) {
+                    assertEquals(expected.getAttribute(i), actual.getAttribute(i));
+                }
+            }
+            assertFalse(reader.hasNext());
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testBBoxAndProjection() throws Exception {
+        ContentFeatureSource source = store.getFeatureSource("test");
+        Filter filter = ff.and(ff.bbox("geom", 15.5, 15.5, 32.5, 32.5, null), ff.less(ff
+                .property("count"), ff.literal(30)));
+        Query query = new Query("test", filter, new String[] { "name" });
+
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = source.getReader(query);
+        try {
+            assertEquals(1, reader.getFeatureType().getAttributeCount());
+            int count = 0;
+            while (reader.hasNext()) {
+                SimpleFeature f = reader.next();
+                assertEquals(1, f.getAttributeCount());
+                int i = 16 + count;
+                assertEquals("test." + i, f.getID());
+                assertEquals(i % 7 == 0 ? null : "name" + i, f.getAttribute("name"));
+                count++;
+            }
+            assertEquals(14, count);
+        } finally {
+            reader.close();
+        }
+        assertEquals(14, source.getCount(query));
+    }
+
+    public void testBlockSkipping() throws Exception {
+        BinaryFeatureFile binaryFile = store.getBinaryFile();
+        // the blocks hold the features 10 by 10
+        assertEquals(new ReferencedEnvelope(20, 29, 20, 29, null), new ReferencedEnvelope(
+                binaryFile.envelopes[2], null));
+
+        BinaryFeatureReader reader = new BinaryFeatureReader(binaryFile, type, type, ff.bbox(
+                "geom", 41, 41, 43, 43, null), new GeometryFactory());
+        try {
+            assertTrue(reader.hasNext());
+            assertEquals(new Coordinate(41, 41), ((Point) reader.next().getDefaultGeometry())
+                    .getCoordinate());
+            // the blocks before were never decoded
+            assertEquals(4, reader.block);
+            assertTrue(reader.hasNext());
+            reader.next();
+            assertTrue(reader.hasNext());
+            reader.next();
+            assertFalse(reader.hasNext());
+            assertEquals(binaryFile.getBlockCount(), reader.block);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testAttributeFilterWithoutGeometries() throws Exception {
+        // a block of null geometries, and a geometry-less schema
+        SimpleFeatureType nullGeometries = SimpleFeatureTypeBuilder.retype(type, new String[] {
+                "geom", "name", "count" });
+        SimpleFeatureType noGeometries = SimpleFeatureTypeBuilder.retype(type, new String[] {
+                "name", "count" });
+        for (SimpleFeatureType featureType : new SimpleFeatureType[] { nullGeometries,
+                noGeometries }) {
+            File other = File.createTempFile("attributes", "." + BinaryFeatureFormat.EXTENSION);
+            other.deleteOnExit();
+            BinaryFeatureWriter writer = new BinaryFeatureWriter(featureType,
+                    new FileOutputStream(other), 10);
+            SimpleFeatureBuilder builder = new SimpleFeatureBuilder(featureType);
+            for (int i = 0; i < 30; i++) {
+                if (featureType.getDescriptor("geom") != null) {
+                    builder.set("geom", null);
+                }
+                builder.set("name", "name" + (i % 3));
+                builder.set("count", i);
+                writer.write(builder.buildFeature("attributes." + i));
+            }
+            writer.close();
+
+            BinaryFeatureDataStore attributes = new BinaryFeatureDataStore(other);
+            try {
+                ContentFeatureSource source = attributes.getFeatureSource(attributes
+                        .getTypeNames()[0]);
+                Query query = new Query(source.getSchema().getTypeName(), ff.equals(ff
+                        .property("name"), ff.literal("name1")));
+                assertEquals(10, source.getCount(query));
+                FeatureReader<SimpleFeatureType, SimpleFeature> reader = source.getReader(query);
+                try {
+                    int count = 0;
+                    while (reader.hasNext()) {
+                        assertEquals("name1", reader.next().getAttribute("name"));
+                        count++;
+                    }
+                    assertEquals(10, count);
+                } finally {
+                    reader.close();
+                }
+            } finally {
+                attributes.dispose();
+                other.delete();
+            }
+        }
+    }
+
+    public void testUnsupportedType() throws Exception {
+        SimpleFeatureType unsupported = DataUtilities.createType("test", "value:java.lang.Object");
+        assertFalse(BinaryFeatureFormat.isSupported(unsupported));
+        assertTrue(BinaryFeatureFormat.isSupported(type));
+        try {
+            new BinaryFeatureWriter(unsupported, new ByteArrayOutputStream());
+            fail("Object attributes cannot be stored");
+        } catch (IllegalArgumentException e) {
+            // fine
+        }
+    }
+
+    public void testTruncatedFile() throws Exception {
+        File truncated = File.createTempFile("truncated", "." + BinaryFeatureFormat.EXTENSION);
+        truncated.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(truncated);
+        BinaryFeatureWriter writer = new BinaryFeatureWriter(type, out);
+        writer.write(features.get(0));
+        // the writer is never closed, no index
+        writer.out.flush();
+        out.close();
+        try {
+            new BinaryFeatureFile(truncated);
+            fail("The file has no index");
+        } catch (IOException e) {
+            // fine
+        } finally {
+            truncated.delete();
+        }
+    }
+
+    public void testFactory() throws Exception {
+        BinaryFeatureDataStoreFactory factory = new BinaryFeatureDataStoreFactory();
+        Map<String, Serializable> params = new HashMap<String, Serializable>();
+        params.put(BinaryFeatureDataStoreFactory.URLP.key, DataUtilities.fileToURL(file));
+        assertTrue(factory.canProcess(params));
+
+        BinaryFeatureDataStore other = (BinaryFeatureDataStore) factory.createDataStore(params);
+        try {
+            assertEquals(100, other.getFeatureSource("test").getCount(Query.ALL));
+        } finally {
+            other.dispose();
+        }
+
+        params.put(BinaryFeatureDataStoreFactory.URLP.key, new File("test.shp").toURI().toURL());
+        assertFalse(factory.canProcess(params));
+    }
+}
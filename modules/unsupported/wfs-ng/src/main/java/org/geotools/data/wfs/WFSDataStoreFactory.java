@@ -21,6 +21,7 @@ import static org.geotools.data.wfs.protocol.http.HttpMethod.POST;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Authenticator;
@@ -42,6 +43,8 @@ import org.geotools.data.DataSourceException;
 import org.geotools.data.DataStore;
 import org.geotools.data.DataStoreFactorySpi;
 import org.geotools.data.DataStoreFinder;
+import org.geotools.data.wfs.protocol.http.DefaultHTTPProtocol;
+import org.geotools.data.wfs.protocol.http.HTTPDocumentCache;
 import org.geotools.data.wfs.protocol.http.HTTPProtocol;
 import org.geotools.data.wfs.protocol.http.HTTPResponse;
 import org.geotools.data.wfs.protocol.http.HttpMethod;
@@ -163,7 +166,7 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
         }
     }
 
-    private static final WFSFactoryParam[] parametersInfo = new WFSFactoryParam[10];
+    private static final WFSFactoryParam[] parametersInfo = new WFSFactoryParam[16];
     static {
         String name;
         Class clazz;
@@ -229,6 +232,52 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
         description = "Positive integer used as a hard limit for the amount of Features to retrieve"
                 + " for each FeatureType. A value of zero or not providing this parameter means no limit.";
         parametersInfo[9] = new WFSFactoryParam(name, clazz, description, Integer.valueOf(0));
+
+        name = "WFSDataStoreFactory:PARSER_THREADS";
+        clazz = Integer.class;
+        description = "Number of threads the datastore uses to parse the features of the GetFeature "
+                + "responses, shared by all the queries. Only used for WFS 1.1.0 support. "
+                + "Default is 1, parsing on the reading thread";
+        parametersInfo[10] = new WFSFactoryParam(name, clazz, description, Integer.valueOf(1));
+
+        name = "WFSDataStoreFactory:CONCURRENT_REQUESTS";
+        clazz = Integer.class;
+        description = "Number of concurrent GetFeature requests a query is split into, each one "
+                + "covering a part of the query area. Only queries whose filter restricts them "
+                + "to a finite area are split. Only used for WFS 1.1.0 support. "
+                + "Default is 1, a single request per query";
+        parametersInfo[11] = new WFSFactoryParam(name, clazz, description, Integer.valueOf(1));
+
+        name = "WFSDataStoreFactory:CACHE_DIRECTORY";
+        clazz = File.class;
+        description = "Directory where the capabilities and schema documents are cached, so that "
+                + "they're revalidated instead of downloaded again after a restart. "
+                + "Only used for WFS 1.1.0 support. By default documents are cached in memory only";
+        parametersInfo[12] = new WFSFactoryParam(name, clazz, description, null);
+
+        name = "WFSDataStoreFactory:MAX_CONNECTIONS_PER_HOST";
+        clazz = Integer.class;
+        description = "Maximum number of HTTP connections the datastore keeps open to the server, "
+                + "each response being read holds one. Only used for WFS 1.1.0 support. "
+                + "Default is " + DefaultHTTPProtocol.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+        parametersInfo[13] = new WFSFactoryParam(name, clazz, description, Integer
+                .valueOf(DefaultHTTPProtocol.DEFAULT_MAX_CONNECTIONS_PER_HOST));
+
+        name = "WFSDataStoreFactory:MAX_TOTAL_CONNECTIONS";
+        clazz = Integer.class;
+        description = "Maximum number of HTTP connections the datastore keeps open to all the "
+                + "servers it talks to. Only used for WFS 1.1.0 support. Default is "
+                + DefaultHTTPProtocol.DEFAULT_MAX_TOTAL_CONNECTIONS;
+        parametersInfo[14] = new WFSFactoryParam(name, clazz, description, Integer
+                .valueOf(DefaultHTTPProtocol.DEFAULT_MAX_TOTAL_CONNECTIONS));
+
+        name = "WFSDataStoreFactory:CONNECTION_WAIT";
+        clazz = Integer.class;
+        description = "Time in milliseconds a request waits for an HTTP connection when all of "
+                + "them are in use, 0 meaning no limit. Only used for WFS 1.1.0 support. "
+                + "Default is " + DefaultHTTPProtocol.DEFAULT_CONNECTION_WAIT_MILLIS + "ms";
+        parametersInfo[15] = new WFSFactoryParam(name, clazz, description, Integer
+                .valueOf(DefaultHTTPProtocol.DEFAULT_CONNECTION_WAIT_MILLIS));
     }
 
     /**
@@ -307,6 +356,51 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
      */
     public static final WFSFactoryParam<Integer> MAXFEATURES = parametersInfo[9];
 
+    /**
+     * Optional positive {@code Integer} stating how many threads parse the features of the
+     * GetFeature responses. Values greater than one split the responses into fragments parsed in
+     * parallel on a pool owned by the datastore, see
+     * {@link org.geotools.data.wfs.v1_1_0.parsers.ParallelGetFeatureParser}. Only implemented for
+     * WFS 1.1.0 support.
+     */
+    public static final WFSFactoryParam<Integer> PARSER_THREADS = parametersInfo[10];
+
+    /**
+     * Optional positive {@code Integer} stating how many concurrent GetFeature requests a query
+     * is split into, each one covering a tile of the query area, see
+     * {@link org.geotools.data.wfs.v1_1_0.WFSStrategy#splitGetFeature}. Features returned by
+     * more than one request are only read once. Only implemented for WFS 1.1.0 support.
+     */
+    public static final WFSFactoryParam<Integer> CONCURRENT_REQUESTS = parametersInfo[11];
+
+    /**
+     * Optional {@code File} parameter stating the directory where the capabilities and
+     * DescribeFeatureType responses are cached, in addition to the memory, see
+     * {@link HTTPDocumentCache}. Only implemented for WFS 1.1.0 support.
+     */
+    public static final WFSFactoryParam<File> CACHE_DIRECTORY = parametersInfo[12];
+
+    /**
+     * Optional positive {@code Integer} stating how many HTTP connections to the server the
+     * datastore keeps open. Each response holds one while being read, so it bounds the number
+     * of features readers open at the same time, along with the requests issued by split
+     * queries, see {@link #CONCURRENT_REQUESTS}. Only implemented for WFS 1.1.0 support.
+     */
+    public static final WFSFactoryParam<Integer> MAX_CONNECTIONS_PER_HOST = parametersInfo[13];
+
+    /**
+     * Optional positive {@code Integer} stating how many HTTP connections the datastore keeps
+     * open to all the servers it talks to. Only implemented for WFS 1.1.0 support.
+     */
+    public static final WFSFactoryParam<Integer> MAX_TOTAL_CONNECTIONS = parametersInfo[14];
+
+    /**
+     * Optional {@code Integer} stating how many milliseconds a request waits for an HTTP
+     * connection to be released when all of them are in use, zero meaning it waits as long as
+     * needed. Unrelated to the read {@link #TIMEOUT}. Only implemented for WFS 1.1.0 support.
+     */
+    public static final WFSFactoryParam<Integer> CONNECTION_WAIT = parametersInfo[15];
+
     protected Map<Map, WFSDataStore> perParameterSetDataStoreCache = new HashMap();
 
     /**
@@ -336,6 +430,12 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
         final boolean lenient = (Boolean) LENIENT.lookUp(params);
         final String encoding = (String) ENCODING.lookUp(params);
         final Integer maxFeatures = (Integer) MAXFEATURES.lookUp(params);
+        final Integer parserThreads = (Integer) PARSER_THREADS.lookUp(params);
+        final Integer concurrentRequests = (Integer) CONCURRENT_REQUESTS.lookUp(params);
+        final File cacheDirectory = (File) CACHE_DIRECTORY.lookUp(params);
+        final Integer maxConnectionsPerHost = (Integer) MAX_CONNECTIONS_PER_HOST.lookUp(params);
+        final Integer maxTotalConnections = (Integer) MAX_TOTAL_CONNECTIONS.lookUp(params);
+        final Integer connectionWait = (Integer) CONNECTION_WAIT.lookUp(params);
         final Charset defaultEncoding = Charset.forName(encoding);
 
         if (((user == null) && (pass != null)) || ((pass == null) && (user != null))) {
@@ -345,10 +445,16 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
 
         final WFSDataStore dataStore;
 
-        final HTTPProtocol http = new SimpleHttpProtocol();
+        final DefaultHTTPProtocol http = new DefaultHTTPProtocol();
         http.setTryGzip(tryGZIP);
         http.setAuth(user, pass);
         http.setTimeoutMillis(timeoutMillis);
+        http.setMaxConnectionsPerHost(maxConnectionsPerHost);
+        http.setMaxTotalConnections(maxTotalConnections);
+        http.setConnectionWaitMillis(connectionWait);
+        if (cacheDirectory != null) {
+            http.setDocumentCache(HTTPDocumentCache.getInstance(cacheDirectory));
+        }
 
         final byte[] wfsCapabilitiesRawData = loadCapabilities(getCapabilitiesRequest, http);
         final Document capsDoc = parseCapabilities(wfsCapabilitiesRawData);
@@ -358,6 +464,8 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
         final Version version = Version.find(capsVersion);
 
         if (Version.v1_0_0 == version) {
+            // only used to fetch the capabilities
+            http.dispose();
             final ConnectionFactory connectionFac = new DefaultConnectionFactory(tryGZIP, user,
                     pass, defaultEncoding, timeoutMillis);
             InputStream reader = new ByteArrayInputStream(wfsCapabilitiesRawData);
@@ -382,6 +490,8 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
             dataStore = new WFS_1_1_0_DataStore(wfs);
             dataStore.setMaxFeatures(maxFeatures);
             dataStore.setPreferPostOverGet(protocol);
+            ((WFS_1_1_0_DataStore) dataStore).setParserThreads(parserThreads);
+            ((WFS_1_1_0_DataStore) dataStore).setConcurrentRequests(concurrentRequests);
         }
 
         perParameterSetDataStoreCache.put(new HashMap(params), dataStore);
@@ -513,6 +623,9 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
      * @see #TRY_GZIP
      * @see #LENIENT
      * @see #ENCODING
+     * @see #MAXFEATURES
+     * @see #PARSER_THREADS
+     * @see #CONCURRENT_REQUESTS
      */
     public Param[] getParametersInfo() {
         int length = parametersInfo.length;
@@ -688,7 +801,7 @@ public class WFSDataStoreFactory extends AbstractDataStoreFactory {
     byte[] loadCapabilities(final URL capabilitiesUrl, HTTPProtocol http) throws IOException {
         byte[] wfsCapabilitiesRawData;
 
-        HTTPResponse httpResponse = http.issueGet(capabilitiesUrl, Collections.EMPTY_MAP);
+        HTTPResponse httpResponse = http.issueCacheableGet(capabilitiesUrl, Collections.EMPTY_MAP);
         InputStream inputStream = httpResponse.getResponseStream();
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
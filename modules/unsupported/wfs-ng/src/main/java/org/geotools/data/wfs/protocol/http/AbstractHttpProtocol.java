@@ -16,6 +16,9 @@
  */
 package org.geotools.data.wfs.protocol.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -24,9 +27,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.commons.collections.map.CaseInsensitiveMap;
+import org.geotools.data.wfs.protocol.http.HTTPDocumentCache.Document;
 import org.geotools.util.logging.Logging;
 
 /**
@@ -45,7 +50,7 @@ public abstract class AbstractHttpProtocol implements HTTPProtocol {
 
     protected static final Logger LOGGER = Logging.getLogger("org.geotools.data.wfs.protocol.http");
 
-    private boolean tryGzip;
+    private boolean tryGzip = true;
 
     protected String authUsername;
 
@@ -53,6 +58,8 @@ public abstract class AbstractHttpProtocol implements HTTPProtocol {
 
     protected int timeoutMillis = -1;
 
+    private HTTPDocumentCache documentCache = HTTPDocumentCache.getInstance();
+
     public AbstractHttpProtocol() {
         super();
     }
@@ -93,6 +100,89 @@ public abstract class AbstractHttpProtocol implements HTTPProtocol {
         this.timeoutMillis = milliseconds;
     }
 
+    /**
+     * Returns the cache used by {@link #issueCacheableGet(URL, Map)}, {@code null} if caching is
+     * disabled
+     */
+    public HTTPDocumentCache getDocumentCache() {
+        return documentCache;
+    }
+
+    /**
+     * Sets the cache used by {@link #issueCacheableGet(URL, Map)}, defaults to the
+     * {@link HTTPDocumentCache#getInstance() shared one}
+     * 
+     * @param documentCache
+     *            the cache, or {@code null} to disable caching
+     */
+    public void setDocumentCache(HTTPDocumentCache documentCache) {
+        this.documentCache = documentCache;
+    }
+
+    /**
+     * @see HTTPProtocol#issueCacheableGet(URL, Map)
+     */
+    public HTTPResponse issueCacheableGet(final URL baseUrl, final Map<String, String> kvp)
+            throws IOException {
+        final HTTPDocumentCache cache = this.documentCache;
+        if (cache == null) {
+            return issueGet(baseUrl, kvp);
+        }
+
+        // documents may be different for different users, the ones obtained with credentials
+        // are cached under a digest of them, and never written to disk
+        final String uri = createUri(baseUrl, kvp);
+        final boolean persistent = authUsername == null;
+        final String key = persistent ? uri : HTTPDocumentCache.digest("SHA-1",
+                authUsername + ":" + authPassword) + "@" + uri;
+
+        Document cached = cache.get(key);
+        if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+            return cached.toResponse();
+        }
+
+        HTTPResponse response = issueConditionalGet(baseUrl, kvp, cached);
+        final long now = System.currentTimeMillis();
+        if (response instanceof NotModifiedResponse) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Cached document is still valid: " + uri);
+            }
+            // the 304 may carry a new Cache-Control
+            final long expires = HTTPDocumentCache.expires(response, now);
+            if (expires < 0) {
+                cache.remove(cached.getKey());
+                return cached.toResponse();
+            }
+            cached = cached.revalidated(expires);
+            cache.put(cached, persistent);
+            return cached.toResponse();
+        }
+
+        Document document = HTTPDocumentCache.read(key, response, now);
+        if (document.isCacheable()) {
+            cache.put(document, persistent);
+        }
+        return document.toResponse();
+    }
+
+    /**
+     * Issues a GET request conditional to the document having changed since the cached copy was
+     * obtained, based on its {@code ETag} and {@code Last-Modified} headers.
+     * <p>
+     * This default implementation does not support conditional requests and always issues the
+     * request through {@link #issueGet(URL, Map)}.
+     * </p>
+     * 
+     * @param cached
+     *            the cached copy of the document, may be {@code null}
+     * @return the server response, or a {@link NotModifiedResponse} carrying the response headers
+     *         if the server answered the document was not modified
+     */
+    protected HTTPResponse issueConditionalGet(URL baseUrl, Map<String, String> kvp,
+            Document cached) throws IOException {
+        return issueGet(baseUrl, kvp);
+    }
+
     /**
      * @see HTTPProtocol#createUrl(URL, Map)
      */
@@ -172,4 +262,44 @@ public abstract class AbstractHttpProtocol implements HTTPProtocol {
         return finalUrlString;
     }
 
+    /**
+     * The answer to a conditional request for a document that was not modified. It has no
+     * content, only the response headers, which may update the cache validity of the document.
+     */
+    protected static class NotModifiedResponse implements HTTPResponse {
+
+        private final String targetUrl;
+
+        private final Map<String, String> headers;
+
+        /**
+         * @param headers
+         *            the response headers, looked up ignoring the case of their names
+         */
+        @SuppressWarnings("unchecked")
+        public NotModifiedResponse(final String targetUrl, final Map<String, String> headers) {
+            this.targetUrl = targetUrl;
+            this.headers = new CaseInsensitiveMap(headers);
+        }
+
+        public String getTargetUrl() {
+            return targetUrl;
+        }
+
+        public InputStream getResponseStream() throws IOException {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        public String getResponseHeader(String headerName) {
+            return headers.get(headerName);
+        }
+
+        public String getResponseCharset() {
+            return null;
+        }
+
+        public String getContentType() {
+            return null;
+        }
+    }
 }
\ No newline at end of file
@@ -19,24 +19,52 @@ package org.geotools.data.wfs.protocol.http;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.PasswordAuthentication;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.zip.GZIPInputStream;
 
+import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethodBase;
 import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.URI;
 import org.apache.commons.httpclient.URIException;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScheme;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.auth.CredentialsNotAvailableException;
+import org.apache.commons.httpclient.auth.CredentialsProvider;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.geotools.data.wfs.protocol.http.HTTPDocumentCache.Document;
 import org.geotools.factory.GeoTools;
 
 /**
  * Default implementation of {@link HTTPProtocol} based on apache's common-http-client
+ * <p>
+ * Each instance owns a pool of persistent connections, so that the many requests issued to the
+ * same server, possibly from different threads, don't pay for a new connection each. A response
+ * holds its connection until it's closed, so the pool must be sized for the number of responses
+ * read at the same time, see {@link #setMaxConnectionsPerHost(int)}, and requests wait at most
+ * {@link #setConnectionWaitMillis(int) a given time} for a connection to be released. The pool
+ * is closed by {@link #dispose()}.
+ * </p>
+ * <p>
+ * As {@link java.net.HttpURLConnection} does, the JVM wide proxy settings (the
+ * {@code http.proxyHost}, {@code http.proxyPort} and {@code http.nonProxyHosts} system
+ * properties, and their {@code https} counterparts) are honoured, and the default
+ * {@link Authenticator} is asked for the proxy credentials, and for the server ones if no user
+ * name and password have been {@link #setAuth(String, String) set}.
+ * </p>
  * 
  * @author Gabriel Roldan (OpenGeo)
  * @version $Id: DefaultHTTPProtocol.java 31929 2008-11-28 19:10:03Z groldan $
@@ -48,6 +76,142 @@ import org.geotools.factory.GeoTools;
 @SuppressWarnings("nls")
 public class DefaultHTTPProtocol extends AbstractHttpProtocol implements HTTPProtocol {
 
+    /**
+     * The default maximum number of pooled connections to each server
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+
+    /**
+     * The default maximum number of pooled connections
+     */
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 64;
+
+    /**
+     * The default time to wait for a pooled connection, in milliseconds
+     */
+    public static final int DEFAULT_CONNECTION_WAIT_MILLIS = 60000;
+
+    private final MultiThreadedHttpConnectionManager connectionManager;
+
+    private final HttpClient client;
+
+    public DefaultHTTPProtocol() {
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setDefaultMaxConnectionsPerHost(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+        params.setMaxTotalConnections(DEFAULT_MAX_TOTAL_CONNECTIONS);
+
+        client = new HttpClient(connectionManager);
+        client.getParams().setParameter("http.useragent",
+                "GeoTools " + GeoTools.getVersion() + " WFS DataStore");
+        client.getParams().setParameter(CredentialsProvider.PROVIDER,
+                new AuthenticatorCredentialsProvider());
+        client.getParams().setConnectionManagerTimeout(DEFAULT_CONNECTION_WAIT_MILLIS);
+    }
+
+    /**
+     * Sets the maximum number of pooled connections to each server, that is, the maximum number
+     * of requests and responses being read at the same time
+     */
+    public void setMaxConnectionsPerHost(int maxConnections) {
+        connectionManager.getParams().setDefaultMaxConnectionsPerHost(maxConnections);
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return connectionManager.getParams().getDefaultMaxConnectionsPerHost();
+    }
+
+    /**
+     * Sets the maximum number of pooled connections, to all the servers
+     */
+    public void setMaxTotalConnections(int maxConnections) {
+        connectionManager.getParams().setMaxTotalConnections(maxConnections);
+    }
+
+    public int getMaxTotalConnections() {
+        return connectionManager.getParams().getMaxTotalConnections();
+    }
+
+    /**
+     * Sets how long, in milliseconds, a request waits for a pooled connection to be released
+     * when all of them are in use, 0 meaning it waits until one is
+     */
+    public void setConnectionWaitMillis(int milliseconds) {
+        client.getParams().setConnectionManagerTimeout(Math.max(0, milliseconds));
+    }
+
+    public int getConnectionWaitMillis() {
+        return (int) client.getParams().getConnectionManagerTimeout();
+    }
+
+    /**
+     * Closes the pooled connections, the instance is not usable afterwards
+     */
+    public void dispose() {
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Returns the proxy set up to reach the request target through the JVM proxy settings, or
+     * {@code null} if the target has to be reached directly
+     */
+    static HostConfiguration getProxyConfiguration(final URI uri) throws URIException {
+        final String scheme = uri.getScheme();
+        final String host = uri.getHost();
+        if (scheme == null || host == null) {
+            return null;
+        }
+        final String protocol = scheme.toLowerCase();
+        final String proxyHost = System.getProperty(protocol + ".proxyHost");
+        if (proxyHost == null || proxyHost.trim().length() == 0) {
+            return null;
+        }
+        // https shares the http exclusion list
+        final String nonProxyHosts = System.getProperty("http.nonProxyHosts");
+        if (nonProxyHosts != null) {
+            for (String pattern : nonProxyHosts.split("\\|")) {
+                pattern = pattern.trim().toLowerCase();
+                String regex = pattern.replace(".", "\\.").replace("*", ".*");
+                if (pattern.length() > 0 && host.toLowerCase().matches(regex)) {
+                    return null;
+                }
+            }
+        }
+
+        int proxyPort = "https".equals(protocol) ? 443 : 80;
+        final String port = System.getProperty(protocol + ".proxyPort");
+        if (port != null) {
+            try {
+                proxyPort = Integer.parseInt(port.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning("Ignoring invalid " + protocol + ".proxyPort: " + port);
+            }
+        }
+        HostConfiguration config = new HostConfiguration();
+        config.setProxy(proxyHost.trim(), proxyPort);
+        return config;
+    }
+
+    /**
+     * Looks up the credentials challenged by the proxy, or by the server, through the default
+     * {@link Authenticator}
+     */
+    static class AuthenticatorCredentialsProvider implements CredentialsProvider {
+
+        public Credentials getCredentials(AuthScheme scheme, String host, int port, boolean proxy)
+                throws CredentialsNotAvailableException {
+            PasswordAuthentication auth = Authenticator.requestPasswordAuthentication(host,
+                    null, port, "http", scheme.getRealm(), scheme.getSchemeName(), null,
+                    proxy ? Authenticator.RequestorType.PROXY : Authenticator.RequestorType.SERVER);
+            if (auth == null) {
+                throw new CredentialsNotAvailableException("No credentials for " + host + ":"
+                        + port);
+            }
+            return new UsernamePasswordCredentials(auth.getUserName(), new String(auth
+                    .getPassword()));
+        }
+    }
+
     /**
      * An {@link HTTPResponse} wrapping an executed {@link GetMethod} or {@link PostMethod} from the
      * apache commons-httpclient package
@@ -89,8 +253,19 @@ public class DefaultHTTPProtocol extends AbstractHttpProtocol implements HTTPPro
                     return in.read();
                 }
 
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public int available() throws IOException {
+                    return in.available();
+                }
+
                 @Override
                 public void close() throws IOException {
+                    // gives the connection back to the pool
                     method.releaseConnection();
                 }
             };
@@ -149,6 +324,22 @@ public class DefaultHTTPProtocol extends AbstractHttpProtocol implements HTTPPro
         }
     }
 
+    /**
+     * @see HTTPProtocol#setAuth(String, String)
+     */
+    @Override
+    public void setAuth(String username, String password) {
+        super.setAuth(username, password);
+        if (username != null && password != null) {
+            client.getState().setCredentials(AuthScope.ANY,
+                    new UsernamePasswordCredentials(username, password));
+            client.getParams().setAuthenticationPreemptive(true);
+        } else {
+            client.getState().clearCredentials();
+            client.getParams().setAuthenticationPreemptive(false);
+        }
+    }
+
     public HTTPResponse issuePost(final URL targetUrl, final POSTCallBack callback)
             throws IOException {
         if (LOGGER.isLoggable(Level.FINEST)) {
@@ -179,7 +370,7 @@ public class DefaultHTTPProtocol extends AbstractHttpProtocol implements HTTPPro
 
         postRequest.setRequestEntity(requestEntity);
 
-        HTTPResponse httpResponse = issueRequest(postRequest);
+        HTTPResponse httpResponse = issueRequest(postRequest, false);
 
         return httpResponse;
     }
@@ -194,37 +385,53 @@ public class DefaultHTTPProtocol extends AbstractHttpProtocol implements HTTPPro
         final String uri = createUri(baseUrl, kvp);
         GetMethod getRequest = new GetMethod(uri);
 
-        HTTPResponse httpResponse = issueRequest(getRequest);
+        HTTPResponse httpResponse = issueRequest(getRequest, false);
 
         return httpResponse;
     }
 
-    private HttpClient client;
+    /**
+     * Sends the {@code If-None-Match} and {@code If-Modified-Since} headers out of the cached
+     * document
+     * 
+     * @see AbstractHttpProtocol#issueConditionalGet(URL, Map, Document)
+     */
+    @Override
+    protected HTTPResponse issueConditionalGet(final URL baseUrl, final Map<String, String> kvp,
+            final Document cached) throws IOException {
+        final String uri = createUri(baseUrl, kvp);
+        GetMethod getRequest = new GetMethod(uri);
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                getRequest.addRequestHeader("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                getRequest.addRequestHeader("If-Modified-Since", cached.getLastModified());
+            }
+        }
+        return issueRequest(getRequest, cached != null);
+    }
 
     /**
      * 
      * @param httpRequest
      *            either a {@link HttpMethod} or {@link PostMethod} set up with the request to be
      *            sent
-     * @return
+     * @param conditional
+     *            whether a not modified status is expected
+     * @return the response, a {@link NotModifiedResponse} if the server answered with a not
+     *         modified status
      * @throws IOException
      */
-    private HTTPResponse issueRequest(final HttpMethodBase httpRequest) throws IOException {
+    private HTTPResponse issueRequest(final HttpMethodBase httpRequest, boolean conditional)
+            throws IOException {
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.fine("Executing HTTP request: " + httpRequest.getURI());
         }
-        if (client == null) {
-            client = new HttpClient();
-            client.getParams().setParameter("http.useragent",
-                    "GeoTools " + GeoTools.getVersion() + " WFS DataStore");
-        }
         if (timeoutMillis > 0) {
-            client.getParams().setSoTimeout(timeoutMillis);
+            httpRequest.getParams().setSoTimeout(timeoutMillis);
         }
 
-        // TODO: remove this
-        System.err.println("Executing HTTP request: " + httpRequest);
-
         if (isTryGzip()) {
             LOGGER.finest("Adding 'Accept-Encoding=gzip' header to request");
             httpRequest.addRequestHeader("Accept-Encoding", "gzip");
@@ -232,12 +439,21 @@ public class DefaultHTTPProtocol extends AbstractHttpProtocol implements HTTPPro
 
         int statusCode;
         try {
-            statusCode = client.executeMethod(httpRequest);
+            statusCode = client.executeMethod(getProxyConfiguration(httpRequest.getURI()),
+                    httpRequest);
         } catch (IOException e) {
             httpRequest.releaseConnection();
             throw e;
         }
 
+        if (conditional && statusCode == HttpStatus.SC_NOT_MODIFIED) {
+            Map<String, String> headers = new HashMap<String, String>();
+            for (Header header : httpRequest.getResponseHeaders()) {
+                headers.put(header.getName(), header.getValue());
+            }
+            httpRequest.releaseConnection();
+            return new NotModifiedResponse(httpRequest.getURI().toString(), headers);
+        }
         if (statusCode != HttpStatus.SC_OK) {
             httpRequest.releaseConnection();
             String statusText = HttpStatus.getStatusText(statusCode);
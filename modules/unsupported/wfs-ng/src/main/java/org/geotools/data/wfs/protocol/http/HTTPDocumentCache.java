@@ -0,0 +1,479 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.protocol.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.SoftValueHashMap;
+import org.geotools.util.logging.Logging;
+
+/**
+ * A cache of the documents that rarely change on the server side, such as capabilities and
+ * schemas, shared by all the {@link HTTPProtocol} instances.
+ * <p>
+ * Documents are kept in memory, as long as there is no memory shortage, and optionally in a
+ * directory, so that they survive the restarts. A cached document is served as is while it is
+ * fresh according to the {@code Cache-Control: max-age} directive of the server, and is
+ * revalidated with a conditional request based on its {@code ETag} and {@code Last-Modified}
+ * headers afterwards. Responses carrying none of them, or marked as {@code no-store}, are not
+ * cached.
+ * </p>
+ * <p>
+ * The directory of the default cache is read from the {@code org.geotools.data.wfs.cacheDirectory}
+ * system property, the cache is in memory only if it's not set.
+ * </p>
+ * <p>
+ * Documents obtained with credentials are cached under a key holding a digest of the
+ * credentials, so that they are not served to other users, and are kept in memory only, see
+ * {@link #put(Document, boolean)}.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ * @see AbstractHttpProtocol#issueCacheableGet(java.net.URL, Map)
+ */
+public class HTTPDocumentCache {
+
+    private static final Logger LOGGER = Logging.getLogger("org.geotools.data.wfs.protocol.http");
+
+    /**
+     * The system property holding the directory of the default cache
+     */
+    public static final String CACHE_DIRECTORY_PROPERTY = "org.geotools.data.wfs.cacheDirectory";
+
+    private static final Map<File, HTTPDocumentCache> CACHES = new HashMap<File, HTTPDocumentCache>();
+
+    private static HTTPDocumentCache defaultCache;
+
+    private final Map<String, Document> documents = Collections
+            .synchronizedMap(new SoftValueHashMap<String, Document>());
+
+    private final File directory;
+
+    /**
+     * Creates a cache, the shared ones should be preferred
+     *
+     * @param directory
+     *            the directory where the documents are stored, or {@code null} to keep them in
+     *            memory only
+     * @see #getInstance(File)
+     */
+    public HTTPDocumentCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the default cache
+     */
+    public static synchronized HTTPDocumentCache getInstance() {
+        if (defaultCache == null) {
+            String path = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+            defaultCache = getInstance(path == null ? null : new File(path));
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Returns the cache storing documents in the specified directory
+     *
+     * @param directory
+     *            the directory, or {@code null} for a cache held in memory only
+     */
+    public static synchronized HTTPDocumentCache getInstance(File directory) {
+        File key = directory == null ? null : directory.getAbsoluteFile();
+        HTTPDocumentCache cache = CACHES.get(key);
+        if (cache == null) {
+            cache = new HTTPDocumentCache(key);
+            CACHES.put(key, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the directory where documents are stored, or {@code null} if they're held in memory
+     * only
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the cached document for the given key, or {@code null} if not cached
+     */
+    public Document get(String key) {
+        Document document = documents.get(key);
+        if (document == null && directory != null) {
+            try {
+                document = read(key);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Can't read cached document for " + key, e);
+            }
+            if (document != null) {
+                documents.put(key, document);
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Caches the document, in memory and in the cache directory if any
+     */
+    public void put(Document document) {
+        put(document, true);
+    }
+
+    /**
+     * Caches the document
+     * 
+     * @param persistent
+     *            whether the document can be written to the cache directory, to be set to false
+     *            for the documents that must not outlive the process, such as the ones obtained
+     *            with credentials
+     */
+    public void put(Document document, boolean persistent) {
+        documents.put(document.getKey(), document);
+        if (directory != null && persistent) {
+            try {
+                write(document);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Can't store cached document for " + document.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Discards the cached document for the given key, both in memory and on disk
+     */
+    public void remove(String key) {
+        documents.remove(key);
+        if (directory != null) {
+            final String name = fileName(key);
+            new File(directory, name + ".properties").delete();
+            new File(directory, name + ".content").delete();
+        }
+    }
+
+    /**
+     * Discards the cached documents, both in memory and on disk
+     */
+    public void clear() {
+        documents.clear();
+        if (directory != null) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    if (name.endsWith(".properties") || name.endsWith(".content")) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    private Document read(String key) throws IOException {
+        final String name = fileName(key);
+        final File propertiesFile = new File(directory, name + ".properties");
+        final File contentFile = new File(directory, name + ".content");
+        if (!propertiesFile.exists() || !contentFile.exists()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(propertiesFile);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        if (!key.equals(properties.getProperty("key"))) {
+            // hash collision
+            return null;
+        }
+
+        in = new FileInputStream(contentFile);
+        byte[] content;
+        try {
+            content = readFully(in);
+        } finally {
+            in.close();
+        }
+        long expires = Long.parseLong(properties.getProperty("expires", "0"));
+        return new Document(key, properties.getProperty("targetUrl"), content,
+                properties.getProperty("contentType"), properties.getProperty("charset"),
+                properties.getProperty("etag"), properties.getProperty("lastModified"), expires);
+    }
+
+    private void write(Document document) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can't create cache directory " + directory);
+        }
+        final String name = fileName(document.getKey());
+
+        OutputStream out = new FileOutputStream(new File(directory, name + ".content"));
+        try {
+            out.write(document.content);
+        } finally {
+            out.close();
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("key", document.getKey());
+        setProperty(properties, "targetUrl", document.getTargetUrl());
+        setProperty(properties, "contentType", document.getContentType());
+        setProperty(properties, "charset", document.getResponseCharset());
+        setProperty(properties, "etag", document.getETag());
+        setProperty(properties, "lastModified", document.getLastModified());
+        properties.setProperty("expires", String.valueOf(document.getExpires()));
+        out = new FileOutputStream(new File(directory, name + ".properties"));
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void setProperty(Properties properties, String name, String value) {
+        if (value != null) {
+            properties.setProperty(name, value);
+        }
+    }
+
+    static String fileName(String key) {
+        return digest("MD5", key);
+    }
+
+    /**
+     * Returns the hexadecimal digest of the text computed with the given algorithm
+     */
+    static String digest(String algorithm, String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance(algorithm);
+            byte[] digest = md.digest(text.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buff = new byte[4096];
+        int readCount;
+        while ((readCount = in.read(buff)) != -1) {
+            out.write(buff, 0, readCount);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the contents of a response into a document.
+     *
+     * @param key
+     *            the cache key of the document
+     * @param response
+     *            the response, whose stream gets fully read and closed
+     * @param now
+     *            the time the response was received, in milliseconds
+     */
+    static Document read(String key, HTTPResponse response, long now) throws IOException {
+        InputStream in = response.getResponseStream();
+        byte[] content;
+        try {
+            content = readFully(in);
+        } finally {
+            in.close();
+        }
+        return new Document(key, response.getTargetUrl(), content, response.getContentType(),
+                response.getResponseCharset(), response.getResponseHeader("ETag"),
+                response.getResponseHeader("Last-Modified"), expires(response, now));
+    }
+
+    /**
+     * Returns the time until which the response can be used without revalidation, as stated by
+     * the max-age directive of the Cache-Control header, 0 if the response must be revalidated
+     * and -1 if it must not be cached at all
+     */
+    static long expires(HTTPResponse response, long now) {
+        String cacheControl = response.getResponseHeader("Cache-Control");
+        if (cacheControl == null) {
+            return 0;
+        }
+        long expires = 0;
+        for (String directive : cacheControl.toLowerCase().split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-store")) {
+                return -1;
+            } else if (directive.equals("no-cache")) {
+                return 0;
+            } else if (directive.startsWith("max-age=")) {
+                try {
+                    long seconds = Long.parseLong(directive.substring("max-age=".length()).trim());
+                    expires = now + seconds * 1000;
+                } catch (NumberFormatException e) {
+                    LOGGER.fine("Ignoring invalid Cache-Control directive " + directive);
+                }
+            }
+        }
+        return expires;
+    }
+
+    /**
+     * A cached document, along with the response headers needed to revalidate it.
+     */
+    public static class Document {
+
+        private final String key;
+
+        private final String targetUrl;
+
+        private final byte[] content;
+
+        private final String contentType;
+
+        private final String charset;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final long expires;
+
+        Document(String key, String targetUrl, byte[] content, String contentType,
+                String charset, String etag, String lastModified, long expires) {
+            this.key = key;
+            this.targetUrl = targetUrl;
+            this.content = content;
+            this.contentType = contentType;
+            this.charset = charset;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getTargetUrl() {
+            return targetUrl;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getResponseCharset() {
+            return charset;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * The time until which the document can be used without revalidation, in milliseconds
+         */
+        public long getExpires() {
+            return expires;
+        }
+
+        /**
+         * Returns whether the document can be used without asking the server
+         */
+        public boolean isFresh(long now) {
+            return now < expires;
+        }
+
+        /**
+         * Returns whether the document can be cached
+         */
+        public boolean isCacheable() {
+            return expires > 0 || (expires == 0 && (etag != null || lastModified != null));
+        }
+
+        /**
+         * Returns a copy of this document, with the new expiration time
+         */
+        Document revalidated(long expires) {
+            return new Document(key, targetUrl, content, contentType, charset, etag,
+                    lastModified, expires);
+        }
+
+        /**
+         * Returns a response serving the document contents
+         */
+        public HTTPResponse toResponse() {
+            return new HTTPResponse() {
+                public String getTargetUrl() {
+                    return targetUrl;
+                }
+
+                public InputStream getResponseStream() throws IOException {
+                    return new ByteArrayInputStream(content);
+                }
+
+                public String getResponseHeader(String headerName) {
+                    if ("Content-Type".equalsIgnoreCase(headerName)) {
+                        return contentType;
+                    } else if ("ETag".equalsIgnoreCase(headerName)) {
+                        return etag;
+                    } else if ("Last-Modified".equalsIgnoreCase(headerName)) {
+                        return lastModified;
+                    }
+                    return null;
+                }
+
+                public String getResponseCharset() {
+                    return charset;
+                }
+
+                public String getContentType() {
+                    return contentType;
+                }
+            };
+        }
+    }
+}
@@ -58,7 +58,7 @@ public interface HTTPProtocol {
 
     /**
      * Returns whether gzip encoding is attempted when interacting with the HTTP server; default is
-     * {@code false}
+     * {@code true}
      * 
      * @return {@code true} if gzip is being attempted.
      */
@@ -107,6 +107,28 @@ public interface HTTPProtocol {
      */
     public HTTPResponse issueGet(URL baseUrl, Map<String, String> kvp) throws IOException;
 
+    /**
+     * Issues an HTTP GET request for a document that rarely changes, such as a capabilities
+     * document or a schema, which can thus be served from a cache.
+     * <p>
+     * A cached copy of the document is returned as long as the server states it is fresh, or
+     * answers it was not modified when asked with a conditional request; otherwise the request
+     * is issued as in {@link #issueGet(URL, Map)}, and the response cached if the server allows
+     * it. The stream of the returned response can be obtained more than once.
+     * </p>
+     * 
+     * @param baseUrl
+     *            the URL where to fetch the contents from
+     * @param kvp
+     *            the set of key/value pairs to create the actual URL query string, may be empty
+     * @return the server response, or the cached copy of it
+     * @throws IOException
+     *             if a communication error of some sort occurs
+     * @see HTTPDocumentCache
+     */
+    public HTTPResponse issueCacheableGet(URL baseUrl, Map<String, String> kvp)
+            throws IOException;
+
     public HTTPResponse issuePost(final URL targetUrl, final POSTCallBack callback)
             throws IOException;
 
@@ -22,10 +22,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.codec.binary.Base64;
+import org.geotools.data.wfs.protocol.http.HTTPDocumentCache.Document;
 
 /**
  * An {@link HTTPProtocol} implementation that relies on plain {@link HttpURLConnection}
@@ -88,6 +91,40 @@ public class SimpleHttpProtocol extends AbstractHttpProtocol {
         return response;
     }
 
+    /**
+     * Sends the {@code If-None-Match} and {@code If-Modified-Since} headers out of the cached
+     * document
+     * 
+     * @see AbstractHttpProtocol#issueConditionalGet(URL, Map, Document)
+     */
+    @Override
+    protected HTTPResponse issueConditionalGet(URL baseUrl, Map<String, String> kvp,
+            Document cached) throws IOException {
+        URL targetUrl = createUrl(baseUrl, kvp);
+        HttpURLConnection conn = openConnection(targetUrl, HttpMethod.GET);
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                conn.setRequestProperty("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                conn.setRequestProperty("If-Modified-Since", cached.getLastModified());
+            }
+            if (conn.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                Map<String, String> headers = new HashMap<String, String>();
+                for (Map.Entry<String, List<String>> header : conn.getHeaderFields().entrySet()) {
+                    // the status line has no name
+                    if (header.getKey() != null && !header.getValue().isEmpty()) {
+                        headers.put(header.getKey(), header.getValue().get(0));
+                    }
+                }
+                // there's no body, closing the stream keeps the connection alive
+                conn.getInputStream().close();
+                return new NotModifiedResponse(targetUrl.toExternalForm(), headers);
+            }
+        }
+        return new SimpleHttpResponse(conn);
+    }
+
     public HTTPResponse issuePost(URL targetUrl, POSTCallBack callback) throws IOException {
         HttpURLConnection conn = openConnection(targetUrl, HttpMethod.POST);
 
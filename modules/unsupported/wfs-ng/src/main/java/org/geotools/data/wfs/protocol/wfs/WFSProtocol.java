@@ -300,4 +300,14 @@ public interface WFSProtocol {
     public String getDefaultOutputFormat(WFSOperationType get_feature);
 
     public Filter[] splitFilters(Filter filter);
+
+    /**
+     * Splits the request into requests covering parts of {@code bounds} that can be issued
+     * concurrently, as decided by the server specific strategy.
+     * 
+     * @return the requests to issue, a single element array holding {@code request} if it can't
+     *         be split
+     */
+    public GetFeature[] splitGetFeature(GetFeature request, String geometryName,
+            ReferencedEnvelope bounds, int parts);
 }
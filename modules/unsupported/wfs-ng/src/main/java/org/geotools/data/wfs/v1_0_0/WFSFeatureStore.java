@@ -20,12 +20,11 @@ package org.geotools.data.wfs.v1_0_0;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
-import org.geotools.data.DataUtilities;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.Transaction;
 import org.geotools.data.simple.SimpleFeatureIterator;
@@ -80,19 +79,59 @@ public class WFSFeatureStore extends WFSFeatureSource implements SimpleFeatureSt
     }
 
     public List<FeatureId> addFeatures(final  FeatureReader<SimpleFeatureType, SimpleFeature> reader) throws IOException {
-        List features=new ArrayList();
-        while(reader.hasNext()){
-            try {
-                SimpleFeature next = reader.next();
-                features.add(next);
-            } catch (Exception e) {
-                throw (IOException) new IOException( ).initCause( e );
+        Iterator<SimpleFeature> features = new Iterator<SimpleFeature>() {
+            public boolean hasNext() {
+                try {
+                    return reader.hasNext();
+                } catch (IOException e) {
+                    throw new InsertException(e);
+                }
             }
-        }
-        return addFeatures(DataUtilities.collection((SimpleFeature[]) features.toArray(new SimpleFeature[0])));
+
+            public SimpleFeature next() {
+                try {
+                    return reader.next();
+                } catch (IOException e) {
+                    throw new InsertException(e);
+                } catch (IllegalArgumentException e) {
+                    throw new InsertException((IOException) new IOException().initCause(e));
+                }
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        return addFeatures(features);
     }
 
 	public List<FeatureId> addFeatures(FeatureCollection<SimpleFeatureType,SimpleFeature> collection) throws IOException {
+        final FeatureIterator<SimpleFeature> iter = collection.features();
+        try {
+            Iterator<SimpleFeature> features = new Iterator<SimpleFeature>() {
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                public SimpleFeature next() {
+                    return iter.next();
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            return addFeatures(features);
+        } finally {
+            iter.close();
+        }
+	}
+
+    /**
+     * Adds the features to the transaction, or when in auto commit mode inserts them right away
+     * streaming them to the server, so that they're never all held in memory.
+     */
+    private List<FeatureId> addFeatures(Iterator<SimpleFeature> features) throws IOException {
         WFSTransactionState ts = null;
 
         if (trans == Transaction.AUTO_COMMIT) {
@@ -100,7 +139,7 @@ public class WFSFeatureStore extends WFSFeatureSource implements SimpleFeatureSt
         } else {
             ts = (WFSTransactionState) trans.getState(ds);
         }
-        List<FeatureId> r = new LinkedList<FeatureId>();
+        List<FeatureId> r = new ArrayList<FeatureId>();
         
         SimpleFeatureType schema = getSchema();
         
@@ -114,88 +153,135 @@ public class WFSFeatureStore extends WFSFeatureSource implements SimpleFeatureSt
         if( isLenient ){
             build.setFeatureFactory( new LenientFeatureFactory());
         }
-        
-        List<AttributeDescriptor> atrs = schema.getAttributeDescriptors();
-        FeatureIterator<SimpleFeature> iter=collection.features();
-        try{
-            ReferencedEnvelope bounds=null;
-            
-        while (iter.hasNext()){
-            try {
-                SimpleFeature newFeature;
-                try {
-                    SimpleFeature f = iter.next();
-                    
-                    String nextFid = ts.nextFid(schema.getTypeName());
-                    Object[] values = f.getAttributes().toArray();
-                    
-                    build.addAll( values );
-                    newFeature = build.buildFeature( nextFid );
-                    
-                    r.add(newFeature.getIdentifier());
-                } catch (IllegalAttributeException e) {
-                    throw (IOException) new IOException( e.getLocalizedMessage() );
-                }
 
-                for(int i=0;i<atrs.size();i++){
-                    AttributeDescriptor att = atrs.get(i);
-                    if(att instanceof GeometryDescriptor){
-                    	Object geom = newFeature.getAttribute(i);
-                    	if(geom instanceof Geometry){
-	                        Geometry g = (Geometry) geom;
-	                        CoordinateReferenceSystem cs = ((GeometryDescriptor)att).getCoordinateReferenceSystem();
-	                        if( g==null )
-	                            continue;
-	                        if( cs!=null && !cs.getIdentifiers().isEmpty() )
-	                            g.setUserData(cs.getIdentifiers().iterator().next().toString());
-	                        if( bounds==null ){
-	                            bounds=new ReferencedEnvelope(g.getEnvelopeInternal(), schema.getCoordinateReferenceSystem() );
-	                        }else{
-	                            bounds.expandToInclude(g.getEnvelopeInternal());
-	                        }
-                    	}
+        InsertIterator inserts = new InsertIterator(features, ts, schema, build, r);
+        if (!inserts.hasNext()) {
+            // nothing to add, don't send an empty transaction nor notify an empty change
+            return r;
+        }
+        try {
+            if (trans == Transaction.AUTO_COMMIT) {
+                String[] fids = ts.commitInserts(schema.getTypeName(), inserts);
+                int i = 0;
+                for (String fid : fids) {
+                    if (i >= r.size()) {
+                        break;
+                    }
+                    FeatureId identifier = r.get(i);
+                    if (identifier instanceof FeatureIdImpl) {
+                        ((FeatureIdImpl) identifier).setID(fid);
                     }
+                    i++;
+                }
+            } else {
+                while (inserts.hasNext()) {
+                    ts.addAction(schema.getTypeName(), inserts.next());
                 }
-                ts.addAction(schema.getTypeName(), new InsertAction(newFeature));
-
-            } catch (NoSuchElementException e) {
-                WFS_1_0_0_DataStore.LOGGER.warning(e.toString());
-                throw new IOException(e.toString());
             }
+        } catch (InsertException e) {
+            throw (IOException) e.getCause();
         }
 
         // Fire a notification.
         // JE
+        ReferencedEnvelope bounds = inserts.bounds;
         if( bounds==null){
             // if bounds are null then send an envelope to say that features were added but
             // at an unknown location.
             bounds = new ReferencedEnvelope( getSchema().getCoordinateReferenceSystem() );
-            ((WFS_1_0_0_DataStore)getDataStore()).listenerManager.fireFeaturesRemoved(schema.getTypeName(),
-                    getTransaction(), bounds, false);
-        }else{
-            ((WFS_1_0_0_DataStore)getDataStore()).listenerManager.fireFeaturesRemoved(schema.getTypeName(),
-                    getTransaction(), bounds, false);                   
         }
+        ((WFS_1_0_0_DataStore)getDataStore()).listenerManager.fireFeaturesRemoved(schema.getTypeName(),
+                getTransaction(), bounds, false);
+        return r;
+    }
 
-        }finally{ 
-            iter.close();
+    /**
+     * Turns the features being added into insert actions, one at a time, assigning them a new
+     * feature id and collecting their bounds.
+     */
+    private static class InsertIterator implements Iterator<InsertAction> {
+        final Iterator<SimpleFeature> features;
+
+        final WFSTransactionState ts;
+
+        final SimpleFeatureType schema;
+
+        final List<AttributeDescriptor> atrs;
+
+        final LenientBuilder build;
+
+        final List<FeatureId> ids;
+
+        ReferencedEnvelope bounds;
+
+        InsertIterator(Iterator<SimpleFeature> features, WFSTransactionState ts,
+                SimpleFeatureType schema, LenientBuilder build, List<FeatureId> ids) {
+            this.features = features;
+            this.ts = ts;
+            this.schema = schema;
+            this.atrs = schema.getAttributeDescriptors();
+            this.build = build;
+            this.ids = ids;
         }
-        if (trans == Transaction.AUTO_COMMIT) {
-            ts.commit();
 
-            String[] fids = ts.getFids(schema.getTypeName());
-            int i=0;
-            for( String fid : fids ){
-            	FeatureId identifier = r.get(i);
-            	if( identifier instanceof FeatureIdImpl){
-            		((FeatureIdImpl)identifier).setID( fid );
-            	}
-            	i++;
+        public boolean hasNext() {
+            return features.hasNext();
+        }
+
+        public InsertAction next() {
+            SimpleFeature newFeature;
+            try {
+                SimpleFeature f = features.next();
+
+                String nextFid = ts.nextFid(schema.getTypeName());
+                Object[] values = f.getAttributes().toArray();
+
+                build.addAll( values );
+                newFeature = build.buildFeature( nextFid );
+
+                ids.add(newFeature.getIdentifier());
+            } catch (IllegalAttributeException e) {
+                throw new InsertException(new IOException( e.getLocalizedMessage() ));
+            } catch (NoSuchElementException e) {
+                WFS_1_0_0_DataStore.LOGGER.warning(e.toString());
+                throw new InsertException(new IOException(e.toString()));
             }
-            return r;
+
+            for(int i=0;i<atrs.size();i++){
+                AttributeDescriptor att = atrs.get(i);
+                if(att instanceof GeometryDescriptor){
+                    Object geom = newFeature.getAttribute(i);
+                    if(geom instanceof Geometry){
+                        Geometry g = (Geometry) geom;
+                        CoordinateReferenceSystem cs = ((GeometryDescriptor)att).getCoordinateReferenceSystem();
+                        if( cs!=null && !cs.getIdentifiers().isEmpty() )
+                            g.setUserData(cs.getIdentifiers().iterator().next().toString());
+                        if( bounds==null ){
+                            bounds=new ReferencedEnvelope(g.getEnvelopeInternal(), schema.getCoordinateReferenceSystem() );
+                        }else{
+                            bounds.expandToInclude(g.getEnvelopeInternal());
+                        }
+                    }
+                }
+            }
+            return new InsertAction(newFeature);
         }
-        return r;
-	}
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Carries the failures of the features being added through the iterators
+     */
+    private static class InsertException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        InsertException(IOException cause) {
+            super(cause);
+        }
+    }
 
 	/**
      * 
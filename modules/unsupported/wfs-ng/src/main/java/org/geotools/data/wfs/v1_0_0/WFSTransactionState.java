@@ -19,6 +19,7 @@ package org.geotools.data.wfs.v1_0_0;
 
 import static org.geotools.data.wfs.protocol.http.HttpMethod.POST;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -35,6 +36,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.Map.Entry;
 import java.util.logging.Level;
@@ -83,6 +85,18 @@ public class WFSTransactionState implements State {
 
     private long latestFid = Long.MAX_VALUE;
 
+    /**
+     * The size of the chunks the transaction request is sent in, so that it's not buffered in
+     * memory to compute its length
+     */
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * The actions encoded in place of the ones held by this state while
+     * {@link #commitInserts(String, Iterator)} runs
+     */
+    private Iterator<Action> streamedActions;
+
     /** Private - should not be used */
     private WFSTransactionState() {
     }
@@ -224,8 +238,120 @@ public class WFSTransactionState implements State {
         return newMap;
     }
 
+    /**
+     * Commits the insertion of the features of the given actions with a single transaction
+     * request, without holding them.
+     * <p>
+     * Each feature is pulled from the iterator and encoded straight to the HTTP connection, which
+     * sends the request in chunks, so that bulk inserts don't need the whole request, nor the
+     * whole set of features, in memory. The actions are not added to this state, thus this is
+     * meant for auto commit, other actions held by this state are not committed.
+     * </p>
+     * 
+     * @param typeName
+     *            the type name of the inserted features
+     * @param inserts
+     *            the insert actions, consumed while the request is sent
+     * @return the ids the server assigned to the inserted features, no request is sent if there
+     *         are no inserts
+     */
+    public String[] commitInserts(String typeName, final Iterator<InsertAction> inserts)
+            throws IOException {
+        if (!inserts.hasNext()) {
+            String[] result = new String[0];
+            synchronized (this.fids) {
+                this.fids.put(typeName, result);
+            }
+            return result;
+        }
+        // the temporary ids of the inserted features, to map them to the final ones
+        final List<String> newFeatureIds = new ArrayList<String>();
+        Iterator<Action> actions = new Iterator<Action>() {
+            public boolean hasNext() {
+                return inserts.hasNext();
+            }
+
+            public Action next() {
+                if (!inserts.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                InsertAction action = inserts.next();
+                newFeatureIds.add(action.getFeature().getID());
+                return action;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        Set<String> typeNames = new HashSet<String>();
+        typeNames.add(typeName);
+
+        TransactionResult transactionResult;
+        synchronized (this) {
+            streamedActions = actions;
+            try {
+                transactionResult = commitPost(typeNames);
+            } catch (OperationNotSupportedException e) {
+                WFS_1_0_0_DataStore.LOGGER.warning(e.toString());
+                transactionResult = null;
+            } catch (SAXException e) {
+                WFS_1_0_0_DataStore.LOGGER.warning(e.toString());
+                transactionResult = null;
+            } finally {
+                streamedActions = null;
+            }
+        }
+
+        if (transactionResult == null) {
+            throw new IOException("An error occured while committing.");
+        }
+        if (transactionResult.getStatus() == TransactionResult.FAILED) {
+            throw new IOException(transactionResult.getError().toString());
+        }
+
+        List newFids = transactionResult.getInsertResult();
+        if (newFids.size() != newFeatureIds.size()) {
+            Logging.getLogger("org.geotools.data.wfs").severe(
+                    "number of fids inserted do not match number of fids returned "
+                            + "by Transaction Response.  Got:" + newFids.size() + " expected: "
+                            + newFeatureIds.size());
+        }
+        for (int i = 0; i < newFids.size() && i < newFeatureIds.size(); i++) {
+            ds.addFidMapping(newFeatureIds.get(i), (String) newFids.get(i));
+        }
+        String[] result = (String[]) newFids.toArray(new String[newFids.size()]);
+        synchronized (this.fids) {
+            this.fids.put(typeName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the actions to be encoded in the transaction request.
+     */
+    public Iterator<Action> getActionIterator() {
+        Iterator<Action> streamed = streamedActions;
+        if (streamed != null) {
+            return streamed;
+        }
+        return getAllActions().iterator();
+    }
+
     private TransactionResult commitPost(List toCommit) throws OperationNotSupportedException,
             IOException, SAXException {
+        Set fts = new HashSet();
+        Iterator i = toCommit.iterator();
+        while (i.hasNext()) {
+            Action a = (Action) i.next();
+            fts.add(a.getTypeName());
+        }
+        return commitPost(fts);
+    }
+
+    private TransactionResult commitPost(Set fts) throws OperationNotSupportedException,
+            IOException, SAXException {
         
         URL postUrl = ds.capabilities.getTransaction().getPost();
         // System.out.println("POST Commit URL = "+postUrl);
@@ -239,15 +365,9 @@ public class WFSTransactionState implements State {
         // System.out.println("connection to commit");
         Map hints = new HashMap();
         hints.put(DocumentWriter.BASE_ELEMENT, WFSSchema.getInstance().getElements()[24]); // Transaction
-        Set fts = new HashSet();
-        Iterator i = toCommit.iterator();
-        while (i.hasNext()) {
-            Action a = (Action) i.next();
-            fts.add(a.getTypeName());
-        }
         Set ns = new HashSet();
         ns.add(WFSSchema.NAMESPACE.toString());
-        i = fts.iterator();
+        Iterator i = fts.iterator();
         while (i.hasNext()) {
             String target = (String) i.next();
             SimpleFeatureType schema = ds.getSchema(target);
@@ -274,10 +394,17 @@ public class WFSTransactionState implements State {
         // System.out.println(debugw.getBuffer());
         // // END DEBUG
 
+        try {
+            // send the request as it's written, rather than buffering it to compute its length
+            hc.setChunkedStreamingMode(CHUNK_SIZE);
+        } catch (IllegalStateException alreadyConnected) {
+            WFS_1_0_0_DataStore.LOGGER.fine("Can't stream the transaction request, the "
+                    + "connection is already open");
+        }
         OutputStream os = hc.getOutputStream();
 
         // write request
-        Writer w = new OutputStreamWriter(os);
+        Writer w = new BufferedWriter(new OutputStreamWriter(os), CHUNK_SIZE);
         Logger logger = Logging.getLogger("org.geotools.data.wfs");
         if (logger.isLoggable(Level.FINE)) {
             w = new LogWriterDecorator(w, logger, Level.FINE);
@@ -413,6 +540,10 @@ public class WFSTransactionState implements State {
             List actions = (List) iter.next();
 
             removeFilterAllActions(actions);
+            if (!hasUpdateOrDelete(actions)) {
+                // nothing to combine, inserts would just be rotated back in their order
+                continue;
+            }
             InsertAction firstAction = null;
             while (firstAction == null || !actions.contains(firstAction)) {
                 firstAction = findFirstInsertAction(actions);
@@ -428,6 +559,16 @@ public class WFSTransactionState implements State {
         }
     }
 
+    private boolean hasUpdateOrDelete(List actions) {
+        for (Iterator iter = actions.iterator(); iter.hasNext();) {
+            Object action = iter.next();
+            if (action instanceof UpdateAction || action instanceof DeleteAction) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Removes all actions whose filter is Filter.EXCLUDE
      */
@@ -0,0 +1,253 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.v1_1_0;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.DataSourceException;
+import org.geotools.data.wfs.protocol.wfs.GetFeatureParser;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * A {@link GetFeatureParser} that merges the features of several GetFeature requests issued
+ * concurrently.
+ * <p>
+ * The requests are sent and parsed by at most {@code threads} tasks running on the provided
+ * pool, which hand the features over to the reading thread through a bounded queue, so at most
+ * a few features per request are held in memory. Features come out of {@link #parse()} in no
+ * particular order, and the ones already returned by another request, based on their feature
+ * id, are skipped. The ids of the returned features are kept until the parser is closed.
+ * </p>
+ * <p>
+ * The pool is meant to be shared by all the queries of a data store, see
+ * {@link #newExecutor()}. Closing the parser cancels its tasks but leaves the pool alone.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ * @see WFSStrategy#splitGetFeature
+ */
+class ConcurrentGetFeatureParser implements GetFeatureParser {
+
+    private static final Logger LOGGER = Logging.getLogger("org.geotools.data.wfs");
+
+    /**
+     * Marks the end of the features of a request
+     */
+    private static final Object END = new Object();
+
+    private static final int QUEUE_SIZE_PER_REQUEST = 64;
+
+    private final BlockingQueue<Object> queue;
+
+    private final Iterator<Callable<GetFeatureParser>> pending;
+
+    private final List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+    private final Set<String> fids = new HashSet<String>();
+
+    private int running;
+
+    private volatile boolean closed;
+
+    /**
+     * @param requests
+     *            opens the parser of each request
+     * @param threads
+     *            the maximum number of requests running at the same time
+     * @param executor
+     *            the pool the requests are issued on
+     */
+    public ConcurrentGetFeatureParser(List<Callable<GetFeatureParser>> requests, int threads,
+            ExecutorService executor) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        threads = Math.max(1, Math.min(threads, requests.size()));
+        this.queue = new ArrayBlockingQueue<Object>(QUEUE_SIZE_PER_REQUEST * threads);
+        this.running = requests.size();
+        this.pending = new ArrayList<Callable<GetFeatureParser>>(requests).iterator();
+        synchronized (tasks) {
+            for (int i = 0; i < threads; i++) {
+                tasks.add(executor.submit(new Fetcher()));
+            }
+        }
+    }
+
+    /**
+     * Creates a pool of daemon threads suitable to be shared among parsers. The pool grows as
+     * needed, since each parser bounds the number of its own tasks, and idle threads are
+     * released after a minute.
+     */
+    public static ThreadPoolExecutor newExecutor() {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new FetcherThreadFactory());
+    }
+
+    /**
+     * Unknown, the requests may return the same features
+     */
+    public int getNumberOfFeatures() {
+        return -1;
+    }
+
+    public SimpleFeature parse() throws IOException {
+        while (running > 0) {
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                close();
+                throw new DataSourceException("Interrupted while waiting for features", e);
+            }
+
+            if (next == END) {
+                running--;
+            } else if (next instanceof Throwable) {
+                close();
+                Throwable cause = (Throwable) next;
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new DataSourceException("GetFeature request failed", cause);
+            } else {
+                SimpleFeature feature = (SimpleFeature) next;
+                String id = feature.getID();
+                if (id == null || fids.add(id)) {
+                    return feature;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        running = 0;
+        synchronized (tasks) {
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+        queue.clear();
+        fids.clear();
+    }
+
+    /**
+     * Queues the object, unless the parser gets closed in the meantime
+     */
+    void put(Object o) throws InterruptedException {
+        while (!closed) {
+            if (queue.offer(o, 100, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the next request to be issued, or null if there are none left
+     */
+    Callable<GetFeatureParser> nextRequest() {
+        synchronized (pending) {
+            return !closed && pending.hasNext() ? pending.next() : null;
+        }
+    }
+
+    /**
+     * Issues the pending requests one after the other, queueing their features
+     */
+    class Fetcher implements Runnable {
+
+        public void run() {
+            Callable<GetFeatureParser> request;
+            while ((request = nextRequest()) != null) {
+                fetch(request);
+            }
+        }
+
+        void fetch(Callable<GetFeatureParser> request) {
+            GetFeatureParser parser = null;
+            try {
+                if (closed) {
+                    return;
+                }
+                parser = request.call();
+                SimpleFeature feature;
+                while (!closed && (feature = parser.parse()) != null) {
+                    put(feature);
+                }
+            } catch (InterruptedException e) {
+                // closed
+            } catch (Throwable t) {
+                try {
+                    put(t);
+                } catch (InterruptedException e) {
+                    // closed
+                }
+            } finally {
+                if (parser != null) {
+                    try {
+                        parser.close();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.FINE, "Error closing the GetFeature parser", e);
+                    }
+                }
+                try {
+                    put(END);
+                } catch (InterruptedException e) {
+                    // closed
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates daemon threads, so that a parser that is not closed does not prevent the jvm from
+     * exiting
+     */
+    static class FetcherThreadFactory implements ThreadFactory {
+        static final AtomicInteger COUNT = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "GetFeatureFetcher-" + COUNT.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
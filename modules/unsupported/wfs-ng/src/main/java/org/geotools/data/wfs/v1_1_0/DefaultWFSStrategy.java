@@ -44,16 +44,19 @@ import org.geotools.data.wfs.protocol.wfs.GetFeature;
 import org.geotools.data.wfs.protocol.wfs.WFSOperationType;
 import org.geotools.data.wfs.protocol.wfs.WFSProtocol;
 import org.geotools.data.wfs.protocol.wfs.GetFeature.ResultType;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.GeoTools;
 import org.geotools.filter.Capabilities;
 import org.geotools.filter.v1_1.OGC;
 import org.geotools.filter.v1_1.OGCConfiguration;
 import org.geotools.filter.visitor.CapabilitiesFilterSplitter;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.util.logging.Logging;
 import org.geotools.wfs.v1_1.WFSConfiguration;
 import org.geotools.xml.Configuration;
 import org.geotools.xml.Encoder;
 import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.Id;
 import org.opengis.filter.identity.Identifier;
 import org.opengis.filter.sort.SortBy;
@@ -287,4 +290,94 @@ public class DefaultWFSStrategy implements WFSStrategy {
         return new Filter[] { server, post };
     }
 
+    /**
+     * Splits the request bounds into a grid of about {@code parts} tiles of the same size, and
+     * returns a request per tile, filtering the features whose geometry intersects the tile.
+     * <p>
+     * Requests asking for hits or sorted results are not split.
+     * </p>
+     * 
+     * @see WFSStrategy#splitGetFeature(GetFeature, String, ReferencedEnvelope, int)
+     */
+    public GetFeature[] splitGetFeature(GetFeature request, String geometryName,
+            ReferencedEnvelope bounds, int parts) {
+        final SortBy[] sortBy = request.getSortBy();
+        if (parts < 2 || geometryName == null || bounds == null || bounds.isEmpty()
+                || request.getResultType() != RESULTS || (sortBy != null && sortBy.length > 0)) {
+            return new GetFeature[] { request };
+        }
+
+        final int columns = (int) Math.ceil(Math.sqrt(parts));
+        final int rows = (int) Math.ceil(parts / (double) columns);
+        final double width = bounds.getWidth() / columns;
+        final double height = bounds.getHeight() / rows;
+
+        final FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        final Filter filter = request.getFilter();
+        final GetFeature[] tiles = new GetFeature[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                double minx = bounds.getMinX() + col * width;
+                double miny = bounds.getMinY() + row * height;
+                // make sure the last tiles reach the bounds, regardless of rounding
+                double maxx = col == columns - 1 ? bounds.getMaxX() : minx + width;
+                double maxy = row == rows - 1 ? bounds.getMaxY() : miny + height;
+                ReferencedEnvelope tile = new ReferencedEnvelope(minx, maxx, miny, maxy, bounds
+                        .getCoordinateReferenceSystem());
+
+                Filter bbox = ff.bbox(ff.property(geometryName), tile);
+                Filter tileFilter = filter == null || Filter.INCLUDE.equals(filter) ? bbox : ff
+                        .and(filter, bbox);
+                tiles[row * columns + col] = new FilteredGetFeature(request, tileFilter);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * A GetFeature request that is the same as another one, but for the filter
+     */
+    static class FilteredGetFeature implements GetFeature {
+
+        private final GetFeature delegate;
+
+        private final Filter filter;
+
+        FilteredGetFeature(GetFeature delegate, Filter filter) {
+            this.delegate = delegate;
+            this.filter = filter;
+        }
+
+        public Filter getFilter() {
+            return filter;
+        }
+
+        public Integer getMaxFeatures() {
+            return delegate.getMaxFeatures();
+        }
+
+        public String getOutputFormat() {
+            return delegate.getOutputFormat();
+        }
+
+        public String[] getPropertyNames() {
+            return delegate.getPropertyNames();
+        }
+
+        public ResultType getResultType() {
+            return delegate.getResultType();
+        }
+
+        public SortBy[] getSortBy() {
+            return delegate.getSortBy();
+        }
+
+        public String getSrsName() {
+            return delegate.getSrsName();
+        }
+
+        public String getTypeName() {
+            return delegate.getTypeName();
+        }
+    }
 }
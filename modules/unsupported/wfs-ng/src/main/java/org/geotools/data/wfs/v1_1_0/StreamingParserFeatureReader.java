@@ -25,11 +25,13 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.geotools.data.DataSourceException;
 import org.geotools.data.wfs.protocol.wfs.GetFeatureParser;
+import org.geotools.gml2.simple.SimpleFeatureParserDelegate;
 import org.geotools.gml3.ApplicationSchemaConfiguration;
 import org.geotools.wfs.WFSConfiguration;
 import org.geotools.xml.Configuration;
 import org.geotools.xml.StreamingParser;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.xml.sax.SAXException;
 
 /**
@@ -98,6 +100,35 @@ class StreamingParserFeatureReader implements GetFeatureParser {
     public StreamingParserFeatureReader(final Configuration wfsConfiguration,
             final InputStream getFeatureResponseStream, final QName featureName,
             final URL describeFeatureTypeRequest) throws DataSourceException {
+        this(wfsConfiguration, getFeatureResponseStream, featureName, describeFeatureTypeRequest,
+                null);
+    }
+
+    /**
+     * 
+     * @param wfsConfiguration
+     *            the configuration where to grab (wfs and gml) bindings from.
+     *            Should be an instance of {@link WFSConfiguration}.
+     * @param getFeatureResponseStream
+     *            the response stream from a GetFeature operation.
+     * @param featureName
+     *            the name of the Feature (ie, the top level xml element
+     *            declaration)
+     * @param describeFeatureTypeRequest
+     *            provides the location of the GetFeature response schema to be
+     *            used by an {@link ApplicationSchemaConfiguration} in order to
+     *            resolve imports and includes.
+     * @param featureType
+     *            the feature type parsed from the DescribeFeatureType response, if it is
+     *            {@link SimpleFeatureParserDelegate#isSimple(SimpleFeatureType) simple} the
+     *            features are parsed by a {@link SimpleFeatureParserDelegate} instead of the
+     *            bindings. May be null.
+     * @throws DataSourceException
+     */
+    public StreamingParserFeatureReader(final Configuration wfsConfiguration,
+            final InputStream getFeatureResponseStream, final QName featureName,
+            final URL describeFeatureTypeRequest, final SimpleFeatureType featureType)
+            throws DataSourceException {
         this.inputStream = getFeatureResponseStream;
         try {
             Configuration appSchemaConfiguration;
@@ -105,6 +136,10 @@ class StreamingParserFeatureReader implements GetFeatureParser {
             String schemaLocation = describeFeatureTypeRequest.toExternalForm();
             appSchemaConfiguration = new WFSAppSchemaConfiguration(wfsConfiguration, namespaceURI,
                     schemaLocation);
+            if (featureType != null && SimpleFeatureParserDelegate.isSimple(featureType)) {
+                SimpleFeatureParserDelegate.register(appSchemaConfiguration, featureType,
+                        featureName);
+            }
 
             this.parser = new StreamingParser(appSchemaConfiguration, getFeatureResponseStream,
                     featureName);
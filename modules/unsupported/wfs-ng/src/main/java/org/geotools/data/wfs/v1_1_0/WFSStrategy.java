@@ -28,6 +28,7 @@ import org.geotools.data.wfs.protocol.wfs.GetFeature;
 import org.geotools.data.wfs.protocol.wfs.WFSOperationType;
 import org.geotools.data.wfs.protocol.wfs.WFSProtocol;
 import org.geotools.filter.Capabilities;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.wfs.WFSConfiguration;
 import org.geotools.xml.Configuration;
 import org.opengis.filter.Filter;
@@ -91,6 +92,29 @@ public interface WFSStrategy {
 
     public Filter[] splitFilters(Capabilities filterCaps, Filter filter);
 
+    /**
+     * Splits a GetFeature request into requests covering smaller areas, so that they can be
+     * issued concurrently.
+     * <p>
+     * A feature may match more than one of the returned requests, the caller is in charge of
+     * removing the duplicates.
+     * </p>
+     * 
+     * @param request
+     *            the request to split
+     * @param geometryName
+     *            the name of the geometry property the areas are to be matched against
+     * @param bounds
+     *            the area covered by the request, in the request CRS, no feature matching the
+     *            request may lie outside of it
+     * @param parts
+     *            the desired number of requests
+     * @return the requests to issue, a single element array holding {@code request} if it can't
+     *         be split
+     */
+    public GetFeature[] splitGetFeature(GetFeature request, String geometryName,
+            ReferencedEnvelope bounds, int parts);
+
     /**
      * Creates a GetFeature request that the server implementation this strategy works upon can deal
      * with, and returns both the appropriate request to send to the server as well as the
@@ -28,6 +28,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -61,14 +64,17 @@ import org.geotools.data.wfs.protocol.wfs.WFSProtocol;
 import org.geotools.data.wfs.protocol.wfs.WFSResponse;
 import org.geotools.data.wfs.protocol.wfs.GetFeature.ResultType;
 import org.geotools.data.wfs.v1_1_0.parsers.EmfAppSchemaParser;
+import org.geotools.data.wfs.v1_1_0.parsers.ParallelGetFeatureParser;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.NameImpl;
 import org.geotools.feature.SchemaException;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.gml2.bindings.GML2EncodingUtils;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.geotools.util.SoftValueHashMap;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -81,6 +87,8 @@ import org.opengis.referencing.NoSuchAuthorityCodeException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.TransformException;
 
+import com.vividsolutions.jts.geom.Envelope;
+
 /**
  * A WFS 1.1 DataStore implementation.
  * <p>
@@ -107,6 +115,22 @@ public final class WFS_1_1_0_DataStore implements WFSDataStore {
      */
     private static final boolean DEFAULT_HTTP_METHOD = true;
 
+    /**
+     * The system property stating for how many milliseconds a parsed feature type is shared by
+     * the datastores, before its DescribeFeatureType document is parsed again
+     */
+    public static final String SCHEMA_CACHE_TIMEOUT_PROPERTY = "org.geotools.data.wfs.schemaCacheTimeout";
+
+    private static final long SCHEMA_CACHE_TIMEOUT = Long.getLong(SCHEMA_CACHE_TIMEOUT_PROPERTY,
+            5 * 60 * 1000).longValue();
+
+    /**
+     * The feature types parsed by any datastore, keyed by DescribeFeatureType URL and CRS, so
+     * that datastores created against the same server don't parse the same schemas again
+     */
+    private static final Map<String, ParsedType> PARSED_TYPES = Collections
+            .synchronizedMap(new SoftValueHashMap<String, ParsedType>());
+
     private final WFSProtocol wfs;
 
     private Map<String, SimpleFeatureType> byTypeNameTypes;
@@ -115,6 +139,22 @@ public final class WFS_1_1_0_DataStore implements WFSDataStore {
 
     private boolean preferPostOverGet = false;
 
+    private int parserThreads = 1;
+
+    /**
+     * The pool parsing the GetFeature responses in parallel, shared by all the queries, created
+     * on first use
+     */
+    private ThreadPoolExecutor parserExecutor;
+
+    /**
+     * The pool issuing the concurrent GetFeature requests of split queries, shared by all the
+     * queries, created on first use
+     */
+    private ThreadPoolExecutor requestExecutor;
+
+    private int concurrentRequests = 1;
+
     /**
      * The WFS capabilities document.
      * 
@@ -143,6 +183,73 @@ public final class WFS_1_1_0_DataStore implements WFSDataStore {
         return this.maxFeaturesHardLimit;
     }
 
+    /**
+     * Sets the number of threads parsing the features of GetFeature responses, one meaning they
+     * are parsed sequentially on the reading thread
+     */
+    public synchronized void setParserThreads(Integer parserThreads) {
+        this.parserThreads = parserThreads == null ? 1 : Math.max(1, parserThreads.intValue());
+        if (parserExecutor != null) {
+            // the core size can't exceed the maximum one
+            if (this.parserThreads > parserExecutor.getMaximumPoolSize()) {
+                parserExecutor.setMaximumPoolSize(this.parserThreads);
+                parserExecutor.setCorePoolSize(this.parserThreads);
+            } else {
+                parserExecutor.setCorePoolSize(this.parserThreads);
+                parserExecutor.setMaximumPoolSize(this.parserThreads);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of threads parsing the features of GetFeature responses
+     */
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    /**
+     * Returns the pool of {@link #getParserThreads()} threads parsing the GetFeature responses in
+     * parallel. It's shared by all the responses being read, so the number of parsing threads
+     * does not grow with the number of concurrent queries or requests.
+     */
+    public synchronized ExecutorService getParserExecutor() {
+        if (parserExecutor == null) {
+            parserExecutor = ParallelGetFeatureParser.newExecutor(parserThreads);
+        }
+        return parserExecutor;
+    }
+
+    /**
+     * Sets the number of concurrent GetFeature requests a query is split into, each one covering
+     * a part of the query area. One, the default, means queries are not split. Queries whose
+     * filter does not restrict them to a finite area are never split.
+     */
+    public void setConcurrentRequests(Integer concurrentRequests) {
+        this.concurrentRequests = concurrentRequests == null ? 1 : Math.max(1,
+                concurrentRequests.intValue());
+    }
+
+    /**
+     * Returns the number of concurrent GetFeature requests a query is split into
+     */
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    /**
+     * Returns the pool issuing the concurrent GetFeature requests of split queries. It's kept
+     * apart from the {@link #getParserExecutor() parser pool}, as the requests wait on the
+     * parsing tasks of their responses, and each query runs at most
+     * {@link #getConcurrentRequests()} requests on it at the same time.
+     */
+    public synchronized ExecutorService getRequestExecutor() {
+        if (requestExecutor == null) {
+            requestExecutor = ConcurrentGetFeatureParser.newExecutor();
+        }
+        return requestExecutor;
+    }
+
     /**
      * @see WFSDataStore#isPreferPostOverGet()
      */
@@ -208,8 +315,17 @@ public final class WFS_1_1_0_DataStore implements WFSDataStore {
 
             final SimpleFeatureType featureType;
             CoordinateReferenceSystem crs = getFeatureTypeCRS(prefixedTypeName);
-            featureType = EmfAppSchemaParser.parseSimpleFeatureType(featureDescriptorName,
-                    describeUrl, crs);
+            final String parsedTypeKey = featureDescriptorName + "@" + describeUrl.toExternalForm()
+                    + "#" + wfs.getDefaultCRS(prefixedTypeName);
+            final long now = System.currentTimeMillis();
+            ParsedType parsed = PARSED_TYPES.get(parsedTypeKey);
+            if (parsed != null && now - parsed.time < SCHEMA_CACHE_TIMEOUT) {
+                featureType = parsed.type;
+            } else {
+                featureType = EmfAppSchemaParser.parseSimpleFeatureType(featureDescriptorName,
+                        describeUrl, crs);
+                PARSED_TYPES.put(parsedTypeKey, new ParsedType(featureType, now));
+            }
 
             // adapt the feature type name
             SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
@@ -282,6 +398,16 @@ public final class WFS_1_1_0_DataStore implements WFSDataStore {
      * @see org.geotools.data.DataStore#dispose()
      */
     public void dispose() {
+        synchronized (this) {
+            if (parserExecutor != null) {
+                parserExecutor.shutdownNow();
+                parserExecutor = null;
+            }
+            if (requestExecutor != null) {
+                requestExecutor.shutdownNow();
+                requestExecutor = null;
+            }
+        }
         wfs.dispose();
     }
 
@@ -320,19 +446,7 @@ public final class WFS_1_1_0_DataStore implements WFSDataStore {
 
         final CoordinateReferenceSystem queryCrs = query.getCoordinateSystem();
 
-        WFSResponse response = executeGetFeatures(query, transaction, ResultType.RESULTS);
-
-        Object result = WFSExtensions.process(this, response);
-
-        GetFeatureParser parser;
-        if (result instanceof WFSException) {
-            // try to recover from common server implementation errors
-            throw (WFSException) result;
-        } else if (result instanceof GetFeatureParser) {
-            parser = (GetFeatureParser) result;
-        } else {
-            throw new IllegalStateException("Unknown response result for GetFeature: " + result);
-        }
+        GetFeatureParser parser = getFeatures(query);
 
         final SimpleFeatureType contentType = getQueryType(query);
 
@@ -370,6 +484,96 @@ public final class WFS_1_1_0_DataStore implements WFSDataStore {
         return reader;
     }
 
+    /**
+     * Issues the GetFeature request for the query. If {@link #getConcurrentRequests()} is greater
+     * than one and the query filter has finite bounds, the request is split by the strategy into
+     * requests covering parts of the filter bounds, which are issued concurrently, and whose
+     * features are merged skipping duplicates.
+     */
+    private GetFeatureParser getFeatures(final Query query) throws IOException {
+        final String outputFormat = wfs.getDefaultOutputFormat(GET_FEATURE);
+        final String srsName = adaptQueryForSupportedCrs((DefaultQuery) query);
+        final GetFeature request = new GetFeatureQueryAdapter(query, outputFormat, srsName,
+                ResultType.RESULTS);
+
+        GetFeature[] requests = new GetFeature[] { request };
+        if (concurrentRequests > 1) {
+            GeometryDescriptor geometry = getSchema(query.getTypeName()).getGeometryDescriptor();
+            ReferencedEnvelope bounds = geometry == null ? null : getRequestBounds(query, srsName);
+            if (bounds != null) {
+                requests = wfs.splitGetFeature(request, geometry.getLocalName(), bounds,
+                        concurrentRequests);
+            }
+        }
+        if (requests.length == 1) {
+            return openParser(requests[0]);
+        }
+
+        LOGGER.fine("Splitting GetFeature request for " + query.getTypeName() + " into "
+                + requests.length + " concurrent requests");
+        List<Callable<GetFeatureParser>> fetchers = new ArrayList<Callable<GetFeatureParser>>();
+        for (final GetFeature part : requests) {
+            fetchers.add(new Callable<GetFeatureParser>() {
+                public GetFeatureParser call() throws IOException {
+                    return openParser(part);
+                }
+            });
+        }
+        return new ConcurrentGetFeatureParser(fetchers, concurrentRequests, getRequestExecutor());
+    }
+
+    /**
+     * Sends the request and returns the parser for the response
+     */
+    private GetFeatureParser openParser(final GetFeature request) throws IOException {
+        WFSResponse response = sendGetFeatures(request);
+
+        Object result = WFSExtensions.process(this, response);
+
+        if (result instanceof WFSException) {
+            // try to recover from common server implementation errors
+            throw (WFSException) result;
+        } else if (result instanceof GetFeatureParser) {
+            return (GetFeatureParser) result;
+        } else {
+            throw new IllegalStateException("Unknown response result for GetFeature: " + result);
+        }
+    }
+
+    /**
+     * Returns the area the query covers in the request CRS, that is, the bounds of the query
+     * filter, or {@code null} if the filter does not restrict the query to a finite area.
+     * <p>
+     * The feature type bounds advertised in the capabilities are not used, as they are not
+     * guaranteed to contain all the features, and the ones outside of the tiles would be lost.
+     * </p>
+     */
+    private ReferencedEnvelope getRequestBounds(final Query query, final String srsName) {
+        final String typeName = query.getTypeName();
+        try {
+            // the filter has already been adapted to the request CRS
+            Envelope filterBounds = (Envelope) query.getFilter().accept(
+                    ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+            if (filterBounds == null || filterBounds.isNull()
+                    || Double.isInfinite(filterBounds.getWidth())
+                    || Double.isInfinite(filterBounds.getHeight())) {
+                return null;
+            }
+
+            final CoordinateReferenceSystem crs;
+            if (srsName.equals(wfs.getDefaultCRS(typeName))) {
+                crs = getFeatureTypeCRS(typeName);
+            } else {
+                crs = CRS.decode(srsName);
+            }
+            return new ReferencedEnvelope(filterBounds, crs);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Can't determine the bounds of the query on " + typeName
+                    + ", the GetFeature request won't be split", e);
+            return null;
+        }
+    }
+
     /**
      * Sends the GetFeature request using the appropriate HTTP method depending on the
      * {@link #isPreferPostOverGet()} preference and what the server supports.
@@ -857,4 +1061,18 @@ public final class WFS_1_1_0_DataStore implements WFSDataStore {
         }
         return maxFeatures;
     }
+
+    /**
+     * A feature type shared by the datastores, along with the time it was parsed
+     */
+    private static final class ParsedType {
+        final SimpleFeatureType type;
+
+        final long time;
+
+        ParsedType(SimpleFeatureType type, long time) {
+            this.type = type;
+            this.time = time;
+        }
+    }
 }
@@ -66,6 +66,7 @@ import net.opengis.wfs.WFSCapabilitiesType;
 
 import org.eclipse.emf.ecore.EObject;
 import org.geotools.data.DataSourceException;
+import org.geotools.data.wfs.protocol.http.DefaultHTTPProtocol;
 import org.geotools.data.wfs.protocol.http.HTTPProtocol;
 import org.geotools.data.wfs.protocol.http.HTTPResponse;
 import org.geotools.data.wfs.protocol.http.HttpMethod;
@@ -421,9 +422,10 @@ public class WFS_1_1_0_Protocol implements WFSProtocol {
                     "The server does not support DescribeFeatureType for HTTP method GET");
         }
 
+        // schemas rarely change, let them be cached
         URL url = getDescribeFeatureTypeURLGet(typeName, outputFormat);
-        WFSResponse response = issueGetRequest(null, url, Collections.EMPTY_MAP);
-        return response;
+        HTTPResponse httpResponse = http.issueCacheableGet(url, Collections.EMPTY_MAP);
+        return toWFSResponse(null, httpResponse);
     }
 
     /**
@@ -490,7 +492,9 @@ public class WFS_1_1_0_Protocol implements WFSProtocol {
      * @see WFSProtocol#dispose()
      */
     public void dispose() {
-        // do nothing
+        if (http instanceof DefaultHTTPProtocol) {
+            ((DefaultHTTPProtocol) http).dispose();
+        }
     }
 
     /**
@@ -589,9 +593,13 @@ public class WFS_1_1_0_Protocol implements WFSProtocol {
 
     private WFSResponse issueGetRequest(EObject request, URL url, Map<String, String> kvp)
             throws IOException {
-        WFSResponse response;
         HTTPResponse httpResponse = http.issueGet(url, kvp);
+        return toWFSResponse(request, httpResponse);
+    }
 
+    private WFSResponse toWFSResponse(EObject request, HTTPResponse httpResponse)
+            throws IOException {
+        WFSResponse response;
         String responseCharset = httpResponse.getResponseCharset();
         Charset charset = responseCharset == null ? null : Charset.forName(responseCharset);
         String contentType = httpResponse.getContentType();
@@ -721,4 +729,12 @@ public class WFS_1_1_0_Protocol implements WFSProtocol {
         return strategy.splitFilters(filterCaps, filter);
     }
 
+    /**
+     * @see WFSProtocol#splitGetFeature(GetFeature, String, ReferencedEnvelope, int)
+     */
+    public GetFeature[] splitGetFeature(GetFeature request, String geometryName,
+            ReferencedEnvelope bounds, int parts) {
+        return strategy.splitGetFeature(request, geometryName, bounds, parts);
+    }
+
 }
@@ -70,7 +70,13 @@ public class FeatureCollectionParser implements WFSResponseParser {
         QName featureName = wfs.getFeatureTypeName(prefixedTypeName);
         InputStream in = response.getInputStream();
 
-        GetFeatureParser featureReader = new XmlSimpleFeatureParser(in, schema, featureName);
+        final GetFeatureParser featureReader;
+        if (wfs.getParserThreads() > 1) {
+            featureReader = new ParallelGetFeatureParser(in, schema, featureName, wfs
+                    .getParserExecutor(), wfs.getParserThreads());
+        } else {
+            featureReader = new XmlSimpleFeatureParser(in, schema, featureName);
+        }
         return featureReader;
     }
 }
@@ -0,0 +1,495 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.v1_1_0.parsers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.namespace.QName;
+
+import org.geotools.data.DataSourceException;
+import org.geotools.data.wfs.protocol.wfs.GetFeatureParser;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * A {@link GetFeatureParser} that parses the features of a GetFeature response on a pool of
+ * threads.
+ * <p>
+ * The calling thread only scans the raw bytes of the response looking for the start and end
+ * tags of the features, which is much cheaper than actually parsing them, and cuts the stream
+ * into fragments of a few features each. Every fragment is wrapped into a copy of the root
+ * element of the response, so that the namespace declarations it holds are in scope, and is
+ * parsed by its own {@link XmlSimpleFeatureParser} on the pool. Parsed fragments are handed
+ * back in document order, so the features come out of {@link #parse()} in the same order as
+ * with the sequential parser.
+ * </p>
+ * <p>
+ * The pool is provided by the caller, and is meant to be shared by all the responses being
+ * parsed at the same time, so that the number of parsing threads stays bounded no matter how
+ * many requests are running, see {@link #newExecutor(int)}. Closing the parser cancels its
+ * pending fragments but leaves the pool alone.
+ * </p>
+ * <p>
+ * Limitations: the scanner works on the bytes of the stream, so the response must use an
+ * ascii compatible encoding (as {@link XmlSimpleFeatureParser} assumes UTF-8 anyways), and
+ * namespace prefixes used by the features must be declared on the root element or on the
+ * features themselves, not on the intermediate member elements.
+ * </p>
+ *
+ * @since 2.8
+ *
+ * @source $URL$
+ */
+public class ParallelGetFeatureParser implements GetFeatureParser {
+
+    private static final Logger LOGGER = Logging.getLogger("org.geotools.data.wfs");
+
+    private static final Pattern NUMBER_OF_FEATURES = Pattern
+            .compile("numberOfFeatures\\s*=\\s*[\"'](\\d+)[\"']");
+
+    /**
+     * Default number of features parsed by a single task
+     */
+    public static final int DEFAULT_FRAGMENT_SIZE = 50;
+
+    private InputStream inputStream;
+
+    private final SimpleFeatureType targetType;
+
+    private final QName featureName;
+
+    private final byte[] localName;
+
+    private final int fragmentSize;
+
+    private final int maxPending;
+
+    private final ExecutorService executor;
+
+    private final LinkedList<Future<List<SimpleFeature>>> pending = new LinkedList<Future<List<SimpleFeature>>>();
+
+    private Iterator<SimpleFeature> current;
+
+    private byte[] rootStartTag;
+
+    private byte[] rootEndTag;
+
+    private int numberOfFeatures = -1;
+
+    private boolean endOfStream;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int position;
+
+    private int limit;
+
+    private final ByteArrayOutputStream name = new ByteArrayOutputStream(64);
+
+    public ParallelGetFeatureParser(final InputStream getFeatureResponseStream,
+            final SimpleFeatureType targetType, final QName featureName,
+            final ExecutorService executor, final int threads) throws IOException {
+        this(getFeatureResponseStream, targetType, featureName, executor, threads,
+                DEFAULT_FRAGMENT_SIZE);
+    }
+
+    /**
+     * @param executor The pool parsing the fragments, usually shared among parsers
+     * @param threads The number of threads of the pool, bounds the number of fragments
+     *        scanned ahead of the consumer
+     * @param fragmentSize The number of features parsed by a single task
+     */
+    public ParallelGetFeatureParser(final InputStream getFeatureResponseStream,
+            final SimpleFeatureType targetType, final QName featureName,
+            final ExecutorService executor, final int threads, final int fragmentSize)
+            throws IOException {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one parser thread is required");
+        }
+        this.inputStream = getFeatureResponseStream;
+        this.targetType = targetType;
+        this.featureName = featureName;
+        this.localName = featureName.getLocalPart().getBytes("UTF-8");
+        this.fragmentSize = Math.max(1, fragmentSize);
+        // keep all threads busy while the consumer is handed the oldest fragment
+        this.maxPending = threads * 2;
+        this.executor = executor;
+
+        readRootElement();
+    }
+
+    /**
+     * Creates a pool of daemon threads suitable to be shared among parsers
+     * 
+     * @param threads The number of parsing threads
+     */
+    public static ThreadPoolExecutor newExecutor(final int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ParserThreadFactory());
+    }
+
+    public int getNumberOfFeatures() {
+        return numberOfFeatures;
+    }
+
+    public SimpleFeature parse() throws IOException {
+        while (true) {
+            if (current != null && current.hasNext()) {
+                return current.next();
+            }
+            current = null;
+
+            submitFragments();
+            if (pending.isEmpty()) {
+                return null;
+            }
+
+            Future<List<SimpleFeature>> next = pending.removeFirst();
+            try {
+                current = next.get().iterator();
+            } catch (InterruptedException e) {
+                throw new DataSourceException("Interrupted while parsing features", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new DataSourceException(cause);
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        for (Future<List<SimpleFeature>> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        current = null;
+
+        if (inputStream != null) {
+            inputStream.close();
+            inputStream = null;
+        }
+    }
+
+    /**
+     * Scans the stream and submits fragments until there are enough of them being parsed
+     */
+    private void submitFragments() throws IOException {
+        while (!endOfStream && pending.size() < maxPending) {
+            final byte[] fragment = nextFragment();
+            if (fragment == null) {
+                break;
+            }
+            pending.add(executor.submit(new Callable<List<SimpleFeature>>() {
+                public List<SimpleFeature> call() throws Exception {
+                    return parseFragment(fragment);
+                }
+            }));
+        }
+    }
+
+    private List<SimpleFeature> parseFragment(byte[] fragment) throws IOException {
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(fragmentSize);
+        XmlSimpleFeatureParser parser = new XmlSimpleFeatureParser(new ByteArrayInputStream(
+                fragment), targetType, featureName);
+        try {
+            SimpleFeature feature;
+            while ((feature = parser.parse()) != null) {
+                features.add(feature);
+            }
+        } finally {
+            parser.close();
+        }
+        return features;
+    }
+
+    /**
+     * Reads the bytes of the root element start tag, and builds the matching end tag
+     */
+    private void readRootElement() throws IOException {
+        int b;
+        while ((b = read()) != -1) {
+            if (b != '<') {
+                continue;
+            }
+            b = read();
+            if (b == '?' || b == '!') {
+                skipMarkup(b, null);
+                continue;
+            }
+
+            ByteArrayOutputStream tag = new ByteArrayOutputStream();
+            tag.write('<');
+            name.reset();
+            b = readName(b, tag);
+            byte[] rootName = name.toByteArray();
+            boolean empty = copyTag(b, tag);
+            if (empty) {
+                endOfStream = true;
+                return;
+            }
+            rootStartTag = tag.toByteArray();
+
+            ByteArrayOutputStream end = new ByteArrayOutputStream();
+            end.write('<');
+            end.write('/');
+            end.write(rootName);
+            end.write('>');
+            rootEndTag = end.toByteArray();
+
+            Matcher matcher = NUMBER_OF_FEATURES.matcher(new String(rootStartTag, "UTF-8"));
+            if (matcher.find()) {
+                try {
+                    numberOfFeatures = Integer.parseInt(matcher.group(1));
+                } catch (NumberFormatException nfe) {
+                    LOGGER.warning("Can't parse numberOfFeatures out of " + matcher.group(1));
+                }
+            }
+            return;
+        }
+        endOfStream = true;
+    }
+
+    /**
+     * Returns the next fragment, made of the root start tag, up to {@link #fragmentSize}
+     * features, and the root end tag, or null if there are no more features in the stream.
+     */
+    private byte[] nextFragment() throws IOException {
+        ByteArrayOutputStream fragment = null;
+        int count = 0;
+        int b;
+        while (count < fragmentSize && (b = read()) != -1) {
+            if (b != '<') {
+                continue;
+            }
+            b = read();
+            if (b == '/' || b == '?' || b == '!') {
+                skipMarkup(b, null);
+                continue;
+            }
+
+            name.reset();
+            b = readName(b, null);
+            if (!isFeatureName()) {
+                continue;
+            }
+            if (fragment == null) {
+                fragment = new ByteArrayOutputStream(8192);
+                fragment.write(rootStartTag);
+            }
+            fragment.write('<');
+            name.writeTo(fragment);
+            copyFeature(b, fragment);
+            count++;
+        }
+
+        if (count < fragmentSize) {
+            endOfStream = true;
+        }
+        if (count == 0) {
+            return null;
+        }
+        fragment.write(rootEndTag);
+        return fragment.toByteArray();
+    }
+
+    /**
+     * Copies the rest of a feature whose start tag name has already been copied, up to and
+     * including its end tag
+     */
+    private void copyFeature(int b, ByteArrayOutputStream out) throws IOException {
+        if (copyTag(b, out)) {
+            return;
+        }
+
+        int depth = 1;
+        while ((b = read()) != -1) {
+            out.write(b);
+            if (b != '<') {
+                continue;
+            }
+            b = read();
+            if (b == '?' || b == '!') {
+                out.write(b);
+                skipMarkup(b, out);
+                continue;
+            }
+            name.reset();
+            if (b == '/') {
+                out.write(b);
+                b = readName(read(), out);
+                boolean feature = isFeatureName();
+                copyTag(b, out);
+                if (feature && --depth == 0) {
+                    return;
+                }
+            } else {
+                b = readName(b, out);
+                boolean feature = isFeatureName();
+                boolean empty = copyTag(b, out);
+                if (feature && !empty) {
+                    depth++;
+                }
+            }
+        }
+        throw new DataSourceException("Unexpected end of stream while scanning feature "
+                + featureName);
+    }
+
+    /**
+     * Reads an element name, starting at byte b, into {@link #name} and out, if not null.
+     * Returns the first byte following the name.
+     */
+    private int readName(int b, ByteArrayOutputStream out) throws IOException {
+        while (b != -1 && b != '>' && b != '/' && !Character.isWhitespace(b)) {
+            name.write(b);
+            write(out, b);
+            b = read();
+        }
+        return b;
+    }
+
+    /**
+     * Copies the rest of a tag, starting at byte b, up to and including the closing '&gt;'.
+     * Returns true if the tag is an empty element tag.
+     */
+    private boolean copyTag(int b, ByteArrayOutputStream out) throws IOException {
+        int quote = 0;
+        int previous = 0;
+        while (b != -1) {
+            out.write(b);
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return previous == '/';
+            }
+            previous = b;
+            b = read();
+        }
+        throw new DataSourceException("Unexpected end of stream while scanning feature "
+                + featureName);
+    }
+
+    /**
+     * Skips, or copies if out is not null, comments, CDATA sections, processing instructions,
+     * and end tags, whose first byte after the '&lt;' is b.
+     */
+    private void skipMarkup(int b, ByteArrayOutputStream out) throws IOException {
+        String terminator = ">";
+        if (b == '!') {
+            int next = read();
+            write(out, next);
+            if (next == '-') {
+                terminator = "-->";
+            } else if (next == '[') {
+                terminator = "]]>";
+            }
+        }
+
+        int matched = 0;
+        while ((b = read()) != -1) {
+            write(out, b);
+            if (b == terminator.charAt(matched)) {
+                if (++matched == terminator.length()) {
+                    return;
+                }
+            } else {
+                matched = b == terminator.charAt(0) ? 1 : 0;
+            }
+        }
+    }
+
+    private void write(ByteArrayOutputStream out, int b) {
+        if (out != null && b != -1) {
+            out.write(b);
+        }
+    }
+
+    /**
+     * Returns true if the name just read is the feature name, with any prefix
+     */
+    private boolean isFeatureName() {
+        byte[] read = name.toByteArray();
+        int offset = read.length - localName.length;
+        if (offset < 0 || (offset > 0 && read[offset - 1] != ':')) {
+            return false;
+        }
+        for (int i = 0; i < localName.length; i++) {
+            if (read[offset + i] != localName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            if (inputStream == null) {
+                return -1;
+            }
+            limit = inputStream.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Creates daemon threads, so that a parser that is not closed does not prevent the jvm from
+     * exiting
+     */
+    static class ParserThreadFactory implements ThreadFactory {
+        static final AtomicInteger COUNT = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "GetFeatureParser-" + COUNT.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
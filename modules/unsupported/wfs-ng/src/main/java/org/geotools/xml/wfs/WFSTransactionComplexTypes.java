@@ -291,7 +291,8 @@ public class WFSTransactionComplexTypes {
                     transactionRequest.getLockId(), output, hints);
             }
 
-            Iterator actions = transactionRequest.getAllActions().iterator();
+            // may be streamed, see WFSTransactionState#commitInserts
+            Iterator actions = transactionRequest.getActionIterator();
 
             while (actions.hasNext()) {
                 Action a = (Action) actions.next();
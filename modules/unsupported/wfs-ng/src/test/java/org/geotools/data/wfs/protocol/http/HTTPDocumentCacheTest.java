@@ -0,0 +1,275 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.protocol.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.data.wfs.protocol.http.HTTPDocumentCache.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ *
+ * @source $URL$
+ */
+public class HTTPDocumentCacheTest {
+
+    private static final URL URL;
+    static {
+        try {
+            URL = new URL("http://example.com/wfs?request=GetCapabilities");
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private MockHttpProtocol http;
+
+    @Before
+    public void setUp() {
+        http = new MockHttpProtocol();
+        http.setDocumentCache(new HTTPDocumentCache(null));
+    }
+
+    @Test
+    public void testRevalidateWithETag() throws IOException {
+        http.headers.put("ETag", "\"v1\"");
+
+        assertEquals("caps", read(http.issueCacheableGet(URL, Collections.EMPTY_MAP)));
+        assertEquals(1, http.requests);
+        assertNull(http.lastCached);
+
+        // the server says the document did not change
+        http.notModified = true;
+        http.body = "changed";
+        assertEquals("caps", read(http.issueCacheableGet(URL, Collections.EMPTY_MAP)));
+        assertEquals(2, http.requests);
+        assertNotNull(http.lastCached);
+        assertEquals("\"v1\"", http.lastCached.getETag());
+
+        // now it did
+        http.notModified = false;
+        assertEquals("changed", read(http.issueCacheableGet(URL, Collections.EMPTY_MAP)));
+        assertEquals(3, http.requests);
+    }
+
+    @Test
+    public void testNotModifiedUpdatesExpiry() throws IOException {
+        http.headers.put("ETag", "\"v1\"");
+        http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+
+        // revalidated, and fresh for another hour
+        http.notModified = true;
+        http.notModifiedHeaders.put("cache-control", "max-age=3600");
+        assertEquals("caps", read(http.issueCacheableGet(URL, Collections.EMPTY_MAP)));
+        assertEquals(2, http.requests);
+        assertEquals("caps", read(http.issueCacheableGet(URL, Collections.EMPTY_MAP)));
+        assertEquals(2, http.requests);
+    }
+
+    @Test
+    public void testFreshDocumentIsNotRequested() throws IOException {
+        http.headers.put("Cache-Control", "public, max-age=3600");
+
+        HTTPResponse response = http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+        assertEquals("caps", read(response));
+        // the stream can be read again
+        assertEquals("caps", read(response));
+
+        assertEquals("caps", read(http.issueCacheableGet(URL, Collections.EMPTY_MAP)));
+        assertEquals(1, http.requests);
+    }
+
+    @Test
+    public void testNotCacheable() throws IOException {
+        // no validators
+        assertEquals("caps", read(http.issueCacheableGet(URL, Collections.EMPTY_MAP)));
+        assertEquals("caps", read(http.issueCacheableGet(URL, Collections.EMPTY_MAP)));
+        assertEquals(2, http.requests);
+        assertNull(http.lastCached);
+
+        http.headers.put("Last-Modified", "Mon, 03 Jan 2011 10:00:00 GMT");
+        http.headers.put("Cache-Control", "no-store");
+        http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+        http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+        assertEquals(4, http.requests);
+        assertNull(http.lastCached);
+    }
+
+    @Test
+    public void testCacheKeyIncludesUser() throws IOException {
+        http.headers.put("Cache-Control", "max-age=3600");
+        http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+        http.setAuth("user", "pwd");
+        http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+        assertEquals(2, http.requests);
+        http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+        assertEquals(2, http.requests);
+
+        // the same user with other credentials is not served the cached document
+        http.setAuth("user", "other");
+        http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+        assertEquals(3, http.requests);
+    }
+
+    @Test
+    public void testAuthenticatedNotOnDisk() throws IOException {
+        File directory = File.createTempFile("wfs-cache", "");
+        directory.delete();
+        try {
+            http.setDocumentCache(new HTTPDocumentCache(directory));
+            http.headers.put("Cache-Control", "max-age=3600");
+            http.setAuth("user", "pwd");
+            http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+            http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+            assertEquals(1, http.requests);
+
+            String[] files = directory.list();
+            assertTrue(files == null || files.length == 0);
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testDiskCache() throws IOException {
+        File directory = File.createTempFile("wfs-cache", "");
+        directory.delete();
+        try {
+            http.setDocumentCache(new HTTPDocumentCache(directory));
+            http.headers.put("ETag", "\"v1\"");
+            http.issueCacheableGet(URL, Collections.EMPTY_MAP);
+
+            // a new cache, as after a restart, reads the document back
+            HTTPDocumentCache cache = new HTTPDocumentCache(directory);
+            Document document = cache.get(http.createUri(URL, Collections.EMPTY_MAP));
+            assertNotNull(document);
+            assertEquals("\"v1\"", document.getETag());
+            assertEquals("text/xml", document.getContentType());
+            assertEquals("caps", read(document.toResponse()));
+
+            cache.clear();
+            assertNull(new HTTPDocumentCache(directory).get(document.getKey()));
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testSharedInstances() {
+        assertSame(HTTPDocumentCache.getInstance(), HTTPDocumentCache.getInstance());
+        File directory = new File("target/wfs-cache");
+        assertSame(HTTPDocumentCache.getInstance(directory), HTTPDocumentCache
+                .getInstance(directory.getAbsoluteFile()));
+    }
+
+    private static String read(HTTPResponse response) throws IOException {
+        InputStream in = response.getResponseStream();
+        try {
+            return new String(HTTPDocumentCache.readFully(in), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Answers GET requests with a fixed body and headers
+     */
+    private static class MockHttpProtocol extends AbstractHttpProtocol {
+
+        String body = "caps";
+
+        Map<String, String> headers = new HashMap<String, String>();
+
+        boolean notModified;
+
+        Map<String, String> notModifiedHeaders = new HashMap<String, String>();
+
+        int requests;
+
+        Document lastCached;
+
+        public HTTPResponse issueGet(URL baseUrl, Map<String, String> kvp) throws IOException {
+            requests++;
+            final String target = createUri(baseUrl, kvp);
+            final byte[] content = body.getBytes("UTF-8");
+            final Map<String, String> responseHeaders = new HashMap<String, String>(headers);
+            return new HTTPResponse() {
+                public String getTargetUrl() {
+                    return target;
+                }
+
+                public InputStream getResponseStream() throws IOException {
+                    return new ByteArrayInputStream(content);
+                }
+
+                public String getResponseHeader(String headerName) {
+                    return responseHeaders.get(headerName);
+                }
+
+                public String getResponseCharset() {
+                    return "UTF-8";
+                }
+
+                public String getContentType() {
+                    return "text/xml";
+                }
+            };
+        }
+
+        @Override
+        protected HTTPResponse issueConditionalGet(URL baseUrl, Map<String, String> kvp,
+                Document cached) throws IOException {
+            lastCached = cached;
+            if (cached != null && notModified) {
+                requests++;
+                return new NotModifiedResponse(createUri(baseUrl, kvp), notModifiedHeaders);
+            }
+            return issueGet(baseUrl, kvp);
+        }
+
+        public HTTPResponse issuePost(URL targetUrl, POSTCallBack callback) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
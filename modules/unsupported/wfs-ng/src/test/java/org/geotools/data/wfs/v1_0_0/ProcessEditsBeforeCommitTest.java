@@ -17,6 +17,8 @@
 package org.geotools.data.wfs.v1_0_0;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
@@ -254,4 +256,29 @@ public class ProcessEditsBeforeCommitTest extends TestCase {
 	}
 
 	
+
+	public void testInsertsOnlyKeepOrder() throws Exception {
+		SimpleFeature[] features=new SimpleFeature[5];
+		for( int i=0; i<features.length; i++ ){
+			features[i]=createFeature(i,i,NAME_ATT+i);
+			state.addAction(featureType.getTypeName(), new Action.InsertAction(features[i]));
+		}
+
+		state.combineActions();
+		List actions=state.getActions(featureType.getTypeName());
+		assertEquals(features.length, actions.size());
+		for( int i=0; i<features.length; i++ ){
+			assertSame(features[i], ((InsertAction) actions.get(i)).getFeature());
+		}
+	}
+
+	public void testActionIterator() throws Exception {
+		SimpleFeature createFeature = createFeature(0,0,NAME_ATT);
+		state.addAction(featureType.getTypeName(), new Action.InsertAction(createFeature));
+
+		Iterator actions=state.getActionIterator();
+		assertTrue(actions.hasNext());
+		assertSame(createFeature, ((InsertAction) actions.next()).getFeature());
+		assertFalse(actions.hasNext());
+	}
 }
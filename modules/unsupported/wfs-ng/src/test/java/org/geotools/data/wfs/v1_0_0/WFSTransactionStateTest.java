@@ -0,0 +1,246 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.v1_0_0;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.wfs.protocol.http.HttpMethod;
+import org.geotools.data.wfs.v1_0_0.Action.InsertAction;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.wfs.protocol.ConnectionFactory;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Tests {@link WFSTransactionState#commitInserts(String, Iterator)} against a mocked connection.
+ *
+ * @source $URL$
+ */
+public class WFSTransactionStateTest extends TestCase {
+
+    static final String NAMESPACE = "http://www.geotools.org/test";
+
+    static final String RESPONSE = "<wfs:WFS_TransactionResponse version=\"1.0.0\""
+            + " xmlns:wfs=\"http://www.opengis.net/wfs\" xmlns:ogc=\"http://www.opengis.net/ogc\">"
+            + "<wfs:InsertResult><ogc:FeatureId fid=\"Type.1\"/><ogc:FeatureId fid=\"Type.2\"/>"
+            + "</wfs:InsertResult><wfs:TransactionResult><wfs:Status><wfs:SUCCESS/>"
+            + "</wfs:Status></wfs:TransactionResult></wfs:WFS_TransactionResponse>";
+
+    SimpleFeatureType featureType;
+
+    MockConnectionFactory connections;
+
+    TestDataStore ds;
+
+    protected void setUp() throws Exception {
+        featureType = DataUtilities.createType(NAMESPACE, "Type", "geom:Point,name:String");
+        connections = new MockConnectionFactory();
+        InputStream capabilities = getClass().getResourceAsStream(
+                "test-data/galdos-http-getCapabilities.xml");
+        try {
+            WFS100ProtocolHandler protocolHandler = new WFS100ProtocolHandler(capabilities,
+                    connections);
+            ds = new TestDataStore(protocolHandler);
+        } finally {
+            capabilities.close();
+        }
+    }
+
+    public void testCommitInserts() throws Exception {
+        WFSTransactionState state = new WFSTransactionState(ds);
+        final List<InsertAction> actions = new ArrayList<InsertAction>();
+        actions.add(insert("new1", 0, 0, "one"));
+        actions.add(insert("new2", 1, 1, "two"));
+
+        final List<Boolean> streamed = new ArrayList<Boolean>();
+        Iterator<InsertAction> inserts = new Iterator<InsertAction>() {
+            Iterator<InsertAction> delegate = actions.iterator();
+
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            public InsertAction next() {
+                // the features must be pulled while the request is being written
+                streamed.add(connections.connection != null
+                        && connections.connection.output != null);
+                return delegate.next();
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        String[] fids = state.commitInserts("Type", inserts);
+
+        assertEquals(1, connections.requests);
+        assertEquals(Collections.nCopies(2, Boolean.TRUE), streamed);
+        assertTrue("the request should be sent in chunks", connections.connection.isChunked());
+        String request = connections.connection.output.toString("UTF-8");
+        assertTrue(request, request.contains("Insert"));
+        assertTrue(request, request.contains("one"));
+        assertTrue(request, request.contains("two"));
+
+        assertEquals(2, fids.length);
+        assertEquals("Type.1", fids[0]);
+        assertEquals("Type.2", fids[1]);
+        assertEquals("Type.1", ds.fidMappings.get("new1"));
+        assertEquals("Type.2", ds.fidMappings.get("new2"));
+        assertEquals(2, state.getFids("Type").length);
+    }
+
+    public void testCommitNoInserts() throws Exception {
+        WFSTransactionState state = new WFSTransactionState(ds);
+        List<InsertAction> actions = Collections.emptyList();
+
+        String[] fids = state.commitInserts("Type", actions.iterator());
+
+        assertEquals(0, fids.length);
+        assertEquals("no empty transaction should be sent", 0, connections.requests);
+        assertTrue(ds.fidMappings.isEmpty());
+    }
+
+    InsertAction insert(String fid, double x, double y, String name) {
+        GeometryFactory gf = new GeometryFactory();
+        Object[] values = new Object[] { gf.createPoint(new Coordinate(x, y)), name };
+        return new InsertAction(SimpleFeatureBuilder.build(featureType, values, fid));
+    }
+
+    /**
+     * A datastore serving the test feature type and recording the fid mappings
+     */
+    class TestDataStore extends WFS_1_0_0_DataStore {
+        Map<String, String> fidMappings = new HashMap<String, String>();
+
+        TestDataStore(WFS100ProtocolHandler protocolHandler) throws Exception {
+            super(HttpMethod.POST, protocolHandler, 10000, 10, false);
+        }
+
+        @Override
+        public SimpleFeatureType getSchema(String typeName) throws IOException {
+            return featureType;
+        }
+
+        @Override
+        public URL getDescribeFeatureTypeURL(String typeName) {
+            return WFSTransactionStateTest.class.getResource("test-data/transaction-test.xsd");
+        }
+
+        @Override
+        public synchronized void addFidMapping(String original, String finalFid) {
+            super.addFidMapping(original, finalFid);
+            fidMappings.put(original, finalFid);
+        }
+    }
+
+    /**
+     * A connection that records the request and answers with a canned response
+     */
+    static class MockConnection extends HttpURLConnection {
+        ByteArrayOutputStream output;
+
+        MockConnection(URL url) {
+            super(url);
+        }
+
+        boolean isChunked() {
+            return chunkLength > 0;
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            if (output == null) {
+                output = new ByteArrayOutputStream();
+            }
+            return output;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ByteArrayInputStream(RESPONSE.getBytes("UTF-8"));
+        }
+
+        @Override
+        public void connect() throws IOException {
+            connected = true;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+    }
+
+    static class MockConnectionFactory implements ConnectionFactory {
+        MockConnection connection;
+
+        int requests;
+
+        public String getAuthUsername() {
+            return null;
+        }
+
+        public String getAuthPassword() {
+            return null;
+        }
+
+        public boolean isTryGzip() {
+            return false;
+        }
+
+        public Charset getEncoding() {
+            return Charset.forName("UTF-8");
+        }
+
+        public HttpURLConnection getConnection(URL query, HttpMethod method) throws IOException {
+            requests++;
+            connection = new MockConnection(query);
+            return connection;
+        }
+
+        public InputStream getInputStream(HttpURLConnection hc) throws IOException {
+            return hc.getInputStream();
+        }
+
+        public InputStream getInputStream(URL query, HttpMethod method) throws IOException {
+            return getInputStream(getConnection(query, method));
+        }
+    }
+}
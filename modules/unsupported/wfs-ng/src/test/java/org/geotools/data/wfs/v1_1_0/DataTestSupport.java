@@ -29,6 +29,7 @@ import java.util.Map;
 import javax.xml.namespace.QName;
 
 import org.geotools.data.wfs.protocol.http.DefaultHTTPProtocol;
+import org.geotools.data.wfs.protocol.http.HTTPDocumentCache.Document;
 import org.geotools.data.wfs.protocol.http.HTTPProtocol;
 import org.geotools.data.wfs.protocol.http.HTTPResponse;
 import org.geotools.test.TestData;
@@ -228,6 +229,12 @@ public final class DataTestSupport {
             return mockResponse;
         }
 
+        @Override
+        protected HTTPResponse issueConditionalGet(URL baseUrl, Map<String, String> kvp,
+                Document cached) throws IOException {
+            return issueGet(baseUrl, kvp);
+        }
+
         @Override
         public HTTPResponse issuePost(final URL targetUrl, final POSTCallBack callback)
                 throws IOException {
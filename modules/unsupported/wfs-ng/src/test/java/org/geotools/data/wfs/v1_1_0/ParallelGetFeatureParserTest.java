@@ -0,0 +1,50 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2011, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.wfs.v1_1_0;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+
+import javax.xml.namespace.QName;
+
+import org.geotools.data.wfs.protocol.wfs.GetFeatureParser;
+import org.geotools.data.wfs.v1_1_0.parsers.ParallelGetFeatureParser;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Runs the GetFeature parsing tests with fragments of two features, so that responses are
+ * split across several parallel tasks
+ *
+ * @source $URL$
+ */
+public class ParallelGetFeatureParserTest extends AbstractGetFeatureParserTest {
+
+    private static final ExecutorService EXECUTOR = ParallelGetFeatureParser.newExecutor(2);
+
+    @Override
+    protected GetFeatureParser getParser(final QName featureName, final String schemaLocation,
+            final SimpleFeatureType featureType, final URL getFeaturesRequest) throws IOException {
+
+        InputStream inputStream = new BufferedInputStream(getFeaturesRequest.openStream());
+        GetFeatureParser parser = new ParallelGetFeatureParser(inputStream, featureType,
+                featureName, EXECUTOR, 2, 2);
+        return parser;
+    }
+}
@@ -50,7 +50,7 @@ public class StreamingParserFeatureReaderTest extends AbstractGetFeatureParserTe
         final InputStream inputStream = new BufferedInputStream(getFeaturesRequest.openStream());
         final StreamingParserFeatureReader featureReader;
         featureReader = new StreamingParserFeatureReader(configuration, inputStream, featureName,
-                schemaLocationUrl);
+                schemaLocationUrl, featureType);
         return featureReader;
     }
 
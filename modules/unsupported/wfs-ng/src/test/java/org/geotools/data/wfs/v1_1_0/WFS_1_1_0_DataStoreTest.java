@@ -24,22 +24,39 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.geotools.data.DefaultQuery;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.SchemaNotFoundException;
 import org.geotools.data.Transaction;
+import org.geotools.data.wfs.protocol.http.HTTPResponse;
 import org.geotools.data.wfs.v1_1_0.DataTestSupport.TestHttpProtocol;
 import org.geotools.data.wfs.v1_1_0.DataTestSupport.TestHttpResponse;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.v1_1.OGCConfiguration;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.geotools.test.TestData;
+import org.geotools.xml.Parser;
 import org.junit.Test;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Envelope;
 
 /**
  * Unit test suite for {@link WFS_1_1_0_DataStore}
@@ -109,6 +126,150 @@ public class WFS_1_1_0_DataStoreTest {
         assertNotNull(schema);
     }
 
+    /**
+     * Splits the query into four requests, each one answered with the same three features by
+     * the mock http protocol, which must be returned only once
+     */
+    @Test
+    public void testGetFeatureReaderConcurrentRequests() throws IOException {
+        final InputStream dataStream = TestData.openStream(this, CUBEWERX_GOVUNITCE.DATA);
+        TestHttpResponse httpResponse = new TestHttpResponse("text/xml; subtype=gml/3.1.1",
+                "UTF-8", dataStream);
+        final List<String> filters = Collections.synchronizedList(new ArrayList<String>());
+        TestHttpProtocol mockHttp = new TestHttpProtocol(httpResponse) {
+            @Override
+            public synchronized HTTPResponse issueGet(URL baseUrl, Map<String, String> kvp)
+                    throws IOException {
+                filters.add(kvp.get("FILTER"));
+                return super.issueGet(baseUrl, kvp);
+            }
+        };
+        createTestProtocol(CUBEWERX_GOVUNITCE.CAPABILITIES, mockHttp);
+
+        URL describeUrl = TestData.getResource(this, CUBEWERX_GOVUNITCE.SCHEMA);
+        wfs.setDescribeFeatureTypeURLOverride(describeUrl);
+
+        WFS_1_1_0_DataStore ds = new WFS_1_1_0_DataStore(wfs);
+        ds.setConcurrentRequests(4);
+        DefaultQuery query = new DefaultQuery(CUBEWERX_GOVUNITCE.FEATURETYPENAME, worldFilter());
+        assertEquals(3, readFids(ds, query).size());
+
+        assertEquals(4, filters.size());
+        for (String filter : filters) {
+            assertNotNull(filter);
+            assertTrue(filter, filter.contains("BBOX"));
+        }
+        ds.dispose();
+    }
+
+    /**
+     * The query area is the one of the filter, not the bounds advertised by the capabilities,
+     * otherwise the features lying outside of them would be lost. Queries whose filter does not
+     * restrict them to a finite area are not split.
+     */
+    @Test
+    public void testGetFeatureReaderConcurrentRequestsOutsideCapabilitiesBounds()
+            throws IOException {
+        // move the first feature to Europe, out of the capabilities WGS84 bounds
+        final String data = read(TestData.openStream(this, CUBEWERX_GOVUNITCE.DATA)).replaceFirst(
+                "-159 22 0 -159 23 0 -158 23 0 -158 22 0 -159 22 0",
+                "10 45 0 10 46 0 11 46 0 11 45 0 10 45 0");
+        final List<String> filters = Collections.synchronizedList(new ArrayList<String>());
+        TestHttpProtocol mockHttp = new TestHttpProtocol(null) {
+            @Override
+            public synchronized HTTPResponse issueGet(URL baseUrl, Map<String, String> kvp)
+                    throws IOException {
+                String filter = kvp.get("FILTER");
+                filters.add(filter);
+                return new TestHttpResponse("text/xml; subtype=gml/3.1.1", "UTF-8",
+                        selectMembers(data, filter));
+            }
+        };
+        createTestProtocol(CUBEWERX_GOVUNITCE.CAPABILITIES, mockHttp);
+
+        URL describeUrl = TestData.getResource(this, CUBEWERX_GOVUNITCE.SCHEMA);
+        wfs.setDescribeFeatureTypeURLOverride(describeUrl);
+
+        WFS_1_1_0_DataStore ds = new WFS_1_1_0_DataStore(wfs);
+        ds.setConcurrentRequests(4);
+        DefaultQuery query = new DefaultQuery(CUBEWERX_GOVUNITCE.FEATURETYPENAME, worldFilter());
+        Set<String> fids = readFids(ds, query);
+        assertEquals(4, filters.size());
+        assertEquals(3, fids.size());
+        assertTrue(fids.contains("CWFID.GOVUNIT_CE.0.0"));
+
+        filters.clear();
+        query = new DefaultQuery(CUBEWERX_GOVUNITCE.FEATURETYPENAME);
+        assertEquals(3, readFids(ds, query).size());
+        assertEquals(1, filters.size());
+        ds.dispose();
+    }
+
+    private Filter worldFilter() {
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        return ff.bbox("geometry", -180, -90, 180, 90, "EPSG:4269");
+    }
+
+    private Set<String> readFids(WFS_1_1_0_DataStore ds, DefaultQuery query) throws IOException {
+        FeatureReader<SimpleFeatureType, SimpleFeature> featureReader;
+        featureReader = ds.getFeatureReader(query, Transaction.AUTO_COMMIT);
+        Set<String> fids = new HashSet<String>();
+        try {
+            while (featureReader.hasNext()) {
+                assertTrue(fids.add(featureReader.next().getID()));
+            }
+        } finally {
+            featureReader.close();
+        }
+        return fids;
+    }
+
+    /**
+     * Keeps the feature members of the response whose geometry intersects the bounds of the
+     * encoded filter, mocking a server actually evaluating it
+     */
+    private String selectMembers(String data, String encodedFilter) throws IOException {
+        if (encodedFilter == null) {
+            return data;
+        }
+        Envelope bounds;
+        try {
+            Filter filter = (Filter) new Parser(new OGCConfiguration()).parse(new StringReader(
+                    encodedFilter));
+            bounds = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+        } catch (Exception e) {
+            throw (IOException) new IOException("Could not parse " + encodedFilter).initCause(e);
+        }
+
+        final String end = "</gml:featureMember>";
+        int first = data.indexOf("<gml:featureMember>");
+        int last = data.lastIndexOf(end) + end.length();
+        StringBuilder sb = new StringBuilder(data.substring(0, first));
+        for (String member : data.substring(first, last).split("(?=<gml:featureMember>)")) {
+            Envelope memberBounds = member.contains("10 45 0") ? new Envelope(10, 11, 45, 46)
+                    : new Envelope(-159, -158, 22, 23);
+            if (bounds.intersects(memberBounds)) {
+                sb.append(member);
+            }
+        }
+        sb.append(data.substring(last));
+        return sb.toString();
+    }
+
+    private String read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "ISO-8859-1"));
+        try {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line).append('\n');
+            }
+            return sb.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
     @Test
     public void tesGetFeatureReader() throws IOException {
         final InputStream dataStream = TestData.openStream(this, CUBEWERX_GOVUNITCE.DATA);